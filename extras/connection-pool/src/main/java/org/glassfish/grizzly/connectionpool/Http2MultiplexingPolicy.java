@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.http2.Http2Session;
+
+/**
+ * The {@link MultiplexingPolicy} for the HTTP/2 client {@link Connection}s:
+ * a {@link Connection} serves as many leases as the peer's
+ * <tt>SETTINGS_MAX_CONCURRENT_STREAMS</tt> allows and is drained once
+ * GOAWAY is sent or received.
+ *
+ * A {@link Connection}, which doesn't have an {@link Http2Session} yet
+ * (for example the HTTP/1.1 upgrade is still in progress), is leased
+ * exclusively.
+ *
+ * @since 2.4.4
+ */
+public class Http2MultiplexingPolicy implements MultiplexingPolicy {
+
+    private final int maxStreamsPerConnection;
+
+    /**
+     * Constructs the policy, which is limited only by the peer settings.
+     */
+    public Http2MultiplexingPolicy() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxStreamsPerConnection the maximum number of streams opened by
+     *        the pool users on a {@link Connection}, even if the peer allows more
+     */
+    public Http2MultiplexingPolicy(final int maxStreamsPerConnection) {
+        if (maxStreamsPerConnection < 1) {
+            throw new IllegalArgumentException(
+                    "maxStreamsPerConnection has to be positive");
+        }
+
+        this.maxStreamsPerConnection = maxStreamsPerConnection;
+    }
+
+    @Override
+    public int getMaxConcurrentLeases(final Connection connection) {
+        final Http2Session http2Session = Http2Session.get(connection);
+        if (http2Session == null) {
+            return 1;
+        }
+
+        if (http2Session.isGoingAway()) {
+            return 0;
+        }
+
+        final int peerMaxConcurrentStreams =
+                http2Session.getPeerMaxConcurrentStreams();
+
+        // negative value means "unlimited"
+        return peerMaxConcurrentStreams < 0
+                ? maxStreamsPerConnection
+                : Math.min(peerMaxConcurrentStreams, maxStreamsPerConnection);
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.CloseType;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.utils.Futures;
+
+/**
+ * The pool, which leases the shares of the {@link Connection}s rather than
+ * whole {@link Connection}s, for the protocols able to multiplex several
+ * exchanges over a single connection, like HTTP/2.
+ *
+ * The {@link Connection}s are obtained from the underlying
+ * {@link SingleEndpointPool}, which is responsible for the connect, reconnect,
+ * keep-alive and max pool size mechanisms. A {@link Connection} is leased
+ * as many times as the {@link MultiplexingPolicy} allows, and a new
+ * {@link Connection} is taken from the underlying pool only when all the
+ * {@link Connection}s in use are saturated. Once the last lease is released,
+ * the {@link Connection} is returned to the underlying pool, unless the
+ * {@link MultiplexingPolicy} reports it's draining (GOAWAY for HTTP/2),
+ * in which case the {@link Connection} is closed.
+ *
+ * Each successful {@link #take()} or {@link #poll()} has to be matched by
+ * the {@link #release(org.glassfish.grizzly.Connection)} call.
+ *
+ * @param <E> endpoint address type, for example {@link java.net.SocketAddress}
+ *        for TCP and UDP transports
+ *
+ * @since 2.4.4
+ */
+public class MultiplexingEndpointPool<E> {
+    private static final Logger LOGGER = Grizzly.logger(MultiplexingEndpointPool.class);
+
+    /**
+     * The pool the {@link Connection}s are taken from
+     */
+    private final SingleEndpointPool<E> connectionPool;
+
+    /**
+     * The policy, which says how many times a {@link Connection} may be leased
+     */
+    private final MultiplexingPolicy multiplexingPolicy;
+
+    /**
+     * The {@link Connection}s taken from the underlying pool, which have
+     * at least one lease, in the order they were taken
+     */
+    private final Map<Connection, SharedConnection> sharedConnections =
+            new LinkedHashMap<Connection, SharedConnection>();
+
+    /**
+     * The waiting list of asynchronous lease requests
+     */
+    private final Chain<CompletionHandler<Connection>> waitingList =
+            new Chain<CompletionHandler<Connection>>();
+
+    /**
+     * {@link CompletionHandler} to be notified once the underlying pool
+     * provides a {@link Connection}
+     */
+    private final TakeCompletionHandler takeCompletionHandler =
+            new TakeCompletionHandler();
+
+    /**
+     * {@link CloseListener} to be notified once a shared {@link Connection} is closed
+     */
+    private final SharedConnectionCloseListener closeListener =
+            new SharedConnectionCloseListener();
+
+    /**
+     * Sync object
+     */
+    private final Object sync = new Object();
+
+    /**
+     * The number of the {@link Connection}s requested from the underlying pool
+     */
+    private int pendingTakes;
+
+    /**
+     * The number of leases the last {@link Connection} taken from the
+     * underlying pool was able to serve
+     */
+    private int expectedMaxLeases = 1;
+
+    /**
+     * The number of leases
+     */
+    private int leasesCount;
+
+    /**
+     * close flag
+     */
+    private boolean isClosed;
+
+    /**
+     * Constructs MultiplexingEndpointPool instance.
+     *
+     * @param connectionPool the {@link SingleEndpointPool} the {@link Connection}s
+     *        are taken from
+     * @param multiplexingPolicy the {@link MultiplexingPolicy}
+     */
+    public MultiplexingEndpointPool(final SingleEndpointPool<E> connectionPool,
+            final MultiplexingPolicy multiplexingPolicy) {
+        if (connectionPool == null) {
+            throw new IllegalArgumentException("connectionPool can not be null");
+        }
+        if (multiplexingPolicy == null) {
+            throw new IllegalArgumentException("multiplexingPolicy can not be null");
+        }
+
+        this.connectionPool = connectionPool;
+        this.multiplexingPolicy = multiplexingPolicy;
+    }
+
+    /**
+     * @return the underlying {@link SingleEndpointPool}
+     */
+    public SingleEndpointPool<E> getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * @return the {@link MultiplexingPolicy}
+     */
+    public MultiplexingPolicy getMultiplexingPolicy() {
+        return multiplexingPolicy;
+    }
+
+    /**
+     * @return the number of {@link Connection}s, which are currently leased
+     */
+    public int getSharedConnectionsCount() {
+        synchronized (sync) {
+            return sharedConnections.size();
+        }
+    }
+
+    /**
+     * @return the total number of the current leases
+     */
+    public int getLeasesCount() {
+        synchronized (sync) {
+            return leasesCount;
+        }
+    }
+
+    /**
+     * @param connection {@link Connection}
+     * @return the number of the current leases of the {@link Connection}
+     */
+    public int getLeasesCount(final Connection connection) {
+        synchronized (sync) {
+            final SharedConnection sharedConnection =
+                    sharedConnections.get(connection);
+            return sharedConnection != null ? sharedConnection.leases : 0;
+        }
+    }
+
+    /**
+     * Leases a {@link Connection} in non-blocking/asynchronous fashion.
+     * Returns a {@link GrizzlyFuture} representing the pending result.
+     *
+     * @return {@link GrizzlyFuture}
+     * @see SingleEndpointPool#take()
+     */
+    public GrizzlyFuture<Connection> take() {
+        final FutureCompletionHandler future = new FutureCompletionHandler();
+        take(future);
+        return future.future;
+    }
+
+    /**
+     * Leases a {@link Connection} in non-blocking/asynchronous fashion.
+     * The passed {@link CompletionHandler} will be notified about the result.
+     *
+     * @param completionHandler to be notified once {@link Connection} is
+     *        available or an error occurred
+     */
+    public void take(final CompletionHandler<Connection> completionHandler) {
+        if (completionHandler == null) {
+            throw new IllegalArgumentException("The completionHandler argument can not be null");
+        }
+
+        final boolean isPoolClosed;
+        final Connection connection;
+        int takes = 0;
+        synchronized (sync) {
+            isPoolClosed = isClosed;
+            connection = !isPoolClosed ? lease() : null;
+            if (connection == null && !isPoolClosed) {
+                waitingList.offerLast(
+                        new Link<CompletionHandler<Connection>>(completionHandler));
+                takes = checkBeforeTakingConnections();
+            }
+        }
+
+        if (isPoolClosed) {
+            completionHandler.failed(new IOException("The pool is closed"));
+        } else if (connection != null) {
+            completionHandler.completed(connection);
+        } else {
+            takeConnections(takes);
+        }
+    }
+
+    /**
+     * @return a leased {@link Connection}, if one of the {@link Connection}s
+     *          in use isn't saturated or the underlying pool has a ready
+     *          {@link Connection}, or <tt>null</tt> otherwise
+     * @throws IOException if the pool is closed
+     */
+    public Connection poll() throws IOException {
+        synchronized (sync) {
+            if (isClosed) {
+                throw new IOException("The pool is closed");
+            }
+
+            final Connection connection = lease();
+            if (connection != null) {
+                return connection;
+            }
+        }
+
+        // the underlying pool is never called holding the sync, because it
+        // notifies this pool holding its own sync
+        final Connection pooled = connectionPool.poll();
+        if (pooled == null) {
+            return null;
+        }
+
+        synchronized (sync) {
+            if (!isClosed) {
+                share(pooled).leases++;
+                leasesCount++;
+                return pooled;
+            }
+        }
+
+        connectionPool.release(pooled);
+        throw new IOException("The pool is closed");
+    }
+
+    /**
+     * Releases the {@link Connection} lease.
+     *
+     * If the {@link Connection} has no more leases, it's returned to the
+     * underlying pool, or closed if it's draining.
+     *
+     * @param connection the leased {@link Connection}
+     * @return <code>true</code> if the lease was released, or
+     *         <code>false</code> if the {@link Connection} wasn't leased by
+     *         this pool
+     */
+    public boolean release(final Connection connection) {
+        CompletionHandler<Connection> waiter = null;
+        boolean isReturn = false;
+        boolean isDrained = false;
+
+        synchronized (sync) {
+            final SharedConnection sharedConnection =
+                    sharedConnections.get(connection);
+            if (sharedConnection == null) {
+                return false;
+            }
+
+            sharedConnection.leases--;
+            leasesCount--;
+
+            final int maxLeases = isClosed
+                    ? 0
+                    : multiplexingPolicy.getMaxConcurrentLeases(connection);
+
+            if (sharedConnection.leases < maxLeases && !waitingList.isEmpty()) {
+                sharedConnection.leases++;
+                leasesCount++;
+                waiter = waitingList.pollFirst().getValue();
+            } else if (sharedConnection.leases == 0) {
+                unshare(connection);
+                isReturn = true;
+                isDrained = maxLeases == 0 && !isClosed;
+            }
+        }
+
+        if (waiter != null) {
+            waiter.completed(connection);
+        } else if (isDrained) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Closing drained connection {0}", connection);
+            }
+            connectionPool.detach(connection);
+            connection.closeSilently();
+        } else if (isReturn) {
+            connectionPool.release(connection);
+        }
+
+        return true;
+    }
+
+    /**
+     * Closes the pool and the underlying {@link SingleEndpointPool}.
+     *
+     * The waiting lease requests fail, the leased {@link Connection}s are
+     * closed once their last lease is released.
+     */
+    public void close() {
+        final List<CompletionHandler<Connection>> waiters =
+                new ArrayList<CompletionHandler<Connection>>();
+        synchronized (sync) {
+            if (isClosed) {
+                return;
+            }
+
+            isClosed = true;
+            while (!waitingList.isEmpty()) {
+                waiters.add(waitingList.pollFirst().getValue());
+            }
+        }
+
+        connectionPool.close();
+
+        final IOException exception = new IOException("The pool is closed");
+        for (CompletionHandler<Connection> waiter : waiters) {
+            waiter.failed(exception);
+        }
+    }
+
+    /**
+     * Returns the number of {@link Connection}s to be taken from the underlying
+     * pool to serve the waiting list, assuming the pending {@link Connection}s
+     * serve as many leases as the last one did, and increases the
+     * {@link #pendingTakes} counter accordingly.
+     */
+    private int checkBeforeTakingConnections() {
+        int takes = 0;
+        while ((long) (pendingTakes + takes) * expectedMaxLeases < waitingList.size()) {
+            takes++;
+        }
+
+        pendingTakes += takes;
+        return takes;
+    }
+
+    private void takeConnections(final int takes) {
+        for (int i = 0; i < takes; i++) {
+            connectionPool.take(takeCompletionHandler);
+        }
+    }
+
+    /**
+     * Leases one of the {@link Connection}s in use, which isn't saturated.
+     * The {@link Connection}s are filled in order, so the new ones are taken
+     * from the underlying pool only when the older ones are saturated.
+     */
+    private Connection lease() {
+        for (SharedConnection sharedConnection : sharedConnections.values()) {
+            if (sharedConnection.leases < multiplexingPolicy.getMaxConcurrentLeases(
+                    sharedConnection.connection)) {
+                sharedConnection.leases++;
+                leasesCount++;
+                return sharedConnection.connection;
+            }
+        }
+
+        return null;
+    }
+
+    private SharedConnection share(final Connection connection) {
+        final SharedConnection sharedConnection = new SharedConnection(connection);
+        sharedConnections.put(connection, sharedConnection);
+        connection.addCloseListener(closeListener);
+        return sharedConnection;
+    }
+
+    private void unshare(final Connection connection) {
+        sharedConnections.remove(connection);
+        connection.removeCloseListener(closeListener);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) +
+                "{" +
+                "connectionPool=" + connectionPool +
+                ", sharedConnections=" + getSharedConnectionsCount() +
+                ", leases=" + getLeasesCount() +
+                "}";
+    }
+
+    /**
+     * A {@link Connection} in use and the number of its leases.
+     */
+    private static final class SharedConnection {
+        private final Connection connection;
+        private int leases;
+
+        private SharedConnection(final Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * {@link CompletionHandler} to be notified once the underlying pool
+     * provided a {@link Connection} or failed to.
+     */
+    private final class TakeCompletionHandler
+            extends EmptyCompletionHandler<Connection> {
+
+        @Override
+        public void completed(final Connection connection) {
+            final List<CompletionHandler<Connection>> waiters =
+                    new ArrayList<CompletionHandler<Connection>>();
+            boolean isReturn = false;
+            int takes = 0;
+
+            synchronized (sync) {
+                pendingTakes--;
+
+                if (isClosed) {
+                    isReturn = true;
+                } else {
+                    final int maxLeases = Math.max(1,
+                            multiplexingPolicy.getMaxConcurrentLeases(connection));
+                    expectedMaxLeases = maxLeases;
+                    // the waiters, which haven't been served by the released
+                    // leases, get the new connection
+                    while (!waitingList.isEmpty() && waiters.size() < maxLeases) {
+                        waiters.add(waitingList.pollFirst().getValue());
+                    }
+
+                    if (waiters.isEmpty()) {
+                        isReturn = true;
+                    } else {
+                        share(connection).leases = waiters.size();
+                        leasesCount += waiters.size();
+                    }
+
+                    // the connection wasn't enough for all the waiters
+                    takes = checkBeforeTakingConnections();
+                }
+            }
+
+            if (isReturn) {
+                connectionPool.release(connection);
+            }
+
+            for (CompletionHandler<Connection> waiter : waiters) {
+                waiter.completed(connection);
+            }
+
+            takeConnections(takes);
+        }
+
+        @Override
+        public void cancelled() {
+            failed(new CancellationException());
+        }
+
+        @Override
+        public void failed(final Throwable throwable) {
+            CompletionHandler<Connection> waiter = null;
+            synchronized (sync) {
+                pendingTakes--;
+                // the request was made on behalf of the waiter, which
+                // couldn't be served by the connections in use
+                if ((long) pendingTakes * expectedMaxLeases < waitingList.size()) {
+                    waiter = waitingList.pollFirst().getValue();
+                }
+            }
+
+            if (waiter != null) {
+                waiter.failed(throwable);
+            }
+        }
+    }
+
+    /**
+     * The {@link CloseListener} to be notified, when a shared {@link Connection}
+     * has been closed, so it's not leased anymore.
+     */
+    private final class SharedConnectionCloseListener
+            implements CloseListener<Connection, CloseType> {
+
+        @Override
+        public void onClosed(final Connection connection, final CloseType type)
+                throws IOException {
+            int takes = 0;
+            synchronized (sync) {
+                final SharedConnection sharedConnection =
+                        sharedConnections.remove(connection);
+                if (sharedConnection == null) {
+                    return;
+                }
+
+                // the leases are gone with the connection
+                leasesCount -= sharedConnection.leases;
+                if (!isClosed) {
+                    takes = checkBeforeTakingConnections();
+                }
+            }
+
+            takeConnections(takes);
+        }
+    }
+
+    /**
+     * Adapts the {@link GrizzlyFuture} to the {@link CompletionHandler}.
+     */
+    private final class FutureCompletionHandler
+            extends EmptyCompletionHandler<Connection> {
+        private final FutureImpl<Connection> future = Futures.createSafeFuture();
+
+        @Override
+        public void completed(final Connection connection) {
+            future.result(connection);
+            // if the future has been cancelled - nobody is going to use the lease
+            if (future.isCancelled()) {
+                release(connection);
+            }
+        }
+
+        @Override
+        public void cancelled() {
+            future.cancel(false);
+        }
+
+        @Override
+        public void failed(final Throwable throwable) {
+            future.failure(throwable);
+        }
+    }
+}
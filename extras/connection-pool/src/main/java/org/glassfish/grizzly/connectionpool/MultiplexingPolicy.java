@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * The policy, which tells the {@link MultiplexingEndpointPool} how many users
+ * may share a {@link Connection} at the same time.
+ *
+ * @see Http2MultiplexingPolicy
+ * @since 2.4.4
+ */
+public interface MultiplexingPolicy {
+
+    /**
+     * Returns the number of concurrent leases the {@link Connection} may serve.
+     * The value is checked every time the {@link Connection} is leased or
+     * released, so it may change during the {@link Connection} lifetime.
+     *
+     * @param connection the pooled {@link Connection}
+     * @return the number of concurrent leases, or <tt>0</tt> if the
+     *          {@link Connection} is draining and mustn't be leased anymore
+     */
+    int getMaxConcurrentLeases(Connection connection);
+}
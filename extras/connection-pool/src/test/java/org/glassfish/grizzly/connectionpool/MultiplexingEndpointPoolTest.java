@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * The {@link MultiplexingEndpointPool} tests.
+ */
+public class MultiplexingEndpointPoolTest {
+    private static final int PORT = 18335;
+
+    private final AtomicInteger maxLeases = new AtomicInteger(3);
+    private final Set<Connection> drainingConnections =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final MultiplexingPolicy policy = new MultiplexingPolicy() {
+        @Override
+        public int getMaxConcurrentLeases(final Connection connection) {
+            return drainingConnections.contains(connection) ? 0 : maxLeases.get();
+        }
+    };
+
+    private TCPNIOTransport transport;
+
+    @Before
+    public void init() throws IOException {
+        final FilterChain filterChain = FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .build();
+
+        transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(filterChain);
+
+        transport.bind(PORT);
+        transport.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (transport != null) {
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeasesShareConnection() throws Exception {
+        final MultiplexingEndpointPool<SocketAddress> pool = createPool(-1);
+
+        try {
+            final Connection c1 = pool.take().get(10, TimeUnit.SECONDS);
+            assertSame(c1, pool.take().get(10, TimeUnit.SECONDS));
+            assertSame(c1, pool.take().get(10, TimeUnit.SECONDS));
+            assertEquals(3, pool.getLeasesCount(c1));
+            assertEquals(1, pool.getConnectionPool().size());
+
+            // the first connection is saturated
+            final Connection c2 = pool.take().get(10, TimeUnit.SECONDS);
+            assertNotSame(c1, c2);
+            assertEquals(2, pool.getSharedConnectionsCount());
+            assertEquals(4, pool.getLeasesCount());
+
+            // the released lease is reused before the new connection
+            assertTrue(pool.release(c1));
+            assertSame(c1, pool.poll());
+
+            for (int i = 0; i < 3; i++) {
+                assertTrue(pool.release(c1));
+            }
+            assertTrue(pool.release(c2));
+            assertFalse(pool.release(c2));
+
+            // the connections are back to the underlying pool
+            assertEquals(0, pool.getSharedConnectionsCount());
+            assertEquals(2, pool.getConnectionPool().getReadyConnectionsCount());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testWaitForLease() throws Exception {
+        final MultiplexingEndpointPool<SocketAddress> pool = createPool(1);
+
+        try {
+            final List<Connection> leases = new ArrayList<Connection>();
+            for (int i = 0; i < 3; i++) {
+                leases.add(pool.take().get(10, TimeUnit.SECONDS));
+            }
+
+            final GrizzlyFuture<Connection> future = pool.take();
+            try {
+                future.get(500, TimeUnit.MILLISECONDS);
+                fail("The max pool size is reached, all the leases are taken");
+            } catch (java.util.concurrent.TimeoutException expected) {
+            }
+
+            assertTrue(pool.release(leases.get(0)));
+            assertSame(leases.get(0), future.get(10, TimeUnit.SECONDS));
+            assertEquals(3, pool.getLeasesCount());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testBurstOpensConnectionsByCapacity() throws Exception {
+        maxLeases.set(4);
+        final MultiplexingEndpointPool<SocketAddress> pool = createPool(-1);
+
+        try {
+            // learn the capacity of the connections
+            pool.release(pool.take().get(10, TimeUnit.SECONDS));
+
+            final List<GrizzlyFuture<Connection>> futures =
+                    new ArrayList<GrizzlyFuture<Connection>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.take());
+            }
+
+            for (GrizzlyFuture<Connection> future : futures) {
+                assertNotNull(future.get(10, TimeUnit.SECONDS));
+            }
+
+            assertEquals(2, pool.getSharedConnectionsCount());
+            assertEquals(2, pool.getConnectionPool().size());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testDrain() throws Exception {
+        maxLeases.set(2);
+        final MultiplexingEndpointPool<SocketAddress> pool = createPool(-1);
+
+        try {
+            final Connection c1 = pool.take().get(10, TimeUnit.SECONDS);
+            assertSame(c1, pool.take().get(10, TimeUnit.SECONDS));
+
+            // GOAWAY
+            drainingConnections.add(c1);
+            maxLeases.set(10);
+            final Connection c2 = pool.take().get(10, TimeUnit.SECONDS);
+            assertNotSame(c1, c2);
+
+            // the drained connection is closed, once it's not used
+            assertTrue(pool.release(c1));
+            assertTrue(c1.isOpen());
+            assertTrue(pool.release(c1));
+            assertFalse(c1.isOpen());
+            assertFalse(pool.getConnectionPool().isRegistered(c1));
+            assertEquals(1, pool.getConnectionPool().size());
+
+            assertSame(c2, pool.take().get(10, TimeUnit.SECONDS));
+            assertEquals(2, pool.getLeasesCount(c2));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testClosedConnection() throws Exception {
+        final MultiplexingEndpointPool<SocketAddress> pool = createPool(1);
+
+        try {
+            final Connection c1 = pool.take().get(10, TimeUnit.SECONDS);
+            assertSame(c1, pool.take().get(10, TimeUnit.SECONDS));
+            assertSame(c1, pool.take().get(10, TimeUnit.SECONDS));
+            final GrizzlyFuture<Connection> future = pool.take();
+
+            // the leases are gone, the waiter gets a new connection
+            c1.closeSilently();
+            final Connection c2 = future.get(10, TimeUnit.SECONDS);
+            assertNotSame(c1, c2);
+            assertEquals(1, pool.getLeasesCount());
+            assertFalse(pool.release(c1));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final MultiplexingEndpointPool<SocketAddress> pool = createPool(1);
+
+        final Connection c1 = pool.take().get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < 2; i++) {
+            pool.take().get(10, TimeUnit.SECONDS);
+        }
+        final GrizzlyFuture<Connection> future = pool.take();
+
+        pool.close();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("The pool is closed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        // the connection is closed, once the last lease is released
+        for (int i = 0; i < 2; i++) {
+            assertTrue(pool.release(c1));
+            assertTrue(c1.isOpen());
+        }
+        assertTrue(pool.release(c1));
+        assertFalse(c1.isOpen());
+    }
+
+    private MultiplexingEndpointPool<SocketAddress> createPool(final int maxPoolSize) {
+        final SingleEndpointPool<SocketAddress> connectionPool = SingleEndpointPool
+                .builder(SocketAddress.class)
+                .connectorHandler(transport)
+                .endpointAddress(new InetSocketAddress("localhost", PORT))
+                .maxPoolSize(maxPoolSize)
+                .build();
+
+        return new MultiplexingEndpointPool<SocketAddress>(connectionPool, policy);
+    }
+}
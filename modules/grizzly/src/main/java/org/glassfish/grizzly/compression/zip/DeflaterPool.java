@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.compression.zip;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * The bounded pool of the raw (<tt>nowrap</tt>) {@link Deflater}s.
+ *
+ * A {@link Deflater} allocates its native zlib state (~256K at the default
+ * memory level) when created, so the compressed streams reuse the idle
+ * {@link Deflater}s, which are {@link Deflater#reset()} on release, instead
+ * of creating and ending one per stream.
+ *
+ * @since 2.4.4
+ */
+public class DeflaterPool {
+    /**
+     * The default maximum number of the idle {@link Deflater}s.
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE =
+            Runtime.getRuntime().availableProcessors() * 4;
+
+    private final BlockingQueue<Deflater> deflaters;
+    private final AtomicLong createdCount = new AtomicLong();
+
+    public DeflaterPool() {
+        this(DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * @param maxPoolSize the maximum number of the idle {@link Deflater}s,
+     *  the released {@link Deflater}s above it are ended.
+     */
+    public DeflaterPool(final int maxPoolSize) {
+        deflaters = new ArrayBlockingQueue<Deflater>(Math.max(1, maxPoolSize));
+    }
+
+    /**
+     * Obtains the idle {@link Deflater} or creates a new one.
+     *
+     * @param level the compression level of the stream.
+     * @return the raw {@link Deflater}.
+     */
+    public Deflater obtain(final int level) {
+        final Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            createdCount.incrementAndGet();
+            return new Deflater(level, true);
+        }
+
+        // the level of the reset deflater applies to the whole next stream
+        deflater.setLevel(level);
+        return deflater;
+    }
+
+    /**
+     * Resets and returns the {@link Deflater} to the pool, or ends it if
+     * the pool is full.
+     *
+     * @param deflater the {@link Deflater} obtained from the pool.
+     */
+    public void release(final Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @return the number of the idle {@link Deflater}s.
+     */
+    public int getIdleCount() {
+        return deflaters.size();
+    }
+
+    /**
+     * @return the number of the {@link Deflater}s created by the pool.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * Ends the idle {@link Deflater}s.
+     */
+    public void clear() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
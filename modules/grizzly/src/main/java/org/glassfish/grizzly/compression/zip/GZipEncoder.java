@@ -43,6 +43,8 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
     private static final int TRAILER_SIZE = 8;
 
     private final int bufferSize;
+    private final int compressionLevel;
+    private final DeflaterPool deflaterPool;
 
     private static final Buffer header;
 
@@ -67,7 +69,70 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
     }
 
     public GZipEncoder(int bufferSize) {
+        this(bufferSize, Deflater.DEFAULT_COMPRESSION, new DeflaterPool());
+    }
+
+    /**
+     * @param bufferSize the size of the deflated output chunks.
+     * @param compressionLevel the default {@link Deflater} compression level.
+     * @param deflaterPool the {@link DeflaterPool} the streams obtain their
+     *  {@link Deflater}s from, may be shared by the encoders.
+     *
+     * @since 2.4.4
+     */
+    public GZipEncoder(int bufferSize, int compressionLevel,
+            DeflaterPool deflaterPool) {
+        if (deflaterPool == null) {
+            throw new IllegalArgumentException("deflaterPool can't be null");
+        }
+
         this.bufferSize = bufferSize;
+        this.compressionLevel = compressionLevel;
+        this.deflaterPool = deflaterPool;
+    }
+
+    /**
+     * @return the {@link DeflaterPool} the streams obtain their
+     *  {@link Deflater}s from.
+     *
+     * @since 2.4.4
+     */
+    public DeflaterPool getDeflaterPool() {
+        return deflaterPool;
+    }
+
+    /**
+     * @param storage the stream {@link AttributeStorage}.
+     *
+     * @return <tt>true</tt> if the compressed stream of the storage is started
+     *  and not finished yet.
+     *
+     * @since 2.4.4
+     */
+    public boolean isStarted(AttributeStorage storage) {
+        return ((GZipOutputState) obtainStateObject(storage)).isInitialized;
+    }
+
+    /**
+     * Starts the compressed stream of the storage with the specific
+     * compression level, instead of the encoder's default one.
+     *
+     * @param storage the stream {@link AttributeStorage}.
+     * @param level the {@link Deflater} compression level.
+     *
+     * @return <tt>true</tt> if the stream is started, or <tt>false</tt> if
+     *  it has been started before.
+     *
+     * @since 2.4.4
+     */
+    public boolean start(AttributeStorage storage, int level) {
+        final GZipOutputState state = (GZipOutputState) obtainStateObject(storage);
+        if (state.isInitialized) {
+            return false;
+        }
+
+        state.initialize(deflaterPool, level);
+        return true;
     }
 
 
@@ -106,7 +171,7 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
         final GZipOutputState state = (GZipOutputState) obtainStateObject(storage);
 
         if (!state.isInitialized) {
-            state.initialize();
+            state.initialize(deflaterPool, compressionLevel);
         }
 
         Buffer encodedBuffer = null;
@@ -205,31 +270,33 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
             final ByteBuffer byteBuffer = buffers[i];
             final int len = byteBuffer.remaining();
             if (len > 0) {
-                final byte[] buf;
-                final int off;
                 if (byteBuffer.hasArray()) {
-                    buf = byteBuffer.array();
-                    off = byteBuffer.arrayOffset() + byteBuffer.position();
-                } else {
-                    // @TODO allocate byte array via MemoryUtils
-                    buf = new byte[len];
-                    off = 0;
-                    byteBuffer.get(buf);
-                    byteBuffer.position(byteBuffer.position() - len);
-                }
+                    final byte[] buf = byteBuffer.array();
+                    final int off = byteBuffer.arrayOffset() + byteBuffer.position();
 
-                for (int j = 0; j < len; j += stride) {
-                    deflater.setInput(buf, off + j, Math.min(stride, len - j));
-                    while (!deflater.needsInput()) {
-                        final Buffer deflated = deflate(deflater, memoryManager);
-                        if (deflated != null) {
-                            resultBuffer = Buffers.appendBuffers(
-                                    memoryManager, resultBuffer, deflated);
-                        }
+                    for (int j = 0; j < len; j += stride) {
+                        resultBuffer = deflate(deflater, buf, off + j,
+                                Math.min(stride, len - j), resultBuffer,
+                                memoryManager);
+                    }
+
+                    crc32.update(buf, off, len);
+                } else {
+                    // copy the direct buffer stride by stride through
+                    // the stream's scratch array
+                    final byte[] scratch = state.obtainScratch(stride);
+                    final int position = byteBuffer.position();
+
+                    for (int j = 0; j < len; j += stride) {
+                        final int chunkLen = Math.min(stride, len - j);
+                        byteBuffer.get(scratch, 0, chunkLen);
+                        resultBuffer = deflate(deflater, scratch, 0, chunkLen,
+                                resultBuffer, memoryManager);
+                        crc32.update(scratch, 0, chunkLen);
                     }
-                }
 
-                crc32.update(buf, off, len);
+                    byteBuffer.position(position);
+                }
             }
         }
 
@@ -241,6 +308,20 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
         return resultBuffer;
     }
 
+    private Buffer deflate(Deflater deflater, byte[] buf, int off, int len,
+            Buffer resultBuffer, MemoryManager memoryManager) {
+        deflater.setInput(buf, off, len);
+        while (!deflater.needsInput()) {
+            final Buffer deflated = deflate(deflater, memoryManager);
+            if (deflated != null) {
+                resultBuffer = Buffers.appendBuffers(
+                        memoryManager, resultBuffer, deflated);
+            }
+        }
+
+        return resultBuffer;
+    }
+
     /**
      * Writes next block of compressed data to the output stream.
      */
@@ -286,30 +367,42 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
         private boolean isHeaderWritten;
         
         /**
-         * CRC-32 of uncompressed data.
+         * CRC-32 of uncompressed data, reused by the next streams.
          */
-        private CRC32 crc32;
+        private final CRC32 crc32 = new CRC32();
 
         /**
-         * Compressor for this stream.
+         * Compressor for this stream, obtained from the pool.
          */
         private Deflater deflater;
+        private DeflaterPool deflaterPool;
 
-        private void initialize() {
-            final Deflater newDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-            final CRC32 newCrc32 = new CRC32();
-            newCrc32.reset();
-            deflater = newDeflater;
-            crc32 = newCrc32;
+        /**
+         * The array the direct buffers are deflated through.
+         */
+        private byte[] scratch;
+
+        private void initialize(final DeflaterPool pool, final int level) {
+            deflater = pool.obtain(level);
+            deflaterPool = pool;
+            crc32.reset();
             isInitialized = true;
         }
+
+        private byte[] obtainScratch(final int size) {
+            if (scratch == null || scratch.length < size) {
+                scratch = new byte[size];
+            }
+            return scratch;
+        }
         
         private void reset() {
             isInitialized = false;
             isHeaderWritten = false;
-            deflater.end(); // ensure we don't leak memory in native compression library
-            crc32 = null;
+            // the released deflater is reset for the next stream
+            deflaterPool.release(deflater);
             deflater = null;
+            deflaterPool = null;
         }
     }
 }
@@ -33,7 +33,15 @@ import org.glassfish.grizzly.utils.ChunkingFilter;
 import org.glassfish.grizzly.utils.DelayFilter;
 import org.glassfish.grizzly.utils.EchoFilter;
 import org.glassfish.grizzly.utils.StringFilter;
+import org.glassfish.grizzly.attributes.AttributeBuilder;
+import org.glassfish.grizzly.attributes.AttributeHolder;
+import org.glassfish.grizzly.attributes.AttributeStorage;
+import org.glassfish.grizzly.compression.zip.DeflaterPool;
+import org.glassfish.grizzly.compression.zip.GZipEncoder;
 import org.glassfish.grizzly.compression.zip.GZipFilter;
+import org.glassfish.grizzly.memory.Buffers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.Arrays;
@@ -42,10 +50,13 @@ import java.util.Random;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -113,6 +124,60 @@ public class GZipTest {
         doTest(true, array);
     }
 
+    @Test
+    public void testPooledDeflaterReuse() throws Exception {
+        final DeflaterPool pool = new DeflaterPool(1);
+        final GZipEncoder encoder = new GZipEncoder(512,
+                Deflater.DEFAULT_COMPRESSION, pool);
+
+        for (int i = 0; i < 3; i++) {
+            final AttributeHolder holder =
+                    AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER.createSafeAttributeHolder();
+            final AttributeStorage storage = new AttributeStorage() {
+                @Override
+                public AttributeHolder getAttributes() {
+                    return holder;
+                }
+            };
+
+            final StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 1000; j++) {
+                sb.append("Hello world #").append(i).append('-').append(j);
+            }
+            final String message = sb.toString();
+
+            if (i == 1) {
+                assertTrue(encoder.start(storage, Deflater.BEST_SPEED));
+                assertTrue(encoder.isStarted(storage));
+            }
+
+            final TransformationResult<Buffer, Buffer> result =
+                    encoder.transform(storage, Buffers.wrap(manager, message));
+            final Buffer encoded = Buffers.appendBuffers(manager,
+                    result.getMessage(), encoder.finish(storage));
+            result.recycle();
+
+            final byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            assertEquals(message, gunzip(bytes));
+        }
+
+        // the streams reused the single deflater
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    private static String gunzip(final byte[] bytes) throws IOException {
+        final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[1024];
+        int len;
+        while ((len = in.read(buf)) != -1) {
+            out.write(buf, 0, len);
+        }
+        return new String(out.toByteArray());
+    }
+
     void doTest(String... messages) throws Exception {
         doTest(false, messages);
     }
@@ -149,7 +214,7 @@ public class GZipTest {
 
             SocketConnectorHandler connectorHandler = TCPNIOConnectorHandler.builder(transport)
                 .processor(clientChainBuilder.build()).build();
-            
+
             Future<Connection> future = connectorHandler.connect("localhost", PORT);
 
             connection = future.get(10, TimeUnit.SECONDS);
@@ -0,0 +1,658 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.TransformationResult;
+import org.glassfish.grizzly.attributes.AttributeBuilder;
+import org.glassfish.grizzly.attributes.AttributeHolder;
+import org.glassfish.grizzly.attributes.AttributeStorage;
+import org.glassfish.grizzly.compression.zip.DeflaterPool;
+import org.glassfish.grizzly.compression.zip.GZipEncoder;
+import org.glassfish.grizzly.http.CompressionConfig;
+import org.glassfish.grizzly.http.ContentEncodingProvider;
+import org.glassfish.grizzly.http.GZipContentEncoding;
+import org.glassfish.grizzly.http.HttpHeader;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.io.OutputBuffer;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.ByteBufferArray;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.ServiceFinder;
+
+/**
+ * The opt-in cache of the compressed dynamic responses.
+ *
+ * The complete body of a GET response is held by the {@link OutputBuffer}
+ * until the response is finished. If the body may be compressed according
+ * to the listener's {@link CompressionConfig}, the cache looks its gzip
+ * representation up by the response's strong <tt>ETag</tt> or, if there is
+ * none, by the SHA-256 hash of the body, and writes the cached
+ * representation instead of compressing the body again.
+ *
+ * The strong <tt>ETag</tt>s of the cached responses are also remembered
+ * for {@link #getETagValidityMillis()} per request URI, so a conditional
+ * request with the matching <tt>If-None-Match</tt> is responded with
+ * <tt>304 Not Modified</tt> by the {@link CompressedResponseCacheFilter}
+ * without invoking the {@link HttpHandler}.
+ * Only the <tt>ETag</tt>s of the shared responses are remembered: the
+ * responses to the requests with <tt>Authorization</tt> or <tt>Cookie</tt>
+ * have to be <tt>Cache-Control: public</tt>, because the
+ * {@link HttpHandler} may authorize each request.
+ *
+ * The compressed representations are evicted in the second chance FIFO
+ * order, once their total size exceeds {@link #getMaxCacheSize()}.
+ * The keys of the bodies, which don't get smaller when compressed, are
+ * remembered as well, so such bodies are sent as is without compressing
+ * them again.
+ *
+ * The body is held only for the responses, which may be compressed: the
+ * status, the content type and the <tt>Content-Encoding</tt> are checked
+ * when the first body chunk would be written.
+ * The cached representations are gzip only, so the responses to the clients,
+ * which accept an encoding of a {@link ContentEncodingProvider}, aren't held:
+ * the provided encoding is preferred and applied as usual.
+ *
+ * @since 2.4.4
+ */
+public class CompressedResponseCache implements OutputBuffer.BodyInterceptor {
+    public static final long DEFAULT_MAX_CACHE_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+    public static final long DEFAULT_ETAG_VALIDITY_MILLIS = 10 * 1000;
+    public static final int DEFAULT_MAX_KNOWN_ETAGS = 10000;
+    public static final int DEFAULT_MAX_INCOMPRESSIBLE_ENTRIES = 10000;
+
+    private static final String ENCODING = GZipContentEncoding.NAME;
+    private static final String[] ALIASES = GZipContentEncoding.getGzipAliases();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private volatile boolean enabled;
+    private volatile long maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+    private volatile int maxEntrySize = DEFAULT_MAX_ENTRY_SIZE;
+    private volatile long etagValidityMillis = DEFAULT_ETAG_VALIDITY_MILLIS;
+    private volatile int maxKnownETags = DEFAULT_MAX_KNOWN_ETAGS;
+    private volatile int maxIncompressibleEntries = DEFAULT_MAX_INCOMPRESSIBLE_ENTRIES;
+    private volatile int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private volatile CompressionConfig compressionConfig = new CompressionConfig();
+    // the aliases of the providers found by the ServiceFinder
+    private volatile String[][] serviceProvidersAliases = new String[0][];
+    private final GZipEncoder encoder =
+            new GZipEncoder(8192, Deflater.DEFAULT_COMPRESSION, new DeflaterPool());
+
+    private final ConcurrentHashMap<String, Entry> entries =
+            new ConcurrentHashMap<String, Entry>();
+    private final ConcurrentLinkedQueue<Entry> evictionQueue =
+            new ConcurrentLinkedQueue<Entry>();
+    private final AtomicLong size = new AtomicLong();
+
+    private final ConcurrentHashMap<String, KnownETag> knownETags =
+            new ConcurrentHashMap<String, KnownETag>();
+
+    // the keys of the bodies, which don't get smaller when compressed
+    private final Set<String> incompressibleKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hitsCount = new AtomicLong();
+    private final AtomicLong missesCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong incompressibleCount = new AtomicLong();
+
+
+    // ---------------------------------------------------- Methods ----------//
+
+
+    /**
+     * Uses the listener's {@link CompressionConfig}, which decides if
+     * a response may be compressed; its later changes apply to the following
+     * responses.
+     */
+    public void initialize(final CompressionConfig compressionConfig) {
+        // the ServiceFinder providers are looked up once, like the listener's
+        // content encodings are
+        final List<String[]> aliases = new ArrayList<String[]>();
+        for (ContentEncodingProvider provider :
+                ServiceFinder.find(ContentEncodingProvider.class)) {
+            aliases.add(provider.getAliases());
+        }
+        serviceProvidersAliases = aliases.toArray(new String[aliases.size()][]);
+        this.compressionConfig = compressionConfig;
+    }
+
+    /**
+     * Holds the response body for the cache, if the response may be served
+     * from it.
+     */
+    public void prepare(final Request request, final Response response) {
+        if (!enabled || !Method.GET.equals(request.getMethod())) {
+            return;
+        }
+
+        final CompressionConfig config = compressionConfig;
+        final HttpRequestPacket requestPacket = request.getRequest();
+        if (CompressionConfig.isClientSupportCompression(
+                        config, requestPacket, ALIASES)
+                && !isProvidedEncodingAccepted(config, requestPacket)) {
+            response.getOutputBuffer().setBodyInterceptor(this);
+        }
+    }
+
+    /**
+     * Returns the <tt>ETag</tt>, which the request's <tt>If-None-Match</tt>
+     * matches, if it's known to be still current for the request URI.
+     *
+     * @return the matching <tt>ETag</tt>, or <tt>null</tt>.
+     */
+    public String getNotModifiedETag(final HttpRequestPacket request) {
+        final String ifNoneMatch = request.getHeader(Header.IfNoneMatch);
+        if (ifNoneMatch == null) {
+            return null;
+        }
+
+        final String uriKey = uriKey(request);
+        final KnownETag known = knownETags.get(uriKey);
+        if (known == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - known.timestamp > TimeUnit.MILLISECONDS.toNanos(
+                etagValidityMillis)) {
+            knownETags.remove(uriKey, known);
+            return null;
+        }
+
+        if (!matches(ifNoneMatch, known.etag)) {
+            return null;
+        }
+
+        notModifiedCount.incrementAndGet();
+        return known.etag;
+    }
+
+    @Override
+    public int getMaxBodySize() {
+        return maxEntrySize;
+    }
+
+    @Override
+    public boolean canIntercept(final HttpHeader outputHeader) {
+        return canIntercept(outputHeader, compressionConfig);
+    }
+
+    private static boolean canIntercept(final HttpHeader outputHeader,
+            final CompressionConfig config) {
+        final HttpResponsePacket response = (HttpResponsePacket) outputHeader;
+        return response.getStatus() == 200
+                && !response.containsHeader(Header.ContentEncoding)
+                && config.checkMimeType(response.getContentType());
+    }
+
+    @Override
+    public Buffer intercept(final HttpHeader outputHeader, final Buffer body)
+            throws IOException {
+        final CompressionConfig config = compressionConfig;
+        final int bodySize = body.remaining();
+        if (bodySize == 0
+                || bodySize < config.getCompressionMinSize()
+                || !canIntercept(outputHeader, config)) {
+            return null;
+        }
+
+        final HttpResponsePacket response = (HttpResponsePacket) outputHeader;
+
+        final HttpRequestPacket request = response.getRequest();
+        final String etag = getStrongETag(response);
+        final String key = etag != null
+                ? uriKey(request) + '\n' + etag + '\n' + ENCODING
+                : '#' + hash(body) + '\n' + ENCODING;
+
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.isReferenced = true;
+            hitsCount.incrementAndGet();
+        } else if (incompressibleKeys.contains(key)) {
+            incompressibleCount.incrementAndGet();
+            return null;
+        } else {
+            missesCount.incrementAndGet();
+            final byte[] compressed = compress(body);
+            if (compressed.length >= bodySize) {
+                // not worth it, and won't be next time
+                addIncompressibleKey(key);
+                return null;
+            }
+
+            entry = add(key, compressed);
+        }
+
+        if (etag != null && isETagShareable(request, response)) {
+            addKnownETag(uriKey(request), etag);
+        }
+
+        response.setHeader(Header.ContentEncoding, ENCODING);
+        response.setContentLengthLong(entry.data.length);
+
+        final Buffer newBody = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                entry.data);
+        newBody.allowBufferDispose(false);
+        return newBody;
+    }
+
+    /**
+     * Removes the cached representations and the known <tt>ETag</tt>s.
+     */
+    public void clear() {
+        entries.clear();
+        evictionQueue.clear();
+        size.set(0);
+        knownETags.clear();
+        incompressibleKeys.clear();
+    }
+
+
+    // ------------------------------------------------ Configuration Properties
+
+
+    /**
+     * @return <code>true</code> if the cache is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the cache, it's disabled by default.
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the maximum total size of the cached compressed representations.
+     */
+    public long getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    public void setMaxCacheSize(final long maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * @return the maximum size of a response body, which may be served from
+     *  the cache; the larger bodies are compressed as usual.
+     */
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(final int maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * @return the time in milliseconds, during which a known <tt>ETag</tt> is
+     *  considered current for the request URI without invoking the
+     *  {@link HttpHandler}.
+     */
+    public long getETagValidityMillis() {
+        return etagValidityMillis;
+    }
+
+    /**
+     * Sets the time, during which a known <tt>ETag</tt> is considered current
+     * for the request URI, <tt>0</tt> disables the conditional requests
+     * handling.
+     */
+    public void setETagValidity(final long etagValidity, final TimeUnit unit) {
+        this.etagValidityMillis = unit.toMillis(etagValidity);
+    }
+
+    /**
+     * @return the maximum number of the request URIs, whose <tt>ETag</tt>s
+     *  are remembered.
+     */
+    public int getMaxKnownETags() {
+        return maxKnownETags;
+    }
+
+    public void setMaxKnownETags(final int maxKnownETags) {
+        this.maxKnownETags = maxKnownETags;
+    }
+
+    /**
+     * @return the maximum number of the remembered bodies, which don't get
+     *  smaller when compressed, so they are not compressed again.
+     */
+    public int getMaxIncompressibleEntries() {
+        return maxIncompressibleEntries;
+    }
+
+    public void setMaxIncompressibleEntries(final int maxIncompressibleEntries) {
+        this.maxIncompressibleEntries = maxIncompressibleEntries;
+    }
+
+    /**
+     * @return the {@link Deflater} level of the cached representations.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the {@link Deflater} level of the cached representations, which
+     * may be higher than the level of the dynamic compression, because each
+     * representation is compressed once.
+     */
+    public void setCompressionLevel(final int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return the number of the responses served from the cache.
+     */
+    public long getHitsCount() {
+        return hitsCount.get();
+    }
+
+    /**
+     * @return the number of the responses compressed and added to the cache.
+     */
+    public long getMissesCount() {
+        return missesCount.get();
+    }
+
+    /**
+     * @return the number of the conditional requests responded with
+     *  <tt>304 Not Modified</tt> without invoking the {@link HttpHandler}.
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return the number of the responses sent uncompressed, because their
+     *  bodies are known to be incompressible.
+     */
+    public long getIncompressibleCount() {
+        return incompressibleCount.get();
+    }
+
+    /**
+     * @return the total size of the cached compressed representations.
+     */
+    public long getCacheSize() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of the cached compressed representations.
+     */
+    public int getEntriesCount() {
+        return entries.size();
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * The encodings of the {@link ContentEncodingProvider}s are applied before
+     * gzip, if the client accepts them.
+     */
+    private boolean isProvidedEncodingAccepted(final CompressionConfig config,
+            final HttpRequestPacket request) {
+        for (ContentEncodingProvider provider :
+                config.getContentEncodingProviders()) {
+            if (CompressionConfig.isClientSupportCompression(
+                    config, request, provider.getAliases())) {
+                return true;
+            }
+        }
+
+        for (String[] aliases : serviceProvidersAliases) {
+            if (CompressionConfig.isClientSupportCompression(
+                    config, request, aliases)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Entry add(final String key, final byte[] data) {
+        final Entry newEntry = new Entry(key, data);
+        if (data.length > maxCacheSize) {
+            return newEntry;
+        }
+
+        final Entry entry = entries.putIfAbsent(key, newEntry);
+        if (entry != null) {
+            // compressed concurrently
+            return entry;
+        }
+
+        evictionQueue.add(newEntry);
+        if (size.addAndGet(data.length) > maxCacheSize) {
+            evict();
+        }
+
+        return newEntry;
+    }
+
+    private void evict() {
+        // the referenced entries get the second chance, so the loop
+        // ends within two passes over the queue
+        Entry entry;
+        while (size.get() > maxCacheSize
+                && (entry = evictionQueue.poll()) != null) {
+            if (entry.isReferenced) {
+                entry.isReferenced = false;
+                evictionQueue.add(entry);
+            } else if (entries.remove(entry.key, entry)) {
+                size.addAndGet(-entry.data.length);
+            }
+        }
+    }
+
+    private void addKnownETag(final String uriKey, final String etag) {
+        if (etagValidityMillis <= 0) {
+            return;
+        }
+
+        if (knownETags.size() >= maxKnownETags
+                && !knownETags.containsKey(uriKey)) {
+            // start over rather than track the usage of the URIs
+            knownETags.clear();
+        }
+
+        knownETags.put(uriKey, new KnownETag(etag, System.nanoTime()));
+    }
+
+    private void addIncompressibleKey(final String key) {
+        if (incompressibleKeys.size() >= maxIncompressibleEntries) {
+            // start over rather than track the usage of the keys
+            incompressibleKeys.clear();
+        }
+
+        incompressibleKeys.add(key);
+    }
+
+    private byte[] compress(final Buffer body) {
+        final AttributeHolder holder =
+                AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER.createUnsafeAttributeHolder();
+        final AttributeStorage storage = new AttributeStorage() {
+            @Override
+            public AttributeHolder getAttributes() {
+                return holder;
+            }
+        };
+
+        encoder.start(storage, compressionLevel);
+        // the encoder consumes the input
+        final TransformationResult<Buffer, Buffer> result =
+                encoder.transform(storage, body.duplicate());
+        final Buffer compressed;
+        try {
+            compressed = Buffers.appendBuffers(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                    result.getMessage(), encoder.finish(storage));
+        } finally {
+            result.recycle();
+        }
+
+        final byte[] data = new byte[compressed.remaining()];
+        compressed.get(data);
+        compressed.tryDispose();
+        return data;
+    }
+
+    private static String hash(final Buffer body) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final ByteBufferArray byteBufferArray = body.toByteBufferArray();
+        final ByteBuffer[] byteBuffers = byteBufferArray.getArray();
+        for (int i = 0, len = byteBufferArray.size(); i < len; i++) {
+            digest.update(byteBuffers[i]);
+        }
+        byteBufferArray.restore();
+        byteBufferArray.recycle();
+
+        final byte[] bytes = digest.digest();
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static String getStrongETag(final HttpResponsePacket response) {
+        final String etag = response.getHeader(Header.ETag);
+        return etag != null && !etag.startsWith("W/") ? etag : null;
+    }
+
+    /**
+     * The <tt>ETag</tt> is not used to respond without the
+     * {@link HttpHandler}, if the response is private or varies by more
+     * than the encoding. The response to a request with credentials may
+     * depend on the authentication done by the {@link HttpHandler}, so
+     * it's shareable only if it's explicitly <tt>public</tt>.
+     */
+    private static boolean isETagShareable(final HttpRequestPacket request,
+            final HttpResponsePacket response) {
+        if (response.containsHeader(Header.SetCookie)) {
+            return false;
+        }
+
+        final String cacheControl = response.getHeader(Header.CacheControl);
+        final String value = cacheControl != null
+                ? cacheControl.toLowerCase(Locale.ENGLISH)
+                : "";
+        if (value.contains("no-store") || value.contains("no-cache")
+                || value.contains("private")) {
+            return false;
+        }
+
+        if ((request.containsHeader(Header.Authorization)
+                || request.containsHeader(Header.Cookie))
+                && !value.contains("public")) {
+            return false;
+        }
+
+        final String vary = response.getHeader(Header.Vary);
+        return vary == null
+                || vary.trim().equalsIgnoreCase(Header.AcceptEncoding.toString());
+    }
+
+    private static String uriKey(final HttpRequestPacket request) {
+        final String host = request.getHeader(Header.Host);
+        final String query = request.getQueryString();
+        final StringBuilder sb = new StringBuilder();
+        if (host != null) {
+            sb.append(host);
+        }
+        sb.append(request.getRequestURI());
+        if (query != null) {
+            sb.append('?').append(query);
+        }
+        return sb.toString();
+    }
+
+    private static boolean matches(final String ifNoneMatch, final String etag) {
+        int start = 0;
+        final int length = ifNoneMatch.length();
+        while (start < length) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            final String candidate = ifNoneMatch.substring(start, end).trim();
+            if ("*".equals(candidate) || etag.equals(candidate)
+                    // the weak comparison function
+                    || (candidate.startsWith("W/")
+                        && etag.equals(candidate.substring(2)))) {
+                return true;
+            }
+
+            start = end + 1;
+        }
+
+        return false;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final byte[] data;
+        private volatile boolean isReferenced;
+
+        private Entry(final String key, final byte[] data) {
+            this.key = key;
+            this.data = data;
+        }
+    }
+
+    private static final class KnownETag {
+        private final String etag;
+        private final long timestamp;
+
+        private KnownETag(final String etag, final long timestamp) {
+            this.etag = etag;
+            this.timestamp = timestamp;
+        }
+    }
+}
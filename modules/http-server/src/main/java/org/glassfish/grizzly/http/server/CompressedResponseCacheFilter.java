@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.IOException;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.HttpStatus;
+import org.glassfish.grizzly.memory.Buffers;
+
+/**
+ * Responds the conditional GET requests, whose <tt>If-None-Match</tt>
+ * matches the <tt>ETag</tt> known to the {@link CompressedResponseCache},
+ * with <tt>304 Not Modified</tt> without invoking the {@link HttpHandler}.
+ *
+ * @since 2.4.4
+ */
+public class CompressedResponseCacheFilter extends BaseFilter {
+    private final CompressedResponseCache cache;
+
+    public CompressedResponseCacheFilter(final CompressedResponseCache cache) {
+        this.cache = cache;
+    }
+
+
+    // ----------------------------------------------------- Methods from Filter
+
+
+    @Override
+    public NextAction handleRead(final FilterChainContext ctx) throws IOException {
+        final HttpContent requestContent = ctx.getMessage();
+        final HttpRequestPacket request = (HttpRequestPacket) requestContent.getHttpHeader();
+
+        if (cache.isEnabled() && Method.GET.equals(request.getMethod())) {
+            final String etag = cache.getNotModifiedETag(request);
+            if (etag != null) {
+                final HttpResponsePacket response = request.getResponse();
+                HttpStatus.NOT_MODIFIED_304.setValues(response);
+                response.setHeader(Header.ETag, etag);
+
+                ctx.write(HttpContent.builder(response)
+                        .content(Buffers.EMPTY_BUFFER)
+                        .last(true)
+                        .build());
+
+                return FileCacheFilter.flush(ctx);
+            }
+        }
+
+        return ctx.getInvokeAction();
+    }
+
+    public CompressedResponseCache getCompressedResponseCache() {
+        return cache;
+    }
+}
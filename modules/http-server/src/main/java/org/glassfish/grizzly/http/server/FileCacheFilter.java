@@ -37,6 +37,7 @@ import org.glassfish.grizzly.http.HttpContext;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
 import org.glassfish.grizzly.http.server.filecache.FileCache.CacheType;
 import org.glassfish.grizzly.http.server.filecache.FileCacheEntry;
@@ -107,7 +108,9 @@ public class FileCacheFilter extends BaseFilter {
                     return flush(ctx);
                 }
                 
+                // HTTP/2 frames the payload, so the file can't be sent as is
                 return fileCache.isFileSendEnabled() && !request.isSecure()
+                        && request.getProtocol() != Protocol.HTTP_2_0
                         ? sendFileZeroCopy(ctx, response, cacheEntry,
                             isServeCompressed)
                         : sendFileUsingBuffers(ctx, response, cacheEntry,
@@ -193,7 +196,7 @@ public class FileCacheFilter extends BaseFilter {
         return flush(ctx);
     }
     
-    private NextAction flush(final FilterChainContext ctx) {
+    static NextAction flush(final FilterChainContext ctx) {
         final HttpContext httpContext = HttpContext.get(ctx);
         assert httpContext != null;
         final OutputSink output = httpContext.getOutputSink();
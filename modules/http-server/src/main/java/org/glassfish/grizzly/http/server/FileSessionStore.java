@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link SessionStore} keeping each serialized session in its own file,
+ * within a local directory.
+ *
+ * @since 2.4.4
+ */
+public class FileSessionStore implements SessionStore {
+
+    private static final String SUFFIX = ".session";
+
+    private final File directory;
+
+    /**
+     * @param directory the directory where sessions will be stored, created
+     *                  if it doesn't exist
+     * @throws IOException if the directory can't be created
+     */
+    public FileSessionStore(final File directory) throws IOException {
+        if (directory == null) {
+            throw new NullPointerException("Null directory");
+        }
+
+        this.directory = directory;
+        Files.createDirectories(directory.toPath());
+    }
+
+    @Override
+    public void store(final String id, final byte[] data) throws IOException {
+        final File file = file(id);
+        final File tmp = new File(directory, file.getName() + ".tmp");
+        Files.write(tmp.toPath(), data);
+        Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public byte[] load(final String id) throws IOException {
+        try {
+            return Files.readAllBytes(file(id).toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(final String id) throws IOException {
+        Files.deleteIfExists(file(id).toPath());
+    }
+
+    /**
+     * @return the directory where sessions are stored
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Map a session id to a file, hex-encoding ids containing characters
+     * that are not safe in file names.
+     */
+    private File file(final String id) {
+        boolean safe = !id.isEmpty();
+        for (int i = 0; safe && i < id.length(); i++) {
+            final char c = id.charAt(i);
+            safe = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')
+                    || (c >= 'A' && c <= 'Z') || c == '-' || c == '_';
+        }
+
+        if (safe) {
+            return new File(directory, id + SUFFIX);
+        }
+
+        final StringBuilder sb = new StringBuilder(id.length() * 4 + 1).append('x');
+        for (int i = 0; i < id.length(); i++) {
+            sb.append(String.format("%04x", (int) id.charAt(i)));
+        }
+        return new File(directory, sb.append(SUFFIX).toString());
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -49,6 +50,7 @@ import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
 import org.glassfish.grizzly.http.ContentEncoding;
+import org.glassfish.grizzly.http.ContentEncodingProvider;
 import org.glassfish.grizzly.http.GZipContentEncoding;
 import org.glassfish.grizzly.http.LZMAContentEncoding;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
@@ -69,6 +71,7 @@ import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
 import org.glassfish.grizzly.utils.DelayedExecutor;
 import org.glassfish.grizzly.utils.Futures;
 import org.glassfish.grizzly.utils.IdleTimeoutFilter;
+import org.glassfish.grizzly.utils.ServiceFinder;
 
 
 /**
@@ -672,8 +675,19 @@ public class HttpServer {
                     serverConfig.getMonitoringConfig().getFileCacheConfig().getProbes());
             builder.add(fileCacheFilter);
 
+            final CompressedResponseCache compressedResponseCache =
+                    listener.getCompressedResponseCache();
+            if (compressedResponseCache.isEnabled()) {
+                compressedResponseCache.initialize(listener.getCompressionConfig());
+                builder.add(new CompressedResponseCacheFilter(compressedResponseCache));
+            }
+
             final ServerFilterConfiguration config = new ServerFilterConfiguration(serverConfig);
 
+            if (compressedResponseCache.isEnabled()) {
+                config.setCompressedResponseCache(compressedResponseCache);
+            }
+
             if (listener.isSendFileExplicitlyConfigured()) {
                 config.setSendFileEnabled(listener.isSendFileEnabled());
                 fileCache.setFileSendEnabled(listener.isSendFileEnabled());
@@ -695,6 +709,9 @@ public class HttpServer {
             
             config.setMaxFormPostSize(listener.getMaxFormPostSize());
             config.setMaxBufferedPostSize(listener.getMaxBufferedPostSize());
+            if (listener.getMaxBufferedBodyMemory() >= 0) {
+                config.setMaxBufferedBodyMemory(listener.getMaxBufferedBodyMemory());
+            }
             
             final HttpServerFilter httpServerFilter = new HttpServerFilter(
                     config,
@@ -739,15 +756,28 @@ public class HttpServer {
         final CompressionConfig compressionConfig = listener.getCompressionConfig();
         
         if (compressionConfig.getCompressionMode() != CompressionMode.OFF) {
+            // the first encoding accepted by the client is applied, so the
+            // pluggable encodings are preferred to the built-in ones
+            final Set<ContentEncoding> set = new LinkedHashSet<>(4);
+            final Set<String> names = new HashSet<>(4);
+            for (ContentEncodingProvider provider :
+                    compressionConfig.getContentEncodingProviders()) {
+                addContentEncoding(set, names, provider, compressionConfig);
+            }
+            for (ContentEncodingProvider provider :
+                    ServiceFinder.find(ContentEncodingProvider.class)) {
+                addContentEncoding(set, names, provider, compressionConfig);
+            }
+
             final ContentEncoding gzipContentEncoding = new GZipContentEncoding(
                 GZipContentEncoding.DEFAULT_IN_BUFFER_SIZE,
                 GZipContentEncoding.DEFAULT_OUT_BUFFER_SIZE,
                 new CompressionEncodingFilter(compressionConfig,
-                    GZipContentEncoding.getGzipAliases()));
+                    GZipContentEncoding.getGzipAliases()),
+                compressionConfig.getCompressionLevelPolicy());
             final ContentEncoding lzmaEncoding = new LZMAContentEncoding(
                     new CompressionEncodingFilter(compressionConfig,
                     LZMAContentEncoding.getLzmaAliases()));
-            final Set<ContentEncoding> set = new HashSet<>(2);
             set.add(gzipContentEncoding);
             set.add(lzmaEncoding);
             return set;
@@ -756,6 +786,16 @@ public class HttpServer {
         }
     }
 
+    private static void addContentEncoding(final Set<ContentEncoding> set,
+            final Set<String> names, final ContentEncodingProvider provider,
+            final CompressionConfig compressionConfig) {
+        if (names.add(provider.getName())) {
+            set.add(provider.createContentEncoding(compressionConfig,
+                    new CompressionEncodingFilter(compressionConfig,
+                            provider.getAliases())));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void configureMonitoring(final NetworkListener listener) {
         final TCPNIOTransport transport = listener.getTransport();
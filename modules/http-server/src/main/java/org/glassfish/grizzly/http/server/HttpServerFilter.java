@@ -31,6 +31,7 @@ import org.glassfish.grizzly.http.HttpPacket;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.io.BodyMemoryBudget;
 import org.glassfish.grizzly.http.server.util.HtmlHelper;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.grizzly.impl.FutureImpl;
@@ -107,6 +108,11 @@ public class HttpServerFilter extends BaseFilter
      * The number of requests, which are currently in process.
      */
     private final AtomicInteger activeRequestsCounter = new AtomicInteger();
+
+    /**
+     * The memory, which request bodies can buffer, or <tt>null</tt> if unlimited
+     */
+    private final BodyMemoryBudget bodyMemoryBudget;
     
     /**
      * Web server probes
@@ -128,6 +134,9 @@ public class HttpServerFilter extends BaseFilter
     public HttpServerFilter(final ServerFilterConfiguration config,
             final DelayedExecutor delayedExecutor) {
         this.config = config;
+        bodyMemoryBudget = config.getMaxBufferedBodyMemory() >= 0
+                ? new BodyMemoryBudget(config.getMaxBufferedBodyMemory())
+                : null;
         suspendedResponseQueue = Response.createDelayQueue(delayedExecutor);
         httpRequestInProgress = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.
                         createAttribute("HttpServerFilter.Request");
@@ -145,6 +154,17 @@ public class HttpServerFilter extends BaseFilter
     public ServerFilterConfiguration getConfiguration() {
         return config;
     }
+
+    /**
+     * @return the {@link BodyMemoryBudget} shared by the requests processed
+     * by this filter, or <tt>null</tt> if the buffered request body memory
+     * is not limited
+     *
+     * @since 2.4.4
+     */
+    public BodyMemoryBudget getBodyMemoryBudget() {
+        return bodyMemoryBudget;
+    }
     
     // ----------------------------------------------------- Methods from Filter
 
@@ -182,6 +202,12 @@ public class HttpServerFilter extends BaseFilter
                 handlerResponse.initialize(handlerRequest, response,
                         ctx, suspendedResponseQueue, this);
 
+                final CompressedResponseCache compressedResponseCache =
+                        config.getCompressedResponseCache();
+                if (compressedResponseCache != null) {
+                    compressedResponseCache.prepare(handlerRequest, handlerResponse);
+                }
+
                 if (config.isGracefulShutdownSupported()) {
                     activeRequestsCounter.incrementAndGet();
                     handlerRequest.addAfterServiceListener(flushResponseHandler);
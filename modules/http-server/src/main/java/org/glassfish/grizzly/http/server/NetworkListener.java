@@ -182,6 +182,11 @@ public class NetworkListener {
      * {@link FileCache} to be used by this <code>NetworkListener</code>.
      */
     private final FileCache fileCache = new FileCache();
+    /**
+     * {@link CompressedResponseCache} to be used by this <code>NetworkListener</code>.
+     */
+    private final CompressedResponseCache compressedResponseCache =
+            new CompressedResponseCache();
     /**
      * Maximum size, in bytes, of all data waiting to be written.
      */
@@ -214,6 +219,7 @@ public class NetworkListener {
     private boolean authPassThroughEnabled;
     private int maxFormPostSize = 2 * 1024 * 1024;
     private int maxBufferedPostSize = 2 * 1024 * 1024;
+    private long maxBufferedBodyMemory = -1L;
     private String restrictedUserAgents;
     private int uploadTimeout;
     private boolean disableUploadTimeout;
@@ -671,6 +677,13 @@ public class NetworkListener {
         return fileCache;
     }
 
+    /**
+     * @return the {@link CompressedResponseCache} associated with this listener.
+     */
+    public CompressedResponseCache getCompressedResponseCache() {
+        return compressedResponseCache;
+    }
+
     /**
      * @return the maximum size, in bytes, of all data waiting to be written to the associated {@link Connection}.
      *  If not explicitly set, the value will be -1 which effectively disables
@@ -1093,6 +1106,29 @@ public class NetworkListener {
         this.maxBufferedPostSize = maxBufferedPostSize < 0 ? -1 : maxBufferedPostSize;
     }
 
+    /**
+     * Gets the maximum amount of request body memory, which all the requests
+     * processed by this listener can buffer at the same time.
+     * <code>-1</code> value means the {@link ServerConfiguration} value is used.
+     *
+     * @since 2.4.4
+     */
+    public long getMaxBufferedBodyMemory() {
+        return maxBufferedBodyMemory;
+    }
+
+    /**
+     * Sets the maximum amount of request body memory, which all the requests
+     * processed by this listener can buffer at the same time.
+     * <code>-1</code> value means the {@link ServerConfiguration} value is used.
+     *
+     * @see ServerFilterConfiguration#setMaxBufferedBodyMemory(long)
+     * @since 2.4.4
+     */
+    public void setMaxBufferedBodyMemory(final long maxBufferedBodyMemory) {
+        this.maxBufferedBodyMemory = maxBufferedBodyMemory < 0 ? -1 : maxBufferedBodyMemory;
+    }
+
     public String getRestrictedUserAgents() {
         return restrictedUserAgents;
     }
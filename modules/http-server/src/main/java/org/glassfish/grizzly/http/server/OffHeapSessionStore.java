@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link SessionStore} keeping serialized sessions in direct
+ * {@link ByteBuffer}s, outside of the Java heap.
+ *
+ * @since 2.4.4
+ */
+public class OffHeapSessionStore implements SessionStore {
+
+    private final ConcurrentMap<String, ByteBuffer> buffers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IOException if the direct memory is exhausted, so the session
+     *  is kept on the heap.
+     */
+    @Override
+    public void store(final String id, final byte[] data) throws IOException {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(data.length);
+        } catch (OutOfMemoryError e) {
+            throw new IOException("Unable to allocate "
+                    + data.length + " bytes of direct memory", e);
+        }
+        buffer.put(data);
+        buffer.flip();
+        buffers.put(id, buffer);
+    }
+
+    @Override
+    public byte[] load(final String id) {
+        final ByteBuffer buffer = buffers.get(id);
+        if (buffer == null) {
+            return null;
+        }
+
+        final byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    @Override
+    public void remove(final String id) {
+        buffers.remove(id);
+    }
+
+    /**
+     * @return the number of sessions currently stored
+     */
+    public int size() {
+        return buffers.size();
+    }
+}
@@ -341,6 +341,11 @@ public class Request {
 
     protected final Parameters parameters = new Parameters();
 
+    /**
+     * The form body detached from the input buffer, the parameters refer to.
+     */
+    private Buffer formData;
+
 
     /**
      * The current request dispatcher path.
@@ -641,12 +646,16 @@ public class Request {
         requestedSessionId = null;
         sessionCookieName = null;
         sessionManager = null;
-        session = null;
+        if (session != null) {
+            session.release();
+            session = null;
+        }
         dispatchDepth = 0; // S1AS 4703023
 
         parameterMap.setLocked(false);
         parameterMap.clear();
         parameters.recycle();
+        disposeFormData();
 
         requestExecutorProvider = null;
 
@@ -708,6 +717,7 @@ public class Request {
             parameterMap.setLocked(false);
             parameterMap.clear();
             parameters.recycle();
+            disposeFormData();
         }
     }
     
@@ -1106,6 +1116,29 @@ public class Request {
     }
 
 
+    /**
+     * Return the value of the specified request parameter as a {@link DataChunk},
+     * if any; otherwise, return <code>null</code>.  If there is more than one
+     * value defined, return only the first one.
+     * Unlike {@link #getParameter(String)}, the value is not converted to a
+     * {@link String}, its bytes are encoded using the request character encoding.
+     * The returned {@link DataChunk} is valid until the next call of this method.
+     *
+     * @param name Name of the desired request parameter
+     *
+     * @since 2.4.4
+     */
+    public DataChunk getParameterChunk(final String name) {
+
+        if (!requestParametersParsed) {
+            parseRequestParameters();
+        }
+
+        return parameters.getParameterChunk(name);
+
+    }
+
+
 
     /**
      * Returns a {@link java.util.Map} of the parameters of this request.
@@ -2115,23 +2148,26 @@ public class Request {
             throw new IllegalStateException(LogMessages.WARNING_GRIZZLY_HTTP_SERVER_REQUEST_POST_TOO_LARGE());
         }
 
-        int read = 0;
         try {
-            final Buffer formData = getPostBody(len);
-            read = formData.remaining();
-            parameters.processParameters(formData, formData.position(), read);
+            inputBuffer.fillFully(len);
+            // The parameters are decoded lazily, so detach the body from
+            // the input buffer instead of skipping it, it's disposed once
+            // the parameters are recycled
+            formData = inputBuffer.readBuffer();
+            parameters.processParameters(formData, formData.position(),
+                    formData.remaining());
         } catch (Exception ignored) {
-        } finally {
-            try {
-                skipPostBody(read);
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING,
-                        LogMessages.WARNING_GRIZZLY_HTTP_SERVER_REQUEST_BODY_SKIP(), e);
-            }
         }
 
     }
 
+    private void disposeFormData() {
+        if (formData != null) {
+            formData.tryDispose();
+            formData = null;
+        }
+    }
+
     private Charset lookupCharset(final String enc) {
         Charset charset;
         if (enc != null) {
@@ -2402,7 +2438,10 @@ public class Request {
             return session;
         }
 
-        session = null;
+        if (session != null) {
+            session.release();
+            session = null;
+        }
 
         if (requestedSessionId == null) {
             final Cookie[] cookiesLocale = getCookies();
@@ -2426,6 +2465,7 @@ public class Request {
         
         if (session != null) {
             session.access();
+            session.acquire();
             return session;
         }
         
@@ -2434,6 +2474,7 @@ public class Request {
         }
         
         session = getSessionManager().createSession(this);
+        session.acquire();
         session.setSessionTimeout(
                 httpServerFilter.getConfiguration().getSessionTimeoutSeconds() * 1000);
         requestedSessionId = session.getIdInternal();
@@ -41,6 +41,7 @@ public class ServerFilterConfiguration {
     private long maxPostSize = -1L;
     private int maxFormPostSize = 2 * 1024 * 1024;
     private int maxBufferedPostSize = 2 * 1024 * 1024;
+    private long maxBufferedBodyMemory = -1L;
     
     private int sessionTimeoutSeconds = -1;
         
@@ -64,6 +65,11 @@ public class ServerFilterConfiguration {
      * The HTTP server {@link SessionManager}.
      */
     private SessionManager sessionManager;
+
+    /**
+     * The cache of the compressed dynamic responses, or <tt>null</tt>.
+     */
+    private CompressedResponseCache compressedResponseCache;
     
     /**
      * <tt>true</tt>, if {@link HttpServerFilter} has to support
@@ -97,8 +103,10 @@ public class ServerFilterConfiguration {
         this.defaultErrorPageGenerator = configuration.defaultErrorPageGenerator;
         this.isGracefulShutdownSupported = configuration.isGracefulShutdownSupported;
         this.maxPostSize = configuration.maxPostSize;
+        this.maxBufferedBodyMemory = configuration.maxBufferedBodyMemory;
         this.sessionTimeoutSeconds = configuration.sessionTimeoutSeconds;
         this.sessionManager = configuration.sessionManager;
+        this.compressedResponseCache = configuration.compressedResponseCache;
     }
     
     /**
@@ -402,6 +410,30 @@ public class ServerFilterConfiguration {
         this.maxBufferedPostSize = maxBufferedPostSize < 0 ? -1 : maxBufferedPostSize;
     }
 
+    /**
+     * Gets the maximum amount of request body memory, which all the requests
+     * processed by a listener can buffer at the same time.
+     * <code>-1</code> value means no limits applied.
+     *
+     * @since 2.4.4
+     */
+    public long getMaxBufferedBodyMemory() {
+        return maxBufferedBodyMemory;
+    }
+
+    /**
+     * Sets the maximum amount of request body memory, which all the requests
+     * processed by a listener can buffer at the same time. Once the limit
+     * is reached, the body of the requests is not read from the network
+     * until some memory is released.
+     * <code>-1</code> value means no limits applied.
+     *
+     * @since 2.4.4
+     */
+    public void setMaxBufferedBodyMemory(final long maxBufferedBodyMemory) {
+        this.maxBufferedBodyMemory = maxBufferedBodyMemory < 0 ? -1 : maxBufferedBodyMemory;
+    }
+
     /**
      * @return the default character encoding used to decode request URI's query part.
      * <code>null</code> value means specific request's character encoding will be used
@@ -502,6 +534,25 @@ public class ServerFilterConfiguration {
     public void setSessionManager(SessionManager sessionManager) {
         this.sessionManager = sessionManager;
     }
+
+    /**
+     * @return the {@link CompressedResponseCache}, or <tt>null</tt> if
+     *  the compressed dynamic responses are not cached.
+     */
+    public CompressedResponseCache getCompressedResponseCache() {
+        return compressedResponseCache;
+    }
+
+    /**
+     * Sets the {@link CompressedResponseCache}, <tt>null</tt> disables
+     * the caching of the compressed dynamic responses.
+     *
+     * @param compressedResponseCache {@link CompressedResponseCache}
+     */
+    public void setCompressedResponseCache(
+            final CompressedResponseCache compressedResponseCache) {
+        this.compressedResponseCache = compressedResponseCache;
+    }
     
     // --------------------------------------------------------- Private Methods
 
@@ -18,6 +18,7 @@ package org.glassfish.grizzly.http.server;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simple session object.
@@ -64,6 +65,11 @@ public class Session {
      */
     private long timestamp = -1;
 
+    /**
+     * The number of requests using this session.
+     */
+    private final AtomicInteger requests = new AtomicInteger();
+
 
 
     public Session() {
@@ -80,6 +86,17 @@ public class Session {
         creationTime = timestamp = System.currentTimeMillis();
     }
 
+    /**
+     * Re-create a session, previously persisted, with its original
+     * creation time.
+     * @param id session identifier
+     * @param creationTime the time when the session was created
+     */
+    Session(String id, long creationTime) {
+        this.id = id;
+        this.creationTime = timestamp = creationTime;
+    }
+
 
     /**
      * Is the current Session valid?
@@ -116,6 +133,14 @@ public class Session {
         return isNew;
     }
 
+    /**
+     * Restore the "new" flag of a session, previously persisted.
+     * @param isNew
+     */
+    void setNew(boolean isNew) {
+        this.isNew = isNew;
+    }
+
     /**
      * @return the session identifier for this session.
      */
@@ -230,4 +255,26 @@ public class Session {
         
         return localTimeStamp;
     }
+
+    /**
+     * Marks this session as used by a request until {@link #release()}
+     * is called.
+     */
+    void acquire() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * Marks this session as not used by a request anymore.
+     */
+    void release() {
+        requests.decrementAndGet();
+    }
+
+    /**
+     * @return <tt>true</tt> if a request is using this session.
+     */
+    boolean isInUse() {
+        return requests.get() > 0;
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.IOException;
+
+/**
+ * Persistence SPI used by {@link ShardedSessionManager} to keep serialized
+ * idle {@link Session}s out of the Java heap.
+ *
+ * <p>Implementations <b>must</b> be thread-safe.</p>
+ *
+ * @see OffHeapSessionStore
+ * @see FileSessionStore
+ * @since 2.4.4
+ */
+public interface SessionStore {
+
+    /**
+     * Store the serialized form of the session with the given id, replacing
+     * any previously stored value.
+     *
+     * @param id the session id
+     * @param data the serialized session
+     * @throws IOException if the session could not be stored
+     */
+    void store(String id, byte[] data) throws IOException;
+
+    /**
+     * Load the serialized form of the session with the given id.
+     *
+     * @param id the session id
+     * @return the serialized session, or <tt>null</tt> if not found
+     * @throws IOException if the session could not be loaded
+     */
+    byte[] load(String id) throws IOException;
+
+    /**
+     * Remove the session with the given id, if stored.
+     *
+     * @param id the session id
+     * @throws IOException if the session could not be removed
+     */
+    void remove(String id) throws IOException;
+}
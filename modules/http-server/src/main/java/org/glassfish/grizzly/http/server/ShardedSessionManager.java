@@ -0,0 +1,693 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.http.Cookie;
+import org.glassfish.grizzly.http.server.util.Globals;
+
+/**
+ * {@link SessionManager} implementation designed for very large numbers of
+ * sessions.
+ *
+ * <ul>
+ *  <li>sessions are spread across independently locked shards, so that
+ *      lookups on different shards never contend;</li>
+ *  <li>each shard owns a hashed timing wheel, expiration only visits the
+ *      sessions whose deadline has come, instead of sweeping them all;</li>
+ *  <li>the number of sessions is bounded, once the limit is reached the
+ *      least recently used session of the shard is evicted;</li>
+ *  <li>optionally, sessions idle for a configurable time are serialized into
+ *      a {@link SessionStore} and transparently restored on access.</li>
+ * </ul>
+ *
+ * Looking up an active session doesn't allocate.
+ *
+ * @since 2.4.4
+ */
+public class ShardedSessionManager implements SessionManager {
+    private static final Logger LOGGER = Grizzly.logger(ShardedSessionManager.class);
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final int maxSessionsPerShard;
+    private final long tickMillis;
+
+    private final SessionStore sessionStore;
+    private final long passivationIdleMillis;
+
+    private final AtomicLong evictedSessions = new AtomicLong();
+    private final AtomicLong passivatedSessions = new AtomicLong();
+
+    private final Random rnd = new Random();
+
+    private volatile String sessionCookieName = Globals.SESSION_COOKIE_NAME;
+
+    /**
+     * The task advancing the timing wheels on the shared expiration thread.
+     */
+    private final ScheduledFuture<?> expirationTask;
+
+    /**
+     * @return a new {@link ShardedSessionManagerBuilder}
+     */
+    public static ShardedSessionManagerBuilder builder() {
+        return new ShardedSessionManagerBuilder();
+    }
+
+    /**
+     * Creates a {@link ShardedSessionManager} with the default settings.
+     */
+    public ShardedSessionManager() {
+        this(builder());
+    }
+
+    private ShardedSessionManager(final ShardedSessionManagerBuilder builder) {
+        if (builder.shards <= 0 || builder.shards > (1 << 16)) {
+            throw new IllegalArgumentException("Invalid shards number: " + builder.shards);
+        }
+        if (builder.maxSessions <= 0) {
+            throw new IllegalArgumentException("Invalid max sessions: " + builder.maxSessions);
+        }
+        if (builder.tickMillis <= 0) {
+            throw new IllegalArgumentException("Invalid tick: " + builder.tickMillis);
+        }
+
+        int shardsCount = builder.shards == 1
+                ? 1
+                : Integer.highestOneBit(builder.shards - 1) << 1;
+        // each shard holds at least one session, so there can't be more
+        // shards than sessions
+        if (shardsCount > builder.maxSessions) {
+            shardsCount = Integer.highestOneBit(builder.maxSessions);
+        }
+        shards = new Shard[shardsCount];
+        shardMask = shardsCount - 1;
+        maxSessionsPerShard = builder.maxSessions / shardsCount;
+        tickMillis = builder.tickMillis;
+        sessionStore = builder.sessionStore;
+        passivationIdleMillis = builder.passivationIdleMillis;
+
+        final long currentTick = System.currentTimeMillis() / tickMillis;
+        for (int i = 0; i < shardsCount; i++) {
+            shards[i] = new Shard(currentTick);
+        }
+
+        final ExpirationTask task = new ExpirationTask(this);
+        expirationTask = ExpirerHolder.INSTANCE.scheduleAtFixedRate(
+                task, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        task.future = expirationTask;
+    }
+
+    @Override
+    public Session getSession(final Request request,
+            final String requestedSessionId) {
+        if (requestedSessionId == null) {
+            return null;
+        }
+
+        final Shard shard = shard(requestedSessionId);
+        synchronized (shard) {
+            final Entry entry = shard.entries.get(requestedSessionId);
+            if (entry == null) {
+                return null;
+            }
+
+            Session session = entry.session;
+            if (session == null) {
+                session = shard.activate(entry);
+            }
+            // the request is going to use the session, don't passivate it
+            // before the request marks it as used
+            entry.lookupTime = System.currentTimeMillis();
+
+            return session != null && session.isValid() ? session : null;
+        }
+    }
+
+    @Override
+    public Session createSession(final Request request) {
+        final Session session = new Session();
+
+        while (true) {
+            final String id = String.valueOf(generateRandomLong());
+            final Shard shard = shard(id);
+            synchronized (shard) {
+                if (!shard.entries.containsKey(id)) {
+                    session.setIdInternal(id);
+                    shard.add(new Entry(id, session), session.getTimestamp());
+                    return session;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String changeSessionId(final Request request, final Session session) {
+        final String oldSessionId = session.getIdInternal();
+
+        final Shard oldShard = shard(oldSessionId);
+        synchronized (oldShard) {
+            final Entry entry = oldShard.entries.get(oldSessionId);
+            if (entry != null) {
+                oldShard.remove(entry);
+            }
+        }
+
+        while (true) {
+            final String id = String.valueOf(generateRandomLong());
+            final Shard shard = shard(id);
+            synchronized (shard) {
+                if (!shard.entries.containsKey(id)) {
+                    session.setIdInternal(id);
+                    shard.add(new Entry(id, session), System.currentTimeMillis());
+                    return oldSessionId;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void configureSessionCookie(final Request request,
+            final Cookie cookie) {
+    }
+
+    @Override
+    public void setSessionCookieName(final String name) {
+        if (name != null && !name.isEmpty()) {
+            sessionCookieName = name;
+        }
+    }
+
+    @Override
+    public String getSessionCookieName() {
+        return sessionCookieName;
+    }
+
+    /**
+     * @return the number of sessions currently tracked, including the
+     *  passivated ones
+     */
+    public int getSessionCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                count += shard.entries.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of sessions evicted because the maximum number of
+     *  sessions was reached
+     */
+    public long getEvictedSessionsCount() {
+        return evictedSessions.get();
+    }
+
+    /**
+     * @return the number of times a session has been passivated into the
+     *  {@link SessionStore}
+     */
+    public long getPassivatedSessionsCount() {
+        return passivatedSessions.get();
+    }
+
+    /**
+     * Stops the expiration of this manager's sessions, sessions are not
+     * invalidated. The expiration also stops once the manager is garbage
+     * collected, so calling this method is not mandatory.
+     */
+    public void shutdown() {
+        expirationTask.cancel(false);
+    }
+
+    /**
+     * Expire, evict or passivate the sessions whose deadline is due, as if
+     * the current time was <tt>now</tt>.
+     */
+    void expireSessions(final long now) {
+        for (Shard shard : shards) {
+            shard.advance(now);
+        }
+    }
+
+    private Shard shard(final String id) {
+        final int h = id.hashCode();
+        return shards[(h ^ (h >>> 16)) & shardMask];
+    }
+
+    /**
+     * Returns pseudorandom positive long value.
+     */
+    private long generateRandomLong() {
+        return (rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL);
+    }
+
+    // ------------------------------------------------------- Expiration
+
+    /**
+     * The expiration thread shared by all the {@link ShardedSessionManager}s.
+     */
+    private static class ExpirerHolder {
+        private static final ScheduledThreadPoolExecutor INSTANCE
+                = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread t = new Thread(r, "Grizzly-ShardedSession-Expirer");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        static {
+            INSTANCE.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * Advances the timing wheels of a manager, the manager is weakly
+     * referenced so the task is cancelled once it's not used anymore.
+     */
+    private static final class ExpirationTask implements Runnable {
+        private final WeakReference<ShardedSessionManager> managerRef;
+        private volatile ScheduledFuture<?> future;
+
+        ExpirationTask(final ShardedSessionManager manager) {
+            managerRef = new WeakReference<>(manager);
+        }
+
+        @Override
+        public void run() {
+            final ShardedSessionManager manager = managerRef.get();
+            if (manager == null) {
+                final ScheduledFuture<?> f = future;
+                if (f != null) {
+                    f.cancel(false);
+                }
+                return;
+            }
+
+            final long now = System.currentTimeMillis();
+            for (Shard shard : manager.shards) {
+                try {
+                    shard.advance(now);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error expiring sessions", e);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------- Serialization
+
+    private static byte[] serialize(final Session session) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeLong(session.getCreationTime());
+            out.writeLong(session.getTimestamp());
+            out.writeLong(session.getSessionTimeout());
+            out.writeBoolean(session.isNew());
+
+            final Map<String, Object> attributes = session.attributes();
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                out.writeUTF(attribute.getKey());
+                out.writeObject(attribute.getValue());
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static Session deserialize(final String id, final byte[] data)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ContextObjectInputStream(new ByteArrayInputStream(data))) {
+            final Session session = new Session(id, in.readLong());
+            session.setTimestamp(in.readLong());
+            session.setSessionTimeout(in.readLong());
+            session.setNew(in.readBoolean());
+
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                session.setAttribute(in.readUTF(), in.readObject());
+            }
+            return session;
+        }
+    }
+
+    private static final class ContextObjectInputStream extends ObjectInputStream {
+        ContextObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            final ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            if (cl != null) {
+                try {
+                    return Class.forName(desc.getName(), false, cl);
+                } catch (ClassNotFoundException ignored) {
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+    // ------------------------------------------------------- Shards and wheels
+
+    /**
+     * A tracked session, linked in both its shard's LRU map and timing wheel.
+     */
+    private static final class Entry {
+        private final String id;
+
+        /**
+         * The session, or <tt>null</tt> if passivated.
+         */
+        private Session session;
+        /**
+         * Last access time and timeout of a passivated session.
+         */
+        private long timestamp;
+        private long timeout;
+        /**
+         * The time the session was last looked up.
+         */
+        private long lookupTime;
+
+        private Entry prev;
+        private Entry next;
+        private int bucket = -1;
+        private long deadlineTick;
+
+        Entry(final String id, final Session session) {
+            this.id = id;
+            this.session = session;
+        }
+    }
+
+    private final class Shard {
+        /**
+         * Sessions in access order, the eldest being the least recently used.
+         */
+        private final LinkedHashMap<String, Entry> entries =
+                new LinkedHashMap<>(16, 0.75f, true);
+        private final Entry[] wheel = new Entry[WHEEL_SIZE];
+        private long currentTick;
+
+        Shard(final long currentTick) {
+            this.currentTick = currentTick;
+        }
+
+        // all the methods below must be called holding this shard's lock
+
+        void add(final Entry entry, final long now) {
+            entries.put(entry.id, entry);
+            // the timeout is normally set right after the session creation,
+            // so look at the session again on the next tick
+            schedule(entry, now + tickMillis);
+
+            if (entries.size() > maxSessionsPerShard) {
+                final Iterator<Entry> it = entries.values().iterator();
+                final Entry eldest = it.next();
+                if (eldest != entry) {
+                    if (eldest.session != null) {
+                        eldest.session.setValid(false);
+                    }
+                    remove(eldest);
+                    evictedSessions.incrementAndGet();
+                }
+            }
+        }
+
+        void remove(final Entry entry) {
+            entries.remove(entry.id);
+            unlink(entry);
+            if (entry.session == null) {
+                try {
+                    sessionStore.remove(entry.id);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Error removing passivated session", e);
+                }
+            }
+        }
+
+        Session activate(final Entry entry) {
+            Session session = null;
+            try {
+                final byte[] data = sessionStore.load(entry.id);
+                if (data != null) {
+                    session = deserialize(entry.id, data);
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error restoring passivated session", e);
+            }
+
+            if (session == null) {
+                remove(entry);
+                return null;
+            }
+
+            try {
+                sessionStore.remove(entry.id);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error removing passivated session", e);
+            }
+            entry.session = session;
+            schedule(entry, System.currentTimeMillis() + passivationIdleMillis);
+            return session;
+        }
+
+        synchronized void advance(final long now) {
+            final long targetTick = now / tickMillis;
+            long tick = Math.max(currentTick + 1, targetTick - WHEEL_MASK);
+            for (; tick <= targetTick; tick++) {
+                currentTick = tick;
+                expire(tick, now);
+            }
+        }
+
+        private void expire(final long tick, final long now) {
+            final int bucket = (int) (tick & WHEEL_MASK);
+            Entry entry = wheel[bucket];
+            while (entry != null) {
+                final Entry next = entry.next;
+                if (entry.deadlineTick <= tick) {
+                    unlink(entry);
+                    check(entry, now);
+                }
+                entry = next;
+            }
+        }
+
+        private void check(final Entry entry, final long now) {
+            final Session session = entry.session;
+            final long timestamp;
+            final long timeout;
+            if (session != null) {
+                if (!session.isValid()) {
+                    remove(entry);
+                    return;
+                }
+                timestamp = session.getTimestamp();
+                timeout = session.getSessionTimeout();
+            } else {
+                timestamp = entry.timestamp;
+                timeout = entry.timeout;
+            }
+
+            if (timeout > 0 && now - timestamp > timeout) {
+                if (session != null) {
+                    session.setValid(false);
+                }
+                remove(entry);
+                return;
+            }
+
+            // check again at least once per wheel revolution
+            long deadline = now + WHEEL_SIZE * tickMillis;
+            if (timeout > 0) {
+                deadline = Math.min(deadline, timestamp + timeout + 1);
+            }
+
+            if (session != null && sessionStore != null) {
+                final long accessed = Math.max(timestamp, entry.lookupTime);
+                if (now - accessed >= passivationIdleMillis
+                        && !session.isInUse()) {
+                    passivate(entry, timestamp, timeout);
+                } else {
+                    deadline = Math.min(deadline, accessed + passivationIdleMillis);
+                }
+            }
+
+            schedule(entry, deadline);
+        }
+
+        private void passivate(final Entry entry, final long timestamp,
+                final long timeout) {
+            final Session session = entry.session;
+            try {
+                sessionStore.store(entry.id, serialize(session));
+            } catch (NotSerializableException e) {
+                LOGGER.log(Level.FINE, "Session attributes are not serializable, keeping it in memory", e);
+                return;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error passivating session", e);
+                return;
+            }
+
+            // a request might have got the session while it was serialized,
+            // its changes would be lost
+            if (session.isInUse() || session.getTimestamp() != timestamp) {
+                try {
+                    sessionStore.remove(entry.id);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Error removing passivated session", e);
+                }
+                return;
+            }
+
+            entry.timestamp = timestamp;
+            entry.timeout = timeout;
+            entry.session = null;
+            passivatedSessions.incrementAndGet();
+        }
+
+        private void schedule(final Entry entry, final long deadline) {
+            unlink(entry);
+
+            final long tick = Math.max(currentTick + 1,
+                    (deadline + tickMillis - 1) / tickMillis);
+            final int bucket = (int) (tick & WHEEL_MASK);
+
+            entry.deadlineTick = tick;
+            entry.bucket = bucket;
+            entry.prev = null;
+            entry.next = wheel[bucket];
+            if (entry.next != null) {
+                entry.next.prev = entry;
+            }
+            wheel[bucket] = entry;
+        }
+
+        private void unlink(final Entry entry) {
+            if (entry.bucket < 0) {
+                return;
+            }
+
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                wheel[entry.bucket] = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+
+            entry.prev = entry.next = null;
+            entry.bucket = -1;
+        }
+    }
+
+    // ------------------------------------------------------- Builder
+
+    public static class ShardedSessionManagerBuilder {
+        private int shards = 16;
+        private int maxSessions = 1000000;
+        private long tickMillis = 1000;
+        private SessionStore sessionStore;
+        private long passivationIdleMillis = -1;
+
+        private ShardedSessionManagerBuilder() {
+        }
+
+        /**
+         * Sets the number of independently locked shards, rounded up to the
+         * next power of two, and lowered to the maximum number of sessions
+         * if it's smaller. The default is <tt>16</tt>.
+         */
+        public ShardedSessionManagerBuilder shards(final int val) {
+            shards = val;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of sessions, once reached the least recently
+         * used sessions are evicted. The default is <tt>1000000</tt>.
+         */
+        public ShardedSessionManagerBuilder maxSessions(final int val) {
+            maxSessions = val;
+            return this;
+        }
+
+        /**
+         * Sets the resolution of the expiration timing wheel.
+         * The default is one second.
+         */
+        public ShardedSessionManagerBuilder tick(final long val, final TimeUnit unit) {
+            tickMillis = unit.toMillis(val);
+            return this;
+        }
+
+        /**
+         * Enables the passivation of sessions idle for the given amount of time
+         * into the given {@link SessionStore}. Sessions with non
+         * {@link java.io.Serializable} attributes are kept in memory.
+         */
+        public ShardedSessionManagerBuilder passivation(final SessionStore store,
+                final long idleTime, final TimeUnit unit) {
+            if (store == null) {
+                throw new NullPointerException("Null session store");
+            }
+            sessionStore = store;
+            passivationIdleMillis = unit.toMillis(idleTime);
+            return this;
+        }
+
+        /**
+         * @return a new {@link ShardedSessionManager} based on the values of this builder.
+         */
+        public ShardedSessionManager build() {
+            return new ShardedSessionManager(this);
+        }
+    }
+}
@@ -48,6 +48,10 @@ public class AccessLogBuilder {
     private String rotationPattern;
     /* Non-synchronous, always use a Queue+Thread */
     private boolean synchronous;
+    /* Ring buffer capacity, zero uses a QueueingAppender */
+    private int ringBufferCapacity;
+    /* What to do when the ring buffer is full */
+    private RingBufferAppender.OverflowPolicy overflowPolicy = RingBufferAppender.OverflowPolicy.DROP;
 
     /* The base file name of the access log */
     private final File file;
@@ -114,8 +118,12 @@ public class AccessLogBuilder {
             throw new IllegalStateException("I/O error creating acces log", exception);
         }
 
-        /* Wrap the synch in a queue in a-synchronous */
-        if (!synchronous) appender = new QueueingAppender(appender);
+        /* Wrap the synch in a queue (or ring) in a-synchronous */
+        if (!synchronous) {
+            appender = ringBufferCapacity > 0
+                    ? new RingBufferAppender(appender, ringBufferCapacity, overflowPolicy)
+                    : new QueueingAppender(appender);
+        }
 
         /* Create and return our probe */
         return new AccessLogProbe(appender, format, statusThreshold);
@@ -164,6 +172,10 @@ public class AccessLogBuilder {
             final ApacheLogFormat apacheFormat = (ApacheLogFormat) format;
             format = new ApacheLogFormat(timeZone, apacheFormat.getFormat());
             return this;
+        } else if (format instanceof CompiledApacheLogFormat) {
+            final CompiledApacheLogFormat compiledFormat = (CompiledApacheLogFormat) format;
+            format = new CompiledApacheLogFormat(timeZone, compiledFormat.getFormat());
+            return this;
         }
         throw new IllegalStateException("TimeZone can not be set for " + format.getClass().getName());
     }
@@ -238,10 +250,31 @@ public class AccessLogBuilder {
      * <en>synchronously</em> or not.
      *
      * <p>If <b>false</b> (the default) a {@link QueueingAppender} will be used
-     * to enqueue entries and append to the final appenders when possible.</p>
+     * to enqueue entries and append to the final appenders when possible,
+     * unless a {@linkplain #ringBuffer(int, RingBufferAppender.OverflowPolicy)
+     * ring buffer} was configured.</p>
      */
     public AccessLogBuilder synchronous(boolean synchronous) {
         this.synchronous = synchronous;
         return this;
     }
+
+    /**
+     * Specify that <em>a-synchronous</em> access log entries should be
+     * buffered by a bounded {@link RingBufferAppender} rather than by a
+     * {@link QueueingAppender}.
+     *
+     * <p>Combined with a {@link BinaryAccessLogFormat}, entries will be
+     * formatted directly into the ring's pooled buffers.</p>
+     *
+     * @param capacity The maximum number of pending entries.
+     * @param overflowPolicy What to do when the ring is full.
+     */
+    public AccessLogBuilder ringBuffer(int capacity, RingBufferAppender.OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity " + capacity);
+        if (overflowPolicy == null) throw new NullPointerException("Null overflow policy");
+        this.ringBufferCapacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
 }
@@ -55,6 +55,9 @@ public class AccessLogProbe extends HttpServerProbe.Adapter {
     private final AccessLogFormat format;
     /* The minimum status threshold */
     private final int statusThreshold;
+    /* Non-null when entries can be formatted directly into the appender */
+    private final RingBufferAppender ringBufferAppender;
+    private final BinaryAccessLogFormat binaryFormat;
 
     /**
      * Create a new {@link AccessLogProbe} formatting data with the specified
@@ -80,6 +83,14 @@ public class AccessLogProbe extends HttpServerProbe.Adapter {
         this.appender = appender;
         this.format = format;
         this.statusThreshold = statusThreshold;
+
+        if (appender instanceof RingBufferAppender && format instanceof BinaryAccessLogFormat) {
+            ringBufferAppender = (RingBufferAppender) appender;
+            binaryFormat = (BinaryAccessLogFormat) format;
+        } else {
+            ringBufferAppender = null;
+            binaryFormat = null;
+        }
     }
 
     /**
@@ -119,9 +130,13 @@ public class AccessLogProbe extends HttpServerProbe.Adapter {
         final long responseNanos = requestNanos == null ? -1 : nanoStamp - requestNanos;
         final Date requestMillis = new Date(timeStamp - (responseNanos / 1000000L));
 
-        /* Create a formatted log entry string and append it */
+        /* Create a formatted log entry (string, unless binary) and append it */
         try {
-            appender.append(format.format(response, requestMillis, responseNanos));
+            if (ringBufferAppender != null) {
+                ringBufferAppender.append(binaryFormat, response, requestMillis, responseNanos);
+            } else {
+                appender.append(format.format(response, requestMillis, responseNanos));
+            }
         } catch (Throwable throwable) {
             LOGGER.log(WARNING, "Exception caught appending to access log", throwable);
         }
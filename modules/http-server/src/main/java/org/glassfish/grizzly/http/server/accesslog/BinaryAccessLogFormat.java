@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.accesslog;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.ByteChunk;
+
+/**
+ * An {@link AccessLogFormat} capable of writing <em>access log entries</em>
+ * directly as bytes, without producing an intermediate {@link String}.
+ *
+ * <p>When paired with a {@link RingBufferAppender}, entries are formatted
+ * straight into the appender's pooled buffers.</p>
+ *
+ * <p>Implementations of this class <b>must</b> be thread-safe.</p>
+ */
+public interface BinaryAccessLogFormat extends AccessLogFormat {
+
+    /**
+     * Format the data contained in the specified {@link Response} appending
+     * the bytes of the access log entry to the specified {@link ByteChunk}.
+     *
+     * <p>The entry <b>must not</b> be terminated by a line separator.</p>
+     *
+     * @param response The {@link Response} holding the data to format.
+     * @param timeStamp The {@link Date} at which the request was originated.
+     * @param responseNanos The time, in nanoseconds, the {@link Response}
+     *                      took to complete.
+     * @param output The {@link ByteChunk} the entry will be appended to.
+     * @throws IOException If an error occurred appending to the output.
+     */
+    void format(Response response, Date timeStamp, long responseNanos, ByteChunk output)
+    throws IOException;
+
+}
@@ -0,0 +1,678 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.accesslog;
+
+import static java.util.logging.Level.WARNING;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.http.Cookie;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.BufferChunk;
+import org.glassfish.grizzly.http.util.ByteChunk;
+import org.glassfish.grizzly.http.util.DataChunk;
+import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * A {@link BinaryAccessLogFormat} accepting the same format strings as the
+ * {@link ApacheLogFormat} and producing identical entries.
+ *
+ * <p>The format string is compiled once, at construction, into an array of
+ * specialized field writers appending bytes directly to the output. Request
+ * and response headers are written straight from their {@link DataChunk}s,
+ * without being converted to {@link String}s, and formatted timestamps are
+ * cached for the duration of each second.</p>
+ *
+ * @see ApacheLogFormat
+ */
+public class CompiledApacheLogFormat implements BinaryAccessLogFormat {
+
+    /** A {@linkplain CompiledApacheLogFormat format} compatible with Apache's <em>common</em> format. */
+    public static final CompiledApacheLogFormat COMMON = new CompiledApacheLogFormat(ApacheLogFormat.COMMON_FORMAT);
+    /** A {@linkplain CompiledApacheLogFormat format} compatible with Apache's <em>combined</em> format. */
+    public static final CompiledApacheLogFormat COMBINED = new CompiledApacheLogFormat(ApacheLogFormat.COMBINED_FORMAT);
+
+    /* Log log log, never enough */
+    private static final Logger LOGGER = Grizzly.logger(HttpServer.class);
+
+    private static final byte[] DASH = {'-'};
+    private static final byte[] HEADER_SEPARATOR = {';', ' '};
+    private static final byte[] HTTP_0_9 = {'H', 'T', 'T', 'P', '/', '0', '.', '9'};
+    private static final byte[] HTTP_1_0 = {'H', 'T', 'T', 'P', '/', '1', '.', '0'};
+    private static final byte[] HTTP_1_1 = {'H', 'T', 'T', 'P', '/', '1', '.', '1'};
+
+    /* Our compiled field writers */
+    private final FieldWriter[] writers;
+
+    /* Our timezone */
+    private final TimeZone timeZone;
+
+    /* The normalized format string */
+    private final String format;
+
+    /**
+     * Create a new {@link CompiledApacheLogFormat} instance by compiling
+     * the format from the specified {@link String}.
+     */
+    public CompiledApacheLogFormat(String format) {
+        this(TimeZone.getDefault(), format);
+    }
+
+    /**
+     * Create a new {@link CompiledApacheLogFormat} instance by compiling
+     * the format from the specified {@link String}.
+     */
+    public CompiledApacheLogFormat(TimeZone timeZone, String format) {
+        if (timeZone == null) throw new NullPointerException("Null time zone");
+        if (format == null) throw new NullPointerException("Null format");
+
+        /* Validates the format string exactly as the Apache format does */
+        this.format = new ApacheLogFormat(timeZone, format).getFormat();
+        this.timeZone = timeZone;
+
+        final List<FieldWriter> list = new ArrayList<FieldWriter>();
+        new Compiler(list, format).compile();
+        writers = list.toArray(new FieldWriter[list.size()]);
+    }
+
+    @Override
+    public String format(Response response, Date timeStamp, long responseNanos) {
+        final ByteChunk output = new ByteChunk(256);
+        try {
+            format(response, timeStamp, responseNanos, output);
+        } catch (IOException exception) {
+            /* Never thrown by unlimited chunks */
+            throw new IllegalStateException(exception);
+        }
+        return output.toString(Charsets.UTF8_CHARSET);
+    }
+
+    @Override
+    public void format(Response response, Date timeStamp, long responseNanos, ByteChunk output)
+    throws IOException {
+        final Request request = response.getRequest();
+        for (FieldWriter writer : writers) {
+            final int mark = output.getEnd();
+            try {
+                writer.write(output, request, response, timeStamp, responseNanos);
+            } catch (IOException exception) {
+                throw exception;
+            } catch (Exception exception) {
+                LOGGER.log(WARNING, "Exception formatting access log entry", exception);
+                output.setEnd(mark);
+                output.append('-');
+            }
+        }
+    }
+
+    /**
+     * Return the <em>normalized</em> format associated with this instance.
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Return the default {@link TimeZone} used by this instance.
+     */
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    /* ====================================================================== */
+    /* BYTE ENCODING HELPERS                                                  */
+    /* ====================================================================== */
+
+    /* Append a string as UTF-8, without creating intermediate arrays */
+    static void write(ByteChunk output, String string) throws IOException {
+        if (string == null) {
+            output.append(DASH, 0, 1);
+            return;
+        }
+        writeChars(output, string, 0, string.length());
+    }
+
+    private static void writeChars(ByteChunk output, CharSequence chars, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            final char c = chars.charAt(i);
+            if (c < 0x80) {
+                output.append((byte) c);
+            } else if (c < 0x800) {
+                output.append((byte) (0xC0 | (c >> 6)));
+                output.append((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, chars.charAt(++i));
+                output.append((byte) (0xF0 | (cp >> 18)));
+                output.append((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                output.append((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                output.append((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                output.append((byte) '?');
+            } else {
+                output.append((byte) (0xE0 | (c >> 12)));
+                output.append((byte) (0x80 | ((c >> 6) & 0x3F)));
+                output.append((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /* Append an ISO-8859-1 byte, re-encoded as UTF-8 */
+    private static void writeLatin1(ByteChunk output, byte b) throws IOException {
+        if (b >= 0) {
+            output.append(b);
+        } else {
+            final int c = b & 0xFF;
+            output.append((byte) (0xC0 | (c >> 6)));
+            output.append((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    /* Append the contents of a DataChunk, avoiding String conversions */
+    static void write(ByteChunk output, DataChunk chunk) throws IOException {
+        switch (chunk.getType()) {
+            case Bytes: {
+                final ByteChunk bytes = chunk.getByteChunk();
+                final byte[] array = bytes.getBuffer();
+                for (int i = bytes.getStart(); i < bytes.getEnd(); i++) {
+                    writeLatin1(output, array[i]);
+                }
+                break;
+            }
+            case Buffer: {
+                final BufferChunk bufferChunk = chunk.getBufferChunk();
+                final Buffer buffer = bufferChunk.getBuffer();
+                for (int i = bufferChunk.getStart(); i < bufferChunk.getEnd(); i++) {
+                    writeLatin1(output, buffer.get(i));
+                }
+                break;
+            }
+            case Chars:
+            case String:
+                write(output, chunk.toString());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /* Append the decimal representation of a non-negative number */
+    static void write(ByteChunk output, long number) throws IOException {
+        if (number < 0) {
+            write(output, Long.toString(number));
+            return;
+        }
+        long divisor = 1;
+        while (divisor <= number / 10) divisor *= 10;
+        while (divisor > 0) {
+            output.append((byte) ('0' + (number / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    /* ====================================================================== */
+    /* COMPILATION OF FORMAT STRINGS                                          */
+    /* ====================================================================== */
+
+    private final class Compiler {
+        private final List<FieldWriter> writers;
+        private final String format;
+        private final StringBuilder literal = new StringBuilder();
+
+        Compiler(List<FieldWriter> writers, String format) {
+            this.writers = writers;
+            this.format = format;
+        }
+
+        void compile() {
+            for (int x = 0; x < format.length(); x ++) {
+                final char c = format.charAt(x);
+                if (c == '\\') {
+                    x = compileEscape(x);
+                } else if (c == '%') {
+                    x = compileField(null, x);
+                } else {
+                    literal.append(c);
+                }
+            }
+            flushLiteral();
+        }
+
+        private void add(FieldWriter writer) {
+            flushLiteral();
+            writers.add(writer);
+        }
+
+        private void flushLiteral() {
+            if (literal.length() == 0) return;
+            writers.add(new LiteralWriter(literal.toString()));
+            literal.setLength(0);
+        }
+
+        /* Syntax was already validated by ApacheLogFormat, keep this simple */
+        private int compileField(String parameter, int position) {
+            final char field = format.charAt(++position);
+            switch (field) {
+                case '{': {
+                    final int end = format.indexOf('}', ++position);
+                    return compileField(end == position ? null : format.substring(position, end), end);
+                }
+                case '%': literal.append('%'); break;
+                case 'a': add(new RemoteAddressWriter()); break;
+                case 'A': add(new LocalAddressWriter()); break;
+                case 'b': add(new ResponseSizeWriter(false)); break;
+                case 'B': add(new ResponseSizeWriter(true)); break;
+                case 'C': add(new RequestCookieWriter(parameter)); break;
+                case 'D': add(new ResponseTimeWriter(1000)); break;
+                case 'h': add(isLocal(parameter, false) ? new LocalHostWriter() : new RemoteHostWriter()); break;
+                case 'H': add(new RequestProtocolWriter()); break;
+                case 'i': add(new RequestHeaderWriter(parameter)); break;
+                case 'm': add(new RequestMethodWriter()); break;
+                case 'o': add(new ResponseHeaderWriter(parameter)); break;
+                case 'p': add(isLocal(parameter, true) ? new LocalPortWriter() : new RemotePortWriter()); break;
+                case 'q': add(new RequestQueryWriter()); break;
+                case 'r':
+                    add(new RequestMethodWriter());
+                    literal.append(' ');
+                    add(new RequestURIWriter());
+                    add(new RequestQueryWriter());
+                    literal.append(' ');
+                    add(new RequestProtocolWriter());
+                    break;
+                case 's': add(new ResponseStatusWriter()); break;
+                case 't': add(new RequestTimeWriter(parameter, timeZone)); break;
+                case 'T': add(new ResponseTimeWriter(scale(parameter))); break;
+                case 'u': add(new RequestUserWriter()); break;
+                case 'U': add(new RequestURIWriter()); break;
+                case 'v': add(new ServerNameWriter()); break;
+                default: throw new IllegalArgumentException("Unsupported field '" + field + "' in [" + format + "] at character " + position);
+            }
+            return position;
+        }
+
+        private int compileEscape(int position) {
+            final char escaped = format.charAt(++position);
+            switch (escaped) {
+                case 't': literal.append('\t'); break;
+                case 'b': literal.append('\b'); break;
+                case 'n': literal.append('\n'); break;
+                case 'r': literal.append('\r'); break;
+                case 'f': literal.append('\f'); break;
+                default:  literal.append(escaped);
+            }
+            return position;
+        }
+
+        private boolean isLocal(String parameter, boolean defaultValue) {
+            return parameter == null ? defaultValue : parameter.trim().equalsIgnoreCase("local");
+        }
+
+        private long scale(String unit) {
+            if (unit == null) return 1000000000;
+            final String s = unit.trim().toLowerCase();
+            if (s.equals("n") || s.startsWith("nano")) return 1;
+            if (s.startsWith("micro")) return 1000;
+            if (s.equals("m") || s.startsWith("milli")) return 1000000;
+            return 1000000000;
+        }
+    }
+
+    /* ====================================================================== */
+    /* FIELD WRITERS                                                          */
+    /* ====================================================================== */
+
+    private interface FieldWriter {
+        void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException;
+    }
+
+    private static final class LiteralWriter implements FieldWriter {
+        private final byte[] bytes;
+
+        LiteralWriter(String literal) {
+            bytes = literal.getBytes(Charsets.UTF8_CHARSET);
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            output.append(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class ServerNameWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getServerName());
+        }
+    }
+
+    private static final class LocalHostWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getLocalName());
+        }
+    }
+
+    private static final class LocalAddressWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getLocalAddr());
+        }
+    }
+
+    private static final class LocalPortWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final int port = request.getLocalPort();
+            if (port < 1) output.append(DASH, 0, 1);
+            else CompiledApacheLogFormat.write(output, port);
+        }
+    }
+
+    private static final class RemoteHostWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getRemoteHost());
+        }
+    }
+
+    private static final class RemoteAddressWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getRemoteAddr());
+        }
+    }
+
+    private static final class RemotePortWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final int port = request.getRemotePort();
+            if (port < 1) output.append(DASH, 0, 1);
+            else CompiledApacheLogFormat.write(output, port);
+        }
+    }
+
+    private static final class RequestTimeWriter implements FieldWriter {
+
+        private static final String DEFAULT_PATTERN = "[yyyy/MMM/dd:HH:mm:ss Z]";
+        private final SimpleDateFormatThreadLocal simpleDateFormat;
+        private final TimeZone timeZone;
+        /* Whether the pattern prints anything finer than seconds */
+        private final boolean cacheable;
+        /* The last formatted second */
+        private volatile CachedTime cached;
+
+        RequestTimeWriter(String format, TimeZone zone) {
+            final String pattern;
+            if (format == null) {
+                pattern = DEFAULT_PATTERN;
+                timeZone = zone;
+            } else {
+                /* Check for timezone separation */
+                final int pos = format.lastIndexOf('@');
+
+                if ((pos < 0) || ((pos > 0) && (format.charAt(pos - 1) == '@'))) {
+                    pattern = format.replace("@@", "@");
+                    timeZone = zone;
+                } else if (pos == 0) {
+                    pattern = DEFAULT_PATTERN;
+                    timeZone = TimeZone.getTimeZone(format.substring(1));
+                } else {
+                    pattern = format.substring(0, pos).replace("@@", "@");
+                    timeZone = TimeZone.getTimeZone(format.substring(pos + 1));
+                }
+            }
+
+            simpleDateFormat = new SimpleDateFormatThreadLocal(pattern);
+            cacheable = !hasMillis(pattern);
+        }
+
+        /* Look for an unquoted 'S' (milliseconds) in the pattern */
+        private static boolean hasMillis(String pattern) {
+            boolean quoted = false;
+            for (int x = 0; x < pattern.length(); x ++) {
+                final char c = pattern.charAt(x);
+                if (c == '\'') quoted = !quoted;
+                else if (c == 'S' && !quoted) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            if (timeStamp == null) {
+                output.append(DASH, 0, 1);
+                return;
+            }
+
+            if (!cacheable) {
+                CompiledApacheLogFormat.write(output, formatDate(timeStamp));
+                return;
+            }
+
+            final long second = timeStamp.getTime() / 1000L;
+            CachedTime current = cached;
+            if (current == null || current.second != second) {
+                current = new CachedTime(second, formatDate(timeStamp).getBytes(Charsets.UTF8_CHARSET));
+                cached = current;
+            }
+            output.append(current.bytes, 0, current.bytes.length);
+        }
+
+        private String formatDate(Date timeStamp) {
+            final SimpleDateFormat format = simpleDateFormat.get();
+            format.setTimeZone(timeZone);
+            return format.format(timeStamp);
+        }
+
+        private static final class CachedTime {
+            final long second;
+            final byte[] bytes;
+
+            CachedTime(long second, byte[] bytes) {
+                this.second = second;
+                this.bytes = bytes;
+            }
+        }
+    }
+
+    private static final class RequestMethodWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final Method method = request.getMethod();
+            final byte[] bytes = method == null ? DASH : method.getMethodBytes();
+            output.append(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class RequestUserWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getRemoteUser());
+        }
+    }
+
+    private static final class RequestURIWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            CompiledApacheLogFormat.write(output, request.getRequestURI());
+        }
+    }
+
+    private static final class RequestQueryWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final String query = request.getQueryString();
+            if (query != null) {
+                output.append('?');
+                CompiledApacheLogFormat.write(output, query);
+            }
+        }
+    }
+
+    private static final class RequestProtocolWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final Protocol protocol = request.getProtocol();
+            final byte[] bytes;
+            if (protocol == null) {
+                bytes = DASH;
+            } else switch (protocol) {
+                case HTTP_0_9: bytes = HTTP_0_9; break;
+                case HTTP_1_0: bytes = HTTP_1_0; break;
+                case HTTP_1_1: bytes = HTTP_1_1; break;
+                default: bytes = DASH;
+            }
+            output.append(bytes, 0, bytes.length);
+        }
+    }
+
+    private abstract static class HeaderWriter implements FieldWriter {
+        private final String name;
+
+        HeaderWriter(String name) {
+            this.name = name.trim().toLowerCase();
+        }
+
+        /* Walk the headers in place, never creating Strings for their values */
+        void write(ByteChunk output, MimeHeaders headers) throws IOException {
+            boolean first = true;
+            final int size = headers.size();
+            for (int i = 0; i < size; i++) {
+                if (!headers.getName(i).equalsIgnoreCase(name)) continue;
+                if (!first) output.append(HEADER_SEPARATOR, 0, HEADER_SEPARATOR.length);
+                CompiledApacheLogFormat.write(output, headers.getValue(i));
+                first = false;
+            }
+        }
+    }
+
+    private static final class RequestHeaderWriter extends HeaderWriter {
+        RequestHeaderWriter(String name) {
+            super(name);
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            write(output, request.getRequest().getHeaders());
+        }
+    }
+
+    private static final class ResponseHeaderWriter extends HeaderWriter {
+        ResponseHeaderWriter(String name) {
+            super(name);
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            write(output, response.getResponse().getHeaders());
+        }
+    }
+
+    private static final class RequestCookieWriter implements FieldWriter {
+        private final String name;
+
+        RequestCookieWriter(String name) {
+            this.name = name.trim().toLowerCase();
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final Cookie[] cookies = request.getCookies();
+            if (cookies != null) for (Cookie cookie : cookies) {
+                if (name.equals(cookie.getName().toLowerCase())) {
+                    // a null value is written as "null", like ApacheLogFormat does
+                    CompiledApacheLogFormat.write(output, String.valueOf(cookie.getValue()));
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class ResponseStatusWriter implements FieldWriter {
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final int status = response.getStatus();
+            if (status < 10) output.append('0');
+            if (status < 100) output.append('0');
+            CompiledApacheLogFormat.write(output, status);
+        }
+    }
+
+    private static final class ResponseSizeWriter implements FieldWriter {
+        private final byte[] zero;
+
+        ResponseSizeWriter(boolean zero) {
+            this.zero = zero ? new byte[] {'0'} : DASH;
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            final long size = response.getContentLengthLong();
+            if (size < 1) output.append(zero, 0, 1);
+            else CompiledApacheLogFormat.write(output, size);
+        }
+    }
+
+    private static final class ResponseTimeWriter implements FieldWriter {
+        private final long scale;
+
+        ResponseTimeWriter(long scale) {
+            this.scale = scale;
+        }
+
+        @Override
+        public void write(ByteChunk output, Request request, Response response, Date timeStamp, long responseNanos)
+        throws IOException {
+            if (responseNanos < 0) output.append(DASH, 0, 1);
+            else CompiledApacheLogFormat.write(output, responseNanos / scale);
+        }
+    }
+
+}
@@ -19,6 +19,8 @@ package org.glassfish.grizzly.http.server.accesslog;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.logging.Logger;
 
 import org.glassfish.grizzly.Grizzly;
@@ -27,13 +29,19 @@ import org.glassfish.grizzly.http.server.HttpServer;
 /**
  * An {@link AccessLogAppender appender} writing log entries to {@link File}s.
  *
+ * <p>Batches of pre-encoded entries are written through the file's
+ * {@link FileChannel} using a single gathering write.</p>
+ *
  * @author <a href="mailto:pier@usrz.com">Pier Fumagalli</a>
  * @author <a href="http://www.usrz.com/">USRZ.com</a>
  */
-public class FileAppender extends StreamAppender {
+public class FileAppender extends StreamAppender implements GatheringAccessLogAppender {
 
     private static final Logger LOGGER = Grizzly.logger(HttpServer.class);
 
+    /* The channel used for gathering writes */
+    private final FileChannel channel;
+
     /**
      * Create a new {@link FileAppender} <em>appending to</em> (and not
      * overwriting) the specified {@link File}.
@@ -54,7 +62,27 @@ public class FileAppender extends StreamAppender {
      */
     public FileAppender(File file, boolean append)
     throws IOException {
-        super(new FileOutputStream(file, append));
+        this(file, new FileOutputStream(file, append));
+    }
+
+    private FileAppender(File file, FileOutputStream output) {
+        super(output);
+        channel = output.getChannel();
         LOGGER.info("Access log file \"" + file.getAbsolutePath() + "\" opened");
     }
+
+    @Override
+    public void append(ByteBuffer[] entries, int offset, int length)
+    throws IOException {
+        long remaining = 0;
+        for (int i = offset; i < offset + length; i++) {
+            remaining += entries[i].remaining();
+        }
+
+        synchronized(this) {
+            while (remaining > 0) {
+                remaining -= channel.write(entries, offset, length);
+            }
+        }
+    }
 }
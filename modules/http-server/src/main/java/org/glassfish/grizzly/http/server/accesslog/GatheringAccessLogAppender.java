@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.accesslog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link AccessLogAppender appender} capable of writing a batch of
+ * already encoded access log entries with a single (gathering) write.
+ */
+public interface GatheringAccessLogAppender extends AccessLogAppender {
+
+    /**
+     * Append the specified, already encoded, access log entries.
+     *
+     * <p>Each {@link ByteBuffer} holds exactly one entry, <em>including</em>
+     * its trailing line separator.</p>
+     *
+     * @param entries The {@link ByteBuffer}s holding the entries to append.
+     * @param offset The offset of the first entry in the array.
+     * @param length The number of entries to append.
+     * @throws IOException If an I/O error occurred appending to the log.
+     */
+    void append(ByteBuffer[] entries, int offset, int length)
+    throws IOException;
+
+}
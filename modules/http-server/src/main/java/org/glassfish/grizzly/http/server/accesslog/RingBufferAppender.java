@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.accesslog;
+
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.ByteChunk;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * An {@link AccessLogAppender appender} encoding log entries into a bounded,
+ * lock-free ring of pooled byte buffers and using a secondary, separate
+ * {@link Thread} to forward them in batches to a configured nested
+ * {@link AccessLogAppender appender}.
+ *
+ * <p>Unlike the {@link QueueingAppender} no objects are allocated per entry
+ * when used together with a {@link BinaryAccessLogFormat}, and the amount of
+ * memory retained by pending entries is bounded by the ring capacity.</p>
+ *
+ * <p>When the nested appender is a {@link GatheringAccessLogAppender} (as
+ * {@link FileAppender} and {@link RotatingFileAppender} are) each batch of
+ * entries is written with a single gathering write.</p>
+ */
+public class RingBufferAppender implements AccessLogAppender {
+
+    /**
+     * The policy applied when an entry is appended and the ring is full.
+     */
+    public enum OverflowPolicy {
+        /** Drop the entry, incrementing the {@linkplain #getDroppedEntries() dropped entries} counter. */
+        DROP,
+        /** Block the calling thread until space becomes available. */
+        BLOCK
+    }
+
+    /** The default number of entries the ring can hold. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final Logger LOGGER = Grizzly.logger(HttpServer.class);
+
+    /* The initial size of each entry buffer */
+    private static final int ENTRY_SIZE = 256;
+    /* Entry buffers grown above this size will be discarded once drained */
+    private static final int MAX_RETAINED_ENTRY_SIZE = 16384;
+    /* The maximum number of entries written in one go */
+    private static final int MAX_BATCH_SIZE = 512;
+    /* How long the drain thread will sleep when there's nothing to do */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /* How long a producer will sleep waiting for space (BLOCK policy) */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    /* The tail once the drain thread exited, no position can be claimed anymore */
+    private static final long SEALED = Long.MIN_VALUE;
+    /* Line separator for entries, respect Windoshhhh */
+    private static final byte[] LINE_SEPARATOR =
+            System.getProperty("line.separator").getBytes(Charsets.ASCII_CHARSET);
+
+    /* Where to forward stuff to */
+    private final AccessLogAppender appender;
+    /* What to do when the ring is full */
+    private final OverflowPolicy overflowPolicy;
+    /* Our ring of entries, and its size mask */
+    private final Slot[] slots;
+    private final int mask;
+    /* Per-slot sequence numbers, telling producers and consumer who owns what */
+    private final AtomicLongArray sequences;
+    /* The next position to be claimed by producers */
+    private final AtomicLong tail = new AtomicLong();
+    /* The next position to be drained (only accessed by the drain thread) */
+    private long head;
+    /* Buffers for the batch being written (only accessed by the drain thread) */
+    private final ByteBuffer[] batch;
+    /* Counter of entries dropped because the ring was full */
+    private final AtomicLong droppedEntries = new AtomicLong();
+    /* The thread doing the draining */
+    private final Thread thread;
+    /* Whether the drain thread is (about to be) parked */
+    private volatile boolean idle;
+    /* Flag, closed, byebye */
+    private volatile boolean closed;
+
+    /**
+     * Create a new {@link RingBufferAppender} instance with the
+     * {@linkplain #DEFAULT_CAPACITY default capacity}, dropping entries
+     * when the ring is full.
+     */
+    public RingBufferAppender(AccessLogAppender appender) {
+        this(appender, DEFAULT_CAPACITY, OverflowPolicy.DROP);
+    }
+
+    /**
+     * Create a new {@link RingBufferAppender} instance.
+     *
+     * @param appender The {@link AccessLogAppender} to forward entries to.
+     * @param capacity The maximum number of pending entries, rounded up to
+     *                 the next power of two.
+     * @param overflowPolicy The {@link OverflowPolicy} to apply when the ring
+     *                       is full.
+     */
+    public RingBufferAppender(AccessLogAppender appender, int capacity, OverflowPolicy overflowPolicy) {
+        if (appender == null) throw new NullPointerException("Null appender");
+        if (overflowPolicy == null) throw new NullPointerException("Null overflow policy");
+        if (capacity <= 0 || capacity > (1 << 30)) throw new IllegalArgumentException("Invalid capacity " + capacity);
+
+        this.appender = appender;
+        this.overflowPolicy = overflowPolicy;
+
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        slots = new Slot[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        batch = new ByteBuffer[Math.min(size, MAX_BATCH_SIZE)];
+
+        thread = new Thread(new Drainer());
+        thread.setName(toString());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Return the number of entries dropped because the ring was full.
+     */
+    public long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    /**
+     * Return the {@link OverflowPolicy} of this appender.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Return the number of entries this appender can hold before
+     * its {@linkplain #getOverflowPolicy() overflow policy} kicks in.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    @Override
+    public void append(String accessLogEntry)
+    throws IOException {
+        final long position = claim();
+        if (position < 0) return;
+
+        final ByteChunk chunk = slots[(int) position & mask].chunk;
+        try {
+            final byte[] bytes = accessLogEntry.getBytes(Charsets.UTF8_CHARSET);
+            chunk.append(bytes, 0, bytes.length);
+            chunk.append(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        } finally {
+            publish(position);
+        }
+    }
+
+    /**
+     * Format an entry using the specified {@link BinaryAccessLogFormat}
+     * directly into the ring and append it.
+     *
+     * @see BinaryAccessLogFormat#format(Response, Date, long, ByteChunk)
+     */
+    public void append(BinaryAccessLogFormat format, Response response,
+                       Date timeStamp, long responseNanos)
+    throws IOException {
+        final long position = claim();
+        if (position < 0) return;
+
+        final ByteChunk chunk = slots[(int) position & mask].chunk;
+        try {
+            format.format(response, timeStamp, responseNanos, chunk);
+            chunk.append(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        } catch (IOException exception) {
+            chunk.setEnd(chunk.getStart());
+            throw exception;
+        } catch (RuntimeException exception) {
+            chunk.setEnd(chunk.getStart());
+            throw exception;
+        } finally {
+            publish(position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException exception) {
+            LOGGER.log(FINE, "Interrupted stopping drainer", exception);
+        } finally {
+            appender.close();
+        }
+    }
+
+    /* ====================================================================== */
+
+    /*
+     * Claim a slot in the ring, returning its position or -1 if the entry
+     * should be discarded (ring full and DROP policy, or appender closed).
+     */
+    private long claim() {
+        long position = tail.get();
+        while (true) {
+            if (closed) return -1;
+
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index].chunk.allocate(ENTRY_SIZE, -1);
+                    return position;
+                }
+            } else if (difference < 0) {
+                /* Full: the slot was not yet released by the drain thread */
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    droppedEntries.incrementAndGet();
+                    return -1;
+                }
+                LockSupport.unpark(thread);
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+            }
+
+            position = tail.get();
+        }
+    }
+
+    /* Make the entry at the specified position visible to the drain thread */
+    private void publish(long position) {
+        sequences.set((int) position & mask, position + 1);
+        if (idle) LockSupport.unpark(thread);
+    }
+
+    /* ====================================================================== */
+    /* OUR DRAINER                                                            */
+    /* ====================================================================== */
+
+    private static final class Slot {
+        final ByteChunk chunk = new ByteChunk(ENTRY_SIZE);
+        private ByteBuffer buffer;
+
+        /* Expose the chunk's content as a (cached) ByteBuffer */
+        ByteBuffer buffer() {
+            final byte[] array = chunk.getBuffer();
+            if (buffer == null || buffer.array() != array) {
+                buffer = ByteBuffer.wrap(array);
+            }
+            buffer.clear();
+            buffer.position(chunk.getStart());
+            buffer.limit(chunk.getEnd());
+            return buffer;
+        }
+
+        /* Drop overgrown arrays, so that one huge entry won't stay forever */
+        void release() {
+            if (chunk.getBuffer().length > MAX_RETAINED_ENTRY_SIZE) {
+                chunk.recycleAndReset();
+                buffer = null;
+            }
+        }
+    }
+
+    private final class Drainer implements Runnable {
+        @Override
+        public void run() {
+            while (true) {
+                final int count = collect();
+                if (count > 0) {
+                    write(count);
+                    continue;
+                }
+
+                /* Nothing left to write, and we've been closed: exit, unless
+                 * a producer, which didn't see the flag, claimed a position */
+                if (closed && tail.compareAndSet(head, SEALED)) return;
+
+                idle = true;
+                if (collect() == 0) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                idle = false;
+            }
+        }
+
+        /* Gather the buffers of the published entries following head */
+        private int collect() {
+            int count = 0;
+            while (count < batch.length) {
+                final long position = head + count;
+                final int index = (int) position & mask;
+                if (sequences.get(index) != position + 1) break;
+                batch[count++] = slots[index].buffer();
+            }
+            return count;
+        }
+
+        private void write(int count) {
+            try {
+                if (appender instanceof GatheringAccessLogAppender) {
+                    ((GatheringAccessLogAppender) appender).append(batch, 0, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        final ByteBuffer buffer = batch[i];
+                        final int length = buffer.remaining() - LINE_SEPARATOR.length;
+                        if (length < 0) continue;
+                        appender.append(new String(buffer.array(), buffer.position(),
+                                length, Charsets.UTF8_CHARSET));
+                    }
+                }
+            } catch (Throwable throwable) {
+                LOGGER.log(WARNING, "Exception caught appending buffered log entries", throwable);
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    final int index = (int) head & mask;
+                    batch[i] = null;
+                    slots[index].release();
+                    sequences.set(index, head + slots.length);
+                    head++;
+                }
+            }
+        }
+    }
+
+}
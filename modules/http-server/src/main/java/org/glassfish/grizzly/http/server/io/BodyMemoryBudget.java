@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.io;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The amount of request body memory, which all the {@link ServerInputBuffer}s
+ * of a listener are allowed to buffer at the same time.
+ *
+ * Once the budget is exceeded, the {@link ServerInputBuffer}s stop reading
+ * the request bodies from the network: blocking reads wait until memory is
+ * released, and asynchronous reads are paused and resumed later.
+ * A request is never paused if no other request could release memory, so
+ * the budget can't stall all the requests.
+ *
+ * @since 2.4.4
+ */
+public final class BodyMemoryBudget {
+
+    private final long limit;
+
+    // the number of bytes buffered by all the requests, updated without
+    // the lock as the body chunks arrive
+    private final AtomicLong used = new AtomicLong();
+    // the number of bytes buffered by the paused requests
+    private long pausedBytes;
+
+    private final ArrayDeque<ServerInputBuffer> paused =
+            new ArrayDeque<ServerInputBuffer>();
+
+    public BodyMemoryBudget(final long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit can't be negative");
+        }
+
+        this.limit = limit;
+    }
+
+    /**
+     * @return the maximum number of bytes the request bodies can buffer
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of bytes currently buffered by the request bodies
+     */
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * @return the number of requests, whose body reading is paused
+     */
+    public synchronized int getPausedCount() {
+        return paused.size();
+    }
+
+    /**
+     * Account the change of the bytes buffered by a request.
+     * Only the released memory requires the lock, to wake up the waiting
+     * and paused requests.
+     */
+    void update(final long delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        used.addAndGet(delta);
+        if (delta > 0) {
+            return;
+        }
+
+        final List<ServerInputBuffer> toResume;
+        synchronized (this) {
+            notifyAll();
+            toResume = pollResumable();
+        }
+
+        resume(toResume);
+    }
+
+    /**
+     * Pause the asynchronous reading of the request body, if the budget is
+     * exceeded and other requests could release memory.
+     *
+     * @return <tt>true</tt> if the input has been paused and will be resumed
+     * by the budget, or <tt>false</tt> if reading may continue
+     */
+    boolean pause(final ServerInputBuffer input, final long inputBytes) {
+        synchronized (this) {
+            final long usedLocal = used.get();
+            if (usedLocal <= limit || usedLocal - pausedBytes - inputBytes <= 0) {
+                return false;
+            }
+
+            input.pausedBytes = inputBytes;
+            pausedBytes += inputBytes;
+            paused.add(input);
+        }
+
+        return true;
+    }
+
+    /**
+     * Remove the input from the paused ones and release its bytes.
+     */
+    void release(final ServerInputBuffer input, final long inputBytes) {
+        final List<ServerInputBuffer> toResume;
+        synchronized (this) {
+            if (paused.remove(input)) {
+                pausedBytes -= input.pausedBytes;
+            }
+            input.pausedBytes = 0;
+            used.addAndGet(-inputBytes);
+
+            notifyAll();
+            toResume = pollResumable();
+        }
+
+        resume(toResume);
+    }
+
+    /**
+     * Wait until the budget isn't exceeded anymore, or no other request
+     * could release memory.
+     *
+     * @return <tt>false</tt> if the timeout expired before memory was released
+     */
+    boolean await(final long inputBytes, final long timeoutMillis)
+            throws InterruptedIOException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        synchronized (this) {
+            long usedLocal;
+            while ((usedLocal = used.get()) > limit && usedLocal - inputBytes > 0) {
+                final long remaining = timeoutMillis < 0
+                        ? 0
+                        : deadline - System.currentTimeMillis();
+                if (timeoutMillis >= 0 && remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private List<ServerInputBuffer> pollResumable() {
+        if (paused.isEmpty()) {
+            return null;
+        }
+
+        List<ServerInputBuffer> toResume = null;
+        final long usedLocal = used.get();
+        // resume while the budget allows, or at least one request if
+        // the paused ones hold all the memory
+        while (!paused.isEmpty()
+                && (usedLocal <= limit || usedLocal - pausedBytes <= 0)) {
+            final ServerInputBuffer input = paused.poll();
+            pausedBytes -= input.pausedBytes;
+            input.pausedBytes = 0;
+
+            if (toResume == null) {
+                toResume = new ArrayList<ServerInputBuffer>(2);
+            }
+            toResume.add(input);
+        }
+
+        return toResume;
+    }
+
+    private static void resume(final List<ServerInputBuffer> toResume) {
+        if (toResume != null) {
+            for (int i = 0; i < toResume.size(); i++) {
+                toResume.get(i).resumeReading();
+            }
+        }
+    }
+}
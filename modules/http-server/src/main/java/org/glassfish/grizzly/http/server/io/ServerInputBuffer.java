@@ -18,11 +18,13 @@ package org.glassfish.grizzly.http.server.io;
 
 import java.io.IOException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.HttpBrokenContent;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.io.InputBuffer;
+import org.glassfish.grizzly.http.server.HttpServerFilter;
 import org.glassfish.grizzly.http.server.Request;
 
 /**
@@ -33,6 +35,13 @@ import org.glassfish.grizzly.http.server.Request;
 public class ServerInputBuffer extends InputBuffer {
     private volatile long totalReadContentInBytes;
     private volatile Request serverRequest;
+
+    // the number of bytes accounted by the BodyMemoryBudget
+    private volatile long bufferedBytes;
+    // the number of bytes accounted by the BodyMemoryBudget as paused
+    long pausedBytes;
+    // guarded by this
+    private boolean paused;
     
     public void initialize(final Request serverRequest,
             final FilterChainContext ctx) {
@@ -48,12 +57,8 @@ public class ServerInputBuffer extends InputBuffer {
     @Override
     public void initiateAsyncronousDataReceiving() {
         if (!checkChunkedMaxPostSize()) {
-            final HttpContent brokenContent =
-                    HttpBrokenContent.builder(serverRequest.getRequest())
-                    .error(new IOException("The HTTP request content exceeds max post size"))
-                    .build();
             try {
-                append(brokenContent);
+                append(createMaxPostSizeExceededContent());
             } catch (IOException ignored) {
             }
             
@@ -63,24 +68,75 @@ public class ServerInputBuffer extends InputBuffer {
         super.initiateAsyncronousDataReceiving();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The chunked content size is checked as it arrives. If the
+     * {@link BodyMemoryBudget} is exceeded, the reading is paused until
+     * memory is released, even if more data is expected.
+     */
+    @Override
+    public boolean append(final HttpContent httpContent) throws IOException {
+        if (!HttpContent.isBroken(httpContent)
+                && exceedsMaxPostSize(httpContent.getContent().remaining())) {
+            httpContent.getContent().dispose();
+            return super.append(createMaxPostSizeExceededContent());
+        }
+
+        return super.append(httpContent) && !pauseReading();
+    }
+
     @Override
     protected HttpContent blockingRead() throws IOException {
         if (!checkChunkedMaxPostSize()) {
             throw new IOException("The HTTP request content exceeds max post size");
         }
+
+        final BodyMemoryBudget budget = getBodyMemoryBudget();
+        if (budget != null) {
+            // account the content consumed so far, before waiting for memory
+            updateBufferedBytes(budget);
+            final long timeout = serverRequest.getContext().getConnection()
+                    .getReadTimeout(TimeUnit.MILLISECONDS);
+            if (!budget.await(bufferedBytes, timeout)) {
+                throw new IOException("The HTTP request content can't be buffered, the memory budget is exceeded");
+            }
+        }
         
-        return super.blockingRead();
+        final HttpContent content = super.blockingRead();
+        if (!HttpContent.isBroken(content)
+                && exceedsMaxPostSize(content.getContent().remaining())) {
+            content.getContent().dispose();
+            content.recycle();
+            throw new IOException("The HTTP request content exceeds max post size");
+        }
+
+        return content;
     }
 
     @Override
     protected void updateInputContentBuffer(final Buffer buffer) {
         totalReadContentInBytes += buffer.remaining();
         super.updateInputContentBuffer(buffer);
+
+        final BodyMemoryBudget budget = getBodyMemoryBudget();
+        if (budget != null) {
+            updateBufferedBytes(budget);
+        }
     }
     
     
     @Override
     public void recycle() {
+        final BodyMemoryBudget budget = getBodyMemoryBudget();
+        synchronized (this) {
+            paused = false;
+        }
+        if (budget != null) {
+            budget.release(this, bufferedBytes);
+        }
+        bufferedBytes = 0;
+        
         serverRequest = null;
         totalReadContentInBytes = 0;
         super.recycle();
@@ -91,6 +147,50 @@ public class ServerInputBuffer extends InputBuffer {
         return serverRequest.getRequestExecutor();
     }
 
+    /**
+     * Resume the body reading paused by the {@link BodyMemoryBudget}.
+     */
+    synchronized void resumeReading() {
+        if (paused) {
+            paused = false;
+            initiateAsyncronousDataReceiving();
+        }
+    }
+
+    private boolean pauseReading() {
+        final BodyMemoryBudget budget = getBodyMemoryBudget();
+        if (budget == null) {
+            return false;
+        }
+
+        synchronized (this) {
+            paused = budget.pause(this, bufferedBytes);
+            return paused;
+        }
+    }
+
+    private void updateBufferedBytes(final BodyMemoryBudget budget) {
+        final long buffered = available();
+        budget.update(buffered - bufferedBytes);
+        bufferedBytes = buffered;
+    }
+
+    private BodyMemoryBudget getBodyMemoryBudget() {
+        final Request request = serverRequest;
+        if (request == null) {
+            return null;
+        }
+
+        final HttpServerFilter filter = request.getHttpFilter();
+        return filter != null ? filter.getBodyMemoryBudget() : null;
+    }
+
+    private HttpContent createMaxPostSizeExceededContent() {
+        return HttpBrokenContent.builder(serverRequest.getRequest())
+                .error(new IOException("The HTTP request content exceeds max post size"))
+                .build();
+    }
+
     private boolean checkChunkedMaxPostSize() {
         if (serverRequest.getRequest().isChunked()) {
             final long maxPostSize = serverRequest.getHttpFilter().getConfiguration().getMaxPostSize();
@@ -99,4 +199,13 @@ public class ServerInputBuffer extends InputBuffer {
         
         return true;
     }
+
+    private boolean exceedsMaxPostSize(final int size) {
+        if (serverRequest.getRequest().isChunked()) {
+            final long maxPostSize = serverRequest.getHttpFilter().getConfiguration().getMaxPostSize();
+            return maxPostSize >= 0 && totalReadContentInBytes + size > maxPostSize;
+        }
+
+        return false;
+    }
 }
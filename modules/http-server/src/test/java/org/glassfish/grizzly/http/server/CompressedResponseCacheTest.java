@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2010, 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.SocketConnectorHandler;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.CompressionConfig;
+import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
+import org.glassfish.grizzly.http.ContentEncoding;
+import org.glassfish.grizzly.http.ContentEncodingProvider;
+import org.glassfish.grizzly.http.EncodingFilter;
+import org.glassfish.grizzly.http.HttpClientFilter;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.LZMAContentEncoding;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test the {@link CompressedResponseCache}.
+ */
+public class CompressedResponseCacheTest {
+    private static final int PORT = 18895;
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer httpServer;
+    private CompressedResponseCache cache;
+    private final AtomicInteger invocationsCount = new AtomicInteger();
+    private String content;
+
+    @Before
+    public void before() throws Exception {
+        ByteBufferWrapper.DEBUG_MODE = true;
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 512; i++) {
+            sb.append("line #").append(i).append(" of the dynamic content\n");
+        }
+        content = sb.toString();
+
+        startHttpServer();
+    }
+
+    @After
+    public void after() throws Exception {
+        if (httpServer != null) {
+            httpServer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCachedByETag() throws Exception {
+        // the client filter decodes the gzip content
+        for (int i = 0; i < 3; i++) {
+            final HttpContent response = send("/etag?etag=1", "gzip", null);
+            final HttpResponsePacket header = (HttpResponsePacket) response.getHttpHeader();
+            assertEquals(200, header.getStatus());
+            assertEquals("gzip", header.getHeader("Content-Encoding"));
+            assertEquals(ETAG, header.getHeader("ETag"));
+            assertEquals(content, response.getContent().toStringContent());
+        }
+
+        assertEquals(3, invocationsCount.get());
+        assertEquals(1, cache.getMissesCount());
+        assertEquals(2, cache.getHitsCount());
+        assertEquals(1, cache.getEntriesCount());
+    }
+
+    @Test
+    public void testCachedByHash() throws Exception {
+        send("/hash", "gzip", null);
+        final HttpContent response = send("/hash?other", "gzip", null);
+        assertEquals("gzip", response.getHttpHeader().getHeader("Content-Encoding"));
+        assertEquals(content, response.getContent().toStringContent());
+
+        // the same body is cached once for both URIs
+        assertEquals(1, cache.getMissesCount());
+        assertEquals(1, cache.getHitsCount());
+        assertEquals(1, cache.getEntriesCount());
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        send("/etag?etag=1", "gzip", null);
+        assertEquals(1, invocationsCount.get());
+
+        final HttpContent response = send("/etag?etag=1", "gzip",
+                "\"v0\", " + ETAG);
+        final HttpResponsePacket header = (HttpResponsePacket) response.getHttpHeader();
+        assertEquals(304, header.getStatus());
+        assertEquals(ETAG, header.getHeader("ETag"));
+        assertEquals(1, invocationsCount.get());
+        assertEquals(1, cache.getNotModifiedCount());
+
+        // the unknown ETag is handled by the HttpHandler
+        final HttpContent modified = send("/etag?etag=1", "gzip", "\"v0\"");
+        assertEquals(200, ((HttpResponsePacket) modified.getHttpHeader()).getStatus());
+        assertEquals(2, invocationsCount.get());
+    }
+
+    @Test
+    public void testAuthorizedNotShared() throws Exception {
+        send("/etag?etag=1", "gzip", null, "Authorization", "Basic dXNlcjpwYXNz");
+
+        // the HttpHandler has to authorize the request
+        final HttpContent response = send("/etag?etag=1", "gzip", ETAG);
+        assertEquals(200, ((HttpResponsePacket) response.getHttpHeader()).getStatus());
+        assertEquals(2, invocationsCount.get());
+        assertEquals(0, cache.getNotModifiedCount());
+
+        send("/etag?etag=1&public=1", "gzip", null, "Cookie", "session=1");
+        final HttpContent notModified = send("/etag?etag=1&public=1", "gzip", ETAG);
+        assertEquals(304, ((HttpResponsePacket) notModified.getHttpHeader()).getStatus());
+        assertEquals(3, invocationsCount.get());
+    }
+
+    @Test
+    public void testNotFoundNotHeld() throws Exception {
+        final HttpContent response = send("/etag?etag=1&status=404", "gzip", null);
+        final HttpResponsePacket header = (HttpResponsePacket) response.getHttpHeader();
+        assertEquals(404, header.getStatus());
+        // the body larger than the output buffer is streamed, not held
+        assertTrue(header.isChunked());
+        assertEquals(0, cache.getMissesCount());
+    }
+
+    @Test
+    public void testIncompressibleRemembered() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final HttpContent response = send("/random?random=1", "gzip", null);
+            assertEquals(200, ((HttpResponsePacket) response.getHttpHeader()).getStatus());
+        }
+
+        // compressed once only
+        assertEquals(1, cache.getMissesCount());
+        assertEquals(2, cache.getIncompressibleCount());
+        assertEquals(0, cache.getEntriesCount());
+    }
+
+    @Test
+    public void testNotCachedWithoutGzip() throws Exception {
+        final HttpContent response = send("/etag?etag=1", null, ETAG);
+        assertNull(response.getHttpHeader().getHeader("Content-Encoding"));
+        assertEquals(content, response.getContent().toStringContent());
+        assertEquals(0, cache.getMissesCount());
+        assertEquals(0, cache.getEntriesCount());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        cache.setMaxCacheSize(1);
+        send("/hash", "gzip", null);
+        send("/hash", "gzip", null);
+
+        assertEquals(2, cache.getMissesCount());
+        assertEquals(0, cache.getEntriesCount());
+        assertEquals(0, cache.getCacheSize());
+    }
+
+    @Test
+    public void testProvidedEncodingPreferred() throws Exception {
+        httpServer.shutdownNow();
+        startHttpServer(new ContentEncodingProvider() {
+            @Override
+            public String getName() {
+                return LZMAContentEncoding.NAME;
+            }
+
+            @Override
+            public String[] getAliases() {
+                return LZMAContentEncoding.getLzmaAliases();
+            }
+
+            @Override
+            public ContentEncoding createContentEncoding(
+                    final CompressionConfig compressionConfig,
+                    final EncodingFilter encodingFilter) {
+                return new LZMAContentEncoding(encodingFilter);
+            }
+        });
+
+        final HttpContent response = send("/etag?etag=1", "lzma, gzip", null);
+        assertEquals("lzma", response.getHttpHeader().getHeader("Content-Encoding"));
+        assertEquals(content, response.getContent().toStringContent());
+        assertEquals(0, cache.getMissesCount());
+
+        final HttpContent gzipResponse = send("/etag?etag=1", "gzip", null);
+        assertEquals("gzip", gzipResponse.getHttpHeader().getHeader("Content-Encoding"));
+        assertEquals(1, cache.getMissesCount());
+    }
+
+    @Test
+    public void testLiveCompressionConfig() throws Exception {
+        httpServer.getListener("grizzly").getCompressionConfig()
+                .setCompressionMode(CompressionMode.OFF);
+
+        // the response isn't held by the cache
+        final HttpContent response = send("/etag?etag=1", "gzip", null);
+        assertEquals(content, response.getContent().toStringContent());
+        assertEquals(0, cache.getMissesCount());
+        assertEquals(0, cache.getEntriesCount());
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private void startHttpServer(final ContentEncodingProvider... providers)
+            throws IOException {
+        httpServer = new HttpServer();
+        final NetworkListener listener = new NetworkListener("grizzly",
+                NetworkListener.DEFAULT_NETWORK_HOST, PORT);
+        listener.getCompressionConfig().setCompressionMode(CompressionMode.ON);
+        for (ContentEncodingProvider provider : providers) {
+            listener.getCompressionConfig().addContentEncodingProvider(provider);
+        }
+        cache = listener.getCompressedResponseCache();
+        cache.setEnabled(true);
+        httpServer.addListener(listener);
+        httpServer.getServerConfiguration().addHttpHandler(new HttpHandler() {
+            @Override
+            public void service(final Request request, final Response response)
+                    throws Exception {
+                invocationsCount.incrementAndGet();
+                response.setContentType("text/plain");
+                if (request.getParameter("etag") != null) {
+                    response.setHeader("ETag", ETAG);
+                }
+                if (request.getParameter("public") != null) {
+                    response.setHeader("Cache-Control", "public");
+                }
+                if (request.getParameter("status") != null) {
+                    response.setStatus(Integer.parseInt(request.getParameter("status")));
+                }
+                if (request.getParameter("random") != null) {
+                    final byte[] bytes = new byte[16384];
+                    new Random(1).nextBytes(bytes);
+                    response.getOutputStream().write(bytes);
+                    return;
+                }
+                response.getWriter().write(content);
+            }
+        });
+        httpServer.start();
+    }
+
+    private HttpContent send(final String uri, final String acceptEncoding,
+            final String ifNoneMatch, final String... headers) throws Exception {
+        final FutureImpl<HttpContent> future = SafeFutureImpl.create();
+
+        final FilterChainBuilder builder = FilterChainBuilder.stateless();
+        builder.add(new TransportFilter());
+        builder.add(new HttpClientFilter());
+        builder.add(new HttpMessageFilter(future));
+
+        final SocketConnectorHandler connectorHandler = TCPNIOConnectorHandler.builder(
+                httpServer.getListener("grizzly").getTransport())
+                .processor(builder.build())
+                .build();
+
+        final Connection<?> connection = connectorHandler.connect(
+                "localhost", PORT).get(10, TimeUnit.SECONDS);
+        try {
+            final int queryIdx = uri.indexOf('?');
+            final HttpRequestPacket.Builder requestBuilder = HttpRequestPacket.builder()
+                    .method(Method.GET)
+                    .uri(queryIdx == -1 ? uri : uri.substring(0, queryIdx))
+                    .query(queryIdx == -1 ? null : uri.substring(queryIdx + 1))
+                    .protocol(Protocol.HTTP_1_1)
+                    .host("localhost:" + PORT);
+            if (acceptEncoding != null) {
+                requestBuilder.header("Accept-Encoding", acceptEncoding);
+            }
+            if (ifNoneMatch != null) {
+                requestBuilder.header("If-None-Match", ifNoneMatch);
+            }
+            for (int i = 0; i < headers.length; i += 2) {
+                requestBuilder.header(headers[i], headers[i + 1]);
+            }
+
+            connection.write(requestBuilder.build());
+            return future.get(10, TimeUnit.SECONDS);
+        } finally {
+            connection.closeSilently();
+        }
+    }
+
+    private static class HttpMessageFilter extends BaseFilter {
+        private final FutureImpl<HttpContent> future;
+
+        public HttpMessageFilter(final FutureImpl<HttpContent> future) {
+            this.future = future;
+        }
+
+        @Override
+        public NextAction handleRead(final FilterChainContext ctx) throws IOException {
+            final HttpContent content = ctx.getMessage();
+            if (!content.isLast()) {
+                return ctx.getStopAction(content);
+            }
+
+            future.result(content);
+            return ctx.getStopAction();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.glassfish.grizzly.http.server;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -28,6 +29,7 @@ import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.ReadHandler;
 import org.glassfish.grizzly.SocketConnectorHandler;
 import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
@@ -38,6 +40,7 @@ import org.glassfish.grizzly.http.HttpPacket;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.io.NIOInputStream;
+import org.glassfish.grizzly.http.server.io.BodyMemoryBudget;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
@@ -149,7 +152,7 @@ public class MaxPostSizeTest {
         }, "/test");
 
         final FutureImpl<HttpContent> responseFuture = Futures.createSafeFuture();
-        final Connection c = createConnection(responseFuture, "localhost", PORT);
+        final Connection<?> c = createConnection(responseFuture, "localhost", PORT);
         
         final HttpRequestPacket request = HttpRequestPacket.builder()
                 .method("POST")
@@ -241,7 +244,7 @@ public class MaxPostSizeTest {
         }, "/test");
 
         final FutureImpl<HttpContent> responseFuture = Futures.createSafeFuture();
-        final Connection c = createConnection(responseFuture, "localhost", PORT);
+        final Connection<?> c = createConnection(responseFuture, "localhost", PORT);
         
         final HttpRequestPacket request = HttpRequestPacket.builder()
                 .method("POST")
@@ -281,6 +284,116 @@ public class MaxPostSizeTest {
         assertEquals(400, ((HttpResponsePacket) response2.getHttpHeader()).getStatus());
     }
     
+    @Test
+    public void testChunkExceedingMaxPostSize() throws Exception {
+        final BlockingQueue<Future<Integer>> resultQueue =
+                new ArrayBlockingQueue<Future<Integer>>(2);
+        
+        final String message = "0123456789";
+        httpServer.getServerConfiguration().setMaxPostSize(message.length());
+        
+        startHttpServer(new HttpHandler() {
+
+            @Override
+            public void service(Request request, Response response) throws Exception {
+                final InputStream inputStream = request.getInputStream();
+                int total = 0;
+                try {
+                    while (inputStream.read() != -1) {
+                        total++;
+                    }
+                    resultQueue.add(Futures.createReadyFuture(total));
+                } catch (Exception e) {
+                    resultQueue.add(Futures.<Integer>createReadyFuture(e));
+                    response.sendError(400);
+                }
+            }
+        }, "/test");
+
+        final FutureImpl<HttpContent> responseFuture = Futures.createSafeFuture();
+        final Connection<?> c = createConnection(responseFuture, "localhost", PORT);
+        
+        final HttpRequestPacket request = HttpRequestPacket.builder()
+                .method("POST")
+                .uri("/test")
+                .protocol("HTTP/1.1")
+                .header("Host", "localhost")
+                .chunked(true)
+                .build();
+
+        // a single chunk, which exceeds the limit on its own
+        c.write(HttpContent.builder(request)
+                .content(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                        message + message + message))
+                .last(true)
+                .build());
+
+        final Future<Integer> result = resultQueue.poll(10, TimeUnit.SECONDS);
+        assertNotNull(result);
+        try {
+            result.get();
+            fail("Should have faild with the IOException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        final HttpContent response = responseFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(400, ((HttpResponsePacket) response.getHttpHeader()).getStatus());
+    }
+
+    @Test
+    public void testBodyMemoryBudget() throws Exception {
+        final String message = "0123456789";
+        final int messagesCount = 4;
+        httpServer.getListener("grizzly").setMaxBufferedBodyMemory(message.length());
+        
+        startHttpServer(new HttpHandler() {
+
+            @Override
+            public void service(Request request, Response response) throws Exception {
+                final InputStream inputStream = request.getInputStream();
+                int total = 0;
+                while (inputStream.read() != -1) {
+                    total++;
+                }
+                response.getWriter().write(Integer.toString(total));
+            }
+        }, "/test");
+
+        final FutureImpl<HttpContent> responseFuture = Futures.createSafeFuture();
+        final Connection<?> c = createConnection(responseFuture, "localhost", PORT);
+        
+        final HttpRequestPacket request = HttpRequestPacket.builder()
+                .method("POST")
+                .uri("/test")
+                .protocol("HTTP/1.1")
+                .header("Host", "localhost")
+                .chunked(true)
+                .build();
+
+        // the only request buffering content is never paused by the budget
+        for (int i = 0; i < messagesCount; i++) {
+            c.write(HttpContent.builder(request)
+                    .content(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                            message + message))
+                    .last(i == messagesCount - 1)
+                    .build());
+        }
+
+        final HttpContent response = responseFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(200, ((HttpResponsePacket) response.getHttpHeader()).getStatus());
+        assertEquals(Integer.toString(message.length() * 2 * messagesCount),
+                response.getContent().toStringContent());
+
+        final FilterChain filterChain = httpServer.getListener("grizzly").getFilterChain();
+        final HttpServerFilter httpServerFilter = (HttpServerFilter)
+                filterChain.get(filterChain.indexOfType(HttpServerFilter.class));
+        final BodyMemoryBudget budget = httpServerFilter.getBodyMemoryBudget();
+        assertNotNull(budget);
+        assertEquals(message.length(), budget.getLimit());
+        assertEquals(0, budget.getUsed());
+    }
+    
     private void configureHttpServer() throws Exception {
         httpServer = new HttpServer();
         final NetworkListener listener =
@@ -298,14 +411,14 @@ public class MaxPostSizeTest {
     
     private Future<HttpContent> send(String host, int port, HttpPacket request) throws Exception {
         final FutureImpl<HttpContent> future = SafeFutureImpl.create();
-        Connection connection = createConnection(future, host, port);
+        final Connection<?> connection = createConnection(future, host, port);
 
         connection.write(request);
 
         return future;
     }
 
-    private Connection createConnection(final FutureImpl<HttpContent> future,
+    private Connection<?> createConnection(final FutureImpl<HttpContent> future,
             final String host, final int port) throws Exception {
         final FilterChainBuilder builder = FilterChainBuilder.stateless();
         builder.add(new TransportFilter());
@@ -315,8 +428,7 @@ public class MaxPostSizeTest {
                 httpServer.getListener("grizzly").getTransport())
                 .processor(builder.build())
                 .build();
-        Future<Connection> connectFuture = connectorHandler.connect(host, port);
-        return connectFuture.get(10, TimeUnit.SECONDS);
+        return connectorHandler.connect(host, port).get(10, TimeUnit.SECONDS);
     }
     
     private static class HttpMessageFilter extends BaseFilter {
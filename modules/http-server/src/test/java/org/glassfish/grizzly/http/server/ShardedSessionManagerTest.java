@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * {@link ShardedSessionManager} tests.
+ */
+public class ShardedSessionManagerTest extends TestCase {
+
+    public void testCreateGetChangeId() {
+        final ShardedSessionManager manager = new ShardedSessionManager();
+        try {
+            final Session session = manager.createSession(null);
+            final String id = session.getIdInternal();
+            assertSame(session, manager.getSession(null, id));
+
+            final String oldId = manager.changeSessionId(null, session);
+            assertEquals(id, oldId);
+            assertNull(manager.getSession(null, oldId));
+            assertSame(session, manager.getSession(null, session.getIdInternal()));
+            assertEquals(1, manager.getSessionCount());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    public void testExpiration() {
+        final ShardedSessionManager manager = ShardedSessionManager.builder()
+                .tick(100, TimeUnit.MILLISECONDS)
+                .build();
+        try {
+            final Session session = manager.createSession(null);
+            session.setSessionTimeout(5000);
+            final long created = session.getTimestamp();
+
+            manager.expireSessions(created + 2000);
+            assertSame(session, manager.getSession(null, session.getIdInternal()));
+            assertTrue(session.isValid());
+
+            manager.expireSessions(created + 6000);
+            assertNull(manager.getSession(null, session.getIdInternal()));
+            assertFalse(session.isValid());
+            assertEquals(0, manager.getSessionCount());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    public void testLruEviction() {
+        final ShardedSessionManager manager = ShardedSessionManager.builder()
+                .shards(1)
+                .maxSessions(3)
+                .build();
+        try {
+            final Session a = manager.createSession(null);
+            final Session b = manager.createSession(null);
+            final Session c = manager.createSession(null);
+
+            // a becomes the most recently used
+            assertSame(a, manager.getSession(null, a.getIdInternal()));
+
+            final Session d = manager.createSession(null);
+            assertEquals(3, manager.getSessionCount());
+            assertEquals(1, manager.getEvictedSessionsCount());
+            assertFalse(b.isValid());
+            assertNull(manager.getSession(null, b.getIdInternal()));
+            assertSame(a, manager.getSession(null, a.getIdInternal()));
+            assertSame(c, manager.getSession(null, c.getIdInternal()));
+            assertSame(d, manager.getSession(null, d.getIdInternal()));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    public void testMaxSessionsBelowShards() {
+        final ShardedSessionManager manager = ShardedSessionManager.builder()
+                .shards(16)
+                .maxSessions(4)
+                .build();
+        try {
+            for (int i = 0; i < 32; i++) {
+                manager.createSession(null);
+            }
+            assertTrue(manager.getSessionCount() <= 4);
+            assertEquals(32 - manager.getSessionCount(),
+                    manager.getEvictedSessionsCount());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    public void testSharedExpirer() throws Exception {
+        final ShardedSessionManager[] managers = new ShardedSessionManager[8];
+        for (int i = 0; i < managers.length; i++) {
+            managers[i] = ShardedSessionManager.builder()
+                    .tick(100, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+
+        try {
+            final Session session = managers[0].createSession(null);
+            session.setSessionTimeout(100);
+            // expired by the expiration thread
+            for (int i = 0; i < 50 && session.isValid(); i++) {
+                Thread.sleep(100);
+            }
+            assertFalse(session.isValid());
+
+            int expirers = 0;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if ("Grizzly-ShardedSession-Expirer".equals(thread.getName())) {
+                    expirers++;
+                }
+            }
+            assertEquals(1, expirers);
+        } finally {
+            for (ShardedSessionManager manager : managers) {
+                manager.shutdown();
+            }
+        }
+    }
+
+    public void testOffHeapPassivation() {
+        final OffHeapSessionStore store = new OffHeapSessionStore();
+        doTestPassivation(store);
+        assertEquals(0, store.size());
+    }
+
+    public void testFilePassivation() throws Exception {
+        final File directory = Files.createTempDirectory("sessions").toFile();
+        doTestPassivation(new FileSessionStore(directory));
+        assertEquals(0, directory.list().length);
+        directory.delete();
+    }
+
+    public void testInUseNotPassivated() {
+        final ShardedSessionManager manager = ShardedSessionManager.builder()
+                .tick(100, TimeUnit.MILLISECONDS)
+                .passivation(new OffHeapSessionStore(), 1, TimeUnit.SECONDS)
+                .build();
+        try {
+            final Session session = manager.createSession(null);
+            session.setSessionTimeout(60000);
+            final long accessed = session.access();
+
+            // a long running request keeps using the session
+            session.acquire();
+            manager.expireSessions(accessed + 1500);
+            assertEquals(0, manager.getPassivatedSessionsCount());
+            session.setAttribute("name", "value");
+            session.release();
+
+            manager.expireSessions(accessed + 1600);
+            assertEquals(1, manager.getPassivatedSessionsCount());
+            final Session restored = manager.getSession(null, session.getIdInternal());
+            assertEquals("value", restored.getAttribute("name"));
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    private void doTestPassivation(final SessionStore store) {
+        final ShardedSessionManager manager = ShardedSessionManager.builder()
+                .tick(100, TimeUnit.MILLISECONDS)
+                .passivation(store, 1, TimeUnit.SECONDS)
+                .build();
+        try {
+            final Session session = manager.createSession(null);
+            session.setSessionTimeout(60000);
+            session.setAttribute("name", "value");
+            session.access();
+            final String id = session.getIdInternal();
+            final long accessed = session.getTimestamp();
+
+            manager.expireSessions(accessed + 1500);
+            assertEquals(1, manager.getPassivatedSessionsCount());
+            assertEquals(1, manager.getSessionCount());
+
+            final Session restored = manager.getSession(null, id);
+            assertNotNull(restored);
+            assertNotSame(session, restored);
+            assertEquals(id, restored.getIdInternal());
+            assertEquals("value", restored.getAttribute("name"));
+            assertEquals(session.getCreationTime(), restored.getCreationTime());
+            assertEquals(accessed, restored.getTimestamp());
+            assertEquals(60000, restored.getSessionTimeout());
+            assertFalse(restored.isNew());
+
+            // expire while passivated
+            manager.expireSessions(accessed + 3000);
+            assertEquals(2, manager.getPassivatedSessionsCount());
+            manager.expireSessions(accessed + 61000);
+            assertEquals(0, manager.getSessionCount());
+            assertNull(manager.getSession(null, id));
+        } finally {
+            manager.shutdown();
+        }
+    }
+}
@@ -56,7 +56,7 @@ public class ApacheLogFormatTest {
     private static final int STATUS = 210;
     private static final long CONTENT_LENGTH = 1234567L;
 
-    private Response mockSimpleResponse() {
+    static Response mockSimpleResponse() {
 
         /* By default throw a "non-mocked" exception */
         final ThrowsException exception = new ThrowsException(new IllegalStateException("Not-mocked"));
@@ -81,7 +81,8 @@ public class ApacheLogFormatTest {
         Mockito.doReturn(responseHeaders).when(responsePacket).getHeaders();
 
         /* Fake cookies */
-        final Cookie[] cookies = { new Cookie("Test-Cookie", "Test-Cookie-Value") };
+        final Cookie[] cookies = { new Cookie("Test-Cookie", "Test-Cookie-Value"),
+                                   new Cookie("Null-Cookie", null) };
 
         /* Mock request */
         final Request request = Mockito.mock(Request.class, exception);
@@ -111,7 +112,7 @@ public class ApacheLogFormatTest {
         return response;
     }
 
-    private Response mockEmptyResponse() {
+    static Response mockEmptyResponse() {
 
         final HttpRequestPacket requestPacket = Mockito.mock(HttpRequestPacket.class);
         final HttpResponsePacket responsePacket = Mockito.mock(HttpResponsePacket.class);
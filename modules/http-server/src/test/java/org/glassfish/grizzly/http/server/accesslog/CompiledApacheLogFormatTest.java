@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.accesslog;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.ByteChunk;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Test;
+
+/**
+ * Test for {@link CompiledApacheLogFormat}, verifying it produces the very
+ * same entries as {@link ApacheLogFormat}.
+ */
+public class CompiledApacheLogFormatTest {
+
+    private static final Date date = new Date(1389829512345L); // Jan 15th, 2014 @ 23:45:12.345 UTC
+    private static final long nanos = 1234567890;
+
+    private static final String[] FORMATS = {
+        ApacheLogFormat.COMMON_FORMAT,
+        ApacheLogFormat.COMBINED_FORMAT,
+        ApacheLogFormat.VHOST_COMMON_FORMAT,
+        ApacheLogFormat.VHOST_COMBINED_FORMAT,
+        ApacheLogFormat.REFERER_FORMAT,
+        ApacheLogFormat.AGENT_FORMAT,
+        "%%\\t\\b\\n\\r\\f\\%",
+        "%a %A %b %B %{test-cookie}C %D %h %{remote}h %{local}h %H",
+        "%{null-cookie}C|%{missing-cookie}C",
+        "%{Multi-Request}i|%{Content-Type}o|%{Multi-Response}o|%{missing}i",
+        "%m %p %{local}p %{remote}p %q %r %s %u %U %v",
+        "%T %{m}T %{micro}T %{n}T %{millis}T %{seconds}T",
+        "%t %{HH:mm:ss.SSS}t %{@@HH:mm:ss}t %{@PST}t %{HH:mm:ss.SSS@PST}t %{@@HH:mm:ss@PST}t",
+    };
+
+    @Test
+    public void testSameAsApacheLogFormat() throws Exception {
+        Locale.setDefault(Locale.US);
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        final TimeZone jst = TimeZone.getTimeZone("JST");
+
+        for (TimeZone zone : new TimeZone[] { utc, jst }) {
+            for (String format : FORMATS) {
+                assertSame(new ApacheLogFormat(zone, format), new CompiledApacheLogFormat(zone, format));
+            }
+        }
+    }
+
+    @Test
+    public void testGetFormat() {
+        for (String format : FORMATS) {
+            assertEquals(new ApacheLogFormat(format).getFormat(),
+                         new CompiledApacheLogFormat(format).getFormat());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFormat() {
+        new CompiledApacheLogFormat("%X");
+    }
+
+    @Test
+    public void testCachedTimeStamp() throws Exception {
+        final CompiledApacheLogFormat format = new CompiledApacheLogFormat(TimeZone.getTimeZone("UTC"), "%{HH:mm:ss}t");
+        final Response response = ApacheLogFormatTest.mockEmptyResponse();
+
+        assertEquals("23:45:12", format.format(response, date, nanos));
+        assertEquals("23:45:12", format.format(response, new Date(date.getTime() + 600), nanos));
+        assertEquals("23:45:13", format.format(response, new Date(date.getTime() + 700), nanos));
+        assertEquals("23:45:12", format.format(response, date, nanos));
+    }
+
+    private static void assertSame(ApacheLogFormat expected, CompiledApacheLogFormat actual) throws Exception {
+        for (Response response : new Response[] {
+                ApacheLogFormatTest.mockSimpleResponse(),
+                ApacheLogFormatTest.mockEmptyResponse() }) {
+            for (long responseNanos : new long[] { nanos, -1 }) {
+                final String string = expected.unsafeFormat(response, date, responseNanos);
+                assertEquals(string, actual.format(response, date, responseNanos));
+
+                final ByteChunk chunk = new ByteChunk(16);
+                actual.format(response, date, responseNanos, chunk);
+                assertEquals(string, chunk.toString(Charsets.UTF8_CHARSET));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.accesslog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http.util.ByteChunk;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Test;
+
+/**
+ * Test for {@link RingBufferAppender}
+ */
+public class RingBufferAppenderTest {
+
+    @Test
+    public void testConcurrentAppendToFile() throws Exception {
+        final File file = File.createTempFile("ring-buffer-appender", ".log");
+        file.deleteOnExit();
+
+        final RingBufferAppender appender = new RingBufferAppender(
+                new FileAppender(file, false), 64, RingBufferAppender.OverflowPolicy.BLOCK);
+
+        final int threadsCount = 4;
+        final int entriesCount = 5000;
+        final Thread[] threads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            final int id = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < entriesCount; j++) {
+                            appender.append("entry-" + id + "-" + j + "-\u00e8");
+                        }
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        appender.close();
+
+        assertEquals(0, appender.getDroppedEntries());
+
+        final Set<String> lines = new HashSet<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), Charsets.UTF8_CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                assertTrue(line, line.endsWith("-\u00e8"));
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(threadsCount * entriesCount, lines.size());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger appended = new AtomicInteger();
+
+        final RingBufferAppender appender = new RingBufferAppender(new AccessLogAppender() {
+            @Override
+            public void append(String accessLogEntry) throws IOException {
+                blocked.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                appended.incrementAndGet();
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4, RingBufferAppender.OverflowPolicy.DROP);
+
+        /* The first entry keeps the drainer busy */
+        appender.append("first");
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            appender.append("entry-" + i);
+        }
+        assertEquals(7, appender.getDroppedEntries());
+
+        release.countDown();
+        appender.close();
+        assertEquals(4, appended.get());
+    }
+
+    @Test
+    public void testCloseWhileAppending() throws Exception {
+        for (int iteration = 0; iteration < 50; iteration++) {
+            final AtomicInteger formatted = new AtomicInteger();
+            final AtomicInteger appended = new AtomicInteger();
+            final RingBufferAppender appender = new RingBufferAppender(new AccessLogAppender() {
+                @Override
+                public void append(String accessLogEntry) {
+                    appended.incrementAndGet();
+                }
+
+                @Override
+                public void close() {
+                }
+            }, 64, RingBufferAppender.OverflowPolicy.DROP);
+
+            /* Counts the entries, which got a position in the ring */
+            final BinaryAccessLogFormat format = new BinaryAccessLogFormat() {
+                @Override
+                public void format(Response response, Date timeStamp, long responseNanos, ByteChunk output)
+                throws IOException {
+                    formatted.incrementAndGet();
+                    output.append('x');
+                }
+
+                @Override
+                public String format(Response response, Date timeStamp, long responseNanos) {
+                    return "x";
+                }
+            };
+
+            final Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 100000; j++) {
+                                appender.append(format, null, null, 0);
+                            }
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+
+            Thread.sleep(1);
+            appender.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            /* Every entry claimed before the close was written */
+            assertEquals(formatted.get(), appended.get());
+        }
+    }
+
+}
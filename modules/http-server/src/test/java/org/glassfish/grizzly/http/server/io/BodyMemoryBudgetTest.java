@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BodyMemoryBudget} tests.
+ */
+public class BodyMemoryBudgetTest {
+
+    @Test
+    public void testPauseAndResume() {
+        final BodyMemoryBudget budget = new BodyMemoryBudget(100);
+        final ServerInputBuffer input1 = new ServerInputBuffer();
+        final ServerInputBuffer input2 = new ServerInputBuffer();
+
+        budget.update(80);
+        assertFalse(budget.pause(input1, 80));
+
+        budget.update(40);
+        assertEquals(120, budget.getUsed());
+        // input2 holds 40 bytes, input1 may release the rest
+        assertTrue(budget.pause(input2, 40));
+        // input1 can't be paused, as input2 can't release memory
+        assertFalse(budget.pause(input1, 80));
+        assertEquals(1, budget.getPausedCount());
+
+        // input1 consumed its content
+        budget.update(-80);
+        assertEquals(40, budget.getUsed());
+        assertEquals(0, budget.getPausedCount());
+        assertEquals(0, input2.pausedBytes);
+    }
+
+    @Test
+    public void testReleaseResumesOnePausedInput() {
+        final BodyMemoryBudget budget = new BodyMemoryBudget(10);
+        final ServerInputBuffer input1 = new ServerInputBuffer();
+        final ServerInputBuffer input2 = new ServerInputBuffer();
+        final ServerInputBuffer input3 = new ServerInputBuffer();
+
+        budget.update(30);
+        assertTrue(budget.pause(input1, 10));
+        assertTrue(budget.pause(input2, 10));
+        assertEquals(2, budget.getPausedCount());
+
+        // the paused inputs hold all the memory now, so one is resumed
+        budget.release(input3, 10);
+        assertEquals(20, budget.getUsed());
+        assertEquals(1, budget.getPausedCount());
+
+        budget.release(input2, 10);
+        assertEquals(10, budget.getUsed());
+        assertEquals(0, budget.getPausedCount());
+    }
+
+    @Test
+    public void testAwait() throws Exception {
+        final BodyMemoryBudget budget = new BodyMemoryBudget(10);
+
+        budget.update(20);
+        // no other reader holds memory
+        assertTrue(budget.await(20, 0));
+        // others hold 15 bytes
+        assertFalse(budget.await(5, 50));
+
+        budget.update(-15);
+        assertTrue(budget.await(5, 50));
+    }
+}
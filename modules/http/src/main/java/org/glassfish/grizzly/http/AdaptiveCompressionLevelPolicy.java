@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link CompressionLevelPolicy}, which lowers the compression level
+ * as the CPU load grows and for the large or streamed content.
+ *
+ * The level goes linearly from the maximum level, while the system load
+ * average per CPU is below the low load threshold, to the minimum level,
+ * once it reaches the high load threshold. The large and the streamed
+ * content is compressed at most at the middle of the two levels, because
+ * its compression costs most CPU time for the least relative gain.
+ *
+ * The load average is sampled at most once per second.
+ *
+ * @since 2.4.4
+ */
+public class AdaptiveCompressionLevelPolicy implements CompressionLevelPolicy {
+    public static final int DEFAULT_MIN_LEVEL = 1;
+    public static final int DEFAULT_MAX_LEVEL = 6;
+    public static final long DEFAULT_LARGE_CONTENT_SIZE = 1024 * 1024;
+    public static final double DEFAULT_LOW_LOAD = 0.5;
+    public static final double DEFAULT_HIGH_LOAD = 1.0;
+
+    private static final long LOAD_SAMPLE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minLevel;
+    private final int maxLevel;
+    private final long largeContentSize;
+    private final double lowLoad;
+    private final double highLoad;
+
+    private final OperatingSystemMXBean osBean =
+            ManagementFactory.getOperatingSystemMXBean();
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    private volatile long loadSampleTime = System.nanoTime() - LOAD_SAMPLE_INTERVAL;
+    private volatile double loadSample;
+
+    public AdaptiveCompressionLevelPolicy() {
+        this(DEFAULT_MIN_LEVEL, DEFAULT_MAX_LEVEL, DEFAULT_LARGE_CONTENT_SIZE,
+                DEFAULT_LOW_LOAD, DEFAULT_HIGH_LOAD);
+    }
+
+    /**
+     * @param minLevel the compression level at the high load.
+     * @param maxLevel the compression level at the low load.
+     * @param largeContentSize the size of the content, starting from which
+     *  it's compressed at most at the middle level.
+     * @param lowLoad the load average per CPU, below which the maximum
+     *  level is used.
+     * @param highLoad the load average per CPU, starting from which the
+     *  minimum level is used.
+     */
+    public AdaptiveCompressionLevelPolicy(final int minLevel, final int maxLevel,
+            final long largeContentSize, final double lowLoad,
+            final double highLoad) {
+        if (minLevel < 0 || maxLevel > 9 || minLevel > maxLevel) {
+            throw new IllegalArgumentException(
+                    "levels must be in the 0..9 range and minLevel <= maxLevel");
+        }
+        if (lowLoad < 0 || highLoad <= lowLoad) {
+            throw new IllegalArgumentException(
+                    "lowLoad must not be negative and be less than highLoad");
+        }
+
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+        this.largeContentSize = largeContentSize;
+        this.lowLoad = lowLoad;
+        this.highLoad = highLoad;
+    }
+
+    public int getMinLevel() {
+        return minLevel;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    public long getLargeContentSize() {
+        return largeContentSize;
+    }
+
+    @Override
+    public int getCompressionLevel(final HttpHeader header,
+            final long contentLength) {
+        final double load = getCpuLoad();
+        final double factor = load <= lowLoad
+                ? 0
+                : Math.min(1, (load - lowLoad) / (highLoad - lowLoad));
+
+        int level = maxLevel - (int) Math.round((maxLevel - minLevel) * factor);
+        if (contentLength < 0 || contentLength >= largeContentSize) {
+            level = Math.min(level, (minLevel + maxLevel) / 2);
+        }
+
+        return level;
+    }
+
+    /**
+     * @return the system load average per CPU, or <tt>0</tt> if the load
+     *  average is not available on the platform.
+     */
+    protected double getCpuLoad() {
+        final long now = System.nanoTime();
+        if (now - loadSampleTime >= LOAD_SAMPLE_INTERVAL) {
+            // racing threads may sample twice, which is harmless
+            final double loadAverage = osBean.getSystemLoadAverage();
+            loadSample = loadAverage < 0 ? 0 : loadAverage / processors;
+            loadSampleTime = now;
+        }
+
+        return loadSample;
+    }
+}
@@ -79,6 +79,11 @@ public final class CompressionConfig {
             new ArraySet<String>(String.class);
     // Allow decompression of incoming data
     private boolean decompressionEnabled;
+    // chooses the compression level per response, null means the default level
+    private CompressionLevelPolicy compressionLevelPolicy;
+    // the additional content encodings used for the compression
+    private final ArraySet<ContentEncodingProvider> contentEncodingProviders =
+            new ArraySet<ContentEncodingProvider>(ContentEncodingProvider.class);
     
     public CompressionConfig() {
         compressionMode = CompressionMode.OFF;
@@ -130,6 +135,9 @@ public final class CompressionConfig {
         setCompressibleMimeTypes(compression.compressibleMimeTypes);
         setNoCompressionUserAgents(compression.noCompressionUserAgents);
         decompressionEnabled = compression.isDecompressionEnabled();
+        compressionLevelPolicy = compression.compressionLevelPolicy;
+        contentEncodingProviders.clear();
+        contentEncodingProviders.addAll(compression.contentEncodingProviders);
     }
     
     /**
@@ -313,6 +321,60 @@ public final class CompressionConfig {
         this.decompressionEnabled = decompressionEnabled;
     }
 
+    /**
+     * Returns the {@link CompressionLevelPolicy}, which chooses the compression
+     * level per response, or <tt>null</tt> if the default level is used.
+     *
+     * @since 2.4.4
+     */
+    public CompressionLevelPolicy getCompressionLevelPolicy() {
+        return compressionLevelPolicy;
+    }
+
+    /**
+     * Sets the {@link CompressionLevelPolicy}, which chooses the compression
+     * level per response, <tt>null</tt> means the default level is used.
+     *
+     * @see AdaptiveCompressionLevelPolicy
+     *
+     * @since 2.4.4
+     */
+    public void setCompressionLevelPolicy(
+            final CompressionLevelPolicy compressionLevelPolicy) {
+        this.compressionLevelPolicy = compressionLevelPolicy;
+    }
+
+    /**
+     * Returns the read-only set of the {@link ContentEncodingProvider}s, whose
+     * encodings are used for the compression next to the built-in ones.
+     *
+     * @since 2.4.4
+     */
+    public Set<ContentEncodingProvider> getContentEncodingProviders() {
+        return Collections.unmodifiableSet(contentEncodingProviders);
+    }
+
+    /**
+     * Adds the {@link ContentEncodingProvider}, whose encoding is used for the
+     * compression next to the built-in ones.
+     *
+     * @since 2.4.4
+     */
+    public void addContentEncodingProvider(final ContentEncodingProvider provider) {
+        contentEncodingProviders.add(provider);
+    }
+
+    /**
+     * Removes the {@link ContentEncodingProvider}.
+     *
+     * @return <tt>true</tt> if the provider was removed.
+     *
+     * @since 2.4.4
+     */
+    public boolean removeContentEncodingProvider(final ContentEncodingProvider provider) {
+        return contentEncodingProviders.remove(provider);
+    }
+
     /**
      * Returns <tt>true</tt> if a client, based on its {@link HttpRequestPacket},
      * could be responded with compressed data, or <tt>false</tt> otherwise.
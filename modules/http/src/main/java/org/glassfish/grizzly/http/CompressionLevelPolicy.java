@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http;
+
+/**
+ * Chooses the compression level of a HTTP message content, when the
+ * {@link ContentEncoding} starts encoding it.
+ *
+ * @see AdaptiveCompressionLevelPolicy
+ * @see CompressionConfig#setCompressionLevelPolicy(CompressionLevelPolicy)
+ *
+ * @since 2.4.4
+ */
+public interface CompressionLevelPolicy {
+
+    /**
+     * Returns the compression level of the HTTP message content in the
+     * <tt>0</tt> (no compression) - <tt>9</tt> (best compression) range.
+     *
+     * @param header HTTP message header.
+     * @param contentLength the uncompressed content length, or <tt>-1</tt>
+     *  if the content is streamed and its length is not known yet.
+     *
+     * @return the compression level.
+     */
+    int getCompressionLevel(HttpHeader header, long contentLength);
+}
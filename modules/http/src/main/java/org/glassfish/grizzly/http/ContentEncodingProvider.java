@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http;
+
+/**
+ * The service provider of a {@link ContentEncoding}, which lets the
+ * encodings like <tt>br</tt> or <tt>zstd</tt>, shipped separately, be used
+ * for the HTTP response compression next to {@link GZipContentEncoding} and
+ * {@link LZMAContentEncoding}.
+ *
+ * The providers are either registered with
+ * {@link CompressionConfig#addContentEncodingProvider(ContentEncodingProvider)},
+ * or listed in the
+ * <tt>META-INF/services/org.glassfish.grizzly.http.ContentEncodingProvider</tt>
+ * resource.
+ *
+ * @since 2.4.4
+ */
+public interface ContentEncodingProvider {
+
+    /**
+     * @return the name of the provided {@link ContentEncoding}.
+     */
+    String getName();
+
+    /**
+     * @return the <tt>Accept-Encoding</tt> aliases of the provided
+     *  {@link ContentEncoding}.
+     */
+    String[] getAliases();
+
+    /**
+     * Creates the {@link ContentEncoding}.
+     *
+     * @param compressionConfig the {@link CompressionConfig} of the listener.
+     * @param encodingFilter the {@link EncodingFilter}, which decides if the
+     *  {@link ContentEncoding} should be applied to the HTTP message.
+     *
+     * @return the {@link ContentEncoding}.
+     */
+    ContentEncoding createContentEncoding(CompressionConfig compressionConfig,
+            EncodingFilter encodingFilter);
+}
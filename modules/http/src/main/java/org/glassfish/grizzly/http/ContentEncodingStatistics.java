@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link ContentEncoding} statistics of a {@link HttpCodecFilter}: the
+ * number of the encoded messages, the bytes before and after the encoding
+ * and the CPU time spent encoding. The statistics are collected once enabled
+ * using {@link HttpCodecFilter#setContentEncodingStatisticsEnabled(boolean)}.
+ *
+ * @see HttpCodecFilter#getContentEncodingStatistics(String)
+ *
+ * @since 2.4.4
+ */
+public final class ContentEncodingStatistics {
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean IS_CPU_TIME_SUPPORTED =
+            THREAD_BEAN.isCurrentThreadCpuTimeSupported()
+            && THREAD_BEAN.isThreadCpuTimeEnabled();
+
+    private final String name;
+
+    private final AtomicLong encodedCount = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong cpuTimeNanos = new AtomicLong();
+
+    ContentEncodingStatistics(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the {@link ContentEncoding} name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of the HTTP messages, which were encoded completely.
+     */
+    public long getEncodedCount() {
+        return encodedCount.get();
+    }
+
+    /**
+     * @return the number of the content bytes before the encoding.
+     */
+    public long getInputBytes() {
+        return inputBytes.get();
+    }
+
+    /**
+     * @return the number of the content bytes after the encoding.
+     */
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
+    /**
+     * @return the CPU time spent encoding in nanoseconds, or <tt>-1</tt>
+     *  if the JVM doesn't measure the thread CPU time.
+     */
+    public long getCpuTimeNanos() {
+        return IS_CPU_TIME_SUPPORTED ? cpuTimeNanos.get() : -1;
+    }
+
+    /**
+     * @return the ratio of the bytes before the encoding to the bytes after
+     *  it, or <tt>0</tt> if nothing was encoded.
+     */
+    public double getCompressionRatio() {
+        final long output = outputBytes.get();
+        return output == 0 ? 0 : (double) inputBytes.get() / output;
+    }
+
+    /**
+     * Records an encoded chunk.
+     *
+     * @param startCpuTime the {@link #currentCpuTime()} before the encoding.
+     */
+    void record(final long input, final long output, final long startCpuTime,
+            final boolean isLast) {
+        inputBytes.addAndGet(input);
+        outputBytes.addAndGet(output);
+        if (IS_CPU_TIME_SUPPORTED) {
+            cpuTimeNanos.addAndGet(THREAD_BEAN.getCurrentThreadCpuTime() - startCpuTime);
+        }
+        if (isLast) {
+            encodedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the current thread CPU time, or <tt>-1</tt> if the JVM doesn't
+     *  measure it.
+     */
+    static long currentCpuTime() {
+        return IS_CPU_TIME_SUPPORTED
+                ? THREAD_BEAN.getCurrentThreadCpuTime()
+                : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentEncodingStatistics{" + "name=" + name
+                + ", encodedCount=" + encodedCount
+                + ", inputBytes=" + inputBytes
+                + ", outputBytes=" + outputBytes
+                + ", cpuTimeNanos=" + getCpuTimeNanos() + '}';
+    }
+}
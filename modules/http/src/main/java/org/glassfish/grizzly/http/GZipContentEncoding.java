@@ -20,8 +20,10 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.TransformationResult;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.compression.zip.DeflaterPool;
 import org.glassfish.grizzly.compression.zip.GZipDecoder;
 import org.glassfish.grizzly.compression.zip.GZipEncoder;
+import java.util.zip.Deflater;
 
 /**
  * GZip {@link ContentEncoding} implementation, which compresses/decompresses
@@ -41,6 +43,7 @@ public class GZipContentEncoding implements ContentEncoding {
     private final GZipEncoder encoder;
 
     private final EncodingFilter encoderFilter;
+    private final CompressionLevelPolicy compressionLevelPolicy;
     
     /**
      * Construct <tt>GZipContentEncoding</tt> using default buffer sizes.
@@ -68,8 +71,29 @@ public class GZipContentEncoding implements ContentEncoding {
      */
     public GZipContentEncoding(int inBufferSize, int outBufferSize,
             EncodingFilter encoderFilter) {
+        this(inBufferSize, outBufferSize, encoderFilter, null);
+    }
+
+    /**
+     * Construct <tt>GZipContentEncoding</tt> using specific buffer sizes.
+     * @param inBufferSize input buffer size
+     * @param outBufferSize output buffer size
+     * @param encoderFilter {@link EncodingFilter}, which will decide if
+     *          <tt>GZipContentEncoding</tt> should be applied to encode specific
+     *          {@link HttpHeader} packet.
+     * @param compressionLevelPolicy {@link CompressionLevelPolicy}, which
+     *          chooses the compression level per message, or <tt>null</tt> to
+     *          use the default level.
+     *
+     * @since 2.4.4
+     */
+    public GZipContentEncoding(int inBufferSize, int outBufferSize,
+            EncodingFilter encoderFilter,
+            CompressionLevelPolicy compressionLevelPolicy) {
         this.decoder = new GZipDecoder(inBufferSize);
-        this.encoder = new GZipEncoder(outBufferSize);
+        this.encoder = new GZipEncoder(outBufferSize,
+                Deflater.DEFAULT_COMPRESSION, new DeflaterPool());
+        this.compressionLevelPolicy = compressionLevelPolicy;
 
         if (encoderFilter != null) {
             this.encoderFilter = encoderFilter;
@@ -102,6 +126,16 @@ public class GZipContentEncoding implements ContentEncoding {
         return ALIASES.clone();
     }
 
+    /**
+     * @return the {@link DeflaterPool} the encoded messages obtain their
+     *  {@link Deflater}s from.
+     *
+     * @since 2.4.4
+     */
+    public DeflaterPool getDeflaterPool() {
+        return encoder.getDeflaterPool();
+    }
+
     @Override
     public final boolean wantDecode(final HttpHeader header) {
         return encoderFilter.applyDecoding(header);
@@ -168,6 +202,11 @@ public class GZipContentEncoding implements ContentEncoding {
             return httpContent;
         }
 
+        if (compressionLevelPolicy != null) {
+            // the whole content in the first chunk has the known length
+            startEncoding(httpHeader, isLast ? input.remaining() : -1);
+        }
+
         final TransformationResult<Buffer, Buffer> result =
                 encoder.transform(httpHeader, input);
 
@@ -207,6 +246,14 @@ public class GZipContentEncoding implements ContentEncoding {
         }
     }
 
+    private void startEncoding(final HttpHeader httpHeader,
+            final long contentLength) {
+        if (!encoder.isStarted(httpHeader)) {
+            encoder.start(httpHeader, compressionLevelPolicy.getCompressionLevel(
+                    httpHeader, contentLength));
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
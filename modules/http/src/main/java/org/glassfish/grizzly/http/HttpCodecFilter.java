@@ -18,7 +18,10 @@ package org.glassfish.grizzly.http;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Buffer;
@@ -115,6 +118,14 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
     protected final ArraySet<ContentEncoding> contentEncodings =
             new ArraySet<ContentEncoding>(ContentEncoding.class);
 
+    private final ConcurrentHashMap<String, ContentEncodingStatistics> contentEncodingStatistics =
+            new ConcurrentHashMap<String, ContentEncodingStatistics>();
+
+    /**
+     * @see #setContentEncodingStatisticsEnabled(boolean)
+     */
+    private volatile boolean contentEncodingStatisticsEnabled;
+
     protected final boolean chunkingEnabled;
 
     /**
@@ -470,6 +481,58 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         return contentEncodings.remove(contentEncoding);
     }
 
+    /**
+     * @return <code>true</code> if the {@link ContentEncoding} serializing
+     *  statistics are collected. Default is <code>false</code>.
+     *
+     * @since 2.4.4
+     */
+    public boolean isContentEncodingStatisticsEnabled() {
+        return contentEncodingStatisticsEnabled;
+    }
+
+    /**
+     * Enables the collection of the {@link ContentEncoding} serializing
+     * statistics, which measures the CPU time spent encoding each chunk.
+     * Default is <code>false</code>.
+     *
+     * @param contentEncodingStatisticsEnabled <code>true</code> to collect
+     *  the statistics.
+     *
+     * @see #getContentEncodingStatistics(String)
+     * @since 2.4.4
+     */
+    public void setContentEncodingStatisticsEnabled(
+            final boolean contentEncodingStatisticsEnabled) {
+        this.contentEncodingStatisticsEnabled = contentEncodingStatisticsEnabled;
+    }
+
+    /**
+     * Returns the serializing statistics of the {@link ContentEncoding}.
+     *
+     * @param name the {@link ContentEncoding} name.
+     * @return the {@link ContentEncodingStatistics}, or <code>null</code> if
+     *  nothing has been encoded with the {@link ContentEncoding} since the
+     *  statistics were enabled.
+     *
+     * @see #setContentEncodingStatisticsEnabled(boolean)
+     * @since 2.4.4
+     */
+    public ContentEncodingStatistics getContentEncodingStatistics(final String name) {
+        return contentEncodingStatistics.get(name);
+    }
+
+    /**
+     * @return the read-only map of the {@link ContentEncoding} names to their
+     *  serializing statistics.
+     *
+     * @since 2.4.4
+     */
+    public Map<String, ContentEncodingStatistics> getContentEncodingStatistics() {
+        return Collections.<String, ContentEncodingStatistics>unmodifiableMap(
+                contentEncodingStatistics);
+    }
+
 
     /**
      * Return <code>true</code> if chunked transfer-encoding may be used.
@@ -1777,9 +1840,28 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
             HttpProbeNotifier.notifyContentEncodingSerialize(this, connection,
                     httpHeader, httpContent.getContent(), encoding);
-            
+
+            final boolean isCollectingStatistics = contentEncodingStatisticsEnabled;
+            final boolean isLast = httpContent.isLast();
+            final int inputSize;
+            final long startCpuTime;
+            if (isCollectingStatistics) {
+                inputSize = httpContent.getContent().remaining();
+                startCpuTime = ContentEncodingStatistics.currentCpuTime();
+            } else {
+                inputSize = 0;
+                startCpuTime = 0;
+            }
+
             final HttpContent encodedContent = encoding.encode(connection, httpContent);
 
+            if (isCollectingStatistics) {
+                obtainContentEncodingStatistics(encoding.getName()).record(
+                        inputSize,
+                        encodedContent != null ? encodedContent.getContent().remaining() : 0,
+                        startCpuTime,
+                        isLast);
+            }
 
             if (encodedContent == null) {
                 httpContent.recycle();
@@ -1798,6 +1880,21 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         return httpContent;
     }
     
+    private ContentEncodingStatistics obtainContentEncodingStatistics(
+            final String name) {
+        ContentEncodingStatistics statistics = contentEncodingStatistics.get(name);
+        if (statistics == null) {
+            final ContentEncodingStatistics newStatistics =
+                    new ContentEncodingStatistics(name);
+            statistics = contentEncodingStatistics.putIfAbsent(name, newStatistics);
+            if (statistics == null) {
+                statistics = newStatistics;
+            }
+        }
+
+        return statistics;
+    }
+
     final void setContentEncodingsOnParsing(final HttpHeader httpHeader) {
         if (httpHeader.isIgnoreContentModifiers()) {
             // ignore the content encoding
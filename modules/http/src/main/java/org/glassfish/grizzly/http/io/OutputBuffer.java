@@ -156,6 +156,9 @@ public class OutputBuffer {
     private HttpContext httpContext;
 
     private Supplier<Map<String,String>> trailersSupplier;
+
+    private BodyInterceptor bodyInterceptor;
+    private boolean isBodyInterceptorChecked;
     
     
     // ---------------------------------------------------------- Public Methods
@@ -230,6 +233,22 @@ public class OutputBuffer {
         return lifeCycleListeners.remove(listener);
     }
 
+    /**
+     * Sets the {@link BodyInterceptor}, which gets the complete message body
+     * when the <tt>OutputBuffer</tt> is closed. Until then the body is held
+     * in the buffer instead of being written in chunks, unless it grows above
+     * {@link BodyInterceptor#getMaxBodySize()} or the buffer is flushed
+     * explicitly.
+     *
+     * @param bodyInterceptor the {@link BodyInterceptor}, or <tt>null</tt>
+     *
+     * @since 2.4.4
+     */
+    public void setBodyInterceptor(final BodyInterceptor bodyInterceptor) {
+        this.bodyInterceptor = bodyInterceptor;
+        isBodyInterceptorChecked = false;
+    }
+
     public void setBufferSize(final int bufferSize) {
 
         if (committed) {
@@ -349,6 +368,8 @@ public class OutputBuffer {
         isLastWriteNonBlocking = false;
         asyncWriteHandler = null;
         trailersSupplier = null;
+        bodyInterceptor = null;
+        isBodyInterceptorChecked = false;
 
         committed = false;
         finished = false;
@@ -724,6 +745,10 @@ public class OutputBuffer {
         
         connection.assertOpen();
 
+        if (isBodyHeld()) {
+            interceptBody();
+        }
+
         // commit the response (mark it as committed)
         final boolean isJustCommitted = doCommit();
         // Try to commit the content chunk together with headers (if there were not committed before)
@@ -951,8 +976,58 @@ public class OutputBuffer {
     // --------------------------------------------------------- Private Methods
 
     private boolean canWritePayloadChunk() {
-        return outputHeader.isChunkingAllowed()
-                || outputHeader.getContentLength() != -1;
+        return (outputHeader.isChunkingAllowed()
+                || outputHeader.getContentLength() != -1)
+                && !isBodyHeld();
+    }
+
+    /**
+     * @return <tt>true</tt>, if the body is held for the {@link BodyInterceptor}.
+     */
+    private boolean isBodyHeld() {
+        if (bodyInterceptor == null || committed) {
+            return false;
+        }
+
+        if (!isBodyInterceptorChecked) {
+            // checked once, when the first body chunk would be written
+            isBodyInterceptorChecked = true;
+            if (!bodyInterceptor.canIntercept(outputHeader)) {
+                bodyInterceptor = null;
+                return false;
+            }
+        }
+
+        if (getBufferedDataSize() <= bodyInterceptor.getMaxBodySize()) {
+            return true;
+        }
+
+        // the body is too large to be intercepted, it's written as usual
+        bodyInterceptor = null;
+        return false;
+    }
+
+    private void interceptBody() throws IOException {
+        if (charsArrayLength > 0) {
+            flushCharsToBuf(false);
+        }
+        finishCurrentBuffer();
+
+        final Buffer body = compositeBuffer != null
+                ? compositeBuffer
+                : Buffers.EMPTY_BUFFER;
+        final Buffer newBody = bodyInterceptor.intercept(outputHeader, body);
+        bodyInterceptor = null;
+
+        if (newBody != null) {
+            if (compositeBuffer != null) {
+                compositeBuffer.tryDispose();
+                compositeBuffer = null;
+            }
+
+            checkCompositeBuffer();
+            compositeBuffer.append(newBody);
+        }
     }
     
     private void blockAfterWriteIfNeeded()
@@ -1014,6 +1089,10 @@ public class OutputBuffer {
     
     private boolean flushBinaryBuffers(final boolean isLast)
             throws IOException {
+        if (!isLast && isBodyHeld()) {
+            return false;
+        }
+
         if (!outputHeader.isChunkingAllowed()
                 && outputHeader.getContentLength() == -1) {
             if (!isLast) {
@@ -1298,6 +1377,44 @@ public class OutputBuffer {
     public interface LifeCycleListener {
         void onCommit() throws IOException;
     }
+
+    /**
+     * Intercepts the complete message body, which is held by the
+     * <tt>OutputBuffer</tt> until it's closed, before the message is
+     * committed.
+     *
+     * @since 2.4.4
+     */
+    public interface BodyInterceptor {
+
+        /**
+         * @return the maximum size of the body, which is held for the
+         *  interceptor; the larger bodies are written as usual.
+         */
+        int getMaxBodySize();
+
+        /**
+         * Checks the message header, when the first body chunk would be
+         * written, so the body of the message, which is not going to be
+         * intercepted, is not held.
+         *
+         * @param outputHeader the message header, which is not committed yet.
+         *
+         * @return <tt>true</tt> if the body has to be held for the interceptor.
+         */
+        boolean canIntercept(HttpHeader outputHeader);
+
+        /**
+         * @param outputHeader the message header, which is not committed yet.
+         * @param body the complete message body, which must not be modified.
+         *
+         * @return the body to be written instead, or <tt>null</tt> to write
+         *  the original one.
+         *
+         * @throws IOException if the body can't be intercepted.
+         */
+        Buffer intercept(HttpHeader outputHeader, Buffer body) throws IOException;
+    }
     
     private static class InternalWriteHandler implements WriteHandler {
 
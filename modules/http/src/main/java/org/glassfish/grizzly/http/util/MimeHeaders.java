@@ -474,7 +474,7 @@ servlet needs direct access to headers).
      */
     public DataChunk addValue(final byte[] buffer, final int startN,
             final int len) {
-        if (!isValidName(buffer)) {
+        if (!isValidName(buffer, startN, len)) {
             return NOOP_CHUNK;
         }
         MimeHeaderField mhf = createHeader();
@@ -718,8 +718,9 @@ servlet needs direct access to headers).
         return (!marked || Arrays.binarySearch(INVALID_TRAILER_NAMES, name.getLowerCase()) < 0);
     }
 
-    private boolean isValidName(final byte[] name) {
-        return (!marked || Arrays.binarySearch(INVALID_TRAILER_NAMES, new String(name).toLowerCase()) < 0);
+    private boolean isValidName(final byte[] name, final int start, final int len) {
+        return (!marked || Arrays.binarySearch(INVALID_TRAILER_NAMES,
+                new String(name, start, len, Constants.DEFAULT_HTTP_CHARSET).toLowerCase()) < 0);
     }
 
     private boolean isValidName(final Buffer name) {
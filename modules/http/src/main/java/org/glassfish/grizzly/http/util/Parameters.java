@@ -18,9 +18,9 @@
 package org.glassfish.grizzly.http.util;
 
 import java.io.CharConversionException;
-import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Set;
@@ -31,6 +31,7 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Grizzly;
 
 import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.utils.Charsets;
 
 /**
  * @author Costin Manolache
@@ -67,6 +68,12 @@ public final class Parameters {
     private int limit = -1;
     private int parameterCount = 0;
 
+    // Parameters found in Buffers, which are URL-decoded only when looked up.
+    // All the parameters in paramHashValues precede the indexed ones.
+    private ParameterIndex[] indexes = new ParameterIndex[2];
+    private int indexesCount;
+    private final DataChunk valueChunk = DataChunk.newInstance();
+
     public void setQuery(final DataChunk queryBC) {
         this.queryDC = queryBC;
     }
@@ -112,6 +119,11 @@ public final class Parameters {
         queryStringEncoding = null;
         parameterCount = 0;
         decodedQuery.recycle();
+        for (int i = 0; i < indexesCount; i++) {
+            indexes[i].recycle();
+        }
+        indexesCount = 0;
+        valueChunk.recycle();
 
     }
     // -------------------- Sub-request support --------------------
@@ -176,6 +188,7 @@ public final class Parameters {
         if (key == null) {
             return;
         }
+        decodeIndexedParameters();
         ArrayList<String> values;
         if (paramHashValues.containsKey(key)) {
             values = paramHashValues.get(key);
@@ -194,6 +207,8 @@ public final class Parameters {
         if (currentChild != null) {
             currentChild.merge();
             values = currentChild.paramHashValues.get(name);
+        } else if (indexesCount > 0) {
+            return getIndexedParameterValues(name);
         } else {
             // no "facade"
             values = paramHashValues.get(name);
@@ -201,8 +216,34 @@ public final class Parameters {
         return ((values != null) ? values.toArray(new String[values.size()]) : null);
     }
 
+    private String[] getIndexedParameterValues(final String name) {
+        final ArrayList<String> values = paramHashValues.get(name);
+        ArrayList<String> result = values != null
+                ? new ArrayList<String>(values)
+                : null;
+
+        final boolean asciiName = isAscii(name);
+        final int hash = name.hashCode();
+        for (int i = 0; i < indexesCount; i++) {
+            final ParameterIndex index = indexes[i];
+            for (int j = find(index, 0, name, hash, asciiName); j != -1;
+                    j = find(index, j + 1, name, hash, asciiName)) {
+                final String value = value(index, j);
+                if (value != null) {
+                    if (result == null) {
+                        result = new ArrayList<String>(2);
+                    }
+                    result.add(value);
+                }
+            }
+        }
+
+        return ((result != null) ? result.toArray(new String[result.size()]) : null);
+    }
+
     public Set<String> getParameterNames() {
         handleQueryParameters();
+        decodeIndexedParameters();
         // Slow - the original code
         if (currentChild != null) {
             currentChild.merge();
@@ -235,6 +276,7 @@ public final class Parameters {
 
         // Local parameters first - they take precedence as in spec.
         handleQueryParameters();
+        decodeIndexedParameters();
         // we already merged with the parent
         if (didMerge) {
             return;
@@ -266,9 +308,75 @@ public final class Parameters {
                 return "";
             }
             return values.get(0);
-        } else {
-            return null;
         }
+
+        if (indexesCount > 0) {
+            final boolean asciiName = isAscii(name);
+            final int hash = name.hashCode();
+            for (int i = 0; i < indexesCount; i++) {
+                final ParameterIndex index = indexes[i];
+                for (int j = find(index, 0, name, hash, asciiName); j != -1;
+                        j = find(index, j + 1, name, hash, asciiName)) {
+                    final String value = value(index, j);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the first value of the parameter as a {@link DataChunk}, without
+     * creating a {@link String} for parameters found in a {@link Buffer}.
+     * In this case the value is URL-decoded in place and the returned chunk
+     * refers to the original {@link Buffer}, so the value bytes are still
+     * encoded using the charset the parameters were processed with (see
+     * {@link #getEncoding()} and {@link #getQueryStringEncoding()}).
+     *
+     * The returned {@link DataChunk} belongs to this <tt>Parameters</tt> and
+     * remains valid until the next call of this method or {@link #recycle()}.
+     *
+     * @param name the parameter name
+     * @return the parameter value, or <tt>null</tt> if there is no such
+     *         parameter
+     *
+     * @since 2.4.4
+     */
+    public DataChunk getParameterChunk(final String name) {
+        valueChunk.recycle();
+
+        final ArrayList<String> values = paramHashValues.get(name);
+        if (values != null) {
+            valueChunk.setString(values.isEmpty() ? "" : values.get(0));
+            return valueChunk;
+        }
+
+        if (indexesCount > 0) {
+            final boolean asciiName = isAscii(name);
+            final int hash = name.hashCode();
+            for (int i = 0; i < indexesCount; i++) {
+                final ParameterIndex index = indexes[i];
+                for (int j = find(index, 0, name, hash, asciiName); j != -1;
+                        j = find(index, j + 1, name, hash, asciiName)) {
+                    if (decodeValue(index, j)) {
+                        final int offset = j * ParameterIndex.STRIDE;
+                        final int valueStart = index.offsets[offset + ParameterIndex.VALUE_START];
+                        if (valueStart == -1) {
+                            valueChunk.setString("");
+                        } else {
+                            valueChunk.setBuffer(index.buffer, valueStart,
+                                    index.offsets[offset + ParameterIndex.VALUE_END]);
+                        }
+                        return valueChunk;
+                    }
+                }
+            }
+        }
+
+        return null;
     }
     // -------------------- Processing --------------------
 
@@ -337,6 +445,7 @@ public final class Parameters {
             return;
         }
 
+        decodeIndexedParameters();
         parameterCount++;
         if (limit > -1 && parameterCount > limit) {
             // Processing this parameter will push us over the limit. ISE is
@@ -346,6 +455,10 @@ public final class Parameters {
                     );
         }
 
+        putValue(key, value);
+    }
+
+    private void putValue(final String key, final String value) {
         ArrayList<String> values = paramHashValues.get(key);
         if (values == null) {
             values = new ArrayList<String>(1);
@@ -377,6 +490,12 @@ public final class Parameters {
         processParameters(buffer, start, len, encoding);
     }
 
+    /**
+     * Processes the url-encoded parameters found in the {@link Buffer} region.
+     * The parameters are only indexed here, their names and values are
+     * URL-decoded (in place) when they are looked up, so the {@link Buffer}
+     * content must not be changed or released until {@link #recycle()}.
+     */
     public void processParameters(final Buffer buffer, final int start, final int len,
         final Charset enc) {
 
@@ -391,7 +510,7 @@ public final class Parameters {
                        });
         }
         
-        int decodeFailCount = 0;
+        final ParameterIndex index = nextIndex(buffer, enc);
 
         int end = start + len;
         int pos = start;
@@ -480,100 +599,16 @@ public final class Parameters {
                 continue;
                 // invalid chunk - it's better to ignore
             }
-            tmpName.setBufferChunk(buffer, nameStart, nameEnd);
-            tmpValue.setBufferChunk(buffer, valueStart, valueEnd);
-
-            // Take copies as if anything goes wrong originals will be
-            // corrupted. This means original values can be logged.
-            // For performance - only done for debug
-            if (LOGGER.isLoggable(Level.FINEST)) {
-                origName.setBufferChunk(buffer, nameStart, nameEnd);
-                origValue.setBufferChunk(buffer, valueStart, valueEnd);
-            }
-
-            try {
-                String name;
-                String value;
-
-                if (decodeName) {
-                    name = urlDecode(tmpName, enc);
-                } else {
-                    name = tmpName.toString(enc);
-                }
-
-                if (valueStart != -1) {
-                    if (decodeValue) {
-                        value = urlDecode(tmpValue, enc);
-                    } else {
-                        value = tmpValue.toString(enc);
-                    }
-                } else {
-                    value = "";
-                }
-                
-                addParameter(name, value);
-            } catch (Exception e) {
-                decodeFailCount++;
-                if (LOGGER.isLoggable(Level.FINEST)) {
-                   LOGGER.log(Level.FINEST,
-                            LogMessages.FINE_GRIZZLY_HTTP_PARAMETERS_DECODE_FAIL_DEBUG(
-                            origName.toString(), origValue.toString()));
-                } else if (LOGGER.isLoggable(Level.INFO) && decodeFailCount == 1) {
-                    final String name = ((tmpName.getLength() > 0)
-                                            ? tmpName.toString()
-                                            : "unavailable");
-                    final String value = ((tmpValue.getLength() > 0)
-                                            ? tmpValue.toString()
-                                            : "unavailable");
-                    LOGGER.log(Level.INFO,
-                               LogMessages.INFO_GRIZZLY_HTTP_PARAMETERS_DECODE_FAIL_INFO(
-                                       e.getMessage(), name, value));
-                    LOGGER.log(Level.FINE, "Decoding stacktrace.", e);
-                }
-            } finally {
-                tmpName.recycle();
-                tmpValue.recycle();
-            }
-
-        }
-
-        if (!LOGGER.isLoggable(Level.FINEST) && decodeFailCount > 1) {
-            LOGGER.info(LogMessages.INFO_GRIZZLY_HTTP_PARAMETERS_MULTIPLE_DECODING_FAIL(decodeFailCount));
-        }
-    }
-
-    private String urlDecode(final BufferChunk bc, final Charset enc)
-        throws IOException {
-//        if (urlDec == null) {
-//            urlDec = new UDecoder();
-//        }
-        URLDecoder.decode(bc, true);
-        String result;
-        if (enc != null) {
-            if (bc.getStart() == -1 && bc.getEnd() == -1) {
-                return "";
-            }
-            result = bc.toString(enc);
-        } else {
-            final CharChunk cc = tmpNameC;
-            final int length = bc.getLength();
-            cc.allocate(length, -1);
-            // Default encoding: fast conversion
-            final Buffer bbuf = bc.getBuffer();
-            final char[] cbuf = cc.getBuffer();
-            final int start = bc.getStart();
-            for (int i = 0; i < length; i++) {
-                cbuf[i] = (char) (bbuf.get(i + start) & 0xff);
-            }
-
-            cc.setChars(cbuf, 0, length);
-            result = cc.toString();
-            cc.recycle();
+            // Only remember where the parameter is, name and value are
+            // decoded when (and if) they are looked up
+            parameterCount++;
+            index.add(nameStart, nameEnd, valueStart, valueEnd,
+                    decodeName, decodeValue);
         }
-        return result;
     }
 
     public void processParameters(char chars[], int start, int len) {
+        decodeIndexedParameters();
         int end = start + len;
         int pos = start;
         int decodeFailCount = 0;
@@ -717,6 +752,7 @@ public final class Parameters {
      * Debug purpose
      */
     public String paramsAsString() {
+        decodeIndexedParameters();
         StringBuilder sb = new StringBuilder();
         for (final String s : paramHashValues.keySet()) {
             // END PWC 6057385
@@ -734,6 +770,7 @@ public final class Parameters {
 
 
     public void processParameters(String str) {
+        decodeIndexedParameters();
         int end = str.length();
         int pos = 0;
         int decodeFailCount = 0;
@@ -839,4 +876,401 @@ public final class Parameters {
         }
     }
 
+    // -------------------- Indexed parameters --------------------
+
+    private ParameterIndex nextIndex(final Buffer buffer, final Charset enc) {
+        if (indexesCount == indexes.length) {
+            indexes = Arrays.copyOf(indexes, indexesCount * 2);
+        }
+
+        ParameterIndex index = indexes[indexesCount];
+        if (index == null) {
+            index = new ParameterIndex();
+            indexes[indexesCount] = index;
+        }
+        indexesCount++;
+        index.reset(buffer, enc);
+
+        return index;
+    }
+
+    /**
+     * Decode all the indexed parameters and move them to the map.
+     */
+    private void decodeIndexedParameters() {
+        if (indexesCount == 0) {
+            return;
+        }
+
+        for (int i = 0; i < indexesCount; i++) {
+            final ParameterIndex index = indexes[i];
+            for (int j = 0; j < index.size; j++) {
+                final String name = name(index, j);
+                if (name != null) {
+                    final String value = value(index, j);
+                    if (value != null) {
+                        putValue(name, value);
+                    }
+                }
+            }
+
+            if (!LOGGER.isLoggable(Level.FINEST) && index.decodeFailCount > 1) {
+                LOGGER.info(LogMessages.INFO_GRIZZLY_HTTP_PARAMETERS_MULTIPLE_DECODING_FAIL(
+                        index.decodeFailCount));
+            }
+            index.recycle();
+        }
+        indexesCount = 0;
+    }
+
+    /**
+     * Finds the next parameter with the given name in the index.
+     * Small indexes are scanned, the larger ones are looked up in a hash
+     * table built on the first lookup.
+     *
+     * @param from the position to search from, either <tt>0</tt> or the
+     *  position following the previous match
+     * @return the position of the parameter, or <tt>-1</tt> if not found
+     */
+    private int find(final ParameterIndex index, final int from,
+            final String name, final int hash, final boolean asciiName) {
+        if (index.size <= ParameterIndex.HASH_THRESHOLD) {
+            for (int j = from; j < index.size; j++) {
+                if (nameEquals(index, j, name, asciiName)) {
+                    return j;
+                }
+            }
+            return -1;
+        }
+
+        if (!index.isHashed) {
+            hash(index);
+        }
+
+        // the chains are in the parameters order, continue the chain
+        // of the previous match
+        int j = from == 0
+                ? index.buckets[spread(hash) & index.bucketMask] - 1
+                : index.next[from - 1] - 1;
+        for (; j != -1; j = index.next[j] - 1) {
+            if (index.hashes[j] == hash && nameEquals(index, j, name, asciiName)) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the index hash table, the names are URL-decoded in place but not
+     * converted to Strings, unless they are not ASCII.
+     */
+    private void hash(final ParameterIndex index) {
+        final int size = index.size;
+        final int capacity = Integer.highestOneBit(size) << 2;
+        if (index.buckets.length < capacity) {
+            index.buckets = new int[capacity];
+        } else {
+            Arrays.fill(index.buckets, 0, capacity, 0);
+        }
+        index.bucketMask = capacity - 1;
+
+        for (int j = size - 1; j >= 0; j--) {
+            index.next[j] = 0;
+            if (!decodeName(index, j)) {
+                // invalid parameters are never found
+                continue;
+            }
+
+            final int hash = nameHash(index, j);
+            final int bucket = spread(hash) & index.bucketMask;
+            index.hashes[j] = hash;
+            index.next[j] = index.buckets[bucket];
+            index.buckets[bucket] = j + 1;
+        }
+        index.isHashed = true;
+    }
+
+    /**
+     * @return the {@link String#hashCode()} of the URL-decoded parameter name
+     */
+    private int nameHash(final ParameterIndex index, final int i) {
+        if (index.asciiCompatible) {
+            final int offset = i * ParameterIndex.STRIDE;
+            final int end = index.offsets[offset + ParameterIndex.NAME_END];
+            final Buffer buffer = index.buffer;
+            int hash = 0;
+            int k = index.offsets[offset + ParameterIndex.NAME_START];
+            for (; k < end; k++) {
+                final byte b = buffer.get(k);
+                if (b < 0) {
+                    break;
+                }
+                hash = 31 * hash + b;
+            }
+
+            if (k == end) {
+                return hash;
+            }
+        }
+
+        final String name = name(index, i);
+        return name != null ? name.hashCode() : 0;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean nameEquals(final ParameterIndex index, final int i,
+            final String name, final boolean asciiName) {
+        final byte flags = index.flags[i];
+        if ((flags & ParameterIndex.INVALID) != 0) {
+            return false;
+        }
+
+        if (index.names[i] == null && index.asciiCompatible
+                && (flags & ParameterIndex.DECODE_NAME) == 0) {
+            // Compare the raw bytes, to not decode names we're not looking for
+            final int offset = i * ParameterIndex.STRIDE;
+            final int start = index.offsets[offset + ParameterIndex.NAME_START];
+            final int end = index.offsets[offset + ParameterIndex.NAME_END];
+            final int len = name.length();
+            if (end - start != len) {
+                if (asciiName) {
+                    return false;
+                }
+            } else {
+                final Buffer buffer = index.buffer;
+                int k = 0;
+                for (; k < len; k++) {
+                    final byte b = buffer.get(start + k);
+                    final char c = name.charAt(k);
+                    if (b < 0 || c > 0x7F) {
+                        break;
+                    }
+                    if (b != c) {
+                        return false;
+                    }
+                }
+
+                if (k == len) {
+                    return true;
+                }
+            }
+        }
+
+        final String decodedName = name(index, i);
+        return decodedName != null && decodedName.equals(name);
+    }
+
+    private String name(final ParameterIndex index, final int i) {
+        String name = index.names[i];
+        if (name == null) {
+            final boolean isEncoded =
+                    (index.flags[i] & ParameterIndex.DECODE_NAME) != 0;
+            if (decodeName(index, i)) {
+                final int offset = i * ParameterIndex.STRIDE;
+                name = toString(index,
+                        index.offsets[offset + ParameterIndex.NAME_START],
+                        index.offsets[offset + ParameterIndex.NAME_END],
+                        isEncoded);
+                index.names[i] = name;
+            }
+        }
+
+        return name;
+    }
+
+    private String value(final ParameterIndex index, final int i) {
+        String value = index.values[i];
+        if (value == null) {
+            final boolean isEncoded =
+                    (index.flags[i] & ParameterIndex.DECODE_VALUE) != 0;
+            if (decodeValue(index, i)) {
+                final int offset = i * ParameterIndex.STRIDE;
+                final int valueStart = index.offsets[offset + ParameterIndex.VALUE_START];
+                value = valueStart == -1
+                        ? ""
+                        : toString(index, valueStart,
+                                index.offsets[offset + ParameterIndex.VALUE_END],
+                                isEncoded);
+                index.values[i] = value;
+            }
+        }
+
+        return value;
+    }
+
+    private boolean decodeName(final ParameterIndex index, final int i) {
+        return decode(index, i, ParameterIndex.NAME_START,
+                ParameterIndex.DECODE_NAME);
+    }
+
+    private boolean decodeValue(final ParameterIndex index, final int i) {
+        return decode(index, i, ParameterIndex.VALUE_START,
+                ParameterIndex.DECODE_VALUE);
+    }
+
+    /**
+     * URL-decode the parameter name or value in place, if required.
+     *
+     * @return <tt>false</tt> if the parameter is invalid
+     */
+    private boolean decode(final ParameterIndex index, final int i,
+            final int part, final byte decodeFlag) {
+        final byte flags = index.flags[i];
+        if ((flags & ParameterIndex.INVALID) != 0) {
+            return false;
+        }
+        if ((flags & decodeFlag) == 0) {
+            return true;
+        }
+
+        final int offset = i * ParameterIndex.STRIDE + part;
+        final BufferChunk bc = tmpName;
+        bc.setBufferChunk(index.buffer, index.offsets[offset],
+                index.offsets[offset + 1]);
+        try {
+            URLDecoder.decode(bc, true);
+            index.offsets[offset + 1] = bc.getEnd();
+            index.flags[i] = (byte) (flags & ~decodeFlag);
+            return true;
+        } catch (Exception e) {
+            index.flags[i] = (byte) (flags | ParameterIndex.INVALID);
+            index.decodeFailCount++;
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                LOGGER.log(Level.FINEST,
+                        LogMessages.FINE_GRIZZLY_HTTP_PARAMETERS_DECODE_FAIL_DEBUG(
+                        part(index, i, ParameterIndex.NAME_START),
+                        part(index, i, ParameterIndex.VALUE_START)));
+            } else if (LOGGER.isLoggable(Level.INFO) && index.decodeFailCount == 1) {
+                LOGGER.log(Level.INFO,
+                        LogMessages.INFO_GRIZZLY_HTTP_PARAMETERS_DECODE_FAIL_INFO(
+                        e.getMessage(),
+                        part(index, i, ParameterIndex.NAME_START),
+                        part(index, i, ParameterIndex.VALUE_START)));
+                LOGGER.log(Level.FINE, "Decoding stacktrace.", e);
+            }
+            return false;
+        } finally {
+            bc.recycle();
+        }
+    }
+
+    private static String part(final ParameterIndex index, final int i,
+            final int part) {
+        final int offset = i * ParameterIndex.STRIDE + part;
+        final int start = index.offsets[offset];
+        final int end = index.offsets[offset + 1];
+        return start != -1 && end > start
+                ? index.buffer.toStringContent(DEFAULT_CHARSET, start, end)
+                : "unavailable";
+    }
+
+    private static String toString(final ParameterIndex index,
+            final int start, final int end, final boolean isDecoded) {
+        if (index.charset == null && isDecoded) {
+            // Default encoding: fast conversion of the URL-decoded bytes
+            final Buffer buffer = index.buffer;
+            final char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (buffer.get(start + i) & 0xff);
+            }
+            return new String(chars);
+        }
+
+        return index.buffer.toStringContent(
+                index.charset != null ? index.charset : DEFAULT_CHARSET,
+                start, end);
+    }
+
+    private static boolean isAscii(final String s) {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            if (s.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Byte offsets of the parameters found in a {@link Buffer}.
+     */
+    private static final class ParameterIndex {
+        static final int NAME_START = 0;
+        static final int NAME_END = 1;
+        static final int VALUE_START = 2;
+        static final int VALUE_END = 3;
+        static final int STRIDE = 4;
+
+        // the indexes with more parameters are hashed
+        static final int HASH_THRESHOLD = 8;
+
+        static final byte DECODE_NAME = 1;
+        static final byte DECODE_VALUE = 2;
+        static final byte INVALID = 4;
+
+        private Buffer buffer;
+        private Charset charset;
+        private boolean asciiCompatible;
+        private int size;
+        private int decodeFailCount;
+
+        private int[] offsets = new int[INITIAL_SIZE * STRIDE];
+        private byte[] flags = new byte[INITIAL_SIZE];
+        // decoded names and values cache
+        private String[] names = new String[INITIAL_SIZE];
+        private String[] values = new String[INITIAL_SIZE];
+
+        // the hash table, built on the first lookup of a large index
+        private boolean isHashed;
+        private int[] buckets = new int[0];
+        private int bucketMask;
+        private int[] hashes = new int[INITIAL_SIZE];
+        // the position + 1 of the next parameter in the bucket, 0 ends the chain
+        private int[] next = new int[INITIAL_SIZE];
+
+        void reset(final Buffer buffer, final Charset charset) {
+            this.buffer = buffer;
+            this.charset = charset;
+            asciiCompatible = charset == null
+                    || Charsets.UTF8_CHARSET.equals(charset)
+                    || Charsets.ASCII_CHARSET.equals(charset)
+                    || Constants.DEFAULT_HTTP_CHARSET.equals(charset);
+        }
+
+        void add(final int nameStart, final int nameEnd,
+                final int valueStart, final int valueEnd,
+                final boolean decodeName, final boolean decodeValue) {
+            if (size == flags.length) {
+                final int newSize = size * 2;
+                offsets = Arrays.copyOf(offsets, newSize * STRIDE);
+                flags = Arrays.copyOf(flags, newSize);
+                names = Arrays.copyOf(names, newSize);
+                values = Arrays.copyOf(values, newSize);
+                hashes = Arrays.copyOf(hashes, newSize);
+                next = Arrays.copyOf(next, newSize);
+            }
+
+            final int offset = size * STRIDE;
+            offsets[offset + NAME_START] = nameStart;
+            offsets[offset + NAME_END] = nameEnd;
+            offsets[offset + VALUE_START] = valueStart;
+            offsets[offset + VALUE_END] = valueEnd;
+            flags[size] = (byte) ((decodeName ? DECODE_NAME : 0)
+                    | (decodeValue ? DECODE_VALUE : 0));
+            size++;
+            isHashed = false;
+        }
+
+        void recycle() {
+            Arrays.fill(names, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            buffer = null;
+            charset = null;
+            size = 0;
+            decodeFailCount = 0;
+            isHashed = false;
+        }
+    }
 }
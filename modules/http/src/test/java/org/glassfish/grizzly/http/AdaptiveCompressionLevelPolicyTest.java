@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link AdaptiveCompressionLevelPolicy} tests.
+ */
+public class AdaptiveCompressionLevelPolicyTest {
+
+    @Test
+    public void testLevelFollowsLoad() {
+        final TestPolicy policy = new TestPolicy();
+
+        policy.load = 0.2;
+        assertEquals(6, policy.getCompressionLevel(null, 1024));
+        policy.load = 0.5;
+        assertEquals(6, policy.getCompressionLevel(null, 1024));
+        policy.load = 0.75;
+        assertEquals(3, policy.getCompressionLevel(null, 1024));
+        policy.load = 1.0;
+        assertEquals(1, policy.getCompressionLevel(null, 1024));
+        policy.load = 4.0;
+        assertEquals(1, policy.getCompressionLevel(null, 1024));
+    }
+
+    @Test
+    public void testLargeAndStreamedContent() {
+        final TestPolicy policy = new TestPolicy();
+
+        policy.load = 0;
+        assertEquals(3, policy.getCompressionLevel(null, -1));
+        assertEquals(3, policy.getCompressionLevel(null,
+                AdaptiveCompressionLevelPolicy.DEFAULT_LARGE_CONTENT_SIZE));
+        assertEquals(6, policy.getCompressionLevel(null,
+                AdaptiveCompressionLevelPolicy.DEFAULT_LARGE_CONTENT_SIZE - 1));
+
+        policy.load = 1.0;
+        assertEquals(1, policy.getCompressionLevel(null, -1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevels() {
+        new AdaptiveCompressionLevelPolicy(6, 1, 1024, 0.5, 1.0);
+    }
+
+    private static final class TestPolicy extends AdaptiveCompressionLevelPolicy {
+        private double load;
+
+        @Override
+        protected double getCpuLoad() {
+            return load;
+        }
+    }
+}
@@ -109,6 +109,58 @@ public class GZipEncodingTest extends TestCase {
         doTest(request, result, gzipServerContentEncoding, gzipClientContentEncoding);
     }
 
+    public void testGZipResponseStatistics() throws Throwable {
+        final GZipContentEncoding gzipServerContentEncoding =
+                new GZipContentEncoding(512, 512, new EncodingFilter() {
+            @Override
+            public boolean applyEncoding(HttpHeader httpPacket) {
+                return true;
+            }
+
+            @Override
+            public boolean applyDecoding(HttpHeader httpPacket) {
+                return false;
+            }
+        });
+
+        final GZipContentEncoding gzipClientContentEncoding =
+                new GZipContentEncoding(512, 512, new EncodingFilter() {
+            @Override
+            public boolean applyEncoding(HttpHeader httpPacket) {
+                return false;
+            }
+
+            @Override
+            public boolean applyDecoding(HttpHeader httpPacket) {
+                return true;
+            }
+        });
+
+        final ExpectedResult result = new ExpectedResult();
+        result.setProtocol("HTTP/1.1");
+        result.setStatusCode(200);
+        result.addHeader("content-encoding", "gzip");
+        result.setContent(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                "Echo: <nothing>"));
+
+        final HttpServerFilter httpServerFilter = new HttpServerFilter();
+        assertFalse(httpServerFilter.isContentEncodingStatisticsEnabled());
+        doTest(httpServerFilter, createGetRequest(), result,
+                gzipServerContentEncoding, gzipClientContentEncoding);
+        assertNull(httpServerFilter.getContentEncodingStatistics("gzip"));
+
+        httpServerFilter.setContentEncodingStatisticsEnabled(true);
+        doTest(httpServerFilter, createGetRequest(), result,
+                gzipServerContentEncoding, gzipClientContentEncoding);
+        final ContentEncodingStatistics statistics =
+                httpServerFilter.getContentEncodingStatistics("gzip");
+        assertNotNull(statistics);
+        assertEquals(1, statistics.getEncodedCount());
+        assertEquals("Echo: <nothing>".length(), statistics.getInputBytes());
+        assertTrue(statistics.getOutputBytes() > 0);
+        assertTrue(statistics.getCpuTimeNanos() >= -1);
+    }
+
 
     public void testGZipRequest() throws Throwable {
         GZipContentEncoding gzipServerContentEncoding =
@@ -309,6 +361,15 @@ public class GZipEncodingTest extends TestCase {
     // --------------------------------------------------------- Private Methods
 
 
+    private static HttpRequestPacket createGetRequest() {
+        return HttpRequestPacket.builder()
+            .method("GET")
+            .header("Host", "localhost:" + PORT)
+            .uri("/path")
+            .protocol(Protocol.HTTP_1_1)
+            .build();
+    }
+
     private void reportThreadErrors() throws Throwable {
         Throwable t = exception.getResult();
         if (t != null) {
@@ -319,13 +380,20 @@ public class GZipEncodingTest extends TestCase {
     private void doTest(HttpPacket request, ExpectedResult expectedResults,
             ContentEncoding serverContentEncoding, ContentEncoding clientContentEncoding)
     throws Throwable {
+        doTest(new HttpServerFilter(), request, expectedResults,
+                serverContentEncoding, clientContentEncoding);
+    }
+
+    private void doTest(HttpServerFilter httpServerFilter, HttpPacket request,
+            ExpectedResult expectedResults, ContentEncoding serverContentEncoding,
+            ContentEncoding clientContentEncoding)
+    throws Throwable {
 
         final FutureImpl<Boolean> testResult = SafeFutureImpl.create();
         FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
         filterChainBuilder.add(new TransportFilter());
         filterChainBuilder.add(new ChunkingFilter(2));
 
-        final HttpServerFilter httpServerFilter = new HttpServerFilter();
         if (serverContentEncoding != null) {
             httpServerFilter.addContentEncoding(serverContentEncoding);
         }
@@ -21,6 +21,7 @@ import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.Set;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.util.Constants;
 
 import org.glassfish.grizzly.http.util.DataChunk;
@@ -350,6 +351,103 @@ public class ParametersTest {
         params.processParameters(request);
     }
 
+    @Test
+    public void testLazyBufferParameters() {
+        final String body = "a=1&b=%41%42&c+d=x+y&b=2&bad=%zz&e";
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, body);
+
+        final Parameters p = new Parameters();
+        p.setEncoding(Charsets.UTF8_CHARSET);
+        p.processParameters(buffer, 0, buffer.remaining());
+
+        assertEquals("1", p.getParameter("a"));
+        // only the looked up parameter has been decoded
+        assertEquals(body.substring(4), buffer.toStringContent(
+                Charsets.ASCII_CHARSET, 4, buffer.limit()));
+
+        assertEquals("AB", p.getParameter("b"));
+        assertArrayEquals(new String[] {"AB", "2"}, p.getParameterValues("b"));
+        assertEquals("x y", p.getParameter("c d"));
+        assertEquals("", p.getParameter("e"));
+        assertNull(p.getParameter("bad"));
+        assertNull(p.getParameter("f"));
+
+        final DataChunk value = p.getParameterChunk("c d");
+        assertEquals(DataChunk.Type.Buffer, value.getType());
+        assertSame(buffer, value.getBufferChunk().getBuffer());
+        assertEquals("x y", value.toString());
+
+        // parameters added later follow the indexed ones
+        p.addParameter("b", "3");
+        assertArrayEquals(new String[] {"AB", "2", "3"}, p.getParameterValues("b"));
+        assertArrayEquals(new String[] {"a", "b", "c d", "e"},
+                p.getParameterNames().toArray(new String[4]));
+    }
+
+    @Test
+    public void testLazyBufferParametersDefaultEncoding() {
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                "a=%E9%FF&%C3%A9=x+y&b=1");
+
+        // without the charset the URL-decoded bytes are ISO-8859-1 chars
+        final Parameters p = new Parameters();
+        p.processParameters(buffer, 0, buffer.remaining());
+
+        assertEquals("\u00e9\u00ff", p.getParameter("a"));
+        assertEquals("x y", p.getParameter("\u00c3\u00a9"));
+        assertEquals("1", p.getParameter("b"));
+    }
+
+    @Test
+    public void testHashedBufferParameters() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append("p").append(i).append('=').append(i).append('&');
+        }
+        sb.append("b=1&c+d=x+y&%E4%BD%A0=%E5%A5%BD&bad=%zz&b=2&e");
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                sb.toString());
+
+        final Parameters p = new Parameters();
+        p.setEncoding(Charsets.UTF8_CHARSET);
+        p.processParameters(buffer, 0, buffer.remaining());
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(String.valueOf(i), p.getParameter("p" + i));
+        }
+        assertArrayEquals(new String[] {"1", "2"}, p.getParameterValues("b"));
+        assertEquals("x y", p.getParameter("c d"));
+        assertEquals("\u597d", p.getParameter("\u4f60"));
+        assertEquals("", p.getParameter("e"));
+        assertEquals("1", p.getParameterChunk("p1").toString());
+        assertNull(p.getParameter("bad"));
+        assertNull(p.getParameter("p20"));
+        assertNull(p.getParameterValues("f"));
+        assertEquals(24, p.getParameterNames().size());
+    }
+
+    @Test
+    public void testLargeFormBody() {
+        final int size = 1024 * 1024;
+        final StringBuilder sb = new StringBuilder(size + 64);
+        int count = 0;
+        while (sb.length() < size) {
+            sb.append("param").append(count++).append("=%E4%BD%A0+value&");
+        }
+        sb.append("last=%E5%A5%BD");
+        final byte[] data = sb.toString().getBytes(Charsets.ASCII_CHARSET);
+
+        final Parameters p = new Parameters();
+        p.setEncoding(Charsets.UTF8_CHARSET);
+        p.processParameters(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, data),
+                0, data.length);
+
+        assertEquals("\u597d", p.getParameter("last"));
+        assertEquals("\u4f60 value", p.getParameter("param" + (count / 2)));
+        assertEquals(count + 1, p.getParameterNames().size());
+        assertEquals("\u4f60 value", p.getParameter("param0"));
+    }
+
     private void validateParameters(Parameter[] parameters, Parameters p) {
         Iterator<String> names = p.getParameterNames().iterator();
 
@@ -33,6 +33,7 @@ import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.http2.frames.ErrorCode;
 import org.glassfish.grizzly.http2.hpack.DecodingCallback;
+import org.glassfish.grizzly.http2.hpack.HeaderBytes;
 
 import static org.glassfish.grizzly.http2.HeaderDecodingException.ErrorType;
 
@@ -47,6 +48,10 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
     private static final String INVALID_CHARACTER_MESSAGE =
             "Invalid character 0x%02x at index '%s' found in header %s [%s: %s]";
 
+    private static final String[] KNOWN_HEADERS = {
+        "content-length", "upgrade", "expect", "connection", "te"
+    };
+
     static void decodeRequestHeaders(final Http2Session http2Session,
                                      final HttpRequestPacket request,
                                      final Map<String,String> capture)
@@ -54,6 +59,7 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
 
         final Set<String> serviceHeaders = new HashSet<>();
         final AtomicBoolean noMoreServiceHeaders = new AtomicBoolean();
+        final HeaderArena arena = new HeaderArena();
         try {
             http2Session.getHeadersDecoder().decode(new DecodingCallback() {
 
@@ -75,7 +81,7 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
                         processServiceRequestHeader(request, serviceHeaders, name.toString(), value.toString());
                     } else {
                         noMoreServiceHeaders.compareAndSet(false, true);
-                        processNormalHeader(request, name.toString(), value.toString());
+                        processNormalHeader(request, name, value, arena);
                     }
                 }
 
@@ -99,6 +105,7 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
                                       final Map<String,String> capture)
             throws IOException {
 
+        final HeaderArena arena = new HeaderArena();
         try {
             http2Session.getHeadersDecoder().decode(new DecodingCallback() {
 
@@ -110,7 +117,7 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
                     if (name.charAt(0) == ':') {
                         processServiceResponseHeader(response, name.toString(), value.toString());
                     } else {
-                        processNormalHeader(response, name.toString(), value.toString());
+                        processNormalHeader(response, name, value, arena);
                     }
                 }
 
@@ -229,31 +236,37 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
     }
     
     private static void processNormalHeader(final HttpHeader httpHeader,
-            final String name, final String value) {
-        if (name.equals(Header.Host.getLowerCase())) {
+            final CharSequence name, final CharSequence value,
+            final HeaderArena arena) {
+        if (Header.Host.getLowerCase().contentEquals(name)) {
             return;
         }
         final MimeHeaders mimeHeaders = httpHeader.getHeaders();
 
         final DataChunk valueChunk =
-                mimeHeaders.addValue(name);
+                arena.addValue(mimeHeaders, name);
 
         validateHeaderCharacters(name, value);
-        valueChunk.setString(value);
+        arena.setValue(valueChunk, value);
         finalizeKnownHeader(httpHeader, name, value);
     }
 
     private static void finalizeKnownHeader(final HttpHeader httpHeader,
-            final String name, final String value) {
-        
-        switch (name) {
+            final CharSequence name, final CharSequence value) {
+
+        final String knownName = knownHeaderName(name);
+        if (knownName == null) {
+            return;
+        }
+
+        switch (knownName) {
             case "content-length": {
-                httpHeader.setContentLengthLong(Long.parseLong(value));
+                httpHeader.setContentLengthLong(Long.parseLong(value.toString()));
                 return;
             }
             
             case "upgrade": {
-                httpHeader.getUpgradeDC().setString(value);
+                httpHeader.getUpgradeDC().setString(value.toString());
                 return;
             }
             
@@ -266,13 +279,27 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
             }
 
             case "te": {
-                if (!"trailers".equals(value)) {
+                if (!"trailers".contentEquals(value)) {
                     throw new HeaderDecodingException(ErrorCode.PROTOCOL_ERROR, ErrorType.STREAM, "TE header only allowed a value of trailers.");
                 }
             }
         }
     }
 
+    /**
+     * @return the name of the header, which needs special handling, or
+     * <tt>null</tt>
+     */
+    private static String knownHeaderName(final CharSequence name) {
+        for (String knownName : KNOWN_HEADERS) {
+            if (knownName.contentEquals(name)) {
+                return knownName;
+            }
+        }
+
+        return null;
+    }
+
     private static void validateHeaderCharacters(final CharSequence name, final CharSequence value) {
         assert (name != null);
         assert (value != null);
@@ -298,4 +325,49 @@ class DecoderUtils extends EncoderDecoderUtilsBase {
         return -1;
     }
 
+    /**
+     * Keeps the bytes of the literal header names and values of a header
+     * block, the {@link MimeHeaders} refer the arena bytes, so no
+     * {@link String}s are created for them. The names and values, which come
+     * from the header table, are {@link String}s already.
+     */
+    private static final class HeaderArena {
+        private static final int CHUNK_SIZE = 2048;
+
+        private byte[] chunk;
+        private int position;
+
+        DataChunk addValue(final MimeHeaders mimeHeaders, final CharSequence name) {
+            if (!(name instanceof HeaderBytes)) {
+                return mimeHeaders.addValue(name.toString());
+            }
+
+            final int start = copy((HeaderBytes) name);
+            return mimeHeaders.addValue(chunk, start, name.length());
+        }
+
+        void setValue(final DataChunk valueChunk, final CharSequence value) {
+            if (!(value instanceof HeaderBytes)) {
+                valueChunk.setString(value.toString());
+                return;
+            }
+
+            final int start = copy((HeaderBytes) value);
+            valueChunk.setBytes(chunk, start, start + value.length());
+        }
+
+        private int copy(final HeaderBytes bytes) {
+            final int length = bytes.length();
+            if (chunk == null || chunk.length - position < length) {
+                // the previous chunk stays referred by the headers
+                chunk = new byte[Math.max(CHUNK_SIZE, length)];
+                position = 0;
+            }
+
+            final int start = position;
+            System.arraycopy(bytes.getBytes(), 0, chunk, start, length);
+            position += length;
+            return start;
+        }
+    }
 }
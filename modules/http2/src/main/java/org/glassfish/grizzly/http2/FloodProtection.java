@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.http2.Http2FloodProbe.Flood;
+import org.glassfish.grizzly.http2.frames.ContinuationFrame;
+import org.glassfish.grizzly.http2.frames.DataFrame;
+import org.glassfish.grizzly.http2.frames.HeadersFrame;
+import org.glassfish.grizzly.http2.frames.Http2Frame;
+import org.glassfish.grizzly.http2.frames.PingFrame;
+import org.glassfish.grizzly.http2.frames.PriorityFrame;
+import org.glassfish.grizzly.http2.frames.PushPromiseFrame;
+import org.glassfish.grizzly.http2.frames.RstStreamFrame;
+import org.glassfish.grizzly.http2.frames.SettingsFrame;
+
+/**
+ * The per {@link Http2Session} accounting of the received frames, which
+ * are cheap to send, but expensive to process.
+ *
+ * The frames are charged to token buckets, which are refilled continuously
+ * at the configured rate and hold up to one second worth of tokens.
+ * The accounting is done on the {@link Http2Session} read path, so it's
+ * not thread-safe and doesn't allocate.
+ */
+final class FloodProtection {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBucket resets;
+    private final TokenBucket controlFrames;
+    private final int maxHeaderBlockSize;
+    private final int maxContinuationFrames;
+
+    private int headerBlockSize;
+    private int continuationFrames;
+
+    FloodProtection(final int maxResetsPerSecond,
+            final int maxControlFramesPerSecond,
+            final int maxHeaderBlockSize,
+            final int maxContinuationFrames) {
+        resets = maxResetsPerSecond > 0
+                ? new TokenBucket(maxResetsPerSecond)
+                : null;
+        controlFrames = maxControlFramesPerSecond > 0
+                ? new TokenBucket(maxControlFramesPerSecond)
+                : null;
+        this.maxHeaderBlockSize = maxHeaderBlockSize;
+        this.maxContinuationFrames = maxContinuationFrames;
+    }
+
+    /**
+     * Charges the received frame.
+     *
+     * @return the exceeded limit, or <tt>null</tt> if the frame is within limits
+     */
+    Flood onFrame(final Http2Frame frame, final long nowNanos) {
+        switch (frame.getType()) {
+            case DataFrame.TYPE:
+                // empty DATA frames don't consume the flow-control window
+                return frame.getLength() == 0
+                        && !frame.isFlagSet(DataFrame.END_STREAM)
+                        ? chargeControlFrame(nowNanos)
+                        : null;
+            case HeadersFrame.TYPE:
+            case PushPromiseFrame.TYPE:
+                headerBlockSize = frame.getLength();
+                continuationFrames = 0;
+                return checkHeaderBlock();
+            case ContinuationFrame.TYPE:
+                headerBlockSize += frame.getLength();
+                continuationFrames++;
+                return checkHeaderBlock();
+            case SettingsFrame.TYPE:
+                return frame.isFlagSet(SettingsFrame.ACK_FLAG)
+                        ? null
+                        : chargeControlFrame(nowNanos);
+            case PingFrame.TYPE:
+                return frame.isFlagSet(PingFrame.ACK_FLAG)
+                        ? null
+                        : chargeControlFrame(nowNanos);
+            case PriorityFrame.TYPE:
+                return chargeControlFrame(nowNanos);
+            case RstStreamFrame.TYPE:
+                return resets == null || resets.tryTake(nowNanos)
+                        ? null
+                        : Flood.RST_STREAM;
+            default:
+                return null;
+        }
+    }
+
+    private Flood chargeControlFrame(final long nowNanos) {
+        return controlFrames == null || controlFrames.tryTake(nowNanos)
+                ? null
+                : Flood.CONTROL_FRAMES;
+    }
+
+    private Flood checkHeaderBlock() {
+        if (maxHeaderBlockSize > 0 && headerBlockSize > maxHeaderBlockSize) {
+            return Flood.HEADER_BLOCK;
+        }
+
+        if (maxContinuationFrames >= 0 && continuationFrames > maxContinuationFrames) {
+            return Flood.CONTINUATION_FRAMES;
+        }
+
+        return null;
+    }
+
+    /**
+     * The token bucket, which keeps its tokens as the nanoseconds of budget:
+     * a token costs <tt>1s / rate</tt>, the elapsed time refills the budget
+     * up to one second.
+     */
+    private static final class TokenBucket {
+        private final long tokenCost;
+
+        private long budget = SECOND;
+        private long lastRefill = Long.MIN_VALUE;
+
+        TokenBucket(final int ratePerSecond) {
+            tokenCost = SECOND / ratePerSecond;
+        }
+
+        boolean tryTake(final long nowNanos) {
+            if (lastRefill != Long.MIN_VALUE) {
+                budget = Math.min(SECOND, budget + Math.max(0, nowNanos - lastRefill));
+            }
+            lastRefill = nowNanos;
+
+            if (budget < tokenCost) {
+                return false;
+            }
+
+            budget -= tokenCost;
+            return true;
+        }
+    }
+}
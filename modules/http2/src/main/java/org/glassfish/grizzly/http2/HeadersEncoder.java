@@ -18,6 +18,7 @@ package org.glassfish.grizzly.http2;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http2.hpack.Encoder;
+import org.glassfish.grizzly.http2.hpack.IndexingEncoder;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
 
@@ -41,10 +42,21 @@ public class HeadersEncoder {
 
     private CompositeBuffer buffer;
 
+    // the header table size set by the peer, to be applied at the beginning
+    // of the next header block
+    private int pendingMaxHeaderTableSize = -1;
+
+    // the statistics are updated by the thread holding the session deflater lock
+    private volatile long headerBlocksCount;
+    private volatile long plainBytes;
+    private volatile long encodedBytes;
+    private volatile long encodingTimeNanos;
+    private long blockStartNanos;
+
     public HeadersEncoder(final MemoryManager memoryManager,
                           final int maxHeaderTableSize) {
         this.memoryManager = memoryManager;
-        hpackEncoder = new Encoder(maxHeaderTableSize);
+        hpackEncoder = new IndexingEncoder(maxHeaderTableSize);
     }
     
     public void encodeHeader(final String name, final String value, final Map<String,String> capture) {
@@ -52,10 +64,13 @@ public class HeadersEncoder {
             capture.put(name, value);
         }
         init();
+        final int startPosition = buffer.position();
         hpackEncoder.header(name, value);
         while (!hpackEncoder.encode(buffer)) {
             buffer.append(memoryManager.allocate(DEFAULT_BUFFER_SIZE));
         }
+        plainBytes += name.length() + value.length();
+        encodedBytes += buffer.position() - startPosition;
     }
     
     public Buffer flushHeaders() {
@@ -63,11 +78,70 @@ public class HeadersEncoder {
         bufferLocal.trim();
         buffer = null;
 
+        headerBlocksCount++;
+        encodingTimeNanos += System.nanoTime() - blockStartNanos;
+
         return bufferLocal;
     }
 
+    /**
+     * Sets the header table size, the peer's decoder is ready to use
+     * (<tt>SETTINGS_HEADER_TABLE_SIZE</tt>). The size is applied at the
+     * beginning of the next header block, so like the encoding the method
+     * has to be called holding the session deflater lock.
+     */
+    public void setMaxHeaderTableSize(final int maxHeaderTableSize) {
+        pendingMaxHeaderTableSize = maxHeaderTableSize;
+    }
+
+    /**
+     * @return the number of the encoded header blocks
+     */
+    public long getHeaderBlocksCount() {
+        return headerBlocksCount;
+    }
+
+    /**
+     * @return the total length of the encoded header names and values
+     */
+    public long getPlainBytes() {
+        return plainBytes;
+    }
+
+    /**
+     * @return the number of bytes the header names and values were encoded to
+     */
+    public long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    /**
+     * @return the ratio of the encoded bytes to the plain bytes, or <tt>1</tt>
+     * if nothing has been encoded yet
+     */
+    public double getCompressionRatio() {
+        final long plain = plainBytes;
+        return plain == 0 ? 1 : (double) encodedBytes / plain;
+    }
+
+    /**
+     * @return the time spent encoding the header blocks, in nanoseconds
+     */
+    public long getEncodingTimeNanos() {
+        return encodingTimeNanos;
+    }
+
     private void init() {
         if (buffer == null) {
+            blockStartNanos = System.nanoTime();
+
+            final int maxHeaderTableSize = pendingMaxHeaderTableSize;
+            if (maxHeaderTableSize != -1) {
+                pendingMaxHeaderTableSize = -1;
+                // the size update is encoded before the first header
+                hpackEncoder.setMaxCapacity(maxHeaderTableSize);
+            }
+
             buffer = CompositeBuffer.newBuffer(memoryManager);
             buffer.allowInternalBuffersDispose(true);
             buffer.allowBufferDispose(true);
@@ -58,6 +58,9 @@ import org.glassfish.grizzly.http2.frames.PushPromiseFrame;
 import org.glassfish.grizzly.http2.frames.RstStreamFrame;
 import org.glassfish.grizzly.http2.frames.SettingsFrame;
 import org.glassfish.grizzly.http2.frames.WindowUpdateFrame;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.grizzly.threadpool.Threads;
@@ -78,7 +81,8 @@ import org.glassfish.grizzly.http2.frames.PriorityFrame;
  * 
  * @author Grizzly team
  */
-public abstract class Http2BaseFilter extends HttpBaseFilter {
+public abstract class Http2BaseFilter extends HttpBaseFilter
+        implements MonitoringAware<Http2FloodProbe> {
     private final static Logger LOGGER = Grizzly.logger(Http2BaseFilter.class);
 
     /**
@@ -98,6 +102,12 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
     final Http2FrameCodec frameCodec = new Http2FrameCodec();
 
+    /**
+     * Flood probes
+     */
+    protected final DefaultMonitoringConfig<Http2FloodProbe> monitoringConfig =
+            new DefaultMonitoringConfig<>(Http2FloodProbe.class);
+
     private final Http2Configuration configuration;
     
     protected final ExecutorService threadPool;
@@ -137,6 +147,14 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         return configuration;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<Http2FloodProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
     protected boolean processFrames(final FilterChainContext ctx,
             final Http2Session http2Session,
             final List<Http2Frame> framesList) {
@@ -402,13 +420,21 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
         http2Session.checkFrameSequenceSemantics(frame);
 
+        final Http2FloodProbe.Flood flood =
+                http2Session.floodProtection.onFrame(frame, System.nanoTime());
+        if (flood != null) {
+            notifyProbesFlood(this, http2Session.getConnection(), flood);
+            throw new Http2SessionException(ErrorCode.ENHANCE_YOUR_CALM,
+                    "Frame limit exceeded: " + flood);
+        }
+
         switch (frame.getType()) {
             case DataFrame.TYPE: {
                 processDataFrame(http2Session, context, frame);
                 break;
             }
             case PriorityFrame.TYPE: {
-                processPriorityFrame(frame);
+                processPriorityFrame(http2Session, frame);
                 break;
             }
             case HeadersFrame.TYPE:
@@ -448,7 +474,25 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
     }
 
-    private void processPriorityFrame(final Http2Frame frame)
+    /**
+     * Notify registered {@link Http2FloodProbe}s about the "frame limit exceeded" event.
+     *
+     * @param filter the <tt>Http2BaseFilter</tt> event occurred on.
+     * @param connection {@link Connection}, the event belongs to.
+     * @param flood the exceeded limit.
+     */
+    protected static void notifyProbesFlood(final Http2BaseFilter filter,
+            final Connection connection, final Http2FloodProbe.Flood flood) {
+        final Http2FloodProbe[] probes = filter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (Http2FloodProbe probe : probes) {
+                probe.onFloodEvent(connection, flood);
+            }
+        }
+    }
+
+    private void processPriorityFrame(final Http2Session http2Session,
+            final Http2Frame frame)
     throws Http2SessionException, Http2StreamException {
         final int streamId = frame.getStreamId();
         try {
@@ -461,6 +505,12 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             if (streamId == ((PriorityFrame) frame).getStreamDependency()) {
                 throw new Http2SessionException(ErrorCode.PROTOCOL_ERROR, "PRIORITY frame dependent on itself.");
             }
+
+            final PriorityFrame priorityFrame = (PriorityFrame) frame;
+            http2Session.priorityTree.reprioritize(streamId,
+                    priorityFrame.getStreamDependency(),
+                    priorityFrame.getWeight() + 1,
+                    priorityFrame.isExclusive());
         } finally {
             frame.recycle();
         }
@@ -545,6 +595,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             
             switch (setting.getId()) {
                 case SettingsFrame.SETTINGS_HEADER_TABLE_SIZE:
+                    http2Session.setPeerHeaderTableSize(setting.getValue());
                     break;
                 case SettingsFrame.SETTINGS_ENABLE_PUSH:
                     final int val = setting.getValue();
@@ -588,6 +639,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         PingFrame pingFrame = (PingFrame) frame;
 
         if (pingFrame.isAckSet()) {
+            http2Session.onPingAck(pingFrame.getOpaqueData());
             return;
         }
 
@@ -625,6 +677,14 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             throw new Http2SessionException(ErrorCode.PROTOCOL_ERROR, "Illegal attempt to RST IDLE stream.");
         }
         
+        if (stream.isPushStream() && http2Session.getPushState() != null) {
+            final PushPolicy pushPolicy = getConfiguration().getPushPolicy();
+            if (pushPolicy != null) {
+                // the client likely has the resource cached
+                pushPolicy.onPushReset(http2Session.getPushState(), stream);
+            }
+        }
+
         // Notify the stream that it has been reset remotely
         stream.resetRemotely();
     }
@@ -1002,6 +1062,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
         // Always ACK the data to maintain flow-control state
         http2Session.ackConsumedData(data.remaining());
+        http2Session.onDataReceived(data.remaining());
 
         // If we're going away, ignore any frames for streams greater than the last stream ID from the goaway frame.
         if (ignoreFrameForStreamId(http2Session, streamId)) {
@@ -33,17 +33,26 @@ public class Http2Configuration {
     public static final float DEFAULT_STREAMS_HIGH_WATER_MARK = 0.5f;
     public static final float DEFAULT_STREAMS_CLEAN_PERCENTAGE = 0.5f;
     public static final int DEFAULT_CLEAN_FREQUENCY_CHECK = 50;
+    public static final int DEFAULT_MAX_RESETS_PER_SECOND = 200;
+    public static final int DEFAULT_MAX_CONTROL_FRAMES_PER_SECOND = 1000;
+    public static final int DEFAULT_MAX_CONTINUATION_FRAMES = 32;
 
     private volatile int maxConcurrentStreams;
     private volatile int initialWindowSize;
+    private volatile int maxWindowSize;
     private volatile int maxFramePayloadSize;
     private volatile int maxHeaderListSize;
     private volatile float streamsHighWaterMark;
     private volatile float cleanPercentage;
     private volatile int cleanFrequencyCheck;
+    private volatile int maxResetsPerSecond;
+    private volatile int maxControlFramesPerSecond;
+    private volatile int maxHeaderBlockSize;
+    private volatile int maxContinuationFrames;
     private volatile boolean disableCipherCheck;
     private volatile boolean priorKnowledge;
     private volatile boolean pushEnabled;
+    private volatile PushPolicy pushPolicy;
     private final ExecutorService executorService;
     private final ThreadPoolConfig threadPoolConfig;
 
@@ -54,6 +63,7 @@ public class Http2Configuration {
     private Http2Configuration(final Http2ConfigurationBuilder builder) {
         maxConcurrentStreams = builder.maxConcurrentStreams;
         initialWindowSize = builder.initialWindowSize;
+        maxWindowSize = builder.maxWindowSize;
         maxFramePayloadSize = builder.maxFramePayloadSize;
         maxHeaderListSize = builder.maxHeaderListSize;
         disableCipherCheck = builder.disableCipherCheck;
@@ -61,9 +71,14 @@ public class Http2Configuration {
         threadPoolConfig = builder.threadPoolConfig;
         executorService = builder.executorService;
         pushEnabled = builder.pushEnabled;
+        pushPolicy = builder.pushPolicy;
         streamsHighWaterMark = builder.streamsHighWaterMark;
         cleanPercentage = builder.cleanPercentage;
         cleanFrequencyCheck = builder.cleanFrequencyCheck;
+        maxResetsPerSecond = builder.maxResetsPerSecond;
+        maxControlFramesPerSecond = builder.maxControlFramesPerSecond;
+        maxHeaderBlockSize = builder.maxHeaderBlockSize;
+        maxContinuationFrames = builder.maxContinuationFrames;
     }
 
 
@@ -107,6 +122,27 @@ public class Http2Configuration {
         this.initialWindowSize = initialWindowSize;
     }
 
+    /**
+     * @return the maximum receive window size (in bytes) the connection and
+     *          stream windows may grow to, or <tt>-1</tt> if the windows
+     *          aren't tuned.
+     */
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * Sets the maximum receive window size (in bytes) for new HTTP2 connections.
+     * If the value is greater than the initial window size, the connection
+     * and stream receive windows grow up to this value based on the estimated
+     * bandwidth-delay product of the connection. The value also bounds the
+     * amount of data buffered per stream for the slow consumers.
+     * <tt>-1</tt> (default) disables the window tuning.
+     */
+    public void setMaxWindowSize(final int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+    }
+
     /**
      * @return the maximum allowed HTTP2 frame payload size.
      */
@@ -184,6 +220,24 @@ public class Http2Configuration {
         this.pushEnabled = pushEnabled;
     }
 
+    /**
+     * @return the {@link PushPolicy}, which filters the resources pushed by
+     *  the server endpoint, or <code>null</code> (the default) if every push
+     *  is honoured.
+     */
+    public PushPolicy getPushPolicy() {
+        return pushPolicy;
+    }
+
+    /**
+     * Configure the {@link PushPolicy}, which filters the resources pushed
+     * by the server endpoint. The change is applied to the new connections.
+     * The policy is not installed by default, <code>null</code> disables it.
+     */
+    public void setPushPolicy(final PushPolicy pushPolicy) {
+        this.pushPolicy = pushPolicy;
+    }
+
     /**
      * @return the high-water mark indicating streams old closed streams should be cleaned up.
      *  If not explicitly configured, this returns {@value #DEFAULT_STREAMS_HIGH_WATER_MARK}.
@@ -215,7 +269,8 @@ public class Http2Configuration {
      * will ultimately be removed.  This value is applied against the computed result for the streams high water
      * mark.  For example, if the max concurrent streams is 100 and the mark percentage is .5, then the high water mark
      * for a clean attempt would be 50.  The number of streams to process in the clean attempt, assuming the clean
-     * percentage is .5, would be 25.
+     * percentage is .5, would be 25.  The clean attempt is spread over the {@link #getCleanFrequencyCheck()} stream
+     * closes, so every close removes a few of the oldest closed streams.
      */
     public void setCleanPercentage(final float cleanPercentage) {
         this.cleanPercentage = cleanPercentage;
@@ -231,12 +286,84 @@ public class Http2Configuration {
 
     /**
      * Set the number of streams that must be closed before checking if the number of streams exceeds the high-water
-     * mark.
+     * mark.  Together with the {@link #setCleanPercentage(float) clean percentage} it defines how many of the
+     * oldest closed streams are removed on every stream close.
      */
     public void setCleanFrequencyCheck(final int cleanFrequencyCheck) {
         this.cleanFrequencyCheck = cleanFrequencyCheck;
     }
 
+    /**
+     * @return the maximum number of <tt>RST_STREAM</tt> frames a peer may send
+     *  per second, before the session is terminated with <tt>ENHANCE_YOUR_CALM</tt>.
+     *  If not explicitly configured, this returns {@value #DEFAULT_MAX_RESETS_PER_SECOND}.
+     */
+    public int getMaxResetsPerSecond() {
+        return maxResetsPerSecond;
+    }
+
+    /**
+     * Set the maximum number of <tt>RST_STREAM</tt> frames a peer may send per second,
+     * protecting against the rapid reset attack. Non-positive value disables the limit.
+     */
+    public void setMaxResetsPerSecond(final int maxResetsPerSecond) {
+        this.maxResetsPerSecond = maxResetsPerSecond;
+    }
+
+    /**
+     * @return the maximum number of <tt>SETTINGS</tt>, <tt>PING</tt>, <tt>PRIORITY</tt>
+     *  and empty <tt>DATA</tt> frames a peer may send per second, before the session is
+     *  terminated with <tt>ENHANCE_YOUR_CALM</tt>.
+     *  If not explicitly configured, this returns {@value #DEFAULT_MAX_CONTROL_FRAMES_PER_SECOND}.
+     */
+    public int getMaxControlFramesPerSecond() {
+        return maxControlFramesPerSecond;
+    }
+
+    /**
+     * Set the maximum number of <tt>SETTINGS</tt>, <tt>PING</tt>, <tt>PRIORITY</tt>
+     * and empty <tt>DATA</tt> frames a peer may send per second.
+     * Non-positive value disables the limit.
+     */
+    public void setMaxControlFramesPerSecond(final int maxControlFramesPerSecond) {
+        this.maxControlFramesPerSecond = maxControlFramesPerSecond;
+    }
+
+    /**
+     * @return the maximum size, in bytes, of a compressed header block including
+     *  its <tt>CONTINUATION</tt> frames. If not explicitly configured, this returns
+     *  <tt>-1</tt>, which means four times the {@link #getMaxHeaderListSize()}.
+     */
+    public int getMaxHeaderBlockSize() {
+        return maxHeaderBlockSize;
+    }
+
+    /**
+     * Set the maximum size, in bytes, of a compressed header block including its
+     * <tt>CONTINUATION</tt> frames. Unlike the {@link #setMaxHeaderListSize(int) header list size},
+     * which makes the request fail, exceeding the header block size terminates the session.
+     */
+    public void setMaxHeaderBlockSize(final int maxHeaderBlockSize) {
+        this.maxHeaderBlockSize = maxHeaderBlockSize;
+    }
+
+    /**
+     * @return the maximum number of <tt>CONTINUATION</tt> frames per header block.
+     *  If not explicitly configured, this returns {@value #DEFAULT_MAX_CONTINUATION_FRAMES}.
+     */
+    public int getMaxContinuationFrames() {
+        return maxContinuationFrames;
+    }
+
+    /**
+     * Set the maximum number of <tt>CONTINUATION</tt> frames per header block,
+     * protecting against the floods of empty <tt>CONTINUATION</tt> frames.
+     * Negative value disables the limit.
+     */
+    public void setMaxContinuationFrames(final int maxContinuationFrames) {
+        this.maxContinuationFrames = maxContinuationFrames;
+    }
+
     /**
      * @return the thread pool configuration for servicing HTTP/2 streams, if any.
      */
@@ -257,14 +384,20 @@ public class Http2Configuration {
     public static final class Http2ConfigurationBuilder {
         private int maxConcurrentStreams = -1;
         private int initialWindowSize = -1;
+        private int maxWindowSize = -1;
         private int maxFramePayloadSize = -1;
         private int maxHeaderListSize = DEFAULT_MAX_HEADER_LIST_SIZE;
         private boolean disableCipherCheck;
         private boolean priorKnowledge;
         private boolean pushEnabled = true;
+        private PushPolicy pushPolicy;
         private float streamsHighWaterMark = DEFAULT_STREAMS_HIGH_WATER_MARK;
         private float cleanPercentage = DEFAULT_STREAMS_CLEAN_PERCENTAGE;
         private int cleanFrequencyCheck = DEFAULT_CLEAN_FREQUENCY_CHECK;
+        private int maxResetsPerSecond = DEFAULT_MAX_RESETS_PER_SECOND;
+        private int maxControlFramesPerSecond = DEFAULT_MAX_CONTROL_FRAMES_PER_SECOND;
+        private int maxHeaderBlockSize = -1;
+        private int maxContinuationFrames = DEFAULT_MAX_CONTINUATION_FRAMES;
         private ThreadPoolConfig threadPoolConfig;
         private ExecutorService executorService;
 
@@ -287,6 +420,14 @@ public class Http2Configuration {
             return this;
         }
 
+        /**
+         * @see #setMaxWindowSize(int)
+         */
+        public Http2ConfigurationBuilder maxWindowSize(final int val) {
+            maxWindowSize = val;
+            return this;
+        }
+
         /**
          * @see #setMaxFramePayloadSize(int)
          */
@@ -346,6 +487,14 @@ public class Http2Configuration {
             return this;
         }
 
+        /**
+         * @see #setPushPolicy(PushPolicy)
+         */
+        public Http2ConfigurationBuilder pushPolicy(final PushPolicy val) {
+            pushPolicy = val;
+            return this;
+        }
+
         /**
          * @see #setStreamsHighWaterMark(float)
          */
@@ -370,6 +519,38 @@ public class Http2Configuration {
             return this;
         }
 
+        /**
+         * @see #setMaxResetsPerSecond(int)
+         */
+        public Http2ConfigurationBuilder maxResetsPerSecond(final int val) {
+            maxResetsPerSecond = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxControlFramesPerSecond(int)
+         */
+        public Http2ConfigurationBuilder maxControlFramesPerSecond(final int val) {
+            maxControlFramesPerSecond = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxHeaderBlockSize(int)
+         */
+        public Http2ConfigurationBuilder maxHeaderBlockSize(final int val) {
+            maxHeaderBlockSize = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxContinuationFrames(int)
+         */
+        public Http2ConfigurationBuilder maxContinuationFrames(final int val) {
+            maxContinuationFrames = val;
+            return this;
+        }
+
         /**
          * @return a new {@link Http2Configuration} instances based on the values of this builder.
          */
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by the
+ * {@link Http2BaseFilter}, when a peer exceeds the frame limits configured
+ * in {@link Http2Configuration}. The {@link Http2Session} is terminated with
+ * <tt>GOAWAY(ENHANCE_YOUR_CALM)</tt> right after the event.
+ *
+ * @since 2.4.4
+ */
+public interface Http2FloodProbe {
+
+    /**
+     * The kind of the frame limit, which has been exceeded.
+     */
+    enum Flood {
+        /**
+         * Too many <tt>RST_STREAM</tt> frames per second (rapid reset).
+         */
+        RST_STREAM,
+        /**
+         * Too many <tt>SETTINGS</tt>, <tt>PING</tt>, <tt>PRIORITY</tt> or
+         * empty <tt>DATA</tt> frames per second.
+         */
+        CONTROL_FRAMES,
+        /**
+         * The header block is too large.
+         */
+        HEADER_BLOCK,
+        /**
+         * Too many <tt>CONTINUATION</tt> frames in a header block.
+         */
+        CONTINUATION_FRAMES
+    }
+
+    /**
+     * Method will be called, when the peer exceeded a frame limit.
+     *
+     * @param connection {@link Connection}, the event belongs to.
+     * @param flood the kind of the exceeded limit.
+     */
+    void onFloodEvent(Connection connection, Flood flood);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link Http2FloodProbe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    class Adapter implements Http2FloodProbe {
+
+
+        // ---------------------------------------- Methods from Http2FloodProbe
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFloodEvent(Connection connection, Flood flood) {}
+
+    } // END Adapter
+}
@@ -20,8 +20,10 @@ import java.util.ArrayList;
 import java.util.List;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.filterchain.Filter;
+import org.glassfish.grizzly.http2.frames.DataFrame;
 import org.glassfish.grizzly.http2.frames.Http2Frame;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
 
 /**
@@ -32,6 +34,10 @@ import org.glassfish.grizzly.memory.MemoryManager;
  */
 public class Http2FrameCodec {
 
+    // the DATA payloads up to this size are copied next to the frame header
+    // rather than referenced by a CompositeBuffer
+    private static final int MAX_COPIED_DATA_SIZE = 1024;
+
     /**
      *
      * @param http2Session the {@link Http2Session} from which the source buffer was obtained.
@@ -101,23 +107,77 @@ public class Http2FrameCodec {
         return resultBuffer;
     }
 
+    /**
+     * Serializes the frames to a single {@link Buffer} to be written at once.
+     *
+     * The headers of the {@link DataFrame}s are written in place to a buffer
+     * shared by the frames, the small DATA payloads are copied next to their
+     * headers, and the bigger payloads are referenced by the result
+     * {@link CompositeBuffer}.
+     */
     public Buffer serializeAndRecycle(final Http2Session http2Session,
             final List<Http2Frame> frames) {
 
-        Buffer resultBuffer = null;
-
+        final MemoryManager memoryManager = http2Session.getMemoryManager();
         final int framesCount = frames.size();
 
+        int sharedSize = 0;
+        for (int i = 0; i < framesCount; i++) {
+            final Http2Frame frame = frames.get(i);
+            if (frame.getType() == DataFrame.TYPE) {
+                final DataFrame dataFrame = (DataFrame) frame;
+                sharedSize += dataFrame.getHeaderLength();
+                if (isCopied(dataFrame.getData())) {
+                    sharedSize += dataFrame.getData().remaining();
+                }
+            }
+        }
+
+        Buffer shared = sharedSize > 0 ? memoryManager.allocate(sharedSize) : null;
+        Buffer resultBuffer = null;
+
         for (int i = 0; i < framesCount; i++) {
             final Http2Frame frame = frames.get(i);
             NetLogger.log(NetLogger.Context.TX, http2Session, frame);
-            final Buffer buffer = frame.toBuffer(http2Session.getMemoryManager());
+
+            if (frame.getType() == DataFrame.TYPE) {
+                final DataFrame dataFrame = (DataFrame) frame;
+                final Buffer data = dataFrame.getData();
+                dataFrame.serializeHeaderTo(shared);
+
+                if (isCopied(data)) {
+                    shared.put(data);
+                    data.tryDispose();
+                } else {
+                    final Buffer serialized = shared;
+                    shared = serialized.split(serialized.position());
+                    serialized.flip();
+                    resultBuffer = append(memoryManager, resultBuffer, serialized);
+                    resultBuffer = append(memoryManager, resultBuffer, data);
+                }
+            } else {
+                if (shared != null && shared.position() > 0) {
+                    final Buffer serialized = shared;
+                    shared = serialized.split(serialized.position());
+                    serialized.flip();
+                    resultBuffer = append(memoryManager, resultBuffer, serialized);
+                }
+                resultBuffer = append(memoryManager, resultBuffer,
+                        frame.toBuffer(memoryManager));
+            }
+
             frame.recycle();
+        }
 
-            resultBuffer = Buffers.appendBuffers(http2Session.getMemoryManager(),
-                    resultBuffer, buffer);
+        if (shared != null) {
+            if (shared.position() > 0) {
+                shared.flip();
+                resultBuffer = append(memoryManager, resultBuffer, shared);
+            } else {
+                shared.tryDispose();
+            }
         }
-        
+
         frames.clear();
         
         return resultBuffer;
@@ -125,6 +185,29 @@ public class Http2FrameCodec {
     
     // --------------------------------------------------------- Private Methods
 
+    private static boolean isCopied(final Buffer data) {
+        return data.remaining() <= MAX_COPIED_DATA_SIZE;
+    }
+
+    private static Buffer append(final MemoryManager memoryManager,
+            final Buffer resultBuffer, final Buffer buffer) {
+        if (resultBuffer == null) {
+            return buffer;
+        }
+
+        if (resultBuffer.isComposite()
+                && resultBuffer.capacity() == resultBuffer.limit()) {
+            ((CompositeBuffer) resultBuffer).append(buffer);
+            return resultBuffer;
+        }
+
+        final CompositeBuffer cb = CompositeBuffer.newBuffer(
+                memoryManager, resultBuffer, buffer);
+        cb.allowBufferDispose(true);
+        cb.allowInternalBuffersDispose(true);
+        return cb;
+    }
+
     private ParsingResult parseFrame(final Http2Session http2Session,
             final FrameParsingState state,
             final Buffer buffer) throws Http2SessionException {
@@ -55,6 +55,7 @@ import org.glassfish.grizzly.http.server.http2.PushEvent;
 import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
+import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.http2.NetLogger.Context;
 import org.glassfish.grizzly.http2.frames.ErrorCode;
 import org.glassfish.grizzly.http2.frames.HeaderBlockHead;
@@ -78,6 +79,23 @@ import static org.glassfish.grizzly.http2.Termination.IN_FIN_TERMINATION;
 public class Http2ServerFilter extends Http2BaseFilter {
     private final static Logger LOGGER = Grizzly.logger(Http2ServerFilter.class);
 
+    // RFC 9218 extensible priority request header
+    private static final String PRIORITY_HEADER = "priority";
+
+    // the page request headers, which don't apply to the pushed resources
+    private static final Header[] AUTO_PUSH_REMOVED_HEADERS = {
+            Header.ETag,
+            Header.IfModifiedSince,
+            Header.IfNoneMatch,
+            Header.IfRange,
+            Header.IfUnmodifiedSince,
+            Header.IfMatch,
+            Header.LastModified,
+            Header.Range,
+            Header.Authorization,
+            Header.ProxyAuthorization
+    };
+
     private static final String[] CIPHER_SUITE_BLACK_LIST = {
             "TLS_NULL_WITH_NULL_NULL",
             "TLS_RSA_WITH_NULL_MD5",
@@ -842,7 +860,9 @@ public class Http2ServerFilter extends Http2BaseFilter {
                                               headersFrame.getStreamId(),
                                               headersFrame.getStreamDependency(),
                                               headersFrame.isExclusive(),
-                                              0);
+                                              headersFrame.isPrioritized()
+                                                      ? headersFrame.getWeight() + 1
+                                                      : 0);
         if (stream == null) { // GOAWAY has been sent, so ignoring this request
             request.recycle();
             return;
@@ -870,6 +890,8 @@ public class Http2ServerFilter extends Http2BaseFilter {
             processOutgoingHttpHeader(context, http2Session, header, response);
             return;
         }
+        http2Session.priorityTree.setPriorityField(stream.getId(),
+                request.getHeader(PRIORITY_HEADER));
         onHttpHeadersParsed(request, context);
         request.getHeaders().mark();
 
@@ -888,6 +910,16 @@ public class Http2ServerFilter extends Http2BaseFilter {
             stream.inputBuffer.terminate(IN_FIN_TERMINATION);
         }
 
+        final PushPolicy pushPolicy = getConfiguration().getPushPolicy();
+        if (pushPolicy != null && http2Session.getPushState() != null) {
+            final List<String> pushResources = pushPolicy.onRequest(
+                    http2Session.getPushState(), request, System.currentTimeMillis());
+            if (pushResources != null && !pushResources.isEmpty()
+                    && http2Session.isPushEnabled()) {
+                autoPush(context, http2Session, stream, request, pushResources);
+            }
+        }
+
         sendUpstream(http2Session,
                      stream,
                      request.httpContentBuilder().content(Buffers.EMPTY_BUFFER).last(!isExpectContent).build());
@@ -963,6 +995,11 @@ public class Http2ServerFilter extends Http2BaseFilter {
 
         if (!response.isCommitted()) {
             prepareOutgoingResponse(response);
+
+            final PushPolicy pushPolicy = getConfiguration().getPushPolicy();
+            if (pushPolicy != null) {
+                pushPolicy.onResponse(stream.getRequest(), response);
+            }
         }
 
         final FilterChainContext.TransportContext transportContext = ctx.getTransportContext();
@@ -989,89 +1026,139 @@ public class Http2ServerFilter extends Http2BaseFilter {
             if (parentStream == null) {
                 return;
             }
-            final String eventPath = pushEvent.getPath();
-            String path = eventPath;
-            String query = null;
-            final int idx = eventPath.indexOf('?');
-            if (idx != -1) {
-                path = eventPath.substring(0, idx);
-                query = eventPath.substring(idx + 1);
+
+            push(ctx, http2Session, parentStream, pushEvent.getMethod(),
+                    pushEvent.getPath(), pushEvent.getHeaders(), source.isSecure());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE,
+                    "Unable to push resource identified by path [{0}]", pushEvent.getPath());
+            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+        } finally {
+            pushEvent.recycle();
+            ctx.resume(ctx.getStopAction());
+        }
+    }
+
+    /**
+     * Pushes the resources the {@link PushPolicy} learned for the page
+     * requested on the stream.
+     */
+    private void autoPush(final FilterChainContext ctx,
+            final Http2Session http2Session, final Http2Stream stream,
+            final HttpRequestPacket request, final List<String> paths) {
+        final MimeHeaders headers = new MimeHeaders();
+        headers.copyFrom(request.getHeaders());
+        for (Header header : AUTO_PUSH_REMOVED_HEADERS) {
+            headers.removeHeader(header);
+        }
+        headers.setValue(Header.Referer).setString(
+                (request.isSecure() ? "https://" : "http://")
+                + request.getHeader(Header.Host) + request.getRequestURI());
+
+        for (int i = 0, len = paths.size(); i < len; i++) {
+            try {
+                push(ctx, http2Session, stream, Method.GET.getMethodString(),
+                        paths.get(i), headers, request.isSecure());
+            } catch (Exception e) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Unable to push resource identified by path ["
+                            + paths.get(i) + "]", e);
+                }
             }
-            final Http2Request request = Http2Request.create();
-            request.setAttribute(Http2Stream.HTTP2_PARENT_STREAM_ATTRIBUTE, parentStream);
-            request.setConnection(ctx.getConnection());
-            request.getRequestURIRef().init(path);
-            request.getQueryStringDC().setString(query);
-            request.setProtocol(Protocol.HTTP_2_0);
-            request.setMethod(pushEvent.getMethod());
-            request.setSecure(pushEvent.getHttpRequest().isSecure());
-            request.getHeaders().copyFrom(pushEvent.getHeaders());
-            request.setExpectContent(false);
+        }
+    }
 
-            prepareOutgoingRequest(request);
-            prepareOutgoingResponse(request.getResponse());
-            final Http2Stream pushStream;
+    private void push(final FilterChainContext ctx,
+            final Http2Session http2Session, final Http2Stream parentStream,
+            final String method, final String eventPath,
+            final MimeHeaders headers, final boolean isSecure)
+            throws IOException {
+
+        final PushPolicy pushPolicy = getConfiguration().getPushPolicy();
+        final PushPolicy.SessionState pushState = http2Session.getPushState();
+        if (pushPolicy != null && pushState != null
+                && !pushPolicy.onPush(pushState, parentStream, eventPath)) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "[{0}, {1}] Push of [{2}] is declined by the push policy",
+                        new Object[]{http2Session, parentStream.getId(), eventPath});
+            }
+            return;
+        }
+
+        String path = eventPath;
+        String query = null;
+        final int idx = eventPath.indexOf('?');
+        if (idx != -1) {
+            path = eventPath.substring(0, idx);
+            query = eventPath.substring(idx + 1);
+        }
+        final Http2Request request = Http2Request.create();
+        request.setAttribute(Http2Stream.HTTP2_PARENT_STREAM_ATTRIBUTE, parentStream);
+        request.setConnection(ctx.getConnection());
+        request.getRequestURIRef().init(path);
+        request.getQueryStringDC().setString(query);
+        request.setProtocol(Protocol.HTTP_2_0);
+        request.setMethod(method);
+        request.setSecure(isSecure);
+        request.getHeaders().copyFrom(headers);
+        request.setExpectContent(false);
+        if (pushState != null) {
+            request.setAttribute(PushPolicy.PUSH_PAGE_ATTRIBUTE,
+                    parentStream.getRequest().getRequestURI());
+        }
 
-            http2Session.getNewClientStreamLock().lock();
+        prepareOutgoingRequest(request);
+        prepareOutgoingResponse(request.getResponse());
+        final Http2Stream pushStream;
+
+        http2Session.getNewClientStreamLock().lock();
+        try {
+            pushStream = http2Session.openStream(
+                    request,
+                    http2Session.getNextLocalStreamId(), parentStream.getId(),
+                    false, 0);
+            pushStream.inputBuffer.terminate(IN_FIN_TERMINATION);
+
+            http2Session.getDeflaterLock().lock();
             try {
-                pushStream = http2Session.openStream(
-                        request,
-                        http2Session.getNextLocalStreamId(), parentStream.getId(),
-                        false, 0);
-                pushStream.inputBuffer.terminate(IN_FIN_TERMINATION);
-
-                http2Session.getDeflaterLock().lock();
-                try {
-                    boolean logging = NetLogger.isActive();
-                    final Map<String,String> capture = ((logging) ? new LinkedHashMap<>() : null);
-                    List<Http2Frame> pushPromiseFrames =
-                            http2Session.encodeHttpRequestAsPushPromiseFrames(
-                                    ctx, pushStream.getRequest(), parentStream.getId(),
-                                    pushStream.getId(), null, capture);
-                    if (logging) {
-                        for (Http2Frame http2Frame : pushPromiseFrames) {
-                            if (http2Frame.getType() == PushPromiseFrame.TYPE) {
-                                NetLogger.log(Context.TX, http2Session, (PushPromiseFrame) http2Frame, capture);
-                                break;
-                            }
+                boolean logging = NetLogger.isActive();
+                final Map<String,String> capture = ((logging) ? new LinkedHashMap<>() : null);
+                List<Http2Frame> pushPromiseFrames =
+                        http2Session.encodeHttpRequestAsPushPromiseFrames(
+                                ctx, pushStream.getRequest(), parentStream.getId(),
+                                pushStream.getId(), null, capture);
+                if (logging) {
+                    for (Http2Frame http2Frame : pushPromiseFrames) {
+                        if (http2Frame.getType() == PushPromiseFrame.TYPE) {
+                            NetLogger.log(Context.TX, http2Session, (PushPromiseFrame) http2Frame, capture);
+                            break;
                         }
                     }
-                    http2Session.getOutputSink().writeDownStream(pushPromiseFrames);
-
-                } finally {
-                    pushStream.onSendPushPromise();
-                    http2Session.getDeflaterLock().unlock();
                 }
+                http2Session.getOutputSink().writeDownStream(pushPromiseFrames);
+
             } finally {
-                http2Session.getNewClientStreamLock().unlock();
+                pushStream.onSendPushPromise();
+                http2Session.getDeflaterLock().unlock();
             }
-
-            request.getProcessingState().setHttpContext(
-                    HttpContext.newInstance(pushStream, pushStream, pushStream, request));
-            // now send the request upstream...
-
-            submit(ctx.getConnection(), new Runnable() {
-                @Override
-                public void run() {
-                    http2Session.sendMessageUpstream(pushStream,
-                                            HttpContent
-                                                .builder(request)
-                                                .content(Buffers.EMPTY_BUFFER)
-                                                    .build());
-                }
-            });
-
-
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE,
-                    "Unable to push resource identified by path [{0}]", pushEvent.getPath());
-            LOGGER.log(Level.SEVERE, e.getMessage(), e);
         } finally {
-            pushEvent.recycle();
-            ctx.resume(ctx.getStopAction());
+            http2Session.getNewClientStreamLock().unlock();
         }
 
-
+        request.getProcessingState().setHttpContext(
+                HttpContext.newInstance(pushStream, pushStream, pushStream, request));
+        // now send the request upstream...
+
+        submit(ctx.getConnection(), new Runnable() {
+            @Override
+            public void run() {
+                http2Session.sendMessageUpstream(pushStream,
+                                        HttpContent
+                                            .builder(request)
+                                            .content(Buffers.EMPTY_BUFFER)
+                                                .build());
+            }
+        });
     }
 
     private void submit(final Connection c, final Runnable runnable) {
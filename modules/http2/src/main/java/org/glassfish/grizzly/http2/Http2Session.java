@@ -17,12 +17,11 @@
 package org.glassfish.grizzly.http2;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReentrantLock;
@@ -47,6 +46,7 @@ import org.glassfish.grizzly.http2.frames.DataFrame;
 import org.glassfish.grizzly.http2.frames.PingFrame;
 import org.glassfish.grizzly.http2.frames.PriorityFrame;
 import org.glassfish.grizzly.http2.frames.UnknownFrame;
+import org.glassfish.grizzly.http2.utils.IntHashMap;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.http.HttpContent;
@@ -91,7 +91,7 @@ public class Http2Session {
     Http2State http2State;
 
     private HeadersDecoder headersDecoder;
-    private HeadersEncoder headersEncoder;
+    private volatile HeadersEncoder headersEncoder;
 
     private final ReentrantLock deflaterLock = new ReentrantLock();
 
@@ -109,7 +109,15 @@ public class Http2Session {
     @SuppressWarnings("unused")
     private volatile int concurrentStreamsCount;
 
-    private final TreeMap<Integer, Http2Stream> streamsMap = new TreeMap<>();
+    // the lookups are lock-free, the updates are done under sessionLock
+    private final IntHashMap<Http2Stream> streamsMap = new IntHashMap<>();
+
+    // the ids of the closed streams, which are still in the streamsMap,
+    // in the closing order. Guarded by sessionLock.
+    private final ArrayDeque<Integer> closedStreams = new ArrayDeque<>();
+
+    // the stream priorities, which are used to schedule the output DATA frames
+    final StreamPriorityTree priorityTree = new StreamPriorityTree();
 
     // (Optimization) We may read several DataFrames belonging to the same
     // Http2Stream, so in order to not process every DataFrame separately -
@@ -140,7 +148,6 @@ public class Http2Session {
     private final Http2Configuration http2Configuration;
 
     private volatile int streamsHighWaterMark;
-    private int checkCount;
 
     private int goingAwayLastStreamId = Integer.MIN_VALUE;
     private FutureImpl<Http2Session> sessionClosed;
@@ -174,6 +181,15 @@ public class Http2Session {
 
     private final AtomicInteger unackedReadBytes  = new AtomicInteger();
 
+    // null, if the receive windows aren't tuned
+    private final ReceiveWindowTuner windowTuner;
+
+    // the frame limits accounting
+    final FloodProtection floodProtection;
+
+    // null, if the server push isn't governed by a PushPolicy
+    private final PushPolicy.SessionState pushState;
+
     public Http2Session(final Connection<?> connection,
                         final boolean isServer,
                         final Http2BaseFilter handlerFilter) {
@@ -206,6 +222,27 @@ public class Http2Session {
 
         maxHeaderListSize = handlerFilter.getConfiguration().getMaxHeaderListSize();
 
+        final int initialWindowSize = http2Configuration.getInitialWindowSize() != -1
+                ? http2Configuration.getInitialWindowSize()
+                : getDefaultStreamWindowSize();
+        windowTuner = http2Configuration.getMaxWindowSize() > initialWindowSize
+                ? new ReceiveWindowTuner(initialWindowSize,
+                        http2Configuration.getMaxWindowSize())
+                : null;
+
+        final int maxHeaderBlockSize = http2Configuration.getMaxHeaderBlockSize() != -1
+                ? http2Configuration.getMaxHeaderBlockSize()
+                : (int) Math.min(Integer.MAX_VALUE, 4L * http2Configuration.getMaxHeaderListSize());
+        floodProtection = new FloodProtection(
+                http2Configuration.getMaxResetsPerSecond(),
+                http2Configuration.getMaxControlFramesPerSecond(),
+                maxHeaderBlockSize,
+                http2Configuration.getMaxContinuationFrames());
+
+        pushState = isServer && http2Configuration.getPushPolicy() != null
+                ? new PushPolicy.SessionState()
+                : null;
+
         if (isServer) {
             lastLocalStreamId = 0;
             lastPeerStreamId = -1;
@@ -449,7 +486,9 @@ public class Http2Session {
             this.peerStreamWindowSize = peerStreamWindowSize;
 
             if (!streamsMap.isEmpty()) {
-                for (final Http2Stream stream : streamsMap.values()) {
+                final List<Http2Stream> streams = streamsMap.values();
+                for (int i = 0; i < streams.size(); i++) {
+                    final Http2Stream stream = streams.get(i);
                     if (stream.isClosed()) {
                         continue;
                     }
@@ -487,13 +526,13 @@ public class Http2Session {
      */
     public void setLocalMaxConcurrentStreams(int localMaxConcurrentStreams) {
         this.localMaxConcurrentStreams = localMaxConcurrentStreams;
+        priorityTree.setMaxIdleNodes(localMaxConcurrentStreams);
         streamsHighWaterMark = Float.valueOf(localMaxConcurrentStreams * 0.5f).intValue();
     }
 
     /**
      * @return the maximum number of concurrent streams allowed for this session by peer.
      */
-    @SuppressWarnings("unused")
     public int getPeerMaxConcurrentStreams() {
         return peerMaxConcurrentStreams;
     }
@@ -505,6 +544,14 @@ public class Http2Session {
         this.peerMaxConcurrentStreams = peerMaxConcurrentStreams;
     }
 
+    /**
+     * @return the {@link PushPolicy} state of this {@link Http2Session},
+     *  or <code>null</code> if the push isn't governed by a {@link PushPolicy}.
+     */
+    PushPolicy.SessionState getPushState() {
+        return pushState;
+    }
+
     /**
      * @return <code>true</code> if push is enabled for this {@link Http2Session}, otherwise
      *  returns <code>false</code>.  Push is enabled by default.
@@ -676,18 +723,16 @@ public class Http2Session {
         // close streams that rank above the last stream ID specified by the GOAWAY frame.
         // Allow other streams to continue processing.  Once the concurrent stream count reaches zero,
         // the session will be closed.
-        Map<Integer, Http2Stream> invalidStreams =
-                streamsMap.subMap(goingAwayLastStreamId,
-                        false,
-                        Integer.MAX_VALUE,
-                        true);
-        if (!invalidStreams.isEmpty()) {
-            // needs to iterate over copied list to prevent
-            // bug #1995 - ConcurrentModificationException
-            List<Http2Stream> closedStreams = new ArrayList<>(invalidStreams.values());
-            for (final Http2Stream stream : closedStreams) {
-                stream.closedRemotely();
-                deregisterStream();
+        // iterate over the keys snapshot to prevent
+        // bug #1995 - ConcurrentModificationException
+        final int[] streamIds = streamsMap.keys();
+        for (final int streamId : streamIds) {
+            if (streamId > goingAwayLastStreamId) {
+                final Http2Stream stream = streamsMap.get(streamId);
+                if (stream != null) {
+                    stream.closedRemotely();
+                    deregisterStream(streamId);
+                }
             }
         }
     }
@@ -711,7 +756,11 @@ public class Http2Session {
         }
     }
 
-    boolean isGoingAway() {
+    /**
+     * @return <tt>true</tt> if GOAWAY has been sent or received, so no new
+     *          streams can be opened on this session.
+     */
+    public boolean isGoingAway() {
         return (closeFlag != null);
     }
 
@@ -728,6 +777,80 @@ public class Http2Session {
         outputSink.writeDownStream(f);
     }
 
+    /**
+     * Sends the connection and the stream WINDOW_UPDATEs in a single write.
+     */
+    private void sendWindowUpdates(final int connectionDelta,
+            final int streamId, final int streamDelta) {
+        final List<Http2Frame> frames = new ArrayList<>(2);
+        frames.add(WindowUpdateFrame.builder()
+                .streamId(0)
+                .windowSizeIncrement(connectionDelta)
+                .build());
+        frames.add(WindowUpdateFrame.builder()
+                .streamId(streamId)
+                .windowSizeIncrement(streamDelta)
+                .build());
+        outputSink.writeDownStream(frames);
+    }
+
+    /**
+     * Accounts the DATA frame received by the connection. If the receive
+     * window tuning is enabled, the data may start the bandwidth-delay product
+     * sample.
+     *
+     * @param size the DATA frame payload size
+     */
+    void onDataReceived(final int size) {
+        if (windowTuner != null && isPrefaceSent
+                && windowTuner.onDataReceived(size, System.nanoTime())) {
+            outputSink.writeDownStream(PingFrame.builder()
+                    .opaqueData(ReceiveWindowTuner.BDP_PING_DATA)
+                    .build());
+        }
+    }
+
+    /**
+     * Processes the PING acknowledgement. If it completes the bandwidth-delay
+     * product sample and the receive window has to grow - the new initial
+     * stream window is sent in SETTINGS and the connection window is extended
+     * by WINDOW_UPDATE, both in a single write.
+     *
+     * @param opaqueData the PING opaque data
+     */
+    void onPingAck(final long opaqueData) {
+        if (windowTuner == null
+                || opaqueData != ReceiveWindowTuner.BDP_PING_DATA) {
+            return;
+        }
+
+        final int windowSize = windowTuner.onPingAck(System.nanoTime());
+        if (windowSize == -1) {
+            return;
+        }
+
+        final List<Http2Frame> frames = new ArrayList<>(2);
+        if (windowSize > localStreamWindowSize) {
+            localStreamWindowSize = windowSize;
+            frames.add(SettingsFrame.builder()
+                    .setting(SETTINGS_INITIAL_WINDOW_SIZE, windowSize)
+                    .build());
+        }
+
+        if (windowSize > localConnectionWindowSize) {
+            final int delta = windowSize - localConnectionWindowSize;
+            localConnectionWindowSize = windowSize;
+            frames.add(WindowUpdateFrame.builder()
+                    .streamId(0)
+                    .windowSizeIncrement(delta)
+                    .build());
+        }
+
+        if (!frames.isEmpty()) {
+            outputSink.writeDownStream(frames);
+        }
+    }
+
     void sendPreface() {
         if (!isPrefaceSent) {
             synchronized (sessionLock) {
@@ -814,6 +937,40 @@ public class Http2Session {
         return headersEncoder;
     }
 
+    /**
+     * Applies the peer's <tt>SETTINGS_HEADER_TABLE_SIZE</tt> to the headers
+     * encoder.
+     */
+    void setPeerHeaderTableSize(final int peerHeaderTableSize) {
+        deflaterLock.lock();
+        try {
+            // the unsigned values above Integer.MAX_VALUE are negative
+            getHeadersEncoder().setMaxHeaderTableSize(peerHeaderTableSize >= 0
+                    ? peerHeaderTableSize
+                    : Integer.MAX_VALUE);
+        } finally {
+            deflaterLock.unlock();
+        }
+    }
+
+    /**
+     * @return the ratio of the HPACK encoded header bytes to the plain header
+     * names and values sent by the session
+     */
+    public double getHeadersCompressionRatio() {
+        final HeadersEncoder encoder = headersEncoder;
+        return encoder != null ? encoder.getCompressionRatio() : 1;
+    }
+
+    /**
+     * @return the time spent encoding the header blocks sent by the session,
+     * in nanoseconds
+     */
+    public long getHeadersEncodingTimeNanos() {
+        final HeadersEncoder encoder = headersEncoder;
+        return encoder != null ? encoder.getEncodingTimeNanos() : 0;
+    }
+
     /**
      * Encodes the {@link HttpHeader} and locks the compression lock.
      *
@@ -1194,26 +1351,20 @@ public class Http2Session {
     /**
      * Called from {@link Http2Stream} once stream is completely closed.
      */
-    void deregisterStream() {
+    void deregisterStream(final int streamId) {
+        priorityTree.remove(streamId);
         decStreamCount();
+        if (pushState != null) {
+            pushState.release(streamId);
+        }
 
         final boolean isCloseSession;
         synchronized (sessionLock) {
             // If we're in GOAWAY state and there are no streams left - close this session
             isCloseSession = isGoingAway() && concurrentStreamsCount == 0;
             if (!isCloseSession) {
-                if (checkCount++ > http2Configuration.getCleanFrequencyCheck() && streamsMap.size() > streamsHighWaterMark) {
-                    checkCount = 0;
-                    int maxCount = Float.valueOf(streamsHighWaterMark * http2Configuration.getCleanPercentage()).intValue();
-                    int count = 0;
-                    for (final Iterator<Map.Entry<Integer,Http2Stream>> streamIds = streamsMap.entrySet().iterator(); (streamIds.hasNext() && count < maxCount);) {
-                        final Map.Entry<Integer,Http2Stream> entry = streamIds.next();
-                        if (entry.getValue().isClosed()) {
-                            streamIds.remove();
-                        }
-                        count++;
-                    }
-                }
+                closedStreams.add(streamId);
+                pruneClosedStreams();
             }
         }
 
@@ -1226,6 +1377,43 @@ public class Http2Session {
         }
     }
 
+    /**
+     * The closed streams are kept in the streamsMap for a while to recognize
+     * their late frames. Instead of sweeping the streamsMap periodically,
+     * every closed stream removes a few oldest closed streams, at the rate
+     * defined by {@link Http2Configuration#getCleanPercentage()} and
+     * {@link Http2Configuration#getCleanFrequencyCheck()}.
+     *
+     * Must be locked by sessionLock.
+     */
+    private void pruneClosedStreams() {
+        if (streamsMap.size() <= streamsHighWaterMark) {
+            return;
+        }
+
+        final int maxCount = Float.valueOf(streamsHighWaterMark
+                * http2Configuration.getCleanPercentage()).intValue();
+        int count = Math.max(1,
+                maxCount / Math.max(1, http2Configuration.getCleanFrequencyCheck()));
+
+        while (count-- > 0 && streamsMap.size() > streamsHighWaterMark) {
+            final Integer closedStreamId = closedStreams.poll();
+            if (closedStreamId == null) {
+                return;
+            }
+
+            final Http2Stream stream = streamsMap.get(closedStreamId);
+            if (stream != null) {
+                if (stream.isClosed()) {
+                    streamsMap.remove(closedStreamId);
+                } else {
+                    // the stream state isn't updated yet, check it later
+                    closedStreams.add(closedStreamId);
+                }
+            }
+        }
+    }
+
     private boolean isClosed() {
         return closeFlag != null;
     }
@@ -1335,12 +1523,12 @@ public class Http2Session {
             final int windowSize = getLocalConnectionWindowSize();
 
             // if not forced - send update window message only in case currentUnackedBytes > windowSize / 2
-            if (currentUnackedBytes > (windowSize / 3)
-                    && unackedReadBytes.compareAndSet(currentUnackedBytes, 0)) {
-
-                sendWindowUpdate(0, currentUnackedBytes);
-            }
+            final int connectionDelta = currentUnackedBytes > (windowSize / 3)
+                    && unackedReadBytes.compareAndSet(currentUnackedBytes, 0)
+                    ? currentUnackedBytes
+                    : 0;
 
+            int streamDelta = 0;
             if (stream != null) {
                 // ACK HTTP2 stream flow control
                 final int streamUnackedBytes
@@ -1351,10 +1539,19 @@ public class Http2Session {
                 if (streamUnackedBytes > 0
                         && (streamUnackedBytes > (streamWindowSize / 2))
                         && Http2Stream.unackedReadBytesUpdater.compareAndSet(stream, streamUnackedBytes, 0)) {
-
-                    sendWindowUpdate(stream.getId(), streamUnackedBytes);
+                    streamDelta = streamUnackedBytes;
                 }
             }
+
+            // the connection and the stream updates, which are due at
+            // the same time, are sent together
+            if (connectionDelta > 0 && streamDelta > 0) {
+                sendWindowUpdates(connectionDelta, stream.getId(), streamDelta);
+            } else if (connectionDelta > 0) {
+                sendWindowUpdate(0, connectionDelta);
+            } else if (streamDelta > 0) {
+                sendWindowUpdate(stream.getId(), streamDelta);
+            }
         }
     }
 
@@ -1370,6 +1567,8 @@ public class Http2Session {
         }
 
         streamsMap.put(streamId, stream);
+        priorityTree.add(streamId, stream.getParentStreamId(),
+                stream.getPriority(), stream.isExclusive());
         incStreamCount();
     }
 
@@ -1411,8 +1610,9 @@ public class Http2Session {
             }
 
             if (isClosing) {
-                for (Http2Stream stream : streamsMap.values()) {
-                    stream.closedRemotely();
+                final List<Http2Stream> streams = streamsMap.values();
+                for (int i = 0; i < streams.size(); i++) {
+                    streams.get(i).closedRemotely();
                 }
             }
         }
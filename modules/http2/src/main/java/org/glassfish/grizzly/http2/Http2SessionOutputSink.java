@@ -16,6 +16,7 @@
 
 package org.glassfish.grizzly.http2;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,6 +41,9 @@ import org.glassfish.grizzly.http2.utils.ChunkedCompletionHandler;
 /**
  * Class represents an output sink associated with specific {@link Http2Session}
  * and is responsible for session (connection) level flow control.
+ * The queued DATA frames of the streams are interleaved according to the
+ * stream priorities, using deficit round robin with the quantum of one
+ * frame, not in the order they were queued.
  * 
  * @author Alexey Stashok
  */
@@ -61,12 +65,18 @@ public class Http2SessionOutputSink {
                 }
             });
 
+    // the output queue records, which are ready to be written, ordered by
+    // the stream priorities. The output queue only accounts their size.
+    private final StreamScheduler<Http2SessionOutputSink.OutputQueueRecord> scheduler;
+
     private final AtomicInteger availConnectionWindowSize;
     private final List<Http2Frame> tmpFramesList = new LinkedList<>();
     private final AtomicBoolean writerLock = new AtomicBoolean();
 
     public Http2SessionOutputSink(Http2Session session) {
         this.http2Session = session;
+        scheduler = new StreamScheduler<>(session.priorityTree,
+                MAX_FRAME_PAYLOAD_SIZE);
         availConnectionWindowSize = new AtomicInteger(
                 http2Session.getDefaultConnectionWindowSize());
     }
@@ -186,7 +196,10 @@ public class Http2SessionOutputSink {
                 stream.getId(), data,
                 completionHandler, isLast);
 
-        outputQueue.offer(record);
+        if (!scheduler.offer(stream.getId(), record, dataSize)) {
+            record.notifyFailure(new IOException("Connection closed"));
+            return;
+        }
         outputQueue.reserveSpace(record.isZeroSizeData() ? 1 : dataSize);
 
         flushOutputQueue();
@@ -200,9 +213,6 @@ public class Http2SessionOutputSink {
 
         boolean needToNotify = false;
 
-        // for debug purposes only
-        int tmpcnt = 0;
-
         // try to flush entire output queue
 
         // relaxed check if we have free window space and output queue is not empty
@@ -215,6 +225,8 @@ public class Http2SessionOutputSink {
             availWindowSize = availConnectionWindowSize.get();
             queueSize = outputQueue.size();
 
+            boolean isClosed = false;
+
             CompletionHandler<WriteResult> writeCompletionHandler = null;
             int writeCompletionHandlerBytes = 0;
 
@@ -227,18 +239,14 @@ public class Http2SessionOutputSink {
             while (availWindowSize > bytesToTransfer &&
                     queueSize > queueSizeToFree) {
 
-                final Http2SessionOutputSink.OutputQueueRecord record = outputQueue.poll();
+                final Http2SessionOutputSink.OutputQueueRecord record = scheduler.poll();
 
                 if (record == null) {
-                    // keep this warning for now
-                    // should be reported when null record is spotted
-                    LOGGER.log(Level.WARNING, "UNEXPECTED NULL RECORD. Queue-size: {0} "
-                                    + "tmpcnt={1} byteToTransfer={2} queueSizeToFree={3} queueSize={4}",
-                            new Object[]{outputQueue.size(), tmpcnt, bytesToTransfer, queueSizeToFree, queueSize});
+                    // the session has been closed, the records were failed
+                    isClosed = true;
+                    break;
                 }
 
-                assert record != null;
-
                 final int serializedBytes = record.serializeTo(
                         tmpFramesList,
                         Math.min(MAX_FRAME_PAYLOAD_SIZE, availWindowSize - bytesToTransfer));
@@ -249,8 +257,11 @@ public class Http2SessionOutputSink {
                     if (record.isZeroSizeData()) {
                         queueSizeToFree++;
                     }
-                } else {
-                    outputQueue.setCurrentElement(record);
+                    scheduler.served(serializedBytes, null);
+                } else if (!scheduler.served(serializedBytes, record)) {
+                    // the session has been closed while the record was
+                    // being served, the rest of the record won't be written
+                    record.notifyFailure(new IOException("Connection closed"));
                 }
 
                 final CompletionHandler<WriteResult> recordCompletionHandler =
@@ -300,10 +311,13 @@ public class Http2SessionOutputSink {
             // release the writer lock, so other thread can start to write
             writerLock.set(false);
 
+            if (isClosed) {
+                break;
+            }
+
             // we don't want this thread to write all the time - so give more
             // time for another thread to start writing
             LockSupport.parkNanos(backoffDelay++);
-            tmpcnt++;
         }
 
         if (needToNotify) {
@@ -311,8 +325,50 @@ public class Http2SessionOutputSink {
         }
     }
 
+    /**
+     * @return the number of streams, which have DATA queued for writing
+     */
+    public int getQueuedStreamsCount() {
+        return scheduler.getActiveStreamsCount();
+    }
+
+    /**
+     * @param streamId the stream ID
+     * @return the number of DATA bytes queued by the stream, which wait for
+     * the connection flow-control window or for their turn to be written
+     */
+    public int getQueuedBytes(final int streamId) {
+        return scheduler.getQueuedBytes(streamId);
+    }
+
+    /**
+     * @param streamId the stream ID
+     * @return the number of writes queued by the stream
+     */
+    public int getQueuedWritesCount(final int streamId) {
+        return scheduler.getQueuedCount(streamId);
+    }
+
+    /**
+     * @param streamId the stream ID
+     * @return the number of DATA bytes written since the stream has
+     * queued data, or <tt>0</tt> if it has no queued data
+     */
+    public long getServedBytes(final int streamId) {
+        return scheduler.getServedBytes(streamId);
+    }
+
     public void close() {
         outputQueue.onClose();
+
+        final List<Http2SessionOutputSink.OutputQueueRecord> records =
+                scheduler.close();
+        if (!records.isEmpty()) {
+            final IOException error = new IOException("Connection closed");
+            for (int i = 0; i < records.size(); i++) {
+                records.get(i).notifyFailure(error);
+            }
+        }
     }
 
     private static class OutputQueueRecord extends AsyncQueueRecord<WriteResult> {
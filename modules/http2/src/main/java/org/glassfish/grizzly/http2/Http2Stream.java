@@ -242,16 +242,18 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
         return streamId;
     }
 
-    @SuppressWarnings("unused")
     public int getParentStreamId() {
         return parentStreamId;
     }
 
-    @SuppressWarnings("unused")
     public int getPriority() {
         return priority;
     }
 
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
     public boolean isPushStream() {
         return (streamId & 1) == 0;
     }
@@ -661,7 +663,7 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
     private void closeStream() {
         // TODO ensure stream proper transitions to CLOSED state
         //Http2StreamState.close(this);
-        http2Session.deregisterStream();
+        http2Session.deregisterStream(streamId);
     }
     
     HttpHeader getInputHttpHeader() {
@@ -21,7 +21,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * N-ary tree node implementation to support HTTP/2 stream hierarchies.
+ *
+ * @deprecated all the trees share one lock, so the sessions contend with
+ * each other. The stream priorities are kept by the {@link Http2Session}.
  */
+@Deprecated
 public abstract class Node {
 
     private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.util.Header;
+
+/**
+ * The policy, which decides whether a resource is worth pushing.
+ *
+ * Per {@link Http2Session} the policy remembers the resources the client
+ * has already requested or got pushed, so the same resource is never pushed
+ * twice on the same connection. The resources the client reset using
+ * <tt>RST_STREAM</tt> are considered cached by the client, the rest of the
+ * pushes for the same page are cancelled.
+ *
+ * The policy learns the page sub-resources from the requests the client
+ * makes: a request referring a page, which was requested on the same
+ * {@link Http2Session} not longer than {@link #getAssociatePeriod()}
+ * milliseconds ago, is associated with the page. Once a sub-resource was
+ * requested along with the page {@link #getAutoPushThreshold()} times, it's
+ * pushed automatically to the new clients requesting the page.
+ *
+ * @since 2.4.4
+ */
+public class PushPolicy {
+
+    private static final int MAX_SESSION_RESOURCES = 256;
+    private static final int MAX_SESSION_PAGES = 16;
+    private static final int MAX_PAGES = 1024;
+    private static final int MAX_RESOURCES = 4096;
+
+    /**
+     * The push request attribute, which holds the path of the page
+     * the resource is pushed with.
+     */
+    static final String PUSH_PAGE_ATTRIBUTE = PushPolicy.class.getName() + ".page";
+
+    private volatile long maxPushBytesPerPage = -1;
+    private volatile long associatePeriod = 4000;
+    private volatile int maxAssociations = 16;
+    private volatile int autoPushThreshold = -1;
+
+    private final ConcurrentHashMap<String, Page> pages = new ConcurrentHashMap<>();
+    // resource path -> the Content-Length of its last response
+    private final ConcurrentHashMap<String, Long> sizes = new ConcurrentHashMap<>();
+
+    /**
+     * @return the maximum number of the resource bytes pushed per page,
+     *          <tt>-1</tt> means no limit. The resource size is learned
+     *          from the <tt>Content-Length</tt> of its earlier responses.
+     */
+    public long getMaxPushBytesPerPage() {
+        return maxPushBytesPerPage;
+    }
+
+    /**
+     * Sets the maximum number of the resource bytes pushed per page,
+     * <tt>-1</tt> means no limit.
+     */
+    public void setMaxPushBytesPerPage(final long maxPushBytesPerPage) {
+        this.maxPushBytesPerPage = maxPushBytesPerPage;
+    }
+
+    /**
+     * @return the period (in milliseconds) after the page request, during
+     *          which the requests referring the page are associated with it.
+     */
+    public long getAssociatePeriod() {
+        return associatePeriod;
+    }
+
+    /**
+     * Sets the period (in milliseconds) after the page request, during
+     * which the requests referring the page are associated with it.
+     */
+    public void setAssociatePeriod(final long associatePeriod) {
+        this.associatePeriod = associatePeriod;
+    }
+
+    /**
+     * @return the maximum number of sub-resources learned per page.
+     */
+    public int getMaxAssociations() {
+        return maxAssociations;
+    }
+
+    /**
+     * Sets the maximum number of sub-resources learned per page.
+     */
+    public void setMaxAssociations(final int maxAssociations) {
+        this.maxAssociations = maxAssociations;
+    }
+
+    /**
+     * @return the number of times a sub-resource has to be requested along
+     *          with the page to be pushed automatically, <tt>-1</tt> means
+     *          the learned sub-resources are not pushed automatically.
+     */
+    public int getAutoPushThreshold() {
+        return autoPushThreshold;
+    }
+
+    /**
+     * Sets the number of times a sub-resource has to be requested along
+     * with the page to be pushed automatically, <tt>-1</tt> disables
+     * the automatic push.
+     */
+    public void setAutoPushThreshold(final int autoPushThreshold) {
+        this.autoPushThreshold = autoPushThreshold;
+    }
+
+    /**
+     * Returns the sub-resources learned for the page, which would be pushed
+     * automatically.
+     *
+     * @param pagePath the page path
+     * @return the {@link List} of the sub-resource paths
+     */
+    public List<String> getPushResources(final String pagePath) {
+        final Page page = pages.get(pagePath);
+        if (page == null) {
+            return Collections.emptyList();
+        }
+
+        return page.getResources(Math.max(1, autoPushThreshold));
+    }
+
+    /**
+     * Called once a client request is parsed.
+     *
+     * @return the resource paths to push along with the request,
+     *          or <tt>null</tt>
+     */
+    List<String> onRequest(final SessionState state,
+            final HttpRequestPacket request, final long nowMillis) {
+        if (!Method.GET.equals(request.getMethod())) {
+            return null;
+        }
+
+        final String pagePath = request.getRequestURI();
+        final String resourcePath = toResourcePath(pagePath,
+                request.getQueryString());
+        state.markKnown(resourcePath);
+
+        final String refererPath = getSameOriginPath(
+                request.getHeader(Header.Referer), request.getHeader(Header.Host));
+        if (refererPath != null && !refererPath.equals(pagePath)
+                && state.isRecentPage(refererPath, nowMillis - associatePeriod)) {
+            associate(refererPath, resourcePath);
+            return null;
+        }
+
+        state.onPage(pagePath, nowMillis);
+
+        if (autoPushThreshold <= 0) {
+            return null;
+        }
+
+        final Page page = pages.get(pagePath);
+        return page != null ? page.getResources(autoPushThreshold) : null;
+    }
+
+    /**
+     * Checks whether the resource may be pushed along with the parent stream
+     * and, if so, reserves the push.
+     */
+    boolean onPush(final SessionState state, final Http2Stream parentStream,
+            final String resourcePath) {
+        final Long size = sizes.get(resourcePath);
+
+        return state.reserve(parentStream.getId(), resourcePath,
+                size != null ? size : 0, maxPushBytesPerPage);
+    }
+
+    /**
+     * Called before the response headers are sent to learn the size
+     * of the resource.
+     */
+    void onResponse(final HttpRequestPacket request,
+            final HttpResponsePacket response) {
+        final long contentLength = response.getContentLength();
+        if (contentLength < 0 || response.getStatus() != 200
+                || !Method.GET.equals(request.getMethod())) {
+            return;
+        }
+
+        final String resourcePath = toResourcePath(request.getRequestURI(),
+                request.getQueryString());
+        if (sizes.size() < MAX_RESOURCES || sizes.containsKey(resourcePath)) {
+            sizes.put(resourcePath, contentLength);
+        }
+    }
+
+    /**
+     * Called once the client reset the pushed stream: the client is
+     * considered having the resource, and the rest of pushes for the page
+     * are cancelled.
+     */
+    void onPushReset(final SessionState state, final Http2Stream pushStream) {
+        final HttpRequestPacket request = pushStream.getRequest();
+        if (request == null) {
+            return;
+        }
+
+        state.cancel(pushStream.getParentStreamId());
+
+        final Object pagePath = request.getAttribute(PUSH_PAGE_ATTRIBUTE);
+        final Page page = pagePath != null ? pages.get(pagePath) : null;
+        if (page != null) {
+            page.onReset(toResourcePath(request.getRequestURI(),
+                    request.getQueryString()));
+        }
+    }
+
+    private void associate(final String pagePath, final String resourcePath) {
+        Page page = pages.get(pagePath);
+        if (page == null) {
+            if (pages.size() >= MAX_PAGES) {
+                return;
+            }
+
+            page = new Page();
+            final Page existing = pages.putIfAbsent(pagePath, page);
+            if (existing != null) {
+                page = existing;
+            }
+        }
+
+        page.associate(resourcePath, maxAssociations);
+    }
+
+    private static String toResourcePath(final String path, final String query) {
+        return query == null || query.isEmpty() ? path : path + '?' + query;
+    }
+
+    /**
+     * Returns the path of the referer URL, if it has the same authority as
+     * the request, or <tt>null</tt> otherwise.
+     */
+    private static String getSameOriginPath(final String referer, final String host) {
+        if (referer == null || host == null) {
+            return null;
+        }
+
+        final int schemeEnd = referer.indexOf("://");
+        if (schemeEnd == -1) {
+            return null;
+        }
+
+        final int authorityStart = schemeEnd + 3;
+        int pathStart = referer.indexOf('/', authorityStart);
+        if (pathStart == -1) {
+            pathStart = referer.length();
+        }
+
+        if (pathStart - authorityStart != host.length()
+                || !referer.regionMatches(true, authorityStart, host, 0, host.length())) {
+            return null;
+        }
+
+        if (pathStart == referer.length()) {
+            return "/";
+        }
+
+        int pathEnd = referer.indexOf('?', pathStart);
+        if (pathEnd == -1) {
+            pathEnd = referer.indexOf('#', pathStart);
+        }
+
+        return pathEnd == -1
+                ? referer.substring(pathStart)
+                : referer.substring(pathStart, pathEnd);
+    }
+
+    /**
+     * The sub-resources learned for a page.
+     */
+    private static final class Page {
+        // resource path -> the association score, halved each time a client
+        // resets its push
+        private final Map<String, Integer> scores = new HashMap<>();
+
+        synchronized void associate(final String resourcePath,
+                final int maxAssociations) {
+            final Integer score = scores.get(resourcePath);
+            if (score == null) {
+                if (scores.size() < maxAssociations) {
+                    scores.put(resourcePath, 1);
+                }
+            } else if (score < Integer.MAX_VALUE) {
+                scores.put(resourcePath, score + 1);
+            }
+        }
+
+        synchronized void onReset(final String resourcePath) {
+            final Integer score = scores.get(resourcePath);
+            if (score != null) {
+                // the clients tend to cache the resource, learn it again
+                scores.put(resourcePath, score / 2);
+            }
+        }
+
+        synchronized List<String> getResources(final int threshold) {
+            List<String> resources = null;
+            for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+                if (entry.getValue() >= threshold) {
+                    if (resources == null) {
+                        resources = new ArrayList<>(4);
+                    }
+                    resources.add(entry.getKey());
+                }
+            }
+
+            return resources != null
+                    ? resources
+                    : Collections.<String>emptyList();
+        }
+    }
+
+    /**
+     * The per {@link Http2Session} push state.
+     */
+    static final class SessionState {
+        // the resources the client has got
+        private final Set<String> known = new HashSet<>();
+        // page path -> the last request time
+        private final Map<String, Long> pages = new HashMap<>();
+        // parent stream id -> the pushed bytes, -1 if the pushes are cancelled
+        private final Map<Integer, Long> pushedBytes = new HashMap<>();
+
+        synchronized void markKnown(final String resourcePath) {
+            if (known.size() < MAX_SESSION_RESOURCES) {
+                known.add(resourcePath);
+            }
+        }
+
+        synchronized void onPage(final String pagePath, final long nowMillis) {
+            if (pages.size() >= MAX_SESSION_PAGES && !pages.containsKey(pagePath)) {
+                pages.clear();
+            }
+            pages.put(pagePath, nowMillis);
+        }
+
+        synchronized boolean isRecentPage(final String pagePath,
+                final long sinceMillis) {
+            final Long time = pages.get(pagePath);
+            return time != null && time >= sinceMillis;
+        }
+
+        synchronized boolean reserve(final int parentStreamId,
+                final String resourcePath, final long size, final long maxBytes) {
+            if (known.contains(resourcePath)) {
+                return false;
+            }
+
+            final Long pushed = pushedBytes.get(parentStreamId);
+            final long pushedNow = pushed != null ? pushed : 0;
+            if (pushedNow < 0) {
+                return false;
+            }
+
+            if (maxBytes >= 0 && pushedNow + size > maxBytes) {
+                return false;
+            }
+
+            pushedBytes.put(parentStreamId, pushedNow + size);
+            markKnown(resourcePath);
+            return true;
+        }
+
+        synchronized void cancel(final int parentStreamId) {
+            pushedBytes.put(parentStreamId, -1L);
+        }
+
+        synchronized void release(final int streamId) {
+            pushedBytes.remove(streamId);
+        }
+    }
+}
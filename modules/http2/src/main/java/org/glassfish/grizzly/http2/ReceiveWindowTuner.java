@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+/**
+ * Estimates the bandwidth-delay product of an {@link Http2Session} and grows
+ * the receive window, so the peer isn't throttled on the links with a high
+ * bandwidth or a long round-trip time.
+ *
+ * While the DATA frames are arriving, a PING is sent and the number of bytes
+ * received until the PING is acknowledged is the BDP sample. If the sample
+ * fills most of the current window and the bandwidth hasn't decreased, the
+ * window is doubled, up to the configured maximum. The stream windows are
+ * replenished only when the application consumes the data, so a slow
+ * consumer doesn't produce big samples and its buffered data stays bounded
+ * by the window.
+ *
+ * The tuner isn't thread-safe, it's driven by the connection read thread.
+ */
+final class ReceiveWindowTuner {
+
+    /**
+     * The opaque data of the PING frames sent by the tuner.
+     */
+    static final long BDP_PING_DATA = 0x4744505f42445021L;
+
+    // the part of the window the sample has to fill to grow the window
+    private static final float GROW_THRESHOLD = 2f / 3;
+
+    // the weight of the new RTT samples
+    private static final float RTT_ALPHA = 1f / 8;
+
+    private final int maxWindowSize;
+
+    private int windowSize;
+
+    private long pingSentNanos = -1;
+    private int sample;
+
+    private float rttNanos;
+    private float maxBandwidth;
+
+    /**
+     * @param windowSize the initial receive window size
+     * @param maxWindowSize the maximum receive window size
+     */
+    ReceiveWindowTuner(final int windowSize, final int maxWindowSize) {
+        this.windowSize = windowSize;
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    /**
+     * @return the current receive window size
+     */
+    int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the smoothed round-trip time in nanoseconds, or <tt>0</tt> if
+     *          it hasn't been measured yet
+     */
+    long getRttNanos() {
+        return (long) rttNanos;
+    }
+
+    /**
+     * Accounts the received DATA payload.
+     *
+     * @param size the payload size
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return <tt>true</tt> if a BDP PING has to be sent
+     */
+    boolean onDataReceived(final int size, final long nowNanos) {
+        if (windowSize >= maxWindowSize) {
+            return false;
+        }
+
+        if (pingSentNanos == -1) {
+            pingSentNanos = nowNanos;
+            sample = size;
+            return true;
+        }
+
+        sample += size;
+        return false;
+    }
+
+    /**
+     * Completes the BDP sample.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the new receive window size, or <tt>-1</tt> if the window
+     *          doesn't change
+     */
+    int onPingAck(final long nowNanos) {
+        if (pingSentNanos == -1) {
+            return -1;
+        }
+
+        final long rtt = Math.max(1, nowNanos - pingSentNanos);
+        pingSentNanos = -1;
+
+        rttNanos = rttNanos == 0
+                ? rtt
+                : rttNanos + (rtt - rttNanos) * RTT_ALPHA;
+
+        final float bandwidth = sample / rttNanos;
+        if (sample < windowSize * GROW_THRESHOLD
+                || bandwidth < maxBandwidth) {
+            return -1;
+        }
+
+        maxBandwidth = bandwidth;
+        windowSize = (int) Math.min(maxWindowSize, (long) sample * 2);
+        return windowSize;
+    }
+}
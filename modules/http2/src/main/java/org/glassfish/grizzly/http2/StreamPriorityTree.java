@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The stream priorities of a single {@link Http2Session}.
+ *
+ * Keeps the RFC 7540 stream dependency tree (parent, weight, exclusive
+ * flag), together with the RFC 9218 urgency, which is signaled using the
+ * <tt>priority</tt> header. The streams are served in the urgency order,
+ * the streams of the same urgency share the connection according to
+ * their weights in the dependency tree.
+ *
+ * Each session owns its tree, so the prioritization on one connection never
+ * contends with the streams of the other connections.
+ *
+ * The priorities of the idle streams, which were never opened, are bounded
+ * by {@link #setMaxIdleNodes(int)}, the oldest ones are forgotten first.
+ */
+final class StreamPriorityTree {
+
+    static final int DEFAULT_WEIGHT = 16;
+    static final int MAX_WEIGHT = 256;
+
+    static final int DEFAULT_URGENCY = 3;
+    static final int MAX_URGENCY = 7;
+
+    static final int DEFAULT_MAX_IDLE_NODES = 100;
+
+    private final PriorityNode root = new PriorityNode(0);
+    private final Map<Integer, PriorityNode> nodes = new HashMap<>();
+
+    // the ids of the idle streams prioritized by PRIORITY frames,
+    // in the prioritization order
+    private final LinkedHashSet<Integer> idleStreamIds = new LinkedHashSet<>();
+    private int maxIdleNodes = DEFAULT_MAX_IDLE_NODES;
+
+    /**
+     * Add a new stream to the tree.
+     *
+     * @param streamId the stream id
+     * @param parentStreamId the id of the stream this stream depends on,
+     *                       <tt>0</tt> if none
+     * @param weight the stream weight, values out of the [1, 256] range
+     *               mean the default weight
+     * @param exclusive <tt>true</tt> if the stream becomes the only child of
+     *                  its parent
+     */
+    synchronized void add(final int streamId, final int parentStreamId,
+            final int weight, final boolean exclusive) {
+        PriorityNode node = nodes.get(streamId);
+        if (node == null) {
+            node = new PriorityNode(streamId);
+            nodes.put(streamId, node);
+        } else {
+            // the stream was prioritized while idle
+            idleStreamIds.remove(streamId);
+            node.parent.removeChild(node);
+        }
+
+        attach(node, getParent(parentStreamId, streamId), weight, exclusive);
+    }
+
+    /**
+     * Change the stream priority as requested by a PRIORITY frame.
+     * The stream doesn't have to be open, so the priority of idle streams is
+     * remembered as well.
+     */
+    synchronized void reprioritize(final int streamId, final int parentStreamId,
+            final int weight, final boolean exclusive) {
+        PriorityNode node = nodes.get(streamId);
+        if (node == null) {
+            node = new PriorityNode(streamId);
+            nodes.put(streamId, node);
+            attach(node, getParent(parentStreamId, streamId), weight, exclusive);
+
+            idleStreamIds.add(streamId);
+            evictIdleNodes();
+            return;
+        }
+
+        final PriorityNode parent = getParent(parentStreamId, streamId);
+        if (parent.isDescendantOf(node)) {
+            // RFC 7540, 5.3.3: the new parent is moved to the former parent
+            // of the reprioritized stream first, keeping its weight
+            parent.parent.removeChild(parent);
+            node.parent.addChild(parent);
+        }
+
+        node.parent.removeChild(node);
+        attach(node, parent, weight, exclusive);
+    }
+
+    /**
+     * Remove the stream from the tree, its children become the children of
+     * the stream's parent, sharing the weight of the removed stream.
+     */
+    synchronized void remove(final int streamId) {
+        idleStreamIds.remove(streamId);
+        removeNode(streamId);
+    }
+
+    /**
+     * Set the maximum number of the idle streams, whose priorities are
+     * remembered, the oldest ones are removed above the limit.
+     */
+    synchronized void setMaxIdleNodes(final int maxIdleNodes) {
+        this.maxIdleNodes = Math.max(0, maxIdleNodes);
+        evictIdleNodes();
+    }
+
+    /**
+     * @return the number of the idle streams, whose priorities are remembered
+     */
+    synchronized int getIdleNodesCount() {
+        return idleStreamIds.size();
+    }
+
+    /**
+     * Set the RFC 9218 urgency of the stream, lower values are more urgent.
+     */
+    synchronized void setUrgency(final int streamId, final int urgency) {
+        final PriorityNode node = nodes.get(streamId);
+        if (node != null) {
+            node.urgency = Math.min(Math.max(urgency, 0), MAX_URGENCY);
+        }
+    }
+
+    /**
+     * Set the RFC 9218 urgency of the stream from the <tt>priority</tt>
+     * header value, like <tt>u=1, i</tt>.
+     * Unknown or invalid parameters are ignored, the incremental parameter
+     * isn't used, because the streams of the same urgency are interleaved
+     * anyway.
+     */
+    void setPriorityField(final int streamId, final String value) {
+        if (value == null) {
+            return;
+        }
+
+        int urgency = DEFAULT_URGENCY;
+
+        final int len = value.length();
+        int pos = 0;
+        while (pos < len) {
+            int end = value.indexOf(',', pos);
+            if (end == -1) {
+                end = len;
+            }
+
+            final String member = value.substring(pos, end).trim();
+            pos = end + 1;
+
+            final int eq = member.indexOf('=');
+            if (eq != -1 && "u".equals(member.substring(0, eq).trim())) {
+                final String param = member.substring(eq + 1).trim();
+                if (param.length() == 1) {
+                    final char c = param.charAt(0);
+                    if (c >= '0' && c <= '0' + MAX_URGENCY) {
+                        urgency = c - '0';
+                    }
+                }
+            }
+        }
+
+        setUrgency(streamId, urgency);
+    }
+
+    /**
+     * @return the id of the stream the given stream depends on, <tt>0</tt>
+     * if it depends on no stream or is unknown
+     */
+    synchronized int getParentStreamId(final int streamId) {
+        final PriorityNode node = nodes.get(streamId);
+        return node != null ? node.parent.streamId : 0;
+    }
+
+    /**
+     * @return the stream weight, or the default weight if the stream is unknown
+     */
+    synchronized int getWeight(final int streamId) {
+        final PriorityNode node = nodes.get(streamId);
+        return node != null ? node.weight : DEFAULT_WEIGHT;
+    }
+
+    /**
+     * @return the stream RFC 9218 urgency, lower values are more urgent
+     */
+    synchronized int getUrgency(final int streamId) {
+        final PriorityNode node = nodes.get(streamId);
+        return node != null ? node.urgency : DEFAULT_URGENCY;
+    }
+
+    /**
+     * @return the share of the connection bandwidth the stream should get
+     * according to the dependency tree, in the (0, 1] range, assuming all
+     * the streams have data to send
+     */
+    synchronized double getShare(final int streamId) {
+        PriorityNode node = nodes.get(streamId);
+        if (node == null) {
+            return 0;
+        }
+
+        double share = 1;
+        while (node.parent != null) {
+            share *= (double) node.weight / node.parent.childrenWeight;
+            node = node.parent;
+        }
+
+        return share;
+    }
+
+    /**
+     * @return the number of streams in the tree
+     */
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    private void removeNode(final int streamId) {
+        final PriorityNode node = nodes.remove(streamId);
+        if (node == null) {
+            return;
+        }
+
+        final PriorityNode parent = node.parent;
+        parent.removeChild(node);
+
+        final List<PriorityNode> children = node.children;
+        if (children != null && !children.isEmpty()) {
+            final int childrenWeight = node.childrenWeight;
+            for (int i = 0; i < children.size(); i++) {
+                final PriorityNode child = children.get(i);
+                // RFC 7540, 5.3.4: distribute the weight of the removed
+                // stream proportionally
+                child.weight = Math.max(1,
+                        node.weight * child.weight / childrenWeight);
+                parent.addChild(child);
+            }
+            children.clear();
+            node.childrenWeight = 0;
+        }
+    }
+
+    private void evictIdleNodes() {
+        final Iterator<Integer> it = idleStreamIds.iterator();
+        while (idleStreamIds.size() > maxIdleNodes && it.hasNext()) {
+            final int streamId = it.next();
+            it.remove();
+            removeNode(streamId);
+        }
+    }
+
+    private PriorityNode getParent(final int parentStreamId, final int streamId) {
+        if (parentStreamId == 0 || parentStreamId == streamId) {
+            return root;
+        }
+
+        final PriorityNode parent = nodes.get(parentStreamId);
+        // RFC 7540, 5.3.1: depending on unknown streams means default priority
+        return parent != null ? parent : root;
+    }
+
+    private static void attach(final PriorityNode node, final PriorityNode parent,
+            final int weight, final boolean exclusive) {
+        node.weight = weight >= 1 && weight <= MAX_WEIGHT ? weight : DEFAULT_WEIGHT;
+
+        if (exclusive && parent.children != null && !parent.children.isEmpty()) {
+            final List<PriorityNode> siblings = parent.children;
+            for (int i = 0; i < siblings.size(); i++) {
+                node.addChild(siblings.get(i));
+            }
+            siblings.clear();
+            parent.childrenWeight = 0;
+        }
+
+        parent.addChild(node);
+    }
+
+    private static final class PriorityNode {
+        private final int streamId;
+
+        private PriorityNode parent;
+        private List<PriorityNode> children;
+        private int childrenWeight;
+
+        private int weight = DEFAULT_WEIGHT;
+        private int urgency = DEFAULT_URGENCY;
+
+        private PriorityNode(final int streamId) {
+            this.streamId = streamId;
+        }
+
+        private void addChild(final PriorityNode child) {
+            if (children == null) {
+                children = new ArrayList<>(4);
+            }
+
+            children.add(child);
+            childrenWeight += child.weight;
+            child.parent = this;
+        }
+
+        private void removeChild(final PriorityNode child) {
+            if (children != null && children.remove(child)) {
+                childrenWeight -= child.weight;
+            }
+            child.parent = null;
+        }
+
+        private boolean isDescendantOf(final PriorityNode node) {
+            for (PriorityNode n = parent; n != null; n = n.parent) {
+                if (n == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the output of the {@link Http2Session} streams according to the
+ * {@link StreamPriorityTree}.
+ *
+ * The elements are queued per stream. The most urgent streams are always
+ * served first, and the streams of the same urgency are served using deficit
+ * round robin: on its turn a stream gets the quantum proportional to its
+ * weight, and is served until the quantum is spent. A stream may overdraw
+ * its deficit by a part of a frame, so the frames are never split to fit
+ * the quantum, the debt is paid on the next turns.
+ *
+ * @param <E> the queued element type
+ */
+final class StreamScheduler<E> {
+
+    private final StreamPriorityTree priorityTree;
+
+    // the quantum of the stream with the default weight
+    private final int quantum;
+
+    // the queues of all the streams with queued elements
+    private final Map<Integer, StreamQueue<E>> queues = new HashMap<>();
+
+    // the round robin of the streams with queued elements, per urgency
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<StreamQueue<E>>[] rounds =
+            new ArrayDeque[StreamPriorityTree.MAX_URGENCY + 1];
+
+    // the queue of the last polled element
+    private StreamQueue<E> current;
+
+    private boolean isClosed;
+
+    StreamScheduler(final StreamPriorityTree priorityTree, final int quantum) {
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("quantum must be positive");
+        }
+
+        this.priorityTree = priorityTree;
+        this.quantum = quantum;
+
+        for (int i = 0; i < rounds.length; i++) {
+            rounds[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Queue the element of the stream.
+     *
+     * @param size the number of bytes to be served from the element
+     * @return <tt>false</tt> if the scheduler is closed and the element
+     * wasn't queued
+     */
+    synchronized boolean offer(final int streamId, final E element,
+            final int size) {
+        if (isClosed) {
+            return false;
+        }
+
+        StreamQueue<E> queue = queues.get(streamId);
+        if (queue == null) {
+            queue = new StreamQueue<>(streamId);
+            queues.put(streamId, queue);
+        }
+
+        queue.elements.add(element);
+        queue.queuedBytes += size;
+
+        // the current queue is returned to its round by served()
+        if (!queue.isScheduled && queue != current) {
+            schedule(queue);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the next element to be served, or <tt>null</tt> if there are
+     * no queued elements. The caller has to report the served bytes using
+     * {@link #served(int, Object)} before the next poll.
+     */
+    synchronized E poll() {
+        for (ArrayDeque<StreamQueue<E>> round : rounds) {
+            StreamQueue<E> queue;
+            while ((queue = round.peek()) != null) {
+                if (queue.deficit <= 0) {
+                    // a new turn of the stream
+                    queue.deficit += getQuantum(queue.streamId);
+                    if (queue.deficit <= 0) {
+                        // still paying the debt
+                        round.poll();
+                        round.add(queue);
+                        continue;
+                    }
+                }
+
+                round.poll();
+                queue.isScheduled = false;
+                current = queue;
+                return queue.elements.poll();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Account the bytes served from the last polled element.
+     *
+     * @param bytes the number of bytes served
+     * @param remainder the last polled element, if it has more data to
+     *                  serve, or <tt>null</tt>
+     * @return <tt>false</tt> if the scheduler is closed and the remainder
+     * wasn't queued
+     */
+    synchronized boolean served(final int bytes, final E remainder) {
+        final StreamQueue<E> queue = current;
+        if (queue == null) {
+            return !isClosed;
+        }
+
+        current = null;
+        queue.deficit -= bytes;
+        queue.queuedBytes -= bytes;
+        queue.servedBytes += bytes;
+
+        if (isClosed) {
+            return false;
+        }
+
+        if (remainder != null) {
+            queue.elements.addFirst(remainder);
+        }
+
+        if (queue.elements.isEmpty()) {
+            // an idle stream doesn't keep its deficit
+            queues.remove(queue.streamId);
+        } else if (queue.deficit > 0) {
+            // the turn isn't over
+            rounds[urgency(queue)].addFirst(queue);
+            queue.isScheduled = true;
+        } else {
+            schedule(queue);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number of the streams, which have queued elements
+     */
+    synchronized int getActiveStreamsCount() {
+        return queues.size();
+    }
+
+    /**
+     * @return the number of bytes queued by the stream
+     */
+    synchronized int getQueuedBytes(final int streamId) {
+        final StreamQueue<E> queue = queues.get(streamId);
+        return queue != null ? (int) queue.queuedBytes : 0;
+    }
+
+    /**
+     * @return the number of elements queued by the stream
+     */
+    synchronized int getQueuedCount(final int streamId) {
+        final StreamQueue<E> queue = queues.get(streamId);
+        return queue != null ? queue.elements.size() : 0;
+    }
+
+    /**
+     * @return the number of bytes served to the stream during its
+     * current activity period
+     */
+    synchronized long getServedBytes(final int streamId) {
+        final StreamQueue<E> queue = queues.get(streamId);
+        return queue != null ? queue.servedBytes : 0;
+    }
+
+    /**
+     * Close the scheduler, the following elements won't be queued.
+     *
+     * @return the elements, which are still queued
+     */
+    synchronized List<E> close() {
+        isClosed = true;
+
+        final List<E> elements = new ArrayList<>();
+        for (StreamQueue<E> queue : queues.values()) {
+            elements.addAll(queue.elements);
+            queue.elements.clear();
+        }
+
+        queues.clear();
+        for (ArrayDeque<StreamQueue<E>> round : rounds) {
+            round.clear();
+        }
+
+        return elements;
+    }
+
+    private void schedule(final StreamQueue<E> queue) {
+        rounds[urgency(queue)].add(queue);
+        queue.isScheduled = true;
+    }
+
+    private int urgency(final StreamQueue<E> queue) {
+        if (queue.urgency == -1) {
+            queue.urgency = priorityTree.getUrgency(queue.streamId);
+        }
+
+        return queue.urgency;
+    }
+
+    private int getQuantum(final int streamId) {
+        return Math.max(1, (int) ((long) quantum
+                * priorityTree.getWeight(streamId)
+                / StreamPriorityTree.DEFAULT_WEIGHT));
+    }
+
+    private static final class StreamQueue<E> {
+        private final int streamId;
+        private final ArrayDeque<E> elements = new ArrayDeque<>(4);
+
+        // the urgency is fixed when the stream becomes active
+        private int urgency = -1;
+        private boolean isScheduled;
+
+        private int deficit;
+        private long queuedBytes;
+        private long servedBytes;
+
+        private StreamQueue(final int streamId) {
+            this.streamId = streamId;
+        }
+    }
+}
@@ -115,6 +115,27 @@ public class DataFrame extends Http2Frame {
         return isFlagSet(PADDED);
     }
 
+    /**
+     * @return the number of bytes preceding the data in the serialized frame
+     */
+    public int getHeaderLength() {
+        return FRAME_HEADER_SIZE + (isPadded() ? 1 : 0);
+    }
+
+    /**
+     * Serializes the frame header and the pad length, but not the data.
+     *
+     * @param buffer the {@link Buffer} with at least {@link #getHeaderLength()}
+     *               bytes remaining
+     */
+    public void serializeHeaderTo(final Buffer buffer) {
+        serializeFrameHeader(buffer);
+
+        if (isPadded()) {
+            buffer.put((byte) (padLength & 0xff));
+        }
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -157,16 +178,9 @@ public class DataFrame extends Http2Frame {
     @Override
     public Buffer toBuffer(final MemoryManager memoryManager) {
 
-        final boolean isPadded = isFlagSet(PADDED);
-        final int extraHeaderLen = isPadded ? 1 : 0;
-        final Buffer buffer = memoryManager.allocate(
-                FRAME_HEADER_SIZE + extraHeaderLen);
+        final Buffer buffer = memoryManager.allocate(getHeaderLength());
 
-        serializeFrameHeader(buffer);
-
-        if (isPadded) {
-            buffer.put((byte) (padLength & 0xff));
-        }
+        serializeHeaderTo(buffer);
 
         buffer.trim();
         final CompositeBuffer cb = CompositeBuffer.newBuffer(
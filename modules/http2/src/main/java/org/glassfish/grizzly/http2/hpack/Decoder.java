@@ -82,8 +82,9 @@ public final class Decoder {
     private State state = State.READY;
     private final IntegerReader integerReader;
     private final StringReader stringReader;
-    private final StringBuilder name;
-    private final StringBuilder value;
+    // the literal names and values are decoded to the reusable arrays
+    private final HeaderBytes name;
+    private final HeaderBytes value;
     private int intValue;
     private boolean firstValueRead;
     private boolean firstValueIndex;
@@ -111,8 +112,8 @@ public final class Decoder {
         table = new HeaderTable(capacity);
         integerReader = new IntegerReader();
         stringReader = new StringReader();
-        name = new StringBuilder(512);
-        value = new StringBuilder(1024);
+        name = new HeaderBytes(512);
+        value = new HeaderBytes(1024);
     }
 
     /**
@@ -479,8 +480,8 @@ public final class Decoder {
     }
 
     private void cleanUpAfterReading() {
-        name.setLength(0);
-        value.setLength(0);
+        name.reset();
+        value.reset();
         firstValueRead = false;
         state = State.READY;
     }
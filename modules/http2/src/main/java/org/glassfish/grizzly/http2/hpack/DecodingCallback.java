@@ -43,7 +43,9 @@ import org.glassfish.grizzly.Buffer;
  * an {@link Appendable} (e.g. {@link StringBuilder}) and then discarded.
  *
  * <p> That said, if a passed {@code CharSequence} needs to outlast the method
- * call, it needs to be copied.
+ * call, it needs to be copied. The literal names and values are passed as
+ * {@link HeaderBytes}, whose bytes may be copied without creating a
+ * {@link String}.
  */
 @SuppressWarnings("UnusedParameters")
 public abstract class DecodingCallback {
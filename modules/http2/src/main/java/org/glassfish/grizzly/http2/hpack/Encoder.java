@@ -82,12 +82,13 @@ import static java.util.Objects.requireNonNull;
  *
  * <p> The default implementation does not use dynamic table. It reports to a
  * coupled Decoder a size update with the value of {@code 0}, and never changes
- * it afterwards.
+ * it afterwards. {@link IndexingEncoder} decides which headers to keep in the
+ * dynamic table.
  */
 public class Encoder {
 
     // TODO: enum: no huffman/smart huffman/always huffman
-    private static final boolean DEFAULT_HUFFMAN = true;
+    static final boolean DEFAULT_HUFFMAN = true;
 
     private final IndexedWriter indexedWriter = new IndexedWriter();
     private final LiteralWriter literalWriter = new LiteralWriter();
@@ -368,7 +369,6 @@ public class Encoder {
                 .name(name, nameHuffman).value(value, valueHuffman);
     }
 
-    @SuppressWarnings("unused")
     protected final void literalWithIndexing(int index,
                                              CharSequence value,
                                              boolean valueHuffman)
@@ -379,7 +379,6 @@ public class Encoder {
                 .index(index).value(value, valueHuffman);
     }
 
-    @SuppressWarnings("unused")
     protected final void literalWithIndexing(CharSequence name,
                                              boolean nameHuffman,
                                              CharSequence value,
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * The decoded header name or value, kept as ISO-8859-1 bytes in a reusable
+ * array.
+ *
+ * The {@link Decoder} passes the same instance to the {@link DecodingCallback}
+ * for every literal header it decodes, so the content is valid only during
+ * the callback. The bytes can be copied using {@link #getBytes()} and
+ * {@link #length()}, {@link #toString()} creates a {@link String}.
+ *
+ * @since 2.4.4
+ */
+public final class HeaderBytes implements CharSequence {
+
+    private byte[] bytes;
+    private int length;
+
+    HeaderBytes(final int initialCapacity) {
+        bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * @return the backing array, the content occupies the first
+     * {@link #length()} bytes
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+        }
+        return (char) (bytes[index] & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * @return <tt>true</tt> if the content is equal to the {@link String}
+     */
+    public boolean contentEquals(final String s) {
+        if (s.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if ((bytes[i] & 0xff) != s.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    void append(final byte b) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, length * 2);
+        }
+        bytes[length++] = b;
+    }
+
+    /**
+     * Append all the remaining bytes of the source.
+     */
+    void append(final Buffer source) {
+        final int remaining = source.remaining();
+        ensureCapacity(length + remaining);
+        source.get(bytes, length, remaining);
+        length += remaining;
+    }
+
+    void ensureCapacity(final int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+
+    void reset() {
+        length = 0;
+    }
+}
@@ -16,10 +16,13 @@
 
 package org.glassfish.grizzly.http2.hpack;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import static java.lang.String.format;
 
@@ -99,21 +102,68 @@ final class HeaderTable {
 
     private static final int STATIC_TABLE_LENGTH = staticTable.length - 1;
     private static final int ENTRY_SIZE = 32;
-    private static final Map<String, LinkedHashMap<String, Integer>> staticIndexes;
+
+    //
+    // The static table names are looked up using the perfect hash: the hash
+    // multiplier is chosen once, so that no two names share a slot. A lookup
+    // is a multiplication and a single String.equals().
+    //
+    private static final int STATIC_SLOTS_BITS = 8;
+    private static final int staticHashMultiplier;
+    private static final String[] staticSlotNames = new String[1 << STATIC_SLOTS_BITS];
+    // the indexes of the static table entries having the slot name
+    private static final int[][] staticSlotIndexes = new int[1 << STATIC_SLOTS_BITS][];
 
     static {
-        staticIndexes = new HashMap<>(STATIC_TABLE_LENGTH);
+        final Map<String, List<Integer>> indexes = new LinkedHashMap<>();
         for (int i = 1; i <= STATIC_TABLE_LENGTH; i++) {
-            HeaderField f = staticTable[i];
-            LinkedHashMap<String,Integer> values = staticIndexes.get(f.name);
-            if (values == null) {
-                values = new LinkedHashMap<>();
-                values.put(f.value, i);
+            List<Integer> nameIndexes = indexes.get(staticTable[i].name);
+            if (nameIndexes == null) {
+                nameIndexes = new ArrayList<>(2);
+                indexes.put(staticTable[i].name, nameIndexes);
+            }
+            nameIndexes.add(i);
+        }
+
+        int multiplier = 1;
+        while (!isPerfectHash(indexes.keySet(), multiplier)) {
+            multiplier += 2;
+        }
+        staticHashMultiplier = multiplier;
+
+        for (Map.Entry<String, List<Integer>> entry : indexes.entrySet()) {
+            final int slot = staticSlot(entry.getKey(), multiplier);
+            staticSlotNames[slot] = entry.getKey();
+            final int[] slotIndexes = new int[entry.getValue().size()];
+            for (int i = 0; i < slotIndexes.length; i++) {
+                slotIndexes[i] = entry.getValue().get(i);
             }
-            staticIndexes.put(f.name, values);
+            staticSlotIndexes[slot] = slotIndexes;
         }
     }
 
+    private static boolean isPerfectHash(Set<String> names, int multiplier) {
+        final boolean[] taken = new boolean[1 << STATIC_SLOTS_BITS];
+        for (String name : names) {
+            final int slot = staticSlot(name, multiplier);
+            if (taken[slot]) {
+                return false;
+            }
+            taken[slot] = true;
+        }
+        return true;
+    }
+
+    private static int staticSlot(String name, int multiplier) {
+        return (name.hashCode() * multiplier) >>> (32 - STATIC_SLOTS_BITS);
+    }
+
+    // the indexes of the static table entries with the name, or null
+    private static int[] staticIndexesOf(String name) {
+        final int slot = staticSlot(name, staticHashMultiplier);
+        return name.equals(staticSlotNames[slot]) ? staticSlotIndexes[slot] : null;
+    }
+
     private final Table dynamicTable = new Table(0);
     private int maxSize;
     private int size;
@@ -145,32 +195,26 @@ final class HeaderTable {
         String v = value.toString();
 
         // 1. Try exact match in the static region
-        Map<String, Integer> values = staticIndexes.get(n);
-        if (values != null) {
-            Integer idx = values.get(v);
-            if (idx != null) {
-                return idx;
+        int[] indexes = staticIndexesOf(n);
+        if (indexes != null) {
+            for (int idx : indexes) {
+                if (staticTable[idx].value.equals(v)) {
+                    return idx;
+                }
             }
         }
         // 2. Try exact match in the dynamic region
         int didx = dynamicTable.indexOf(n, v);
         if (didx > 0) {
             return STATIC_TABLE_LENGTH + didx;
+        } else if (indexes != null) {
+            // 3. Return name match from the static region
+            return -indexes[0];
         } else if (didx < 0) {
-            if (values != null) {
-                // 3. Return name match from the static region
-                return -values.values().iterator().next(); // Iterator allocation
-            } else {
-                // 4. Return name match from the dynamic region
-                return -STATIC_TABLE_LENGTH + didx;
-            }
+            // 4. Return name match from the dynamic region
+            return -STATIC_TABLE_LENGTH + didx;
         } else {
-            if (values != null) {
-                // 3. Return name match from the static region
-                return -values.values().iterator().next(); // Iterator allocation
-            } else {
-                return 0;
-            }
+            return 0;
         }
     }
 
@@ -178,7 +222,6 @@ final class HeaderTable {
         return size;
     }
 
-    @SuppressWarnings("unused")
     public int maxSize() {
         return maxSize;
     }
@@ -391,9 +434,11 @@ final class HeaderTable {
             Map<String, Long> values = map.get(f.name);
             if (values == null) {
                 values = new HashMap<>();
-                values.put(f.value, counter++);
+                map.put(f.name, values);
             }
-            map.put(f.name, values);
+            // every entry gets its own number, even if the name is known, so
+            // the indexes of the older entries are (counter - number)
+            values.put(f.value, counter++);
         }
 
         HeaderField get(int index) {
@@ -416,12 +461,18 @@ final class HeaderTable {
         }
 
         HeaderField remove() {
+            // the oldest entry has the lowest number
+            long number = counter - buffer.size;
             HeaderField f = buffer.remove();
             Map<String, Long> values = map.get(f.name);
-            Long index = values.remove(f.value);
+            Long index = values.get(f.value);
             assert index != null;
-            if (values.isEmpty()) {
-                map.remove(f.name);
+            // the same field may have been added again later
+            if (index == number) {
+                values.remove(f.value);
+                if (values.isEmpty()) {
+                    map.remove(f.name);
+                }
             }
             return f;
         }
@@ -18,7 +18,10 @@ package org.glassfish.grizzly.http2.hpack;
 
 import org.glassfish.grizzly.Buffer;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.lang.String.format;
 
@@ -31,88 +34,77 @@ public final class Huffman {
 
     // TODO: check if reset is done in both reader and writer
 
+    /**
+     * Decodes the Huffman coded strings a nibble at a time, using the
+     * {@link Huffman#decodeTable state table}.
+     */
     static final class Reader {
 
-        private Node curr; // position in the trie
-        private int len;   // length of the path from the root to 'curr'
-        private int p;     // byte probe
+        private int state; // the trie node reached so far
 
         {
             reset();
         }
 
-        public void read(Buffer source, Appendable destination,
-                         boolean isLast) {
-            read(source, destination, true, isLast);
-        }
-
         // Takes 'isLast' rather than returns whether the reading is done or
         // not, for more informative exceptions.
-        void read(Buffer source, Appendable destination, boolean reportEOS,
-                  boolean isLast) {
-
-            Node c = curr;
-            int l = len;
-            /*
-               Since ByteBuffer is itself stateful, its position is
-               remembered here NOT as a part of Reader's state,
-               but to set it back in the case of a failure
-             */
-            int pos = source.position();
-
-            while (source.hasRemaining()) {
-                int d = source.get();
-                for (; p != 0; p >>= 1) {
-                    c = c.getChild(p & d);
-                    l++;
-                    if (c.isLeaf()) {
-                        if (reportEOS && c.isEOSPath) {
-                            throw new IllegalArgumentException("Encountered EOS");
-                        }
-                        try {
-                            destination.append(c.getChar());
-                        } catch (RuntimeException | Error e) {
-                            source.position(pos);
-                            throw e;
-                        } catch (IOException e) {
-                            source.position(pos);
-                            throw new RuntimeException(e);
-                        }
-                        c = INSTANCE.root;
-                        l = 0;
-                    }
-                    curr = c;
-                    len = l;
+        public void read(Buffer source, HeaderBytes destination,
+                         boolean isLast) {
+            final int[] table = INSTANCE.decodeTable;
+            int s = state;
+
+            final int len = source.remaining();
+            // the decoded string is never longer than 8/5 of the coded one
+            destination.ensureCapacity(destination.length() + len * 8 / 5 + 1);
+
+            if (source.hasArray()) {
+                final byte[] array = source.array();
+                final int offset = source.arrayOffset() + source.position();
+                for (int i = 0; i < len; i++) {
+                    final int d = array[offset + i];
+                    s = decode(table, s, (d >>> 4) & 0xf, destination);
+                    s = decode(table, s, d & 0xf, destination);
+                }
+                source.position(source.position() + len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    final int d = source.get();
+                    s = decode(table, s, (d >>> 4) & 0xf, destination);
+                    s = decode(table, s, d & 0xf, destination);
                 }
-                resetProbe();
-                pos++;
             }
+
+            state = s;
+
             if (!isLast) {
                 return; // it's too early to jump to any conclusions, let's wait
             }
-            if (c.isLeaf()) {
-                return; // it's perfectly ok, no extra padding bits
-            }
-            if (c.isEOSPath && len <= 7) {
-                return; // it's ok, some extra padding bits
+            final int padding = INSTANCE.paddingLength[s];
+            if (padding <= 7) {
+                return; // it's ok, no or some extra padding bits
             }
-            if (c.isEOSPath) {
+            if (padding != NOT_EOS_PREFIX) {
                 throw new IllegalArgumentException(
-                        "Padding is too long (len=" + len + ") " +
+                        "Padding is too long (len=" + padding + ") " +
                                 "or unexpected end of data");
             }
             throw new IllegalArgumentException(
                     "Not a EOS prefix padding or unexpected end of data");
         }
 
-        public void reset() {
-            curr = INSTANCE.root;
-            len = 0;
-            resetProbe();
+        private static int decode(final int[] table, final int s,
+                                  final int nibble, final HeaderBytes destination) {
+            final int t = table[(s << 4) | nibble];
+            if ((t & EMIT) != 0) {
+                destination.append((byte) (t >>> 8));
+            } else if ((t & FAIL) != 0) {
+                throw new IllegalArgumentException("Encountered EOS");
+            }
+            return t & 0xff;
         }
 
-        private void resetProbe() {
-            p = 0x80;
+        public void reset() {
+            state = 0;
         }
     }
 
@@ -196,6 +188,14 @@ public final class Huffman {
      */
     public static final Huffman INSTANCE = new Huffman();
 
+    // the decode table entry flags, the low byte of an entry is the next
+    // state and the second byte is the emitted char
+    private static final int EMIT = 1 << 16;
+    private static final int FAIL = 1 << 17;
+
+    // the padding length of a state, which isn't a prefix of EOS
+    private static final int NOT_EOS_PREFIX = Integer.MAX_VALUE;
+
     private final Code EOS = new Code(0x3fffffff, 30);
     private final Code[] codes = new Code[257];
     private final Node root = new Node() {
@@ -464,6 +464,74 @@ public final class Huffman {
         addChar(255, 0x3ffffee,  26);
         addEOS (256, EOS.code,   EOS.length);
         // @formatter:on
+
+        final List<Node> states = statesOf(root);
+        decodeTable = new int[states.size() << 4];
+        paddingLength = new int[states.size()];
+        buildDecodeTable(states);
+    }
+
+    // The state table decoder. The states are the internal nodes of the trie,
+    // the root is the state 0. An entry for (state, nibble) holds the state
+    // reached by the nibble bits, and the char if a leaf has been passed:
+    // the shortest code is 5 bits long, so a nibble emits at most one char.
+    private final int[] decodeTable;
+    // the number of bits from the root to the state, if they may be padding
+    private final int[] paddingLength;
+
+    private static List<Node> statesOf(Node root) {
+        final List<Node> states = new ArrayList<>(256);
+        states.add(root);
+        for (int i = 0; i < states.size(); i++) {
+            final Node n = states.get(i);
+            if (!n.left.isLeaf()) {
+                states.add(n.left);
+            }
+            if (!n.right.isLeaf()) {
+                states.add(n.right);
+            }
+        }
+        return states;
+    }
+
+    private void buildDecodeTable(List<Node> states) {
+        final Map<Node, Integer> ids = new IdentityHashMap<>(states.size() * 2);
+        for (int i = 0; i < states.size(); i++) {
+            ids.put(states.get(i), i);
+        }
+
+        for (int s = 0; s < states.size(); s++) {
+            for (int nibble = 0; nibble < 16; nibble++) {
+                Node c = states.get(s);
+                int flags = 0;
+                int emitted = 0;
+                for (int p = 0b1000; p != 0; p >>= 1) {
+                    c = c.getChild(nibble & p);
+                    if (c.isLeaf()) {
+                        if (c.isEOSPath) {
+                            flags = FAIL;
+                            c = root;
+                            break;
+                        }
+                        flags = EMIT;
+                        emitted = c.getChar();
+                        c = root;
+                    }
+                }
+                decodeTable[(s << 4) | nibble] = flags | (emitted << 8) | ids.get(c);
+            }
+        }
+
+        // the valid padding is the most significant bits of EOS (all ones)
+        paddingLength[0] = 0;
+        for (int s = 1; s < states.size(); s++) {
+            paddingLength[s] = NOT_EOS_PREFIX;
+        }
+        Node c = root;
+        for (int len = 1; !c.right.isLeaf(); len++) {
+            c = c.right;
+            paddingLength[ids.get(c)] = len;
+        }
     }
 
 
@@ -18,8 +18,6 @@ package org.glassfish.grizzly.http2.hpack;
 
 import org.glassfish.grizzly.Buffer;
 
-import java.io.IOException;
-
 //
 // Custom implementation of ISO/IEC 8859-1:1998
 //
@@ -27,9 +25,8 @@ import java.io.IOException;
 // basically because it would require wrapping every single CharSequence into a
 // CharBuffer and then copying it back.
 //
-// But why not to give a CharBuffer instead of Appendable? Because I can choose
-// an Appendable (e.g. StringBuilder) that adjusts its length when needed and
-// therefore not to deal with pre-sized CharBuffers or copying.
+// The decoded bytes are kept as they are in a reusable HeaderBytes, so no
+// chars are created until the user asks for them.
 //
 // The encoding is simple and well known: 1 byte <-> 1 char
 //
@@ -39,16 +36,9 @@ final class ISO_8859_1 {
 
     public static final class Reader {
 
-        public void read(Buffer source, Appendable destination) {
-            for (int i = 0, len = source.remaining(); i < len; i++) {
-                char c = (char) (source.get() & 0xff);
-                try {
-                    destination.append(c);
-                } catch (IOException e) {
-                    throw new RuntimeException
-                            ("Error appending to the destination", e);
-                }
-            }
+        public void read(Buffer source, HeaderBytes destination) {
+            // 1 byte <-> 1 char, so the bytes are copied as they are
+            destination.append(source);
         }
 
         public Reader reset() {
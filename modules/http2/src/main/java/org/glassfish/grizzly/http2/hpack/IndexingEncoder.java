@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The {@link Encoder}, which keeps the repeated headers in the dynamic table.
+ *
+ * <p> A header, which isn't in the table, is added to the table once it has
+ * been seen the admission threshold number of times, so the values sent once
+ * don't evict the useful entries. The headers, whose values change from
+ * message to message (e.g. <tt>:path</tt> or <tt>etag</tt>), are never added
+ * to the table. The sensitive headers (<tt>authorization</tt>,
+ * <tt>set-cookie</tt>, the short <tt>cookie</tt>s) are encoded as never
+ * indexed literals, see
+ * <a href="https://tools.ietf.org/html/rfc7541#section-7.1.3">7.1.3</a>.
+ *
+ * @since 2.4.4
+ */
+public class IndexingEncoder extends Encoder {
+
+    /**
+     * The maximum dynamic table size used by the encoder, even if the
+     * decoder allows more.
+     */
+    public static final int MAX_TABLE_SIZE = 4096;
+
+    /**
+     * The default number of times a header has to be seen to be added to
+     * the dynamic table.
+     */
+    public static final int DEFAULT_ADMISSION_THRESHOLD = 2;
+
+    // the number of the counted headers, which resets the counters
+    private static final int MAX_CANDIDATES = 512;
+
+    // the cookies shorter than that are easy to guess, RFC 7541, 7.1.3
+    private static final int SHORT_COOKIE_LENGTH = 20;
+
+    private static final Set<String> NEVER_INDEXED_HEADERS = new HashSet<>(
+            Arrays.asList("authorization", "proxy-authorization", "set-cookie"));
+
+    private static final Set<String> VOLATILE_HEADERS = new HashSet<>(
+            Arrays.asList(":path", "age", "content-length", "content-range",
+                    "etag", "if-modified-since", "if-none-match",
+                    "last-modified", "location"));
+
+    private final int admissionThreshold;
+
+    // the number of times the headers, which aren't in the table, were seen
+    private final Map<String, Map<String, int[]>> candidates = new HashMap<>();
+    private int candidatesCount;
+
+    /**
+     * Constructs an {@code IndexingEncoder} with the specified maximum
+     * capacity of the header table and the default admission threshold.
+     *
+     * @param maxCapacity
+     *         a non-negative integer
+     */
+    public IndexingEncoder(int maxCapacity) {
+        this(maxCapacity, DEFAULT_ADMISSION_THRESHOLD);
+    }
+
+    /**
+     * @param maxCapacity
+     *         a non-negative integer
+     * @param admissionThreshold
+     *         the number of times a header has to be seen to be added to the
+     *         dynamic table
+     */
+    public IndexingEncoder(int maxCapacity, int admissionThreshold) {
+        super(maxCapacity);
+        if (admissionThreshold < 1) {
+            throw new IllegalArgumentException(
+                    "admissionThreshold >= 1: " + admissionThreshold);
+        }
+        this.admissionThreshold = admissionThreshold;
+    }
+
+    @Override
+    public void header(CharSequence name, CharSequence value,
+                       boolean sensitive) throws IllegalStateException {
+        requireNonNull(name, "name");
+        requireNonNull(value, "value");
+        HeaderTable t = getHeaderTable();
+        int index = t.indexOf(name, value);
+        if (index > 0) {
+            indexed(index);
+            return;
+        }
+
+        String n = name.toString();
+        if (sensitive || isNeverIndexed(n, value)) {
+            if (index < 0) {
+                literalNeverIndexed(-index, value, DEFAULT_HUFFMAN);
+            } else {
+                literalNeverIndexed(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+            }
+        } else if (isAdmitted(t, n, value)) {
+            if (index < 0) {
+                literalWithIndexing(-index, value, DEFAULT_HUFFMAN);
+            } else {
+                literalWithIndexing(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+            }
+        } else {
+            if (index < 0) {
+                literal(-index, value, DEFAULT_HUFFMAN);
+            } else {
+                literal(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+            }
+        }
+    }
+
+    @Override
+    protected int calculateCapacity(int maxCapacity) {
+        return Math.min(maxCapacity, MAX_TABLE_SIZE);
+    }
+
+    private static boolean isNeverIndexed(String name, CharSequence value) {
+        return NEVER_INDEXED_HEADERS.contains(name)
+                || ("cookie".equals(name) && value.length() < SHORT_COOKIE_LENGTH);
+    }
+
+    private boolean isAdmitted(HeaderTable t, String name, CharSequence value) {
+        if (VOLATILE_HEADERS.contains(name)) {
+            return false;
+        }
+        // the entry mustn't evict most of the table
+        if (name.length() + value.length() + 32 > t.maxSize() * 3 / 4) {
+            return false;
+        }
+        if (admissionThreshold == 1) {
+            return true;
+        }
+
+        String v = value.toString();
+        Map<String, int[]> values = candidates.get(name);
+        if (values == null) {
+            values = new HashMap<>(4);
+            candidates.put(name, values);
+        }
+        int[] count = values.get(v);
+        if (count == null) {
+            if (candidatesCount == MAX_CANDIDATES) {
+                // forget the headers, which weren't repeated so far
+                candidates.clear();
+                candidatesCount = 0;
+                values = new HashMap<>(4);
+                candidates.put(name, values);
+            }
+            values.put(v, new int[] {1});
+            candidatesCount++;
+            return false;
+        }
+
+        if (++count[0] < admissionThreshold) {
+            return false;
+        }
+
+        values.remove(v);
+        candidatesCount--;
+        if (values.isEmpty()) {
+            candidates.remove(name);
+        }
+        return true;
+    }
+}
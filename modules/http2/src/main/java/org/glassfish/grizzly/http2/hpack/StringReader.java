@@ -45,7 +45,7 @@ final class StringReader {
     private boolean huffman;
     private int remainingLength;
 
-    boolean read(Buffer input, Appendable output) {
+    boolean read(Buffer input, HeaderBytes output) {
         if (state == DONE) {
             return true;
         }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The open-addressing hash map with primitive <tt>int</tt> keys.
+ *
+ * The lookups are lock-free and never block, the updates are serialized by
+ * the map monitor. The entries are immutable, so a lookup concurrent to an
+ * update sees either the old or the new mapping.
+ *
+ * @param <V> the value type
+ * @since 2.4.4
+ */
+public final class IntHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // the removed entry marker, so the probe sequences aren't broken
+    private static final Entry<Object> REMOVED = new Entry<>(0, null);
+
+    private volatile AtomicReferenceArray<Entry<V>> table;
+
+    // guarded by this
+    private int size;
+    // the number of REMOVED markers in the table, guarded by this
+    private int removed;
+
+    public IntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of entries the map is expected to hold
+     */
+    public IntHashMap(final int expectedSize) {
+        table = new AtomicReferenceArray<>(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return the value mapped to the key, or <tt>null</tt> if none
+     */
+    public V get(final int key) {
+        final AtomicReferenceArray<Entry<V>> t = table;
+        final int mask = t.length() - 1;
+
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final Entry<V> entry = t.get(i);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.key == key && entry != REMOVED) {
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * Map the value to the key.
+     *
+     * @return the value previously mapped to the key, or <tt>null</tt> if none
+     */
+    public synchronized V put(final int key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("value can't be null");
+        }
+
+        AtomicReferenceArray<Entry<V>> t = table;
+        if ((size + removed + 1) * 2 > t.length()) {
+            t = rehash(size + 1);
+        }
+
+        final int mask = t.length() - 1;
+        int free = -1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final Entry<V> entry = t.get(i);
+            if (entry == null) {
+                if (free == -1) {
+                    free = i;
+                } else {
+                    removed--;
+                }
+                break;
+            }
+
+            if (entry == REMOVED) {
+                if (free == -1) {
+                    free = i;
+                }
+            } else if (entry.key == key) {
+                t.set(i, new Entry<>(key, value));
+                return entry.value;
+            }
+        }
+
+        t.set(free, new Entry<>(key, value));
+        size++;
+        return null;
+    }
+
+    /**
+     * Remove the mapping of the key.
+     *
+     * @return the value mapped to the key, or <tt>null</tt> if none
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(final int key) {
+        final AtomicReferenceArray<Entry<V>> t = table;
+        final int mask = t.length() - 1;
+
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final Entry<V> entry = t.get(i);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.key == key && entry != REMOVED) {
+                t.set(i, (Entry<V>) REMOVED);
+                size--;
+                removed++;
+
+                if (size * 8 < t.length() && t.length() > MIN_CAPACITY) {
+                    rehash(size);
+                }
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * @return the number of mappings
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the snapshot of the keys, in no particular order
+     */
+    public synchronized int[] keys() {
+        final AtomicReferenceArray<Entry<V>> t = table;
+        final int[] keys = new int[size];
+        int count = 0;
+        for (int i = 0; i < t.length(); i++) {
+            final Entry<V> entry = t.get(i);
+            if (entry != null && entry != REMOVED) {
+                keys[count++] = entry.key;
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return the snapshot of the values, in no particular order
+     */
+    public synchronized List<V> values() {
+        final AtomicReferenceArray<Entry<V>> t = table;
+        final List<V> values = new ArrayList<>(size);
+        for (int i = 0; i < t.length(); i++) {
+            final Entry<V> entry = t.get(i);
+            if (entry != null && entry != REMOVED) {
+                values.add(entry.value);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Copy the entries to the new table, dropping the removed markers.
+     * The old table isn't modified anymore, so the concurrent lookups
+     * are still correct.
+     */
+    private AtomicReferenceArray<Entry<V>> rehash(final int expectedSize) {
+        final AtomicReferenceArray<Entry<V>> oldTable = table;
+        final AtomicReferenceArray<Entry<V>> newTable =
+                new AtomicReferenceArray<>(capacityFor(expectedSize));
+        final int mask = newTable.length() - 1;
+
+        for (int i = 0; i < oldTable.length(); i++) {
+            final Entry<V> entry = oldTable.get(i);
+            if (entry != null && entry != REMOVED) {
+                int j = hash(entry.key) & mask;
+                while (newTable.get(j) != null) {
+                    j = (j + 1) & mask;
+                }
+                newTable.set(j, entry);
+            }
+        }
+
+        removed = 0;
+        table = newTable;
+        return newTable;
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        // keep the load factor at most 0.5
+        final int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+        return Math.max(MIN_CAPACITY, capacity);
+    }
+
+    private static int hash(final int key) {
+        // the stream ids are sequential, spread them over the table
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry<V> {
+        private final int key;
+        private final V value;
+
+        private Entry(final int key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
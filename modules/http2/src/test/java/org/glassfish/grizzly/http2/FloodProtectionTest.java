@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.http2.Http2FloodProbe.Flood;
+import org.glassfish.grizzly.http2.frames.ContinuationFrame;
+import org.glassfish.grizzly.http2.frames.DataFrame;
+import org.glassfish.grizzly.http2.frames.ErrorCode;
+import org.glassfish.grizzly.http2.frames.HeadersFrame;
+import org.glassfish.grizzly.http2.frames.Http2Frame;
+import org.glassfish.grizzly.http2.frames.PingFrame;
+import org.glassfish.grizzly.http2.frames.RstStreamFrame;
+import org.glassfish.grizzly.http2.frames.SettingsFrame;
+import org.glassfish.grizzly.memory.Buffers;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link FloodProtection} tests.
+ */
+public class FloodProtectionTest {
+
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testRapidReset() {
+        final FloodProtection protection = new FloodProtection(100, -1, -1, -1);
+        final Http2Frame rst = RstStreamFrame.builder()
+                .streamId(1).errorCode(ErrorCode.CANCEL).build();
+
+        // the burst is allowed up to one second worth of resets
+        for (int i = 0; i < 100; i++) {
+            assertNull(protection.onFrame(rst, 0));
+        }
+        assertEquals(Flood.RST_STREAM, protection.onFrame(rst, 0));
+
+        // the bucket is refilled at the configured rate
+        assertNull(protection.onFrame(rst, 10 * MILLISECOND));
+        assertEquals(Flood.RST_STREAM, protection.onFrame(rst, 10 * MILLISECOND));
+
+        // the steady rate is allowed
+        long now = 10 * MILLISECOND;
+        for (int i = 0; i < 1000; i++) {
+            now += 10 * MILLISECOND;
+            assertNull(protection.onFrame(rst, now));
+        }
+    }
+
+    @Test
+    public void testControlFrames() {
+        final FloodProtection protection = new FloodProtection(-1, 10, -1, -1);
+        final Http2Frame ping = PingFrame.builder().opaqueData(1).build();
+        final Http2Frame pingAck = PingFrame.builder().opaqueData(1).ack(true).build();
+        final Http2Frame settings = SettingsFrame.builder().build();
+        final Http2Frame settingsAck = SettingsFrame.builder().setAck().build();
+        final Http2Frame emptyData = DataFrame.builder().streamId(1)
+                .data(Buffers.EMPTY_BUFFER).build();
+        final Http2Frame lastData = DataFrame.builder().streamId(1)
+                .data(Buffers.EMPTY_BUFFER).endStream(true).build();
+
+        for (int i = 0; i < 4; i++) {
+            assertNull(protection.onFrame(ping, 0));
+            assertNull(protection.onFrame(settings, 0));
+        }
+        assertNull(protection.onFrame(emptyData, 0));
+        assertNull(protection.onFrame(emptyData, 0));
+
+        // the ACKs and the stream end aren't charged
+        assertNull(protection.onFrame(pingAck, 0));
+        assertNull(protection.onFrame(settingsAck, 0));
+        assertNull(protection.onFrame(lastData, 0));
+
+        assertEquals(Flood.CONTROL_FRAMES, protection.onFrame(emptyData, 0));
+    }
+
+    @Test
+    public void testContinuationFlood() {
+        final FloodProtection protection = new FloodProtection(-1, -1, 1024, 2);
+
+        assertNull(protection.onFrame(headers(100), 0));
+        assertNull(protection.onFrame(continuation(0), 0));
+        assertNull(protection.onFrame(continuation(0), 0));
+        assertEquals(Flood.CONTINUATION_FRAMES,
+                protection.onFrame(continuation(0), 0));
+
+        // the new header block
+        assertNull(protection.onFrame(headers(1000), 0));
+        assertEquals(Flood.HEADER_BLOCK,
+                protection.onFrame(continuation(100), 0));
+    }
+
+    private static Http2Frame headers(final int size) {
+        return HeadersFrame.builder().streamId(1)
+                .compressedHeaders(Buffers.wrap(null, new byte[size]))
+                .build();
+    }
+
+    private static Http2Frame continuation(final int size) {
+        return ContinuationFrame.builder().streamId(1)
+                .compressedHeaders(Buffers.wrap(null, new byte[size]))
+                .build();
+    }
+}
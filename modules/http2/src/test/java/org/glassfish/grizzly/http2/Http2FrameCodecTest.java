@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http2.frames.DataFrame;
+import org.glassfish.grizzly.http2.frames.Http2Frame;
+import org.glassfish.grizzly.http2.frames.PingFrame;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link Http2FrameCodec} serialization tests.
+ */
+public class Http2FrameCodecTest {
+
+    private final MemoryManager memoryManager = new HeapMemoryManager();
+    private final Http2FrameCodec codec = new Http2FrameCodec();
+    private Http2Session session;
+
+    @Before
+    public void setUp() {
+        session = mock(Http2Session.class);
+        doReturn(memoryManager).when(session).getMemoryManager();
+    }
+
+    @Test
+    public void testSmallFramesShareBuffer() {
+        final List<Http2Frame> frames = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            frames.add(dataFrame(i * 2 + 1, 100, i == 99));
+        }
+
+        final Buffer buffer = codec.serializeAndRecycle(session, frames);
+        assertTrue(frames.isEmpty());
+        // the headers and the payloads are in the single buffer
+        assertFalse(buffer.isComposite());
+        assertEquals(100 * (Http2Frame.FRAME_HEADER_SIZE + 100), buffer.remaining());
+
+        for (int i = 0; i < 100; i++) {
+            assertDataFrame(buffer, i * 2 + 1, 100, i == 99);
+        }
+    }
+
+    @Test
+    public void testMixedFrames() {
+        final List<Http2Frame> frames = new ArrayList<>();
+        frames.add(dataFrame(1, 10, false));
+        frames.add(dataFrame(3, 5000, false));
+        frames.add(dataFrame(5, 0, true));
+        frames.add(PingFrame.builder().opaqueData(7).build());
+        frames.add(dataFrame(1, 20, true));
+        frames.add(dataFrame(3, 3000, true));
+
+        final Buffer buffer = codec.serializeAndRecycle(session, frames);
+        assertTrue(buffer.isComposite());
+
+        assertDataFrame(buffer, 1, 10, false);
+        assertDataFrame(buffer, 3, 5000, false);
+        assertDataFrame(buffer, 5, 0, true);
+        final int lengthAndType = buffer.getInt();
+        assertEquals(8, lengthAndType >>> 8);
+        assertEquals(PingFrame.TYPE, lengthAndType & 0xff);
+        buffer.position(buffer.position() + 1 + 4 + 8);
+        assertDataFrame(buffer, 1, 20, true);
+        assertDataFrame(buffer, 3, 3000, true);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Many small streams write their DATA frames, the frames of a flush are
+     * serialized together.
+     */
+    @Test
+    public void testManySmallStreams() {
+        final int streams = 64;
+        final List<Http2Frame> frames = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            frames.add(dataFrame(i * 2 + 1, 200, true));
+        }
+
+        final Buffer buffer = codec.serializeAndRecycle(session, frames);
+        for (int i = 0; i < streams; i++) {
+            assertDataFrame(buffer, i * 2 + 1, 200, true);
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private DataFrame dataFrame(final int streamId, final int size,
+            final boolean isLast) {
+        final Buffer data = memoryManager.allocate(size);
+        for (int i = 0; i < size; i++) {
+            data.put((byte) (streamId + i));
+        }
+        data.flip();
+
+        return DataFrame.builder()
+                .streamId(streamId)
+                .data(data)
+                .endStream(isLast)
+                .build();
+    }
+
+    private static void assertDataFrame(final Buffer buffer, final int streamId,
+            final int size, final boolean isLast) {
+        final int lengthAndType = buffer.getInt();
+        assertEquals(size, lengthAndType >>> 8);
+        assertEquals(DataFrame.TYPE, lengthAndType & 0xff);
+        assertEquals(isLast ? DataFrame.END_STREAM : 0, buffer.get());
+        assertEquals(streamId, buffer.getInt());
+        for (int i = 0; i < size; i++) {
+            assertEquals((byte) (streamId + i), buffer.get());
+        }
+    }
+}
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+// Node is deprecated, but kept tested until it's removed
+@SuppressWarnings("deprecation")
 public class NaryTreeTest {
 
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.Collections;
+
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.util.Header;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link PushPolicy} tests.
+ */
+public class PushPolicyTest {
+
+    private static final String HOST = "localhost:8080";
+    private static final String PAGE_URL = "https://" + HOST + "/index.html";
+
+    @Test
+    public void testKnownResourcesAreNotPushed() {
+        final PushPolicy policy = new PushPolicy();
+        final PushPolicy.SessionState state = new PushPolicy.SessionState();
+        final Http2Stream page = stream(1, "/index.html");
+
+        policy.onRequest(state, request("/index.html", null), 0);
+        policy.onRequest(state, request("/style.css", PAGE_URL), 10);
+
+        // the client requested it
+        assertFalse(policy.onPush(state, page, "/style.css"));
+        assertTrue(policy.onPush(state, page, "/script.js"));
+        // already pushed
+        assertFalse(policy.onPush(state, page, "/script.js"));
+        assertFalse(policy.onPush(state, stream(3, "/other.html"), "/script.js"));
+    }
+
+    @Test
+    public void testLearnAndAutoPush() {
+        final PushPolicy policy = new PushPolicy();
+        policy.setAutoPushThreshold(2);
+
+        for (int i = 0; i < 2; i++) {
+            final PushPolicy.SessionState state = new PushPolicy.SessionState();
+            policy.onRequest(state, request("/index.html", null), 0);
+            policy.onRequest(state, request("/style.css", PAGE_URL), 100);
+            // the foreign and late requests aren't associated
+            policy.onRequest(state, request("/foreign.css",
+                    "https://example.com/index.html"), 100);
+            policy.onRequest(state, request("/late.css", PAGE_URL),
+                    policy.getAssociatePeriod() + 1);
+        }
+
+        assertEquals(Collections.singletonList("/style.css"),
+                policy.getPushResources("/index.html"));
+        assertEquals(Collections.singletonList("/style.css"),
+                policy.onRequest(new PushPolicy.SessionState(),
+                        request("/index.html", null), 0));
+    }
+
+    @Test
+    public void testMaxPushBytesPerPage() {
+        final PushPolicy policy = new PushPolicy();
+        policy.setMaxPushBytesPerPage(1000);
+        learnSize(policy, "/a.css", 600);
+        learnSize(policy, "/b.css", 600);
+
+        final PushPolicy.SessionState state = new PushPolicy.SessionState();
+        final Http2Stream page1 = stream(1, "/index.html");
+        assertTrue(policy.onPush(state, page1, "/a.css"));
+        assertFalse(policy.onPush(state, page1, "/b.css"));
+        // the size is unknown yet
+        assertTrue(policy.onPush(state, page1, "/c.css"));
+
+        // another page has its own budget
+        assertTrue(policy.onPush(state, stream(3, "/page.html"), "/b.css"));
+
+        // the budget is released with the page stream
+        state.release(1);
+        learnSize(policy, "/d.css", 1000);
+        assertTrue(policy.onPush(state, stream(1, "/index.html"), "/d.css"));
+    }
+
+    @Test
+    public void testPushReset() {
+        final PushPolicy policy = new PushPolicy();
+        policy.setAutoPushThreshold(2);
+        for (int i = 0; i < 2; i++) {
+            final PushPolicy.SessionState state = new PushPolicy.SessionState();
+            policy.onRequest(state, request("/index.html", null), 0);
+            policy.onRequest(state, request("/style.css", PAGE_URL), 100);
+        }
+
+        final PushPolicy.SessionState state = new PushPolicy.SessionState();
+        final Http2Stream page = stream(1, "/index.html");
+        assertTrue(policy.onPush(state, page, "/style.css"));
+
+        final HttpRequestPacket pushRequest = request("/style.css", null);
+        pushRequest.setAttribute(PushPolicy.PUSH_PAGE_ATTRIBUTE, "/index.html");
+        final Http2Stream pushStream = mock(Http2Stream.class);
+        when(pushStream.getRequest()).thenReturn(pushRequest);
+        when(pushStream.getParentStreamId()).thenReturn(1);
+
+        policy.onPushReset(state, pushStream);
+
+        // the rest of the page pushes are cancelled
+        assertFalse(policy.onPush(state, page, "/script.js"));
+        // the resource isn't pushed automatically until it's learned again
+        assertTrue(policy.getPushResources("/index.html").isEmpty());
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertNull(Http2Configuration.builder().build().getPushPolicy());
+    }
+
+    private static void learnSize(final PushPolicy policy, final String path,
+            final long size) {
+        final HttpRequestPacket request = request(path, null);
+        final HttpResponsePacket response =
+                HttpResponsePacket.builder(request).status(200).build();
+        response.setContentLengthLong(size);
+        policy.onResponse(request, response);
+    }
+
+    private static Http2Stream stream(final int id, final String path) {
+        final Http2Stream stream = mock(Http2Stream.class);
+        final HttpRequestPacket request = request(path, null);
+        when(stream.getId()).thenReturn(id);
+        when(stream.getRequest()).thenReturn(request);
+        return stream;
+    }
+
+    private static HttpRequestPacket request(final String path,
+            final String referer) {
+        final HttpRequestPacket.Builder builder = HttpRequestPacket.builder()
+                .method("GET")
+                .uri(path)
+                .protocol("HTTP/2.0")
+                .header(Header.Host, HOST);
+        if (referer != null) {
+            builder.header(Header.Referer, referer);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ReceiveWindowTuner} tests.
+ */
+public class ReceiveWindowTunerTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void testWindowGrowsToMax() {
+        final ReceiveWindowTuner tuner = new ReceiveWindowTuner(65535, 1 << 20);
+        long now = 0;
+        int window = tuner.getWindowSize();
+        while (window < 1 << 20) {
+            // the peer sends the whole window per round-trip
+            assertTrue(tuner.onDataReceived(16384, now));
+            for (int sent = 16384; sent < window; sent += 16384) {
+                assertFalse(tuner.onDataReceived(16384, now));
+            }
+            now += RTT;
+            final int newWindow = tuner.onPingAck(now);
+            assertTrue(newWindow > window);
+            window = newWindow;
+        }
+
+        assertEquals(1 << 20, window);
+        assertEquals(RTT, tuner.getRttNanos());
+        // no more samples once the maximum is reached
+        assertFalse(tuner.onDataReceived(16384, now));
+    }
+
+    @Test
+    public void testSlowConsumer() {
+        final ReceiveWindowTuner tuner = new ReceiveWindowTuner(65535, 1 << 20);
+        // the consumer doesn't replenish the window, a part of it arrives
+        assertTrue(tuner.onDataReceived(16384, 0));
+        assertEquals(-1, tuner.onPingAck(RTT));
+        assertTrue(tuner.onDataReceived(16384, RTT));
+        assertEquals(-1, tuner.onPingAck(RTT * 2));
+        assertEquals(65535, tuner.getWindowSize());
+    }
+
+    @Test
+    public void testBandwidthDecrease() {
+        final ReceiveWindowTuner tuner = new ReceiveWindowTuner(65535, 1 << 20);
+        assertTrue(tuner.onDataReceived(65535, 0));
+        assertEquals(131070, tuner.onPingAck(RTT));
+
+        // the same amount arrives slower
+        assertTrue(tuner.onDataReceived(131070, RTT));
+        assertEquals(-1, tuner.onPingAck(RTT * 11));
+        assertEquals(131070, tuner.getWindowSize());
+
+        // the unexpected PING ACK
+        assertEquals(-1, tuner.onPingAck(RTT * 12));
+    }
+
+    /**
+     * A transfer over a 100MB/s link with 50ms round-trip time, the peer
+     * sends as much as the window allows per round-trip.
+     */
+    @Test
+    public void testLongFatPipe() {
+        final long bandwidth = 100L << 20;
+        final long total = 200L << 20;
+
+        final long fixed = transferTime(new ReceiveWindowTuner(65535, 65535),
+                bandwidth, total);
+        final long tuned = transferTime(new ReceiveWindowTuner(65535, 16 << 20),
+                bandwidth, total);
+
+        assertTrue(tuned * 10 < fixed);
+    }
+
+    private static long transferTime(final ReceiveWindowTuner tuner,
+            final long bandwidth, final long total) {
+        long now = 0;
+        long received = 0;
+        while (received < total) {
+            final int window = tuner.getWindowSize();
+            tuner.onDataReceived(window, now);
+            received += window;
+            now += Math.max(RTT, window * TimeUnit.SECONDS.toNanos(1) / bandwidth);
+            tuner.onPingAck(now);
+        }
+
+        return now;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link StreamPriorityTree} tests.
+ */
+public class StreamPriorityTreeTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testWeightShares() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 0, 48, false);
+        tree.add(5, 3, 10, false);
+        tree.add(7, 3, 30, false);
+
+        assertEquals(StreamPriorityTree.DEFAULT_WEIGHT, tree.getWeight(1));
+        assertEquals(0.25, tree.getShare(1), DELTA);
+        assertEquals(0.75, tree.getShare(3), DELTA);
+        assertEquals(0.1875, tree.getShare(5), DELTA);
+        assertEquals(0.5625, tree.getShare(7), DELTA);
+    }
+
+    @Test
+    public void testExclusiveDependency() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 0, 0, false);
+        tree.add(5, 0, 0, true);
+
+        assertEquals(0, tree.getParentStreamId(5));
+        assertEquals(5, tree.getParentStreamId(1));
+        assertEquals(5, tree.getParentStreamId(3));
+        assertEquals(1, tree.getShare(5), DELTA);
+    }
+
+    @Test
+    public void testReprioritizeUnderDescendant() {
+        // RFC 7540, 5.3.3 example
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 1, 0, false);
+        tree.add(5, 1, 0, false);
+        tree.add(7, 5, 0, false);
+
+        tree.reprioritize(1, 7, 0, false);
+
+        assertEquals(0, tree.getParentStreamId(7));
+        assertEquals(7, tree.getParentStreamId(1));
+        assertEquals(1, tree.getParentStreamId(3));
+        assertEquals(1, tree.getParentStreamId(5));
+    }
+
+    @Test
+    public void testRemoveReparentsChildren() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 0, 32, false);
+        tree.add(5, 3, 10, false);
+        tree.add(7, 3, 30, false);
+
+        tree.remove(3);
+
+        assertEquals(3, tree.size());
+        assertEquals(0, tree.getParentStreamId(5));
+        assertEquals(8, tree.getWeight(5));
+        assertEquals(24, tree.getWeight(7));
+        assertEquals(0.5, tree.getShare(7), DELTA);
+
+        // unknown parent means the default priority
+        tree.add(9, 3, 0, false);
+        assertEquals(0, tree.getParentStreamId(9));
+    }
+
+    @Test
+    public void testIdleNodesBounded() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.setMaxIdleNodes(10);
+        tree.add(1, 0, 0, false);
+
+        // PRIORITY frames for streams, which are never opened
+        for (int streamId = 3; streamId < 2003; streamId += 2) {
+            tree.reprioritize(streamId, 1, 32, false);
+        }
+
+        assertEquals(10, tree.getIdleNodesCount());
+        assertEquals(11, tree.size());
+        // the oldest idle streams are forgotten
+        assertEquals(StreamPriorityTree.DEFAULT_WEIGHT, tree.getWeight(3));
+        assertEquals(32, tree.getWeight(2001));
+
+        // the opened stream keeps its priority and isn't idle anymore
+        tree.add(2001, 1, 0, false);
+        assertEquals(9, tree.getIdleNodesCount());
+        tree.setMaxIdleNodes(0);
+        assertEquals(0, tree.getIdleNodesCount());
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    public void testPriorityField() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        assertEquals(StreamPriorityTree.DEFAULT_URGENCY, tree.getUrgency(1));
+
+        tree.setPriorityField(1, "u=1, i");
+        assertEquals(1, tree.getUrgency(1));
+
+        tree.setPriorityField(1, "i=?0,u=6");
+        assertEquals(6, tree.getUrgency(1));
+
+        tree.setPriorityField(1, "u=9");
+        assertEquals(StreamPriorityTree.DEFAULT_URGENCY, tree.getUrgency(1));
+    }
+
+    /**
+     * Many sessions prioritize their streams concurrently, each session
+     * works with its own tree, so the sessions don't wait for each other.
+     */
+    @Test
+    public void testConcurrentSessions() throws Exception {
+        final int sessions = 8;
+        final int streams = 20000;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(sessions);
+            final List<Future<Integer>> results = new ArrayList<>(sessions);
+
+            for (int i = 0; i < sessions; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        final StreamPriorityTree tree = new StreamPriorityTree();
+                        final StreamScheduler<Integer> scheduler =
+                                new StreamScheduler<>(tree, 16384);
+                        barrier.await();
+
+                        for (int id = 1; id < streams * 2; id += 2) {
+                            tree.add(id, id > 8 ? id - 8 : 0, id % 256, false);
+                            tree.reprioritize(id, id > 2 ? id - 2 : 0, 32, false);
+                            scheduler.offer(id, id, 1000);
+                            assertEquals(Integer.valueOf(id), scheduler.poll());
+                            scheduler.served(1000, null);
+                            if (id > 16) {
+                                tree.remove(id - 16);
+                            }
+                        }
+
+                        return tree.size();
+                    }
+                }));
+            }
+
+            for (Future<Integer> result : results) {
+                assertEquals(8, result.get(60, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link StreamScheduler} tests.
+ */
+public class StreamSchedulerTest {
+
+    @Test
+    public void testUrgencyOrder() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 0, 0, false);
+        tree.add(5, 0, 0, false);
+        tree.setUrgency(5, 0);
+
+        final StreamScheduler<String> scheduler = new StreamScheduler<>(tree, 100);
+        scheduler.offer(1, "1a", 100);
+        scheduler.offer(1, "1b", 100);
+        scheduler.offer(3, "3a", 100);
+        scheduler.offer(3, "3b", 100);
+        scheduler.offer(5, "5a", 100);
+
+        // the most urgent stream first, then the equal streams interleaved
+        assertEquals("5a", poll(scheduler, 100));
+        assertEquals("1a", poll(scheduler, 100));
+        assertEquals("3a", poll(scheduler, 100));
+        assertEquals("1b", poll(scheduler, 100));
+        assertEquals("3b", poll(scheduler, 100));
+        assertNull(scheduler.poll());
+    }
+
+    @Test
+    public void testWeightedRoundRobin() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 64, false);
+        tree.add(3, 0, 16, false);
+
+        final StreamScheduler<Integer> scheduler = new StreamScheduler<>(tree, 1000);
+        for (int i = 0; i < 100; i++) {
+            scheduler.offer(1, 1, 1000);
+            scheduler.offer(3, 3, 1000);
+        }
+
+        int served1 = 0;
+        for (int i = 0; i < 50; i++) {
+            if (poll(scheduler, 1000) == 1) {
+                served1++;
+            }
+        }
+
+        assertEquals(40, served1);
+        assertEquals(60, scheduler.getQueuedCount(1));
+        assertEquals(90000, scheduler.getQueuedBytes(3));
+        assertEquals(40000, scheduler.getServedBytes(1));
+    }
+
+    @Test
+    public void testLargeFramesPayDebt() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 0, 0, false);
+
+        final StreamScheduler<Integer> scheduler = new StreamScheduler<>(tree, 1000);
+        for (int i = 0; i < 10; i++) {
+            scheduler.offer(1, 1, 3000);
+            scheduler.offer(3, 3, 1000);
+            scheduler.offer(3, 3, 1000);
+            scheduler.offer(3, 3, 1000);
+        }
+
+        // the stream with 3000 bytes frames waits for the debt to be paid
+        final int[] expected = {1, 3, 3, 3, 1, 3, 3, 3, 1};
+        for (int streamId : expected) {
+            final int served = poll(scheduler, streamId == 1 ? 3000 : 1000);
+            assertEquals(streamId, served);
+        }
+
+        assertEquals(9000, scheduler.getServedBytes(1));
+        assertEquals(6000, scheduler.getServedBytes(3));
+    }
+
+    @Test
+    public void testPartialWrite() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+        tree.add(3, 0, 0, false);
+
+        final StreamScheduler<String> scheduler = new StreamScheduler<>(tree, 1000);
+        scheduler.offer(1, "a", 1500);
+        scheduler.offer(1, "b", 100);
+        scheduler.offer(3, "c", 100);
+
+        // the stream continues while it has the deficit
+        assertEquals("a", scheduler.poll());
+        assertTrue(scheduler.served(500, "a"));
+        assertEquals(1100, scheduler.getQueuedBytes(1));
+        assertEquals("a", scheduler.poll());
+        assertTrue(scheduler.served(500, "a"));
+        assertEquals("c", poll(scheduler, 100));
+        assertEquals("a", poll(scheduler, 500));
+        assertEquals("b", poll(scheduler, 100));
+        assertEquals(0, scheduler.getActiveStreamsCount());
+
+        scheduler.offer(1, "d", 100);
+        assertEquals(1, scheduler.close().size());
+        assertFalse(scheduler.offer(1, "e", 100));
+        assertNull(scheduler.poll());
+    }
+
+    @Test
+    public void testCloseWhileServing() {
+        final StreamPriorityTree tree = new StreamPriorityTree();
+        tree.add(1, 0, 0, false);
+
+        final StreamScheduler<String> scheduler = new StreamScheduler<>(tree, 1000);
+        scheduler.offer(1, "a", 1500);
+        scheduler.offer(1, "b", 100);
+
+        assertEquals("a", scheduler.poll());
+        assertEquals(1, scheduler.close().size());
+        // the remainder isn't queued, the caller has to fail it
+        assertFalse(scheduler.served(500, "a"));
+        assertNull(scheduler.poll());
+    }
+
+    private static <E> E poll(final StreamScheduler<E> scheduler,
+            final int bytes) {
+        final E element = scheduler.poll();
+        scheduler.served(bytes, null);
+        return element;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link Huffman} and {@link Decoder} tests.
+ */
+public class HuffmanTest {
+
+    private static final MemoryManager MM = MemoryManager.DEFAULT_MEMORY_MANAGER;
+
+    // the header sets sent by the browsers for a page and its resources
+    private static final String[][][] BROWSER_HEADERS = {
+        {
+            {":method", "GET"}, {":scheme", "https"},
+            {":authority", "www.example.com"}, {":path", "/index.html?lang=en&q=grizzly"},
+            {"upgrade-insecure-requests", "1"},
+            {"user-agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/61.0.3163.100 Safari/537.36"},
+            {"accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8"},
+            {"accept-encoding", "gzip, deflate, br"},
+            {"accept-language", "en-US,en;q=0.9,de;q=0.8"},
+            {"cookie", "_ga=GA1.2.1084739137.1508162466; _gid=GA1.2.1951245326.1508162466; session=f3a0c2d6e8b94a1f"}
+        },
+        {
+            {":method", "GET"}, {":scheme", "https"},
+            {":authority", "www.example.com"}, {":path", "/static/css/main.7c4e1b2a.css"},
+            {"user-agent", "Mozilla/5.0 (Macintosh; Intel Mac OS X 10.13; rv:56.0) Gecko/20100101 Firefox/56.0"},
+            {"accept", "text/css,*/*;q=0.1"},
+            {"accept-language", "en-US,en;q=0.5"},
+            {"accept-encoding", "gzip, deflate, br"},
+            {"referer", "https://www.example.com/index.html?lang=en&q=grizzly"},
+            {"if-none-match", "W/\"5a0b-15f2b3c4d5e\""},
+            {"if-modified-since", "Mon, 16 Oct 2017 12:00:00 GMT"},
+            {"te", "trailers"}
+        },
+        {
+            {":method", "POST"}, {":scheme", "https"},
+            {":authority", "api.example.com"}, {":path", "/v1/events"},
+            {"content-type", "application/json;charset=UTF-8"},
+            {"content-length", "1532"},
+            {"origin", "https://www.example.com"},
+            {"user-agent", "Mozilla/5.0 (iPhone; CPU iPhone OS 11_0 like Mac OS X) AppleWebKit/604.1.38 (KHTML, like Gecko) Version/11.0 Mobile/15A372 Safari/604.1"},
+            {"x-requested-with", "XMLHttpRequest"},
+            {"x-csrf-token", "Fq8oD2x7KqZQ1vWm3yL0pA=="},
+            {"accept", "application/json, text/plain, */*"}
+        }
+    };
+
+    @Test
+    public void testAllCharsRoundTrip() {
+        final StringBuilder sb = new StringBuilder();
+        for (char c = 0; c < 256; c++) {
+            sb.append(c);
+        }
+        final String s = sb.toString();
+        final byte[] coded = encode(s);
+
+        // the whole string at once, the heap and the direct buffers
+        assertEquals(s, decode(Buffers.wrap(MM, coded), true));
+        final ByteBuffer direct = ByteBuffer.allocateDirect(coded.length);
+        direct.put(coded).flip();
+        assertEquals(s, decode(Buffers.wrap(MM, direct), true));
+
+        // byte by byte
+        final Huffman.Reader reader = new Huffman.Reader();
+        final HeaderBytes decoded = new HeaderBytes(1);
+        for (int i = 0; i < coded.length; i++) {
+            reader.read(Buffers.wrap(MM, new byte[] {coded[i]}), decoded,
+                    i == coded.length - 1);
+        }
+        assertEquals(s, decoded.toString());
+    }
+
+    @Test
+    public void testInvalidPadding() {
+        // 'a' is 00011, padded with zeros rather than the EOS prefix
+        assertInvalid(new byte[] {(byte) 0b00011000}, "Not a EOS prefix");
+        // 8 bits of the padding
+        assertInvalid(new byte[] {(byte) 0b00011111, (byte) 0xff}, "Padding is too long");
+        // EOS itself
+        assertInvalid(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff},
+                "Encountered EOS");
+
+        assertEquals("a", decode(Buffers.wrap(MM, new byte[] {(byte) 0b00011111}), true));
+    }
+
+    @Test
+    public void testBrowserHeaders() {
+        final List<Buffer> blocks = new ArrayList<>();
+        for (String[][] headers : BROWSER_HEADERS) {
+            blocks.add(encodeBlock(headers));
+        }
+
+        for (int i = 0; i < BROWSER_HEADERS.length; i++) {
+            final List<String> decoded = decodeBlock(blocks.get(i));
+            final String[][] headers = BROWSER_HEADERS[i];
+            assertEquals(headers.length * 2, decoded.size());
+            for (int j = 0; j < headers.length; j++) {
+                assertEquals(headers[j][0], decoded.get(j * 2));
+                assertEquals(headers[j][1], decoded.get(j * 2 + 1));
+            }
+        }
+    }
+
+    private static void assertInvalid(final byte[] coded, final String message) {
+        try {
+            decode(Buffers.wrap(MM, coded), true);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private static byte[] encode(final String s) {
+        final Buffer buffer = MM.allocate(s.length() * 4);
+        assertTrue(new Huffman.Writer().from(s, 0, s.length()).write(buffer));
+        buffer.flip();
+
+        final byte[] coded = new byte[buffer.remaining()];
+        buffer.get(coded);
+        assertEquals(Huffman.INSTANCE.lengthOf(s), coded.length);
+        return coded;
+    }
+
+    private static String decode(final Buffer coded, final boolean isLast) {
+        final HeaderBytes decoded = new HeaderBytes(4);
+        new Huffman.Reader().read(coded, decoded, isLast);
+        return decoded.toString();
+    }
+
+    private static Buffer encodeBlock(final String[][] headers) {
+        final Encoder encoder = new Encoder(4096);
+        final Buffer block = MM.allocate(4096);
+        for (String[] header : headers) {
+            encoder.header(header[0], header[1]);
+            assertTrue(encoder.encode(block));
+        }
+        block.flip();
+        return block;
+    }
+
+    private static List<String> decodeBlock(final Buffer block) {
+        final List<String> decoded = new ArrayList<>();
+        new Decoder(4096).decode(block.duplicate(), true, new DecodingCallback() {
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value) {
+                decoded.add(name.toString());
+                decoded.add(value.toString());
+            }
+        });
+        return decoded;
+    }
+}
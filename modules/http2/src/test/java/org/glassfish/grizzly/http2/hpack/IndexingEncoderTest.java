@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link IndexingEncoder} and {@link HeaderTable} tests.
+ */
+public class IndexingEncoderTest {
+
+    private static final MemoryManager MM = MemoryManager.DEFAULT_MEMORY_MANAGER;
+
+    @Test
+    public void testStaticTableLookup() {
+        final HeaderTable table = new HeaderTable(0);
+        // every static entry is found, not only the first one of the name
+        assertEquals(3, table.indexOf(":method", "POST"));
+        assertEquals(13, table.indexOf(":status", "404"));
+        assertEquals(16, table.indexOf("accept-encoding", "gzip, deflate"));
+        assertEquals(-8, table.indexOf(":status", "302"));
+        assertEquals(-31, table.indexOf("content-type", "text/html"));
+        assertEquals(0, table.indexOf("x-unknown", "1"));
+        for (int i = 1; i <= 61; i++) {
+            final HeaderTable.HeaderField f = table.get(i);
+            final int index = table.indexOf(f.name, f.value);
+            assertEquals(f.toString(), i, index);
+        }
+    }
+
+    @Test
+    public void testDynamicTableIndexes() {
+        final HeaderTable table = new HeaderTable(4096);
+        table.put("x-a", "1");
+        table.put("x-a", "2");
+        table.put("x-b", "3");
+
+        assertEquals(62, table.indexOf("x-b", "3"));
+        assertEquals(63, table.indexOf("x-a", "2"));
+        assertEquals(64, table.indexOf("x-a", "1"));
+
+        // the same field again, then evict the old copy
+        table.put("x-a", "1");
+        assertEquals(62, table.indexOf("x-a", "1"));
+        table.evictEntry();
+        assertEquals(62, table.indexOf("x-a", "1"));
+        assertEquals(64, table.indexOf("x-a", "2"));
+    }
+
+    @Test
+    public void testAdmission() {
+        final Session session = new Session();
+        // the first header carries the table size update
+        session.encode(":status", "200");
+
+        // the repeated header is admitted on the second occurrence
+        final int literalLength = session.encode("content-type", "text/html;charset=UTF-8");
+        assertTrue(literalLength > 1);
+        assertEquals(0b0100_0000, session.encode("content-type", "text/html;charset=UTF-8", 0) & 0b1100_0000);
+        assertEquals(1, session.encode("content-type", "text/html;charset=UTF-8"));
+
+        // the volatile headers are never added to the table
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, session.encode(":path", "/data?id=42", 0) & 0b1111_0000);
+        }
+
+        // the sensitive headers are never indexed
+        assertEquals(0b0001_0000, session.encode("authorization", "Basic dXNlcjpwYXNz", 0) & 0b1111_0000);
+        assertEquals(0b0001_0000, session.encode("cookie", "id=1", 0) & 0b1111_0000);
+
+        session.assertDecoded();
+    }
+
+    @Test
+    public void testCompressionRatio() {
+        final String[][] response = {
+            {":status", "200"},
+            {"server", "Grizzly/2.4"},
+            {"date", "Thu, 19 Oct 2017 10:00:00 GMT"},
+            {"content-type", "application/json"},
+            {"cache-control", "private, max-age=0, no-cache"},
+            {"vary", "Accept-Encoding"},
+            {"content-encoding", "gzip"},
+            {"content-length", "1234"},
+            {"etag", "\"a1b2\""}
+        };
+
+        final Session plain = new Session(new Encoder(4096));
+        final Session indexing = new Session();
+        int plainLength = 0;
+        int indexingLength = 0;
+        for (int i = 0; i < 100; i++) {
+            for (String[] header : response) {
+                final String value = header[0].equals("etag") ? "\"" + i + "\"" : header[1];
+                plainLength += plain.encode(header[0], value);
+                indexingLength += indexing.encode(header[0], value);
+            }
+        }
+
+        plain.assertDecoded();
+        indexing.assertDecoded();
+        assertTrue(indexingLength * 2 < plainLength);
+    }
+
+    /**
+     * The encoder and the decoder of a connection.
+     */
+    private static final class Session {
+        private final Encoder encoder;
+        private final Decoder decoder = new Decoder(4096);
+        private final List<String> sent = new ArrayList<>();
+        private final List<String> received = new ArrayList<>();
+
+        private Session() {
+            this(new IndexingEncoder(4096));
+        }
+
+        private Session(final Encoder encoder) {
+            this.encoder = encoder;
+        }
+
+        int encode(final String name, final String value) {
+            return encode(name, value, -1);
+        }
+
+        /**
+         * @return the encoded length, or the encoded byte at the index
+         */
+        int encode(final String name, final String value, final int index) {
+            final Buffer buffer = MM.allocate(1024);
+            encoder.header(name, value);
+            assertTrue(encoder.encode(buffer));
+            buffer.flip();
+            sent.add(name + ": " + value);
+
+            final int result = index == -1 ? buffer.remaining() : buffer.get(index) & 0xff;
+            decoder.decode(buffer, true, new DecodingCallback() {
+                @Override
+                public void onDecoded(CharSequence name, CharSequence value) {
+                    received.add(name + ": " + value);
+                }
+            });
+            return result;
+        }
+
+        void assertDecoded() {
+            assertEquals(sent, received);
+        }
+    }
+}
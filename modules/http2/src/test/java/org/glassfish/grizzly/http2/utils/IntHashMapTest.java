@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * {@link IntHashMap} tests.
+ */
+public class IntHashMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        final IntHashMap<String> map = new IntHashMap<>();
+        for (int i = 1; i < 2000; i += 2) {
+            assertNull(map.put(i, "s" + i));
+        }
+        assertEquals(1000, map.size());
+
+        for (int i = 1; i < 2000; i += 2) {
+            assertEquals("s" + i, map.get(i));
+            assertNull(map.get(i + 1));
+        }
+
+        assertEquals("s5", map.put(5, "x"));
+        assertEquals("x", map.get(5));
+        assertEquals(1000, map.size());
+
+        for (int i = 1; i < 1999; i += 2) {
+            assertEquals(i == 5 ? "x" : "s" + i, map.remove(i));
+        }
+        assertNull(map.remove(1));
+        assertEquals(1, map.size());
+        assertEquals("s1999", map.get(1999));
+        assertEquals(Collections.singletonList("s1999"), map.values());
+        assertEquals(1999, map.keys()[0]);
+    }
+
+    @Test
+    public void testRemovedMarkersReused() {
+        final IntHashMap<Integer> map = new IntHashMap<>();
+        // the sliding window of the open streams
+        for (int i = 1; i < 100000; i++) {
+            map.put(i, i);
+            if (i > 100) {
+                assertEquals(Integer.valueOf(i - 100), map.remove(i - 100));
+            }
+        }
+
+        assertEquals(100, map.size());
+        final List<Integer> values = map.values();
+        Collections.sort(values);
+        assertEquals(Integer.valueOf(99900), values.get(0));
+        assertEquals(Integer.valueOf(99999), values.get(99));
+    }
+
+    /**
+     * 1000 concurrent streams of a session are looked up by the frame
+     * processing threads, while the streams are opened and closed.
+     */
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final int streams = 1000;
+        final int readers = 4;
+
+        final IntHashMap<Integer> map = new IntHashMap<>();
+        for (int i = 1; i <= streams * 2; i += 2) {
+            map.put(i, i);
+        }
+
+        final AtomicBoolean isDone = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(readers);
+        final ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            final Future<?>[] results = new Future<?>[readers];
+            for (int r = 0; r < readers; r++) {
+                results[r] = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        started.countDown();
+                        while (!isDone.get()) {
+                            // the streams below 2 * streams are never removed
+                            for (int i = 1; i <= streams * 2; i += 2) {
+                                assertEquals(i, map.get(i).intValue());
+                            }
+                        }
+                    }
+                });
+            }
+
+            started.await(10, TimeUnit.SECONDS);
+
+            // open and close the other streams
+            int nextId = streams * 2 + 1;
+            for (int i = 0; i < 200000; i++) {
+                map.put(nextId, nextId);
+                if (i >= streams) {
+                    map.remove(nextId - streams * 2);
+                }
+                nextId += 2;
+            }
+
+            isDone.set(true);
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(streams * 2, map.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpHeader;
 import org.glassfish.grizzly.http.HttpServerFilter;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.utils.IdleTimeoutFilter;
 
 /**
@@ -100,6 +101,12 @@ public abstract class BaseWebSocketFilter extends BaseFilter {
                 // close it gracefully
                 ws.close();
             }
+
+            // release the compression contexts
+            final WebSocketHolder holder = WebSocketHolder.get(connection);
+            if (holder != null && holder.handler != null) {
+                holder.handler.setDeflateCodec(null);
+            }
         }
         return ctx.getInvokeAction();
     }
@@ -162,34 +169,94 @@ public abstract class BaseWebSocketFilter extends BaseFilter {
 
             Buffer buffer = message.getContent();
             message.recycle();
-            // check if we're currently parsing a frame
-            try {
-                while (buffer != null && buffer.hasRemaining()) {
-                    if (holder.buffer != null) {
-                        buffer = Buffers.appendBuffers(
-                                ctx.getMemoryManager(), holder.buffer, buffer);
-                        
-                        holder.buffer = null;
-                    }
-                    final DataFrame result = holder.handler.unframe(buffer);
-                    if (result == null) {
-                        holder.buffer = buffer;
-                        break;
-                    } else {
-                        result.respond(holder.webSocket);
+            while (processFrames(holder, buffer, ctx.getMemoryManager())) {
+                synchronized (holder) {
+                    if (holder.isReadPaused) {
+                        // the connection is not read until the context resumes
+                        ctx.suspend();
+                        holder.pausedContext = ctx;
+                        return ctx.getSuspendAction();
                     }
                 }
-            } catch (FramingException e) {
-                holder.webSocket.onClose(new ClosingFrame(e.getClosingCode(), e.getMessage()));
-            } catch (Exception wse) {
-                if (holder.application.onError(holder.webSocket, wse)) {
-                    holder.webSocket.onClose(new ClosingFrame(1011, wse.getMessage()));
-                }
+                // resumed concurrently, the remainder is processed here
+                buffer = null;
             }
         }
         return ctx.getStopAction();
     }
 
+    /**
+     * Parses the frames and notifies the {@link WebSocket}.
+     *
+     * @return <tt>true</tt> if the reading was paused, the unprocessed
+     *  bytes are kept in the {@link WebSocketHolder}.
+     */
+    static boolean processFrames(final WebSocketHolder holder, Buffer buffer,
+            final MemoryManager memoryManager) {
+        // check if we're currently parsing a frame
+        if (holder.buffer != null) {
+            buffer = buffer != null
+                    ? Buffers.appendBuffers(memoryManager, holder.buffer, buffer)
+                    : holder.buffer;
+            holder.buffer = null;
+        }
+
+        try {
+            while (buffer != null && buffer.hasRemaining()) {
+                if (holder.isReadPaused) {
+                    holder.buffer = buffer;
+                    return true;
+                }
+                final DataFrame result = holder.handler.unframe(buffer);
+                if (result == null) {
+                    holder.buffer = buffer;
+                    break;
+                } else {
+                    result.respond(holder.webSocket);
+                }
+            }
+        } catch (FramingException e) {
+            holder.webSocket.onClose(new ClosingFrame(e.getClosingCode(), e.getMessage()));
+        } catch (Exception wse) {
+            if (holder.application.onError(holder.webSocket, wse)) {
+                holder.webSocket.onClose(new ClosingFrame(1011, wse.getMessage()));
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Resumes the reading paused by {@link WebSocket#pauseReading()}:
+     * the frames received before are processed on the calling thread
+     * and the suspended read context, if any, is resumed.
+     */
+    static void resumeReading(final WebSocketHolder holder) {
+        final FilterChainContext ctx;
+        synchronized (holder) {
+            holder.isReadPaused = false;
+            ctx = holder.pausedContext;
+            holder.pausedContext = null;
+        }
+
+        if (ctx == null) {
+            // the reading hasn't been suspended yet
+            return;
+        }
+
+        while (processFrames(holder, null, ctx.getMemoryManager())) {
+            synchronized (holder) {
+                if (holder.isReadPaused) {
+                    // the context stays suspended
+                    holder.pausedContext = ctx;
+                    return;
+                }
+            }
+        }
+
+        ctx.resume(ctx.getStopAction());
+    }
+
     /**
      * Handle Grizzly {@link Connection} write phase. If the {@link Connection} has associated {@link WebSocket} object
      * (websocket connection), we assume that message is websocket {@link DataFrame} and serialize it into a {@link
@@ -210,8 +277,7 @@ public abstract class BaseWebSocketFilter extends BaseFilter {
         if (websocket != null && DataFrame.isDataFrame(msg)) {
             final DataFrame frame = (DataFrame) msg;
             final WebSocketHolder holder = WebSocketHolder.get(ctx.getConnection());
-            final Buffer wrap = Buffers.wrap(ctx.getMemoryManager(), holder.handler.frame(frame));
-            ctx.setMessage(wrap);
+            ctx.setMessage(holder.handler.frame(ctx.getMemoryManager(), frame));
         }
         // invoke next filter in the chain
         return ctx.getInvokeAction();
@@ -256,8 +322,16 @@ public abstract class BaseWebSocketFilter extends BaseFilter {
     protected void setIdleTimeout(final FilterChainContext ctx) {
         final FilterChain filterChain = ctx.getFilterChain();
         if (filterChain.indexOfType(IdleTimeoutFilter.class) >= 0) {
+            long timeoutMS = wsTimeoutMS;
+            final HeartbeatScheduler heartbeat =
+                    WebSocketEngine.getEngine().getHeartbeatScheduler();
+            if (heartbeat != null) {
+                // the heartbeats keep the healthy sockets active,
+                // the dead peers are reaped by the heartbeat scheduler
+                timeoutMS = Math.max(timeoutMS, heartbeat.getReapTimeoutMillis());
+            }
             IdleTimeoutFilter.setCustomTimeout(ctx.getConnection(),
-                    wsTimeoutMS, TimeUnit.MILLISECONDS);
+                    timeoutMS, TimeUnit.MILLISECONDS);
         }
     }
 }
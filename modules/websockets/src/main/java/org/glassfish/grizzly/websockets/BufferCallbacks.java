@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * Tells which binary callbacks a {@link SimpleWebSocket} subclass or
+ * a {@link WebSocketListener} implements, so the {@link Buffer} payloads
+ * are delivered without copying only where the {@link Buffer} callbacks
+ * are overridden, and the byte[] callbacks, the original extension point,
+ * keep receiving every binary message.
+ */
+final class BufferCallbacks {
+    private static final ClassValue<BufferCallbacks> SOCKETS =
+            new ClassValue<BufferCallbacks>() {
+                @Override
+                protected BufferCallbacks computeValue(final Class<?> type) {
+                    return new BufferCallbacks(
+                            isOverridden(type, SimpleWebSocket.class,
+                                    "onMessage", byte[].class),
+                            isOverridden(type, SimpleWebSocket.class,
+                                    "onFragment", boolean.class, byte[].class));
+                }
+            };
+
+    private static final ClassValue<BufferCallbacks> LISTENERS =
+            new ClassValue<BufferCallbacks>() {
+                @Override
+                protected BufferCallbacks computeValue(final Class<?> type) {
+                    return new BufferCallbacks(
+                            isOverridden(type, WebSocketListener.class,
+                                    "onMessage", WebSocket.class, Buffer.class),
+                            isOverridden(type, WebSocketListener.class,
+                                    "onFragment", WebSocket.class, Buffer.class,
+                                    boolean.class));
+                }
+            };
+
+    final boolean isMessageOverridden;
+    final boolean isFragmentOverridden;
+
+    private BufferCallbacks(final boolean isMessageOverridden,
+            final boolean isFragmentOverridden) {
+        this.isMessageOverridden = isMessageOverridden;
+        this.isFragmentOverridden = isFragmentOverridden;
+    }
+
+    /**
+     * @return whether the {@link SimpleWebSocket} subclass overrides
+     *  the byte[] <tt>onMessage</tt> and <tt>onFragment</tt> callbacks.
+     */
+    static BufferCallbacks ofSocket(final SimpleWebSocket socket) {
+        return SOCKETS.get(socket.getClass());
+    }
+
+    /**
+     * @return whether the {@link WebSocketListener} overrides
+     *  the {@link Buffer} <tt>onMessage</tt> and <tt>onFragment</tt> callbacks.
+     */
+    static BufferCallbacks ofListener(final WebSocketListener listener) {
+        return LISTENERS.get(listener.getClass());
+    }
+
+    private static boolean isOverridden(final Class<?> type,
+            final Class<?> base, final String name,
+            final Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes).getDeclaringClass() != base;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.glassfish.grizzly.websockets;
 
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.utils.Charsets;
 
 import java.io.IOException;
@@ -34,6 +35,7 @@ public class DataFrame {
     
     private String payload;
     private byte[] bytes;
+    private Buffer buffer;
     private final FrameType type;
     private boolean last = true;
     
@@ -61,6 +63,18 @@ public class DataFrame {
         last = fin;
     }
 
+    /**
+     * Creates the frame carrying the {@link Buffer} payload, the payload
+     * is not copied.
+     *
+     * @since 2.4.4
+     */
+    public DataFrame(FrameType type, Buffer data, boolean fin) {
+        this.type = type;
+        buffer = data;
+        last = fin;
+    }
+
     public FrameType getType() {
         return type;
     }
@@ -80,10 +94,23 @@ public class DataFrame {
     public byte[] getBytes() {
         if (payload != null) {
             bytes = Utf8Utils.encode(Charsets.UTF8_CHARSET, payload);
+        } else if (bytes == null && buffer != null) {
+            bytes = Utils.toArray(buffer);
         }
         return bytes;
     }
 
+    /**
+     * @return the {@link Buffer} payload, or <tt>null</tt> if the frame
+     *  payload is not a {@link Buffer}. The received frame {@link Buffer}
+     *  is valid only until the frame is processed.
+     *
+     * @since 2.4.4
+     */
+    public Buffer getBuffer() {
+        return buffer;
+    }
+
     public void toStream(final OutputStream os) throws IOException {
         if (payload != null) {
             Utf8Utils.encode(Charsets.UTF8_CHARSET, payload, os);
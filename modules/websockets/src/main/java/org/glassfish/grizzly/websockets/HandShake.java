@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Set;
 import java.util.TreeSet;
@@ -52,6 +53,8 @@ public abstract class HandShake {
     //private final Map<String, String[]> queryParams = new TreeMap<String, String[]>();
     private List<String> subProtocol = new ArrayList<String>();
     private List<Extension> extensions = new ArrayList<Extension>(); // client extensions
+    private PerMessageDeflate perMessageDeflate; // client permessage-deflate offer
+    private PerMessageDeflate.Codec deflateCodec;
 
     public HandShake(URI url) {
         builder = HttpRequestPacket.builder()
@@ -169,6 +172,40 @@ public abstract class HandShake {
         this.extensions = extensions;
     }
 
+    /**
+     * @return the client <tt>permessage-deflate</tt> configuration, or
+     *  <tt>null</tt> if the extension is not offered.
+     *
+     * @since 2.4.4
+     */
+    public PerMessageDeflate getPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    /**
+     * Offers the <tt>permessage-deflate</tt> extension to the server.
+     * The server side configuration is provided by
+     * {@link WebSocketApplication#setPerMessageDeflate(PerMessageDeflate)}.
+     *
+     * @param perMessageDeflate the client configuration
+     *
+     * @since 2.4.4
+     */
+    public void setPerMessageDeflate(final PerMessageDeflate perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+        extensions.add(perMessageDeflate.createOffer());
+    }
+
+    /**
+     * @return the negotiated <tt>permessage-deflate</tt> {@link PerMessageDeflate.Codec},
+     *  or <tt>null</tt> if the extension was not negotiated.
+     *
+     * @since 2.4.4
+     */
+    public PerMessageDeflate.Codec getDeflateCodec() {
+        return deflateCodec;
+    }
+
     protected final String joinExtensions(List<Extension> extensions) {
         StringBuilder sb = new StringBuilder();
         for (Extension e : extensions) {
@@ -301,6 +338,24 @@ public abstract class HandShake {
         checkForHeader(headers, Constants.UPGRADE, Constants.WEBSOCKET);
         checkForHeader(headers, Constants.CONNECTION, Constants.UPGRADE);
         checkForSubProtocol(headers);
+        checkForExtensions(headers);
+    }
+
+    private void checkForExtensions(final HttpResponsePacket headers) {
+        final String value = headers.getHeader(Constants.SEC_WS_EXTENSIONS_HEADER);
+        if (value == null) {
+            return;
+        }
+
+        for (Extension extension : parseExtensionsHeader(value)) {
+            if (PerMessageDeflate.NAME.equals(extension.getName())) {
+                if (perMessageDeflate == null || deflateCodec != null) {
+                    throw new HandshakeException(String.format(
+                            "Invalid Sec-WebSocket-Extensions header returned: '%s'", value));
+                }
+                deflateCodec = perMessageDeflate.createCodec(extension, false);
+            }
+        }
     }
 
     public void respond(final FilterChainContext ctx,
@@ -320,8 +375,14 @@ public abstract class HandShake {
             List<Extension> intersection =
                     intersection(getExtensions(),
                                  application.getSupportedExtensions());
+            final PerMessageDeflate deflate = application.getPerMessageDeflate();
+            final Extension deflateResponse =
+                    acceptPerMessageDeflate(intersection, deflate);
             if (!intersection.isEmpty()) {
                 application.onExtensionNegotiation(intersection);
+                if (deflateResponse != null && intersection.contains(deflateResponse)) {
+                    deflateCodec = deflate.createCodec(deflateResponse, true);
+                }
                 response.setHeader(Constants.SEC_WS_EXTENSIONS_HEADER,
                                    joinExtensions(intersection));
             }
@@ -332,6 +393,33 @@ public abstract class HandShake {
 
     protected abstract void setHeaders(HttpResponsePacket response);
 
+    /**
+     * Replaces the first acceptable <tt>permessage-deflate</tt> offer with
+     * the server response, the rest of the offers are removed.
+     */
+    private static Extension acceptPerMessageDeflate(final List<Extension> extensions,
+            final PerMessageDeflate deflate) {
+        Extension accepted = null;
+        for (ListIterator<Extension> it = extensions.listIterator(); it.hasNext(); ) {
+            final Extension extension = it.next();
+            if (!PerMessageDeflate.NAME.equals(extension.getName())) {
+                continue;
+            }
+
+            final Extension response = accepted == null && deflate != null
+                    ? deflate.accept(extension)
+                    : null;
+            if (response != null) {
+                accepted = response;
+                it.set(response);
+            } else {
+                it.remove();
+            }
+        }
+
+        return accepted;
+    }
+
     protected final List<String> split(final String header) {
         if (header == null) {
             return Collections.emptyList();
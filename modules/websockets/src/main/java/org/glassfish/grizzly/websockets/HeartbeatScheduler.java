@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.utils.IdleTimeoutFilter;
+
+/**
+ * Sends the heartbeat pings to the registered {@link WebSocket}s and
+ * terminates the connections of the peers, which missed the configured number
+ * of heartbeats in a row.
+ *
+ * The sockets are kept in a hashed timing wheel, which has a bucket per tick
+ * of the heartbeat interval. Each tick visits a single bucket and pings
+ * its sockets in a batch, the ping frame being serialized once per tick,
+ * so each socket costs <tt>O(1)</tt> per interval and the sockets registered
+ * at different times are spread across the interval.
+ *
+ * The ping payload carries the tick time, so the echoed pong gives the
+ * round-trip latency without keeping the per-ping state.
+ *
+ * The heartbeat frames pass through the {@link IdleTimeoutFilter}, so the idle
+ * but responsive sockets are not closed by the idle timeout, which the
+ * websocket filters keep above {@link #getReapTimeoutMillis()}.
+ *
+ * @see WebSocketEngine#setHeartbeatScheduler(HeartbeatScheduler)
+ * @since 2.4.4
+ */
+public class HeartbeatScheduler {
+    private static final Logger LOGGER = Grizzly.logger(HeartbeatScheduler.class);
+
+    /**
+     * The default number of the heartbeats a peer may miss in a row before
+     * its connection is terminated.
+     */
+    public static final int DEFAULT_MAX_MISSED_HEARTBEATS = 3;
+
+    /**
+     * The default number of the timing wheel ticks per heartbeat interval.
+     */
+    public static final int DEFAULT_TICKS_PER_INTERVAL = 64;
+
+    private final long intervalMillis;
+    private final int maxMissedHeartbeats;
+    private final long tickNanos;
+
+    // the timing wheel buckets, accessed by the ticker thread only
+    private final Heartbeat[] wheel;
+    private long tick;
+
+    // the sockets to be added to the wheel on the next tick
+    private final Queue<Heartbeat> registered =
+            new ConcurrentLinkedQueue<Heartbeat>();
+    private final AtomicInteger socketsCount = new AtomicInteger();
+    private final AtomicLong reapedCount = new AtomicLong();
+    private final LatencyHistogram pongLatency = new LatencyHistogram();
+
+    private ScheduledExecutorService ticker;
+    private boolean isStopped;
+
+    /**
+     * Constructs the <tt>HeartbeatScheduler</tt> terminating the connections
+     * after {@link #DEFAULT_MAX_MISSED_HEARTBEATS} missed heartbeats.
+     *
+     * @param interval the heartbeat interval.
+     * @param unit the interval {@link TimeUnit}.
+     */
+    public HeartbeatScheduler(final long interval, final TimeUnit unit) {
+        this(interval, unit, DEFAULT_MAX_MISSED_HEARTBEATS);
+    }
+
+    /**
+     * @param interval the heartbeat interval.
+     * @param unit the interval {@link TimeUnit}.
+     * @param maxMissedHeartbeats the number of the heartbeats a peer may miss
+     *  in a row before its connection is terminated.
+     */
+    public HeartbeatScheduler(final long interval, final TimeUnit unit,
+            final int maxMissedHeartbeats) {
+        this(interval, unit, maxMissedHeartbeats, DEFAULT_TICKS_PER_INTERVAL);
+    }
+
+    /**
+     * @param interval the heartbeat interval.
+     * @param unit the interval {@link TimeUnit}.
+     * @param maxMissedHeartbeats the number of the heartbeats a peer may miss
+     *  in a row before its connection is terminated.
+     * @param ticksPerInterval the number of the timing wheel buckets,
+     *  the sockets are pinged in <tt>ticksPerInterval</tt> batches
+     *  per interval.
+     */
+    public HeartbeatScheduler(final long interval, final TimeUnit unit,
+            final int maxMissedHeartbeats, final int ticksPerInterval) {
+        if (interval <= 0 || unit == null) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (maxMissedHeartbeats < 1) {
+            throw new IllegalArgumentException("maxMissedHeartbeats must be positive");
+        }
+        if (ticksPerInterval < 1) {
+            throw new IllegalArgumentException("ticksPerInterval must be positive");
+        }
+
+        intervalMillis = unit.toMillis(interval);
+        this.maxMissedHeartbeats = maxMissedHeartbeats;
+        tickNanos = Math.max(unit.toNanos(interval) / ticksPerInterval, 1);
+        wheel = new Heartbeat[ticksPerInterval];
+    }
+
+    /**
+     * @return the heartbeat interval in milliseconds.
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @return the number of the heartbeats a peer may miss in a row before
+     *  its connection is terminated.
+     */
+    public int getMaxMissedHeartbeats() {
+        return maxMissedHeartbeats;
+    }
+
+    /**
+     * @return the longest time in milliseconds a registered socket may stay
+     *  silent before its connection is terminated.
+     */
+    public long getReapTimeoutMillis() {
+        return intervalMillis * (maxMissedHeartbeats + 1);
+    }
+
+    /**
+     * @return the number of the registered sockets.
+     */
+    public int getSocketsCount() {
+        return socketsCount.get();
+    }
+
+    /**
+     * @return the number of the connections terminated, because their peers
+     *  missed the heartbeats.
+     */
+    public long getReapedCount() {
+        return reapedCount.get();
+    }
+
+    /**
+     * Returns the ping round-trip latency percentile in microseconds.
+     * The value is rounded up to the power of two.
+     *
+     * @param percentile the percentile in the <tt>(0, 100]</tt> range.
+     * @return the pong latency percentile in microseconds, or <tt>-1</tt>
+     *  if no pongs were received.
+     */
+    public long getPongLatencyPercentile(final double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in the (0, 100] range");
+        }
+        return pongLatency.percentile(percentile);
+    }
+
+    /**
+     * Resets the pong latency statistics.
+     */
+    public void resetPongLatency() {
+        pongLatency.reset();
+    }
+
+    /**
+     * Registers the {@link WebSocket} to be pinged every heartbeat interval,
+     * starting one interval after the registration. The socket is unregistered
+     * once it's closed.
+     *
+     * @throws IllegalStateException if the scheduler is stopped.
+     */
+    public void register(final WebSocket socket) {
+        if (socket == null) {
+            throw new IllegalArgumentException("socket can't be null");
+        }
+
+        final Heartbeat heartbeat = new Heartbeat(socket);
+        synchronized (this) {
+            if (isStopped) {
+                throw new IllegalStateException("The HeartbeatScheduler is stopped");
+            }
+
+            socketsCount.incrementAndGet();
+            registered.offer(heartbeat);
+            start();
+        }
+        socket.add(heartbeat);
+    }
+
+    /**
+     * Stops the heartbeats, the registered sockets are not pinged anymore
+     * and no more sockets can be registered.
+     */
+    public synchronized void stop() {
+        isStopped = true;
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private synchronized void start() {
+        if (ticker != null || isStopped) {
+            return;
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread newThread = new Thread(r);
+                newThread.setName("Grizzly-WebSocket-Heartbeat");
+                newThread.setDaemon(true);
+                return newThread;
+            }
+        });
+        ticker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick();
+                } catch (Throwable t) {
+                    LOGGER.log(Level.WARNING, "The heartbeat tick failed", t);
+                }
+            }
+        }, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Pings the sockets of the current wheel bucket, removing the closed
+     * and reaped ones.
+     */
+    void tick() {
+        final int index = (int) (tick++ % wheel.length);
+        final Ping ping = new Ping(System.nanoTime());
+
+        Heartbeat previous = null;
+        Heartbeat heartbeat = wheel[index];
+        while (heartbeat != null) {
+            final Heartbeat next = heartbeat.next;
+            if (heartbeat.beat(ping)) {
+                previous = heartbeat;
+            } else {
+                // unlink the closed socket
+                if (previous == null) {
+                    wheel[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                heartbeat.next = null;
+                socketsCount.decrementAndGet();
+            }
+            heartbeat = next;
+        }
+
+        // the new sockets are first pinged in a heartbeat interval
+        while ((heartbeat = registered.poll()) != null) {
+            heartbeat.next = wheel[index];
+            wheel[index] = heartbeat;
+        }
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+
+    /**
+     * The tick ping, serialized once for the sockets, which don't mask
+     * the frames.
+     */
+    private static final class Ping {
+        private final long nanos;
+        private final byte[] payload;
+        private byte[] rawData;
+
+        Ping(final long nanos) {
+            this.nanos = nanos;
+            payload = new byte[8];
+            for (int i = 0; i < 8; i++) {
+                payload[i] = (byte) (nanos >>> (56 - 8 * i));
+            }
+        }
+
+        void send(final WebSocket socket) {
+            if (socket instanceof SimpleWebSocket
+                    && !((SimpleWebSocket) socket).protocolHandler.isMaskData()) {
+                final SimpleWebSocket simpleWebSocket = (SimpleWebSocket) socket;
+                if (rawData == null) {
+                    rawData = simpleWebSocket.toRawPing(payload);
+                }
+                simpleWebSocket.sendRaw(rawData);
+            } else {
+                socket.sendPing(payload);
+            }
+        }
+    }
+
+    /**
+     * The socket heartbeat state, the timing wheel bucket entry.
+     */
+    private final class Heartbeat extends WebSocketAdapter {
+        private final WebSocket socket;
+        // the next entry in the bucket, accessed by the ticker thread only
+        private Heartbeat next;
+
+        // the last ping and the missed pongs count, updated by the ticker
+        private volatile long pingNanos;
+        private int missedCount;
+        // the last ping echoed by the peer
+        private volatile long pongNanos;
+        private volatile boolean isClosed;
+
+        Heartbeat(final WebSocket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * @return <tt>false</tt> if the socket has to be removed from the wheel.
+         */
+        boolean beat(final Ping ping) {
+            if (isClosed || !socket.isConnected()) {
+                return false;
+            }
+
+            if (pingNanos != 0 && pongNanos != pingNanos) {
+                if (++missedCount >= maxMissedHeartbeats) {
+                    reap();
+                    return false;
+                }
+            } else {
+                missedCount = 0;
+            }
+
+            pingNanos = ping.nanos;
+            try {
+                ping.send(socket);
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to send the heartbeat ping", e);
+            }
+
+            return true;
+        }
+
+        private void reap() {
+            reapedCount.incrementAndGet();
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Terminating {0}, which missed {1} heartbeats",
+                        new Object[]{socket, missedCount});
+            }
+
+            final Connection connection = socket instanceof SimpleWebSocket
+                    ? ((SimpleWebSocket) socket).protocolHandler.getConnection()
+                    : null;
+            if (connection != null) {
+                // the close frame would wait behind the unsent data
+                connection.terminateSilently();
+            } else {
+                try {
+                    socket.close(WebSocket.END_POINT_GOING_DOWN, "Missed heartbeats");
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Failed to close the socket", e);
+                }
+            }
+        }
+
+        @Override
+        public void onPong(final WebSocket socket, final byte[] bytes) {
+            if (bytes == null || bytes.length != 8) {
+                return;
+            }
+
+            final long echoedNanos = Utils.toLong(bytes, 0, 8);
+            if (echoedNanos == pingNanos) {
+                pongNanos = echoedNanos;
+                pongLatency.record(System.nanoTime() - echoedNanos);
+            }
+        }
+
+        @Override
+        public void onClose(final WebSocket socket, final DataFrame frame) {
+            isClosed = true;
+        }
+
+        // the binary messages are not copied for the heartbeat
+
+        @Override
+        public void onMessage(final WebSocket socket, final Buffer buffer) {
+        }
+
+        @Override
+        public void onFragment(final WebSocket socket, final Buffer fragment,
+                final boolean last) {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latency histogram with the power of two microsecond buckets.
+ */
+final class LatencyHistogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    void record(final long nanos) {
+        final long micros = Math.max(nanos, 0) / 1000;
+        // the bucket i keeps the [2^(i-1), 2^i) microsecond latencies
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * @return the latency percentile in microseconds rounded up to
+     *  the power of two, or <tt>-1</tt> if nothing was recorded.
+     */
+    long percentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+            if (count >= rank) {
+                return i == 0 ? 0 : 1L << i;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
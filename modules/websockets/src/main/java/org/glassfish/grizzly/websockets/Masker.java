@@ -16,9 +16,12 @@
 
 package org.glassfish.grizzly.websockets;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferArray;
 
 public class Masker {
     private Buffer buffer;
@@ -45,39 +48,60 @@ public class Masker {
 
     public byte unmask() {
         final byte b = get();
-        return mask == null ? b : (byte) (b ^ mask[index++ % Constants.MASK_SIZE]);
+        return mask == null ? b : (byte) (b ^ mask[index++ & 3]);
     }
 
     public byte[] unmask(int count) {
         byte[] bytes = get(count);
         if (mask != null) {
-            for (int i = 0; i < bytes.length; i++) {
-                bytes[i] ^= mask[index++ % Constants.MASK_SIZE];
-            }
+            xor(bytes, 0, bytes.length);
         }
 
         return bytes;
     }
 
+    /**
+     * Unmasks the next <tt>count</tt> bytes of the {@link Buffer} in place,
+     * the {@link Buffer} position is not changed.
+     */
+    public void unmaskInPlace(final int count) {
+        if (mask == null) {
+            return;
+        }
+
+        xor(buffer, buffer.position(), buffer.position() + count);
+    }
+
     public void generateMask() {
         mask = new byte[Constants.MASK_SIZE];
         new SecureRandom().nextBytes(mask);
     }
 
     public void mask(byte[] bytes, int location, byte b) {
-        bytes[location] = mask == null ? b : (byte) (b ^ mask[index++ % Constants.MASK_SIZE]);
+        bytes[location] = mask == null ? b : (byte) (b ^ mask[index++ & 3]);
     }
 
     public void mask(byte[] target, int location, byte[] bytes) {
         if(bytes != null && target != null) {
-            for (int i = 0; i < bytes.length; i++) {
-                target[location + i] = mask == null
-                        ? bytes[i]
-                        : (byte) (bytes[i] ^ mask[index++ % Constants.MASK_SIZE]);
+            System.arraycopy(bytes, 0, target, location, bytes.length);
+            if (mask != null) {
+                xor(target, location, location + bytes.length);
             }
         }
     }
 
+    /**
+     * Puts the masked remaining bytes of the source {@link Buffer} into
+     * the target {@link Buffer}, the source position is not changed.
+     */
+    public void mask(final Buffer target, final Buffer source) {
+        final int start = target.position();
+        target.put(source, source.position(), source.remaining());
+        if (mask != null) {
+            xor(target, start, target.position());
+        }
+    }
+
     public byte[] maskAndPrepend(byte[] packet) {
         byte[] masked = new byte[packet.length + Constants.MASK_SIZE];
         System.arraycopy(getMask(), 0, masked, 0, Constants.MASK_SIZE);
@@ -97,4 +121,89 @@ public class Masker {
     public void readMask() {
         mask = get(Constants.MASK_SIZE);
     }
+
+    /**
+     * XORs the {@link Buffer} bytes in place, the arrays are processed
+     * directly, the rest using the {@link ByteBuffer} views.
+     */
+    private void xor(final Buffer target, final int from, final int to) {
+        if (target.hasArray()) {
+            final int offset = target.arrayOffset();
+            xor(target.array(), offset + from, offset + to);
+            return;
+        }
+
+        final ByteBufferArray array = target.toByteBufferArray(from, to);
+        try {
+            final ByteBuffer[] byteBuffers = array.getArray();
+            for (int i = 0; i < array.size(); i++) {
+                final ByteBuffer bb = byteBuffers[i];
+                if (bb.hasArray()) {
+                    final int offset = bb.arrayOffset();
+                    xor(bb.array(), offset + bb.position(), offset + bb.limit());
+                } else {
+                    xor(bb, bb.position(), bb.limit());
+                }
+            }
+        } finally {
+            array.restore();
+            array.recycle();
+        }
+    }
+
+    /**
+     * XORs the array bytes in place 8 bytes per step. Without unaligned
+     * long access to the heap arrays the step is unrolled, which lets the
+     * compiler keep the rotated mask in registers.
+     */
+    private void xor(final byte[] bytes, final int from, final int to) {
+        final int phase = index & 3;
+        final byte m0 = mask[phase];
+        final byte m1 = mask[(phase + 1) & 3];
+        final byte m2 = mask[(phase + 2) & 3];
+        final byte m3 = mask[(phase + 3) & 3];
+
+        int i = from;
+        for (final int end = to - 7; i < end; i += 8) {
+            bytes[i] ^= m0;
+            bytes[i + 1] ^= m1;
+            bytes[i + 2] ^= m2;
+            bytes[i + 3] ^= m3;
+            bytes[i + 4] ^= m0;
+            bytes[i + 5] ^= m1;
+            bytes[i + 6] ^= m2;
+            bytes[i + 7] ^= m3;
+        }
+        for (int j = phase; i < to; i++, j++) {
+            bytes[i] ^= mask[j & 3];
+        }
+
+        index += to - from;
+    }
+
+    /**
+     * XORs the direct {@link ByteBuffer} bytes in place using the mask
+     * expanded to a long in the native byte order.
+     */
+    private void xor(final ByteBuffer byteBuffer, final int from, final int to) {
+        final ByteBuffer bb = byteBuffer.duplicate().order(ByteOrder.nativeOrder());
+        final int phase = index & 3;
+
+        final boolean bigEndian = bb.order() == ByteOrder.BIG_ENDIAN;
+        long longMask = 0;
+        for (int k = 0; k < 8; k++) {
+            final long b = mask[(phase + k) & 3] & 0xFF;
+            longMask |= bigEndian ? b << (56 - 8 * k) : b << (8 * k);
+        }
+
+        int i = from;
+        for (final int end = to - 7; i < end; i += 8) {
+            bb.putLong(i, bb.getLong(i) ^ longMask);
+        }
+        for (int j = phase; i < to; i++, j++) {
+            bb.put(i, (byte) (bb.get(i) ^ mask[j & 3]));
+        }
+
+        index += to - from;
+    }
 }
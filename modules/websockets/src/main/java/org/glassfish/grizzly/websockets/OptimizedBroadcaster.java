@@ -16,9 +16,14 @@
 
 package org.glassfish.grizzly.websockets;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * The default {@link Broadcaster} optimized to send the same text to a set of
  * clients.
+ * The complete messages are compressed once for all the recipients, which
+ * negotiated <tt>permessage-deflate</tt> with the same {@link PerMessageDeflate}.
  * NOTE: works with {@link DefaultWebSocket}s and inherited classes.
  * 
  * @author Alexey Stashok
@@ -33,17 +38,34 @@ public class OptimizedBroadcaster implements Broadcaster {
             final String text) {
         
         byte[] rawDataToSend = null;
+        // the messages compressed once per permessage-deflate configuration
+        Map<PerMessageDeflate, byte[]> compressedRawData = null;
         
         for (WebSocket websocket : recipients) {
             final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
             
             if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(text);
+                final PerMessageDeflate deflate =
+                        defaultWebSocket.getPerMessageDeflate();
+                byte[] rawData;
+                if (deflate == null) {
+                    if (rawDataToSend == null) {
+                        rawDataToSend = defaultWebSocket.toRawData(text);
+                    }
+                    rawData = rawDataToSend;
+                } else {
+                    if (compressedRawData == null) {
+                        compressedRawData = new IdentityHashMap<PerMessageDeflate, byte[]>(2);
+                    }
+                    rawData = compressedRawData.get(deflate);
+                    if (rawData == null) {
+                        rawData = defaultWebSocket.toRawData(text, deflate);
+                        compressedRawData.put(deflate, rawData);
+                    }
                 }
                 
                 try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
+                    defaultWebSocket.sendRaw(rawData);
                 } catch (WebSocketException ignored) {
                 }
             }
@@ -58,17 +80,34 @@ public class OptimizedBroadcaster implements Broadcaster {
             final byte[] binary) {
         
         byte[] rawDataToSend = null;
+        // the messages compressed once per permessage-deflate configuration
+        Map<PerMessageDeflate, byte[]> compressedRawData = null;
         
         for (WebSocket websocket : recipients) {
             final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
             
             if (websocket.isConnected()) {
-                if (rawDataToSend == null) {
-                    rawDataToSend = defaultWebSocket.toRawData(binary);
+                final PerMessageDeflate deflate =
+                        defaultWebSocket.getPerMessageDeflate();
+                byte[] rawData;
+                if (deflate == null) {
+                    if (rawDataToSend == null) {
+                        rawDataToSend = defaultWebSocket.toRawData(binary);
+                    }
+                    rawData = rawDataToSend;
+                } else {
+                    if (compressedRawData == null) {
+                        compressedRawData = new IdentityHashMap<PerMessageDeflate, byte[]>(2);
+                    }
+                    rawData = compressedRawData.get(deflate);
+                    if (rawData == null) {
+                        rawData = defaultWebSocket.toRawData(binary, deflate);
+                        compressedRawData.put(deflate, rawData);
+                    }
                 }
                 
                 try {
-                    defaultWebSocket.sendRaw(rawDataToSend);
+                    defaultWebSocket.sendRaw(rawData);
                 } catch (WebSocketException ignored) {
                 }
             }
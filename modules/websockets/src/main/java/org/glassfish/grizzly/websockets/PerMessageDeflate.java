@@ -0,0 +1,616 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The <tt>permessage-deflate</tt> extension (RFC 7692) configuration.
+ *
+ * On the server side the extension is enabled using
+ * {@link WebSocketApplication#setPerMessageDeflate(PerMessageDeflate)}, on
+ * the client side using {@link HandShake#setPerMessageDeflate(PerMessageDeflate)}.
+ * Once negotiated, each connection gets its own {@link Codec}, which compresses
+ * the complete (not fragmented) text and binary messages not shorter than
+ * {@link #getMinCompressSize()} bytes.
+ *
+ * The {@link Deflater}s and {@link Inflater}s are pooled by the configuration:
+ * a connection keeps its own compression context only for the directions
+ * where the context takeover is negotiated, otherwise the context is borrowed
+ * from the pool for a single message.
+ *
+ * Java's {@link Deflater} always uses the 15 bits LZ77 window, so the offers
+ * limiting the window used by this side are declined.
+ *
+ * @since 2.4.4
+ */
+public class PerMessageDeflate {
+
+    /**
+     * The extension name.
+     */
+    public static final String NAME = "permessage-deflate";
+
+    /**
+     * The frame header bit, which marks the compressed message.
+     */
+    public static final byte RSV1 = 0x40;
+
+    public static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    public static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    public static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+    public static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    public static final int DEFAULT_MIN_COMPRESS_SIZE = 64;
+    public static final int DEFAULT_MAX_POOL_SIZE = 64;
+    public static final long DEFAULT_MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    private static final int MAX_WINDOW_BITS = 15;
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+    private final int compressionLevel;
+    private final int minCompressSize;
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    private final long maxMessageSize;
+
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+
+    /**
+     * Creates the configuration with the default parameters.
+     */
+    public PerMessageDeflate() {
+        this(Deflater.DEFAULT_COMPRESSION, DEFAULT_MIN_COMPRESS_SIZE,
+                false, false, DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * @param compressionLevel the {@link Deflater} compression level
+     * @param minCompressSize the minimum message size (in bytes) to compress
+     * @param serverNoContextTakeover <tt>true</tt>, if the server resets
+     *          its compression context after each message
+     * @param clientNoContextTakeover <tt>true</tt>, if the client resets
+     *          its compression context after each message
+     * @param maxPoolSize the maximum number of idle {@link Deflater}s and
+     *          {@link Inflater}s kept in the pool
+     */
+    public PerMessageDeflate(final int compressionLevel,
+            final int minCompressSize,
+            final boolean serverNoContextTakeover,
+            final boolean clientNoContextTakeover,
+            final int maxPoolSize) {
+        this(compressionLevel, minCompressSize, serverNoContextTakeover,
+                clientNoContextTakeover, maxPoolSize, DEFAULT_MAX_MESSAGE_SIZE);
+    }
+
+    /**
+     * @param compressionLevel the {@link Deflater} compression level
+     * @param minCompressSize the minimum message size (in bytes) to compress
+     * @param serverNoContextTakeover <tt>true</tt>, if the server resets
+     *          its compression context after each message
+     * @param clientNoContextTakeover <tt>true</tt>, if the client resets
+     *          its compression context after each message
+     * @param maxPoolSize the maximum number of idle {@link Deflater}s and
+     *          {@link Inflater}s kept in the pool
+     * @param maxMessageSize the maximum decompressed message size (in bytes),
+     *          <tt>-1</tt> means no limit
+     */
+    public PerMessageDeflate(final int compressionLevel,
+            final int minCompressSize,
+            final boolean serverNoContextTakeover,
+            final boolean clientNoContextTakeover,
+            final int maxPoolSize,
+            final long maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+        this.compressionLevel = compressionLevel;
+        this.minCompressSize = minCompressSize;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        deflaters = new ArrayBlockingQueue<Deflater>(Math.max(1, maxPoolSize));
+        inflaters = new ArrayBlockingQueue<Inflater>(Math.max(1, maxPoolSize));
+    }
+
+    /**
+     * @return the {@link Deflater} compression level.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return the minimum message size (in bytes) to compress, the shorter
+     *          messages are sent uncompressed.
+     */
+    public int getMinCompressSize() {
+        return minCompressSize;
+    }
+
+    /**
+     * @return the maximum decompressed message size (in bytes), the larger
+     *          messages are rejected with {@link WebSocket#MESSAGE_TOO_BIG}
+     *          as soon as the limit is exceeded; <tt>-1</tt> means no limit.
+     */
+    public long getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the server resets its compression context
+     *          after each message.
+     */
+    public boolean isServerNoContextTakeover() {
+        return serverNoContextTakeover;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the client is asked to reset its compression
+     *          context after each message.
+     */
+    public boolean isClientNoContextTakeover() {
+        return clientNoContextTakeover;
+    }
+
+    /**
+     * @return <tt>true</tt> if the serialized frame has the compressed
+     *          message bit set.
+     */
+    public static boolean isCompressed(final byte[] rawFrame) {
+        return rawFrame.length > 0 && (rawFrame[0] & RSV1) != 0;
+    }
+
+    /**
+     * Compresses the message payload using a fresh compression context,
+     * so the result may be sent over any connection, which negotiated
+     * the extension using this configuration.
+     *
+     * @param payload the message payload
+     * @return the compressed payload
+     */
+    public byte[] compress(final byte[] payload) {
+        final Deflater deflater = obtainDeflater();
+        try {
+            return deflate(deflater, payload);
+        } finally {
+            recycle(deflater);
+        }
+    }
+
+    /**
+     * @return the client offer {@link Extension}.
+     */
+    public Extension createOffer() {
+        final Extension offer = new Extension(NAME);
+        if (serverNoContextTakeover) {
+            offer.getParameters().add(
+                    new Extension.Parameter(SERVER_NO_CONTEXT_TAKEOVER, null));
+        }
+        if (clientNoContextTakeover) {
+            offer.getParameters().add(
+                    new Extension.Parameter(CLIENT_NO_CONTEXT_TAKEOVER, null));
+        }
+
+        return offer;
+    }
+
+    /**
+     * Validates the client offer and builds the server response.
+     *
+     * @param offer the client offer
+     * @return the response {@link Extension}, or <tt>null</tt> if the offer
+     *          is declined
+     */
+    public Extension accept(final Extension offer) {
+        boolean serverReset = serverNoContextTakeover;
+        boolean clientReset = clientNoContextTakeover;
+        boolean serverMaxWindowBits = false;
+
+        final Set<String> names = new HashSet<String>(4);
+        for (Extension.Parameter parameter : offer.getParameters()) {
+            final String name = parameter.getName().toLowerCase(Locale.ENGLISH);
+            if (!names.add(name)) {
+                return null;
+            }
+
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name)) {
+                if (parameter.getValue() != null) {
+                    return null;
+                }
+                serverReset = true;
+            } else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name)) {
+                if (parameter.getValue() != null) {
+                    return null;
+                }
+                clientReset = true;
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                // the Deflater window can't be limited
+                if (parseWindowBits(parameter.getValue()) != MAX_WINDOW_BITS) {
+                    return null;
+                }
+                serverMaxWindowBits = true;
+            } else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                // the Inflater handles any window, the response may omit it
+                if (parameter.getValue() != null
+                        && parseWindowBits(parameter.getValue()) == -1) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        final Extension response = new Extension(NAME);
+        if (serverReset) {
+            response.getParameters().add(
+                    new Extension.Parameter(SERVER_NO_CONTEXT_TAKEOVER, null));
+        }
+        if (clientReset) {
+            response.getParameters().add(
+                    new Extension.Parameter(CLIENT_NO_CONTEXT_TAKEOVER, null));
+        }
+        if (serverMaxWindowBits) {
+            response.getParameters().add(new Extension.Parameter(
+                    SERVER_MAX_WINDOW_BITS, String.valueOf(MAX_WINDOW_BITS)));
+        }
+
+        return response;
+    }
+
+    /**
+     * Creates the connection {@link Codec} based on the negotiated
+     * server response.
+     *
+     * @param response the server response {@link Extension}
+     * @param server <tt>true</tt> for the server side {@link Codec}
+     * @return the {@link Codec}
+     *
+     * @throws HandshakeException if the client side can't accept the response
+     */
+    public Codec createCodec(final Extension response, final boolean server) {
+        boolean serverReset = false;
+        boolean clientReset = false;
+
+        final Set<String> names = new HashSet<String>(4);
+        for (Extension.Parameter parameter : response.getParameters()) {
+            final String name = parameter.getName().toLowerCase(Locale.ENGLISH);
+            if (!names.add(name)) {
+                throw new HandshakeException(
+                        "Duplicate " + NAME + " parameter: " + name);
+            }
+
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name)) {
+                serverReset = true;
+            } else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name)) {
+                clientReset = true;
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                if (parseWindowBits(parameter.getValue()) == -1) {
+                    throw new HandshakeException(
+                            "Invalid " + SERVER_MAX_WINDOW_BITS + ": " + parameter.getValue());
+                }
+            } else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                // the client window wasn't offered, it can't be limited
+                if (parseWindowBits(parameter.getValue()) != MAX_WINDOW_BITS) {
+                    throw new HandshakeException(
+                            "Unsupported " + CLIENT_MAX_WINDOW_BITS + ": " + parameter.getValue());
+                }
+            } else {
+                throw new HandshakeException(
+                        "Unknown " + NAME + " parameter: " + name);
+            }
+        }
+
+        return server
+                ? new Codec(this, serverReset, clientReset)
+                : new Codec(this, clientReset, serverReset);
+    }
+
+    private static int parseWindowBits(final String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            final int bits = Integer.parseInt(value.startsWith("\"")
+                    && value.endsWith("\"") && value.length() > 1
+                    ? value.substring(1, value.length() - 1)
+                    : value);
+            return bits >= 8 && bits <= MAX_WINDOW_BITS ? bits : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Deflater obtainDeflater() {
+        final Deflater deflater = deflaters.poll();
+        return deflater != null
+                ? deflater
+                : new Deflater(compressionLevel, true);
+    }
+
+    private void recycle(final Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private Inflater obtainInflater() {
+        final Inflater inflater = inflaters.poll();
+        return inflater != null ? inflater : new Inflater(true);
+    }
+
+    private void recycle(final Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(final Deflater deflater, final byte[] payload) {
+        deflater.setInput(payload);
+
+        byte[] out = new byte[Math.max(64, payload.length / 2 + 16)];
+        int length = 0;
+        for (;;) {
+            length += deflater.deflate(out, length, out.length - length,
+                    Deflater.SYNC_FLUSH);
+            if (length < out.length) {
+                break;
+            }
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+
+        // the message ends with the empty stored block, which is dropped
+        if (length >= TAIL.length
+                && out[length - 4] == TAIL[0] && out[length - 3] == TAIL[1]
+                && out[length - 2] == TAIL[2] && out[length - 1] == TAIL[3]) {
+            length -= TAIL.length;
+        }
+
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * @param maxLength the maximum length of the inflated data,
+     *          <tt>-1</tt> means no limit
+     */
+    private static byte[] inflate(final Inflater inflater, final byte[] data,
+            final boolean last, final long maxLength)
+            throws DataFormatException {
+        // one byte above the limit is enough to detect the overflow
+        final int maxCapacity = maxLength >= 0
+                ? (int) Math.min(Integer.MAX_VALUE - 8, maxLength + 1)
+                : Integer.MAX_VALUE - 8;
+        byte[] out = new byte[Math.min(maxCapacity,
+                Math.max(64, data.length * 4))];
+        int length = 0;
+        boolean tail = !last;
+
+        inflater.setInput(data);
+        for (;;) {
+            if (length == out.length) {
+                out = Arrays.copyOf(out, (int) Math.min(maxCapacity,
+                        out.length * 2L));
+            }
+
+            final int n = inflater.inflate(out, length, out.length - length);
+            length += n;
+            if (maxLength >= 0 && length > maxLength) {
+                throw new MessageTooBigError(String.format(
+                        "The decompressed message size exceeds the limit (%s)",
+                        maxLength));
+            }
+            if (n == 0) {
+                if (inflater.finished() || inflater.needsDictionary()) {
+                    break;
+                }
+                if (inflater.needsInput()) {
+                    if (tail) {
+                        break;
+                    }
+                    // restore the empty stored block dropped by the sender
+                    inflater.setInput(TAIL);
+                    tail = true;
+                }
+            }
+        }
+
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * The per connection <tt>permessage-deflate</tt> state.
+     *
+     * The compression is serialized by the {@link ProtocolHandler}, the
+     * decompression happens on the reading thread, both are synchronized
+     * with {@link #release()}, which may be called by another thread, so
+     * the released contexts are never used.
+     */
+    public static final class Codec {
+        private final PerMessageDeflate config;
+        private final boolean compressNoContextTakeover;
+        private final boolean decompressNoContextTakeover;
+
+        private Deflater deflater;
+        private Inflater inflater;
+        private boolean resetDeflater;
+        private long inflatedLength;
+        private boolean isReleased;
+
+        Codec(final PerMessageDeflate config,
+                final boolean compressNoContextTakeover,
+                final boolean decompressNoContextTakeover) {
+            this.config = config;
+            this.compressNoContextTakeover = compressNoContextTakeover;
+            this.decompressNoContextTakeover = decompressNoContextTakeover;
+        }
+
+        /**
+         * @return the {@link PerMessageDeflate} configuration
+         *          the extension was negotiated with.
+         */
+        public PerMessageDeflate getPerMessageDeflate() {
+            return config;
+        }
+
+        /**
+         * @return <tt>true</tt> if the local side resets its compression
+         *          context after each message.
+         */
+        public boolean isCompressNoContextTakeover() {
+            return compressNoContextTakeover;
+        }
+
+        /**
+         * @return <tt>true</tt> if the remote side resets its compression
+         *          context after each message.
+         */
+        public boolean isDecompressNoContextTakeover() {
+            return decompressNoContextTakeover;
+        }
+
+        /**
+         * Compresses the outgoing message payload.
+         *
+         * @throws WebSocketException if the codec is released
+         */
+        public synchronized byte[] compress(final byte[] payload) {
+            checkNotReleased();
+            if (compressNoContextTakeover) {
+                return config.compress(payload);
+            }
+
+            if (deflater == null) {
+                deflater = config.obtainDeflater();
+            } else if (resetDeflater) {
+                deflater.reset();
+            }
+            resetDeflater = false;
+
+            return deflate(deflater, payload);
+        }
+
+        /**
+         * Decompresses the next fragment of the incoming compressed message.
+         *
+         * @param data the compressed fragment
+         * @param last <tt>true</tt> if it's the last message fragment
+         * @return the decompressed data
+         *
+         * @throws ProtocolError if the data can't be decompressed
+         * @throws MessageTooBigError if the decompressed message exceeds
+         *          {@link PerMessageDeflate#getMaxMessageSize()}
+         * @throws WebSocketException if the codec is released
+         */
+        public byte[] decompress(final byte[] data, final boolean last) {
+            return decompress(data, last, -1);
+        }
+
+        /**
+         * Decompresses the next fragment of the incoming compressed message,
+         * failing as soon as the decompressed data exceeds the limit.
+         *
+         * @param data the compressed fragment
+         * @param last <tt>true</tt> if it's the last message fragment
+         * @param maxLength the remaining message size budget of the caller,
+         *          <tt>-1</tt> means no limit other than
+         *          {@link PerMessageDeflate#getMaxMessageSize()}
+         * @return the decompressed data
+         *
+         * @throws ProtocolError if the data can't be decompressed
+         * @throws MessageTooBigError if the decompressed message exceeds
+         *          the limit
+         * @throws WebSocketException if the codec is released
+         */
+        public synchronized byte[] decompress(final byte[] data,
+                final boolean last, final long maxLength) {
+            checkNotReleased();
+            if (inflater == null) {
+                inflater = config.obtainInflater();
+            }
+
+            long limit = maxLength;
+            if (config.maxMessageSize >= 0) {
+                final long remaining = Math.max(0,
+                        config.maxMessageSize - inflatedLength);
+                limit = limit >= 0 ? Math.min(limit, remaining) : remaining;
+            }
+
+            try {
+                final byte[] result = inflate(inflater, data, last, limit);
+                inflatedLength = last ? 0 : inflatedLength + result.length;
+                if (last && (decompressNoContextTakeover || inflater.finished())) {
+                    if (decompressNoContextTakeover) {
+                        config.recycle(inflater);
+                        inflater = null;
+                    } else {
+                        inflater.reset();
+                    }
+                }
+
+                return result;
+            } catch (DataFormatException e) {
+                throw new ProtocolError("Invalid compressed message", e);
+            }
+        }
+
+        /**
+         * Releases the compression contexts back to the pool, the codec
+         * can't be used afterwards.
+         */
+        public synchronized void release() {
+            isReleased = true;
+            if (deflater != null) {
+                config.recycle(deflater);
+                deflater = null;
+            }
+            if (inflater != null) {
+                config.recycle(inflater);
+                inflater = null;
+            }
+            inflatedLength = 0;
+        }
+
+        /**
+         * Called once a message compressed by the shared
+         * {@link PerMessageDeflate#compress(byte[])} is sent: the remote
+         * side has the message in its window, so the local context
+         * has to start over.
+         */
+        synchronized void onSharedMessage() {
+            resetDeflater = true;
+        }
+
+        private void checkNotReleased() {
+            if (isReleased) {
+                throw new WebSocketException("The permessage-deflate codec is released");
+            }
+        }
+    }
+}
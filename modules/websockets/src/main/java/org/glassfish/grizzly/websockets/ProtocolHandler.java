@@ -22,6 +22,7 @@ import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
+import java.util.Arrays;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
@@ -34,6 +35,8 @@ import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.utils.Charsets;
 import org.glassfish.grizzly.websockets.frametypes.BinaryFrameType;
 import org.glassfish.grizzly.websockets.frametypes.TextFrameType;
@@ -50,6 +53,9 @@ public abstract class ProtocolHandler {
     protected final CharsetDecoder currentDecoder = utf8.newDecoder();
     protected ByteBuffer remainder;
     protected WebSocketMappingData mappingData;
+    protected volatile PerMessageDeflate.Codec deflateCodec;
+    protected volatile long maxMessageSize = -1;
+    protected volatile int streamingThreshold = -1;
     
     public ProtocolHandler(boolean maskData) {
         this.maskData = maskData;
@@ -66,6 +72,9 @@ public abstract class ProtocolHandler {
                 ((HttpRequestPacket) request.getHttpHeader()).getResponse();
         
         handshake.respond(ctx, app, response);
+        setDeflateCodec(handshake.getDeflateCodec());
+        setMaxMessageSize(app.getMaxMessageSize());
+        setStreamingThreshold(app.getStreamingThreshold());
         return handshake;
     }
 
@@ -114,7 +123,106 @@ public abstract class ProtocolHandler {
         return maskData;
     }
 
+    /**
+     * @return the negotiated <tt>permessage-deflate</tt> {@link PerMessageDeflate.Codec},
+     *  or <tt>null</tt> if the messages are not compressed.
+     *
+     * @since 2.4.4
+     */
+    public PerMessageDeflate.Codec getDeflateCodec() {
+        return deflateCodec;
+    }
+
+    /**
+     * Sets the negotiated <tt>permessage-deflate</tt> {@link PerMessageDeflate.Codec},
+     * the previous one, if any, is released.
+     *
+     * @since 2.4.4
+     */
+    public void setDeflateCodec(final PerMessageDeflate.Codec deflateCodec) {
+        final PerMessageDeflate.Codec oldCodec = this.deflateCodec;
+        this.deflateCodec = deflateCodec;
+        if (oldCodec != null && oldCodec != deflateCodec) {
+            oldCodec.release();
+        }
+    }
+
+    /**
+     * @return the maximum size of the received message in bytes, or <tt>-1</tt>
+     *  if the size is not limited.
+     *
+     * @since 2.4.4
+     */
+    public long getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * Sets the maximum size of the received message in bytes, the connection
+     * receiving a larger message is closed with the
+     * {@link WebSocket#MESSAGE_TOO_BIG} code.
+     *
+     * @param maxMessageSize the maximum message size, <tt>-1</tt> means
+     *  the size is not limited.
+     *
+     * @since 2.4.4
+     */
+    public void setMaxMessageSize(final long maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @return the size of the data frame in bytes, starting from which the
+     *  frame payload is streamed, or <tt>-1</tt> if the frames are not streamed.
+     *
+     * @since 2.4.4
+     */
+    public int getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    /**
+     * Sets the size of the data frame in bytes, starting from which the frame
+     * payload is not aggregated, but delivered to the
+     * <tt>onFragment</tt> callbacks in chunks as the bytes arrive.
+     *
+     * @param streamingThreshold the streaming threshold, <tt>-1</tt> means
+     *  the frames are delivered whole.
+     *
+     * @since 2.4.4
+     */
+    public void setStreamingThreshold(final int streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
     public abstract byte[] frame(DataFrame frame);
+
+    /**
+     * Serializes the frame into a {@link Buffer}. The frames carrying
+     * {@link Buffer} payloads may be serialized without copying the payload.
+     *
+     * @since 2.4.4
+     */
+    public Buffer frame(MemoryManager memoryManager, DataFrame frame) {
+        return Buffers.wrap(memoryManager, frame(frame));
+    }
+
+    /**
+     * Serializes the frame compressing the message, if possible, with
+     * the shared compression context of the passed {@link PerMessageDeflate},
+     * so the result may be sent over any connection, which negotiated it.
+     * Unlike {@link #frame(DataFrame)}, the connection compression context
+     * is not used.
+     *
+     * @param frame the {@link DataFrame}
+     * @param deflate the {@link PerMessageDeflate}, or <tt>null</tt> to
+     *  serialize the frame uncompressed
+     *
+     * @since 2.4.4
+     */
+    public byte[] frame(DataFrame frame, PerMessageDeflate deflate) {
+        return frame(frame);
+    }
 /*
     public void readFrame() {
         while (connection.ready()) {
@@ -137,6 +245,13 @@ public abstract class ProtocolHandler {
         return toDataFrame(data, true);
     }
     
+    /**
+     * @since 2.4.4
+     */
+    public DataFrame toDataFrame(Buffer data) {
+        return new DataFrame(new BinaryFrameType(), data, true);
+    }
+
     public DataFrame toDataFrame(String data, boolean last) {
         return new DataFrame(new TextFrameType(), data, last);
     }
@@ -157,8 +272,18 @@ public abstract class ProtocolHandler {
         return send(toDataFrame(data));
     }
 
+    /**
+     * @since 2.4.4
+     */
+    public GrizzlyFuture<DataFrame> send(Buffer data) {
+        return send(toDataFrame(data));
+    }
+
     public GrizzlyFuture<DataFrame> stream(boolean last, byte[] bytes, int off, int len) {
-        return send(toDataFrame(bytes, last));
+        final byte[] fragment = off == 0 && len == bytes.length
+                ? bytes
+                : Arrays.copyOfRange(bytes, off, off + len);
+        return send(toDataFrame(fragment, last));
     }
 
     public GrizzlyFuture<DataFrame> stream(boolean last, String fragment) {
@@ -194,8 +319,7 @@ public abstract class ProtocolHandler {
         }
         
         final FutureImpl<DataFrame> localFuture = SafeFutureImpl.create();
-
-        localConnection.write(frame, new EmptyCompletionHandler() {
+        final EmptyCompletionHandler writeCompletionHandler = new EmptyCompletionHandler() {
             @Override
             public void completed(final Object result) {
                 if (completionHandler != null) {
@@ -213,7 +337,17 @@ public abstract class ProtocolHandler {
 
                 localFuture.failure(throwable);
             }
-        });
+        };
+
+        final PerMessageDeflate.Codec localCodec = deflateCodec;
+        if (localCodec != null) {
+            // the messages have to be compressed in the order they're written
+            synchronized (localCodec) {
+                localConnection.write(frame, writeCompletionHandler);
+            }
+        } else {
+            localConnection.write(frame, writeCompletionHandler);
+        }
 
         return localFuture;
     }
@@ -0,0 +1,577 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.WriteResult;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.nio.NIOConnection;
+
+/**
+ * The {@link Broadcaster}, which splits the recipients into shards, each
+ * of them sending the message on its own {@link Executor} thread.
+ * The message is framed (and compressed) once on the broadcasting thread and
+ * the same serialized message is shared by all the recipient writes.
+ *
+ * A recipient is always served by the same shard, so the messages broadcast
+ * to the recipient are written in the broadcast order.
+ *
+ * When the recipient's async write queue exceeds the
+ * {@link #getMaxQueuedBytes() threshold}, the {@link SlowConsumerPolicy}
+ * is applied instead of queueing the message. A fragmented message is
+ * treated as a whole: it's dropped only starting from its first fragment
+ * and, once a fragment has been sent, the recipient is disconnected, because
+ * the rest of the message can't be skipped without breaking the framing.
+ *
+ * NOTE: works with {@link DefaultWebSocket}s and inherited classes.
+ *
+ * @since 2.4.4
+ */
+public class ShardedBroadcaster implements Broadcaster {
+    private static final Logger LOGGER = Grizzly.logger(ShardedBroadcaster.class);
+
+    /**
+     * The default async write queue size threshold in bytes.
+     */
+    public static final int DEFAULT_MAX_QUEUED_BYTES = 1024 * 1024;
+
+    private static final Attribute<RecipientState> RECIPIENT_STATE_ATTR =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    ShardedBroadcaster.class.getName() + ".recipient-state");
+
+    /**
+     * The policy applied to the recipient, whose async write queue exceeds
+     * the threshold.
+     */
+    public enum SlowConsumerPolicy {
+        /**
+         * The message is not sent to the recipient.
+         */
+        DROP,
+        /**
+         * The message is kept until the recipient's queue drains, replacing
+         * the message kept before, so only the latest message is sent.
+         * The fragmented messages can't be kept, they are dropped.
+         */
+        COALESCE_LATEST,
+        /**
+         * The recipient's connection is terminated, discarding the queued
+         * messages.
+         */
+        DISCONNECT
+    }
+
+    private final Executor executor;
+    private final Shard[] shards;
+
+    private volatile SlowConsumerPolicy slowConsumerPolicy =
+            SlowConsumerPolicy.DROP;
+    private volatile int maxQueuedBytes = DEFAULT_MAX_QUEUED_BYTES;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong disconnectedCount = new AtomicLong();
+
+    private final LatencyHistogram fanoutLatency = new LatencyHistogram();
+
+    /**
+     * Constructs the <tt>ShardedBroadcaster</tt> with a shard per available
+     * processor.
+     *
+     * @param executor the {@link Executor} running the shards.
+     */
+    public ShardedBroadcaster(final Executor executor) {
+        this(executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param executor the {@link Executor} running the shards.
+     * @param shardsCount the number of shards.
+     */
+    public ShardedBroadcaster(final Executor executor, final int shardsCount) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor can't be null");
+        }
+        if (shardsCount < 1) {
+            throw new IllegalArgumentException("shardsCount must be positive");
+        }
+
+        this.executor = executor;
+        shards = new Shard[shardsCount];
+        for (int i = 0; i < shardsCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * @return the {@link SlowConsumerPolicy} applied to the recipients, whose
+     *  async write queue exceeds the threshold.
+     */
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    /**
+     * Sets the {@link SlowConsumerPolicy} applied to the recipients, whose
+     * async write queue exceeds the threshold.
+     */
+    public void setSlowConsumerPolicy(final SlowConsumerPolicy slowConsumerPolicy) {
+        if (slowConsumerPolicy == null) {
+            throw new IllegalArgumentException("slowConsumerPolicy can't be null");
+        }
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+
+    /**
+     * @return the recipient's async write queue size in bytes, after which the
+     *  {@link SlowConsumerPolicy} is applied, or <tt>-1</tt> if the queue size
+     *  is not limited.
+     */
+    public int getMaxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    /**
+     * Sets the recipient's async write queue size in bytes, after which the
+     * {@link SlowConsumerPolicy} is applied. The <tt>-1</tt> value means
+     * the queue size is not limited.
+     */
+    public void setMaxQueuedBytes(final int maxQueuedBytes) {
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * @return the number of the messages, which were not sent to the slow
+     *  recipients according to {@link SlowConsumerPolicy#DROP}, or the
+     *  fragmented messages not kept by {@link SlowConsumerPolicy#COALESCE_LATEST}.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of the messages, which were replaced by the later
+     *  ones according to {@link SlowConsumerPolicy#COALESCE_LATEST}.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return the number of the slow recipients disconnected according to
+     *  {@link SlowConsumerPolicy#DISCONNECT}.
+     */
+    public long getDisconnectedCount() {
+        return disconnectedCount.get();
+    }
+
+    /**
+     * Returns the fan-out latency percentile in microseconds, the fan-out
+     * latency being the time since the message is broadcast until it's
+     * written to (or dropped for) all the recipients.
+     * The value is rounded up to the power of two.
+     *
+     * @param percentile the percentile in the <tt>(0, 100]</tt> range.
+     * @return the fan-out latency percentile in microseconds, or <tt>-1</tt>
+     *  if no messages were broadcast.
+     */
+    public long getFanoutLatencyPercentile(final double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in the (0, 100] range");
+        }
+        return fanoutLatency.percentile(percentile);
+    }
+
+    /**
+     * Resets the fan-out latency statistics.
+     */
+    public void resetFanoutLatency() {
+        fanoutLatency.reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void broadcast(final Iterable<? extends WebSocket> recipients,
+            final String text) {
+        fanout(recipients, text, null, true, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void broadcast(final Iterable<? extends WebSocket> recipients,
+            final byte[] binary) {
+        fanout(recipients, null, binary, true, false);
+    }
+
+    @Override
+    public void broadcastFragment(final Iterable<? extends WebSocket> recipients,
+            final String text, final boolean last) {
+        fanout(recipients, text, null, last, true);
+    }
+
+    @Override
+    public void broadcastFragment(final Iterable<? extends WebSocket> recipients,
+            final byte[] binary, final boolean last) {
+        fanout(recipients, null, binary, last, true);
+    }
+
+    private void fanout(final Iterable<? extends WebSocket> recipients,
+            final String text, final byte[] binary,
+            final boolean last, final boolean fragment) {
+
+        final Fanout fanout = new Fanout();
+        final Batch[] batches = new Batch[shards.length];
+
+        byte[] rawDataToSend = null;
+        // the messages compressed once per permessage-deflate configuration
+        Map<PerMessageDeflate, byte[]> compressedRawData = null;
+
+        for (WebSocket websocket : recipients) {
+            final DefaultWebSocket defaultWebSocket = (DefaultWebSocket) websocket;
+
+            if (!websocket.isConnected()) {
+                continue;
+            }
+
+            // the fragments are never compressed
+            final PerMessageDeflate deflate = !fragment
+                    ? defaultWebSocket.getPerMessageDeflate()
+                    : null;
+            byte[] rawData;
+            if (deflate == null) {
+                if (rawDataToSend == null) {
+                    rawDataToSend = fragment
+                            ? (text != null
+                                    ? defaultWebSocket.toRawData(text, last)
+                                    : defaultWebSocket.toRawData(binary, last))
+                            : (text != null
+                                    ? defaultWebSocket.toRawData(text)
+                                    : defaultWebSocket.toRawData(binary));
+                }
+                rawData = rawDataToSend;
+            } else {
+                if (compressedRawData == null) {
+                    compressedRawData = new IdentityHashMap<PerMessageDeflate, byte[]>(2);
+                }
+                rawData = compressedRawData.get(deflate);
+                if (rawData == null) {
+                    rawData = text != null
+                            ? defaultWebSocket.toRawData(text, deflate)
+                            : defaultWebSocket.toRawData(binary, deflate);
+                    compressedRawData.put(deflate, rawData);
+                }
+            }
+
+            final int shardIdx = (System.identityHashCode(defaultWebSocket)
+                    & Integer.MAX_VALUE) % shards.length;
+            Batch batch = batches[shardIdx];
+            if (batch == null) {
+                batch = new Batch(fanout, fragment, last);
+                batches[shardIdx] = batch;
+            }
+            batch.add(defaultWebSocket, rawData);
+        }
+
+        for (int i = 0; i < batches.length; i++) {
+            final Batch batch = batches[i];
+            if (batch != null) {
+                fanout.retain(batch.size);
+                shards[i].submit(batch);
+            }
+        }
+
+        fanout.release();
+    }
+
+    private void send(final DefaultWebSocket websocket, final byte[] rawData,
+            final boolean fragment, final boolean last, final Fanout fanout) {
+        if (!websocket.isConnected()) {
+            fanout.release();
+            return;
+        }
+
+        final Connection connection = websocket.protocolHandler.getConnection();
+        final RecipientState state = obtainRecipientState(connection);
+
+        synchronized (state) {
+            if (fragment && state.isDroppingMessage) {
+                // the rest of the dropped fragmented message
+                state.isDroppingMessage = !last;
+                fanout.release();
+                return;
+            }
+
+            if (isOverflown(connection)) {
+                // once a fragment is sent, the rest of the message can't be
+                // dropped or replaced without breaking the recipient's framing
+                final SlowConsumerPolicy policy = state.isSendingMessage
+                        ? SlowConsumerPolicy.DISCONNECT
+                        : slowConsumerPolicy;
+                switch (policy) {
+                    case DROP:
+                        droppedCount.incrementAndGet();
+                        state.isDroppingMessage = fragment && !last;
+                        break;
+                    case COALESCE_LATEST:
+                        if (fragment) {
+                            droppedCount.incrementAndGet();
+                            state.isDroppingMessage = !last;
+                            break;
+                        }
+                        if (state.latestRawData != null) {
+                            coalescedCount.incrementAndGet();
+                        }
+                        state.latestRawData = rawData;
+                        break;
+                    case DISCONNECT:
+                        if (!state.isDisconnected) {
+                            state.isDisconnected = true;
+                            disconnectedCount.incrementAndGet();
+                            // the graceful close would wait for the queue to drain
+                            connection.terminateSilently();
+                        }
+                        break;
+                }
+
+                fanout.release();
+                return;
+            }
+
+            // the coalesced message goes first
+            flush(websocket, state);
+            write(websocket, state, rawData, fanout);
+            if (fragment) {
+                state.isSendingMessage = !last;
+            }
+        }
+    }
+
+    /**
+     * Sends the coalesced message, if any.
+     * Has to be called holding the {@link RecipientState} lock.
+     */
+    private void flush(final DefaultWebSocket websocket,
+            final RecipientState state) {
+        final byte[] latestRawData = state.latestRawData;
+        if (latestRawData != null) {
+            state.latestRawData = null;
+            write(websocket, state, latestRawData, null);
+        }
+    }
+
+    /**
+     * Sends the message to the recipient.
+     * Has to be called holding the {@link RecipientState} lock.
+     */
+    private void write(final DefaultWebSocket websocket,
+            final RecipientState state, final byte[] rawData,
+            final Fanout fanout) {
+        state.pendingWrites++;
+        try {
+            websocket.sendRaw(rawData, new EmptyCompletionHandler<WriteResult>() {
+                @Override
+                public void completed(final WriteResult result) {
+                    onWriteDone(websocket, state, fanout);
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    onWriteDone(websocket, state, fanout);
+                }
+            });
+        } catch (WebSocketException e) {
+            onWriteDone(websocket, state, fanout);
+        }
+    }
+
+    private void onWriteDone(final DefaultWebSocket websocket,
+            final RecipientState state, final Fanout fanout) {
+        if (fanout != null) {
+            fanout.release();
+        }
+
+        synchronized (state) {
+            state.pendingWrites--;
+            // the coalesced message is sent once the queue drains below the
+            // threshold or all the messages broadcast before are written.
+            // NOTE: the async write queue space is released after the
+            // completion handlers are notified, so the threshold alone
+            // isn't reliable here
+            if (state.latestRawData != null
+                    && (state.pendingWrites == 0
+                    || !isOverflown(websocket.protocolHandler.getConnection()))) {
+                flush(websocket, state);
+            }
+        }
+    }
+
+    private boolean isOverflown(final Connection connection) {
+        final int maxQueuedBytesLocal = maxQueuedBytes;
+        return maxQueuedBytesLocal >= 0
+                && connection instanceof NIOConnection
+                && ((NIOConnection) connection).getAsyncWriteQueue()
+                        .spaceInBytes() > maxQueuedBytesLocal;
+    }
+
+    private static RecipientState obtainRecipientState(
+            final Connection connection) {
+        RecipientState state = RECIPIENT_STATE_ATTR.get(connection);
+        if (state == null) {
+            synchronized (connection) {
+                state = RECIPIENT_STATE_ATTR.get(connection);
+                if (state == null) {
+                    state = new RecipientState();
+                    RECIPIENT_STATE_ATTR.set(connection, state);
+                }
+            }
+        }
+
+        return state;
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+
+    /**
+     * The per-recipient state, guarded by its own lock.
+     */
+    private static final class RecipientState {
+        // the message kept according to SlowConsumerPolicy.COALESCE_LATEST
+        private byte[] latestRawData;
+        // the number of the broadcast messages, which are being written
+        private int pendingWrites;
+        private boolean isDisconnected;
+        // a fragment of the message being broadcast has been sent
+        private boolean isSendingMessage;
+        // the first fragment of the message being broadcast has been dropped
+        private boolean isDroppingMessage;
+    }
+
+    /**
+     * The broadcast message fan-out. The serialized message is referenced by
+     * each pending recipient write and by the broadcasting thread, which
+     * dispatches the writes; the fan-out is complete when the last reference
+     * is released.
+     */
+    private final class Fanout {
+        private final long startTime = System.nanoTime();
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        void retain(final int count) {
+            references.addAndGet(count);
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                fanoutLatency.record(System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * The recipients of the message served by the same shard.
+     */
+    private static final class Batch {
+        private final Fanout fanout;
+        private final boolean fragment;
+        private final boolean last;
+        private DefaultWebSocket[] websockets = new DefaultWebSocket[8];
+        private byte[][] rawData = new byte[8][];
+        private int size;
+
+        Batch(final Fanout fanout, final boolean fragment, final boolean last) {
+            this.fanout = fanout;
+            this.fragment = fragment;
+            this.last = last;
+        }
+
+        void add(final DefaultWebSocket websocket, final byte[] data) {
+            if (size == websockets.length) {
+                websockets = Arrays.copyOf(websockets, size * 2);
+                rawData = Arrays.copyOf(rawData, size * 2);
+            }
+            websockets[size] = websocket;
+            rawData[size++] = data;
+        }
+    }
+
+    /**
+     * Runs the submitted {@link Batch}es one by one on the {@link Executor}.
+     */
+    private final class Shard implements Runnable {
+        private final Queue<Batch> batches = new ConcurrentLinkedQueue<Batch>();
+        private final AtomicBoolean isScheduled = new AtomicBoolean();
+
+        void submit(final Batch batch) {
+            batches.offer(batch);
+            schedule();
+        }
+
+        private void schedule() {
+            if (isScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.log(Level.FINE,
+                            "The executor rejected the broadcast, running it in the current thread", e);
+                    run();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Batch batch;
+            while ((batch = batches.poll()) != null) {
+                for (int i = 0; i < batch.size; i++) {
+                    try {
+                        send(batch.websockets[i], batch.rawData[i],
+                                batch.fragment, batch.last, batch.fanout);
+                    } catch (Exception e) {
+                        LOGGER.log(Level.FINE, "Broadcast failed", e);
+                        batch.fanout.release();
+                    }
+                }
+            }
+
+            isScheduled.set(false);
+            // the batch might be submitted after the queue was checked
+            if (!batches.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -17,9 +17,11 @@
 package org.glassfish.grizzly.websockets;
 
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.websockets.frametypes.PingFrameType;
@@ -120,6 +122,30 @@ public class SimpleWebSocket implements WebSocket {
         }
     }
 
+    @Override
+    public void onFragment(boolean last, Buffer fragment) {
+        if (BufferCallbacks.ofSocket(this).isFragmentOverridden) {
+            // the subclass extends the byte[] callback
+            onFragment(last, Utils.toArray(fragment));
+            return;
+        }
+
+        final int position = fragment.position();
+        byte[] bytes = null;
+        for (WebSocketListener listener : listeners) {
+            fragment.position(position);
+            if (BufferCallbacks.ofListener(listener).isFragmentOverridden) {
+                listener.onFragment(this, fragment, last);
+            } else {
+                // the listeners implementing the byte[] callback share a copy
+                if (bytes == null) {
+                    bytes = Utils.toArray(fragment);
+                }
+                listener.onFragment(this, bytes, last);
+            }
+        }
+    }
+
     @Override
     public void onFragment(boolean last, String fragment) {
         for (WebSocketListener listener : listeners) {
@@ -134,6 +160,30 @@ public class SimpleWebSocket implements WebSocket {
         }
     }
 
+    @Override
+    public void onMessage(Buffer data) {
+        if (BufferCallbacks.ofSocket(this).isMessageOverridden) {
+            // the subclass extends the byte[] callback
+            onMessage(Utils.toArray(data));
+            return;
+        }
+
+        final int position = data.position();
+        byte[] bytes = null;
+        for (WebSocketListener listener : listeners) {
+            data.position(position);
+            if (BufferCallbacks.ofListener(listener).isMessageOverridden) {
+                listener.onMessage(this, data);
+            } else {
+                // the listeners implementing the byte[] callback share a copy
+                if (bytes == null) {
+                    bytes = Utils.toArray(data);
+                }
+                listener.onMessage(this, bytes);
+            }
+        }
+    }
+
     @Override
     public void onMessage(String text) {
         for (WebSocketListener listener : listeners) {
@@ -182,6 +232,15 @@ public class SimpleWebSocket implements WebSocket {
         }
     }
 
+    @Override
+    public GrizzlyFuture<DataFrame> send(Buffer data) {
+        if (isConnected()) {
+            return protocolHandler.send(data);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
     @Override
     public GrizzlyFuture<DataFrame> send(String data) {
         if (isConnected()) {
@@ -235,6 +294,54 @@ public class SimpleWebSocket implements WebSocket {
     /**
      * {@inheritDoc}
      */
+    @Override
+    public boolean subscribe(String topic) {
+        return getTopicSubscriptions().subscribe(this, topic);
+    }
+
+    @Override
+    public boolean unsubscribe(String topic) {
+        return getTopicSubscriptions().unsubscribe(this, topic);
+    }
+
+    private TopicSubscriptions getTopicSubscriptions() {
+        final WebSocketHolder holder = getHolder();
+        if (holder == null || holder.application == null) {
+            throw new IllegalStateException(
+                    "The WebSocket is not connected to a WebSocketApplication");
+        }
+
+        return holder.application.getTopicSubscriptions();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pauseReading() {
+        final WebSocketHolder holder = getHolder();
+        if (holder == null) {
+            throw new IllegalStateException("The WebSocket is not connected");
+        }
+
+        holder.isReadPaused = true;
+    }
+
+    @Override
+    public void resumeReading() {
+        final WebSocketHolder holder = getHolder();
+        if (holder == null) {
+            throw new IllegalStateException("The WebSocket is not connected");
+        }
+
+        BaseWebSocketFilter.resumeReading(holder);
+    }
+
+    private WebSocketHolder getHolder() {
+        final Connection connection = protocolHandler.getConnection();
+        return connection != null ? WebSocketHolder.get(connection) : null;
+    }
+
     @Override
     public GrizzlyFuture<DataFrame> sendPing(byte[] data) {
         return send(new DataFrame(new PingFrameType(), data));
@@ -284,22 +391,92 @@ public class SimpleWebSocket implements WebSocket {
 
     protected byte[] toRawData(String fragment, boolean last) {
         final DataFrame dataFrame = protocolHandler.toDataFrame(fragment, last);
-        return protocolHandler.frame(dataFrame);
+        return protocolHandler.frame(dataFrame, null);
     }
 
     protected byte[] toRawData(byte[] binary, boolean last) {
         final DataFrame dataFrame = protocolHandler.toDataFrame(binary, last);
-        return protocolHandler.frame(dataFrame);
+        return protocolHandler.frame(dataFrame, null);
+    }
+
+    /**
+     * Serializes the ping frame, so the result may be sent using
+     * {@link #sendRaw(byte[])} to all the websockets, which don't mask
+     * the frames.
+     *
+     * @since 2.4.4
+     */
+    protected byte[] toRawPing(byte[] data) {
+        return protocolHandler.frame(new DataFrame(new PingFrameType(), data), null);
+    }
+
+    /**
+     * Serializes the message compressing it with the shared context of
+     * the passed {@link PerMessageDeflate}, so the result may be sent using
+     * {@link #sendRaw(byte[])} to all the websockets, which negotiated it.
+     *
+     * @since 2.4.4
+     */
+    protected byte[] toRawData(String text, PerMessageDeflate deflate) {
+        final DataFrame dataFrame = protocolHandler.toDataFrame(text, true);
+        return protocolHandler.frame(dataFrame, deflate);
+    }
+
+    /**
+     * Serializes the message compressing it with the shared context of
+     * the passed {@link PerMessageDeflate}, so the result may be sent using
+     * {@link #sendRaw(byte[])} to all the websockets, which negotiated it.
+     *
+     * @since 2.4.4
+     */
+    protected byte[] toRawData(byte[] binary, PerMessageDeflate deflate) {
+        final DataFrame dataFrame = protocolHandler.toDataFrame(binary, true);
+        return protocolHandler.frame(dataFrame, deflate);
+    }
+
+    /**
+     * @return the negotiated {@link PerMessageDeflate}, or <tt>null</tt>
+     *  if the messages are not compressed.
+     *
+     * @since 2.4.4
+     */
+    protected PerMessageDeflate getPerMessageDeflate() {
+        final PerMessageDeflate.Codec codec = protocolHandler.getDeflateCodec();
+        return codec != null ? codec.getPerMessageDeflate() : null;
     }
 
-    @SuppressWarnings("unchecked")
     protected void sendRaw(byte[] rawData) {
+        sendRaw(rawData, null);
+    }
+
+    /**
+     * Sends the serialized message, notifying the passed
+     * {@link CompletionHandler} once the message is written or failed.
+     *
+     * @since 2.4.4
+     */
+    protected void sendRaw(byte[] rawData,
+            CompletionHandler<WriteResult> completionHandler) {
+        final PerMessageDeflate.Codec codec = protocolHandler.getDeflateCodec();
+        if (codec != null && PerMessageDeflate.isCompressed(rawData)) {
+            synchronized (codec) {
+                codec.onSharedMessage();
+                write(rawData, completionHandler);
+            }
+        } else {
+            write(rawData, completionHandler);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(byte[] rawData,
+            CompletionHandler<WriteResult> completionHandler) {
         final Connection connection = protocolHandler.getConnection();
         final MemoryManager mm = connection.getTransport().getMemoryManager();
         final Buffer buffer = Buffers.wrap(mm, rawData);
         buffer.allowBufferDispose(false);
 
-        connection.write(buffer);
+        connection.write(buffer, completionHandler);
     }
 
     protected Broadcaster getBroadcaster() {
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The concurrent index of the {@link WebSocket} topic (room) subscriptions.
+ *
+ * Each topic keeps its subscribers in an array, which is published as an
+ * immutable {@link Subscribers} snapshot, so the subscribers are iterated
+ * without locking and copying.
+ * The new subscribers are appended to the array's spare capacity, which is
+ * invisible to the snapshots taken before. The unsubscribed sockets leave
+ * the holes, which are skipped by the iteration; the array is compacted once
+ * the holes outnumber the subscribers.
+ *
+ * @since 2.4.4
+ */
+public class TopicSubscriptions {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final ConcurrentMap<String, Topic> topics =
+            new ConcurrentHashMap<String, Topic>();
+
+    // the reverse index to find the socket topics, the socket set lock
+    // is taken before the topic lock
+    private final ConcurrentMap<WebSocket, Set<String>> socketTopics =
+            new ConcurrentHashMap<WebSocket, Set<String>>();
+
+    /**
+     * Subscribes the {@link WebSocket} to the topic.
+     *
+     * @return <tt>true</tt> if the socket was subscribed, or <tt>false</tt> if
+     *  it had been subscribed to the topic before.
+     */
+    public boolean subscribe(final WebSocket socket, final String topic) {
+        if (socket == null || topic == null) {
+            throw new IllegalArgumentException("socket and topic can't be null");
+        }
+
+        for (;;) {
+            final Set<String> socketTopicsSet = obtainSocketTopics(socket);
+            synchronized (socketTopicsSet) {
+                // the set could be removed by unsubscribe
+                if (socketTopics.get(socket) != socketTopicsSet) {
+                    continue;
+                }
+
+                if (!socketTopicsSet.add(topic)) {
+                    return false;
+                }
+
+                addToTopic(socket, topic);
+                break;
+            }
+        }
+
+        // the socket could be closed and removed concurrently
+        if (!socket.isConnected()) {
+            unsubscribeAll(socket);
+        }
+
+        return true;
+    }
+
+    /**
+     * Unsubscribes the {@link WebSocket} from the topic.
+     *
+     * @return <tt>true</tt> if the socket was unsubscribed, or <tt>false</tt>
+     *  if it was not subscribed to the topic.
+     */
+    public boolean unsubscribe(final WebSocket socket, final String topic) {
+        final Set<String> socketTopicsSet = socketTopics.get(socket);
+        if (socketTopicsSet == null) {
+            return false;
+        }
+
+        synchronized (socketTopicsSet) {
+            if (!socketTopicsSet.remove(topic)) {
+                return false;
+            }
+
+            removeFromTopic(socket, topic);
+            if (socketTopicsSet.isEmpty()) {
+                socketTopics.remove(socket, socketTopicsSet);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Unsubscribes the {@link WebSocket} from all the topics.
+     */
+    public void unsubscribeAll(final WebSocket socket) {
+        for (;;) {
+            final Set<String> socketTopicsSet = socketTopics.get(socket);
+            if (socketTopicsSet == null) {
+                return;
+            }
+
+            synchronized (socketTopicsSet) {
+                // the set could be removed by unsubscribe
+                if (socketTopics.get(socket) != socketTopicsSet) {
+                    continue;
+                }
+
+                for (String topic : socketTopicsSet) {
+                    removeFromTopic(socket, topic);
+                }
+                socketTopicsSet.clear();
+                // the set is removed last, so the new subscriptions
+                // don't overlap with the removed ones
+                socketTopics.remove(socket, socketTopicsSet);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the snapshot of the topic subscribers, the later subscriptions
+     * aren't visible to the returned {@link Subscribers}.
+     *
+     * @return the topic {@link Subscribers}.
+     */
+    public Subscribers getSubscribers(final String topic) {
+        final Topic t = topics.get(topic);
+        return t != null ? t.subscribers : Subscribers.EMPTY;
+    }
+
+    /**
+     * @return the unmodifiable set of the topics the {@link WebSocket} is
+     *  subscribed to.
+     */
+    public Set<String> getTopics(final WebSocket socket) {
+        final Set<String> socketTopicsSet = socketTopics.get(socket);
+        return socketTopicsSet != null
+                ? Collections.unmodifiableSet(socketTopicsSet)
+                : Collections.<String>emptySet();
+    }
+
+    /**
+     * @return the unmodifiable set of the topics having subscribers.
+     */
+    public Set<String> getTopics() {
+        return Collections.unmodifiableSet(topics.keySet());
+    }
+
+    private Set<String> obtainSocketTopics(final WebSocket socket) {
+        Set<String> socketTopicsSet = socketTopics.get(socket);
+        if (socketTopicsSet == null) {
+            final Set<String> newSet = Collections.newSetFromMap(
+                    new ConcurrentHashMap<String, Boolean>(4));
+            socketTopicsSet = socketTopics.putIfAbsent(socket, newSet);
+            if (socketTopicsSet == null) {
+                socketTopicsSet = newSet;
+            }
+        }
+
+        return socketTopicsSet;
+    }
+
+    private void addToTopic(final WebSocket socket, final String topic) {
+        for (;;) {
+            Topic t = topics.get(topic);
+            if (t == null) {
+                final Topic newTopic = new Topic();
+                t = topics.putIfAbsent(topic, newTopic);
+                if (t == null) {
+                    t = newTopic;
+                }
+            }
+
+            synchronized (t) {
+                // the topic could be removed, when its last subscriber left
+                if (!t.isRemoved) {
+                    t.add(socket);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void removeFromTopic(final WebSocket socket, final String topic) {
+        final Topic t = topics.get(topic);
+        if (t == null) {
+            return;
+        }
+
+        synchronized (t) {
+            if (t.remove(socket) && t.subscribers.count == 0) {
+                t.isRemoved = true;
+                topics.remove(topic, t);
+            }
+        }
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+
+    /**
+     * The topic subscribers, guarded by the topic lock.
+     */
+    private static final class Topic {
+        private volatile Subscribers subscribers = Subscribers.EMPTY;
+
+        private WebSocket[] array = new WebSocket[INITIAL_CAPACITY];
+        // the number of the array slots in use including the holes
+        private int length;
+        private final Map<WebSocket, Integer> positions =
+                new HashMap<WebSocket, Integer>();
+        private boolean isRemoved;
+
+        void add(final WebSocket socket) {
+            if (length == array.length) {
+                if (positions.size() * 2 <= length) {
+                    compact(array.length);
+                } else {
+                    array = Arrays.copyOf(array, length * 2);
+                }
+            }
+
+            positions.put(socket, length);
+            // the slot is invisible to the published snapshots
+            array[length++] = socket;
+            subscribers = new Subscribers(array, length, positions.size());
+        }
+
+        boolean remove(final WebSocket socket) {
+            final Integer position = positions.remove(socket);
+            if (position == null) {
+                return false;
+            }
+
+            // the snapshots skip the hole
+            array[position] = null;
+
+            final int count = positions.size();
+            if (count * 2 < length && length > INITIAL_CAPACITY) {
+                compact(Math.max(INITIAL_CAPACITY, count * 2));
+            }
+
+            subscribers = new Subscribers(array, length, count);
+            return true;
+        }
+
+        /**
+         * Copies the subscribers to the new array, so the published snapshots
+         * are not affected.
+         */
+        private void compact(final int capacity) {
+            final WebSocket[] newArray = new WebSocket[capacity];
+            int newLength = 0;
+            for (int i = 0; i < length; i++) {
+                final WebSocket socket = array[i];
+                if (socket != null) {
+                    positions.put(socket, newLength);
+                    newArray[newLength++] = socket;
+                }
+            }
+
+            array = newArray;
+            length = newLength;
+        }
+    }
+
+    /**
+     * The immutable snapshot of the topic subscribers.
+     * The iteration doesn't lock or copy the subscribers, the sockets
+     * unsubscribed after the snapshot was taken may be skipped.
+     */
+    public static final class Subscribers implements Iterable<WebSocket> {
+        static final Subscribers EMPTY =
+                new Subscribers(new WebSocket[0], 0, 0);
+
+        private final WebSocket[] array;
+        private final int length;
+        private final int count;
+
+        private Subscribers(final WebSocket[] array, final int length,
+                final int count) {
+            this.array = array;
+            this.length = length;
+            this.count = count;
+        }
+
+        /**
+         * @return the number of the subscribers, when the snapshot was taken.
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * @return <tt>true</tt> if the topic had no subscribers, when the
+         *  snapshot was taken.
+         */
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        @Override
+        public Iterator<WebSocket> iterator() {
+            return new Iterator<WebSocket>() {
+                private int position;
+                private WebSocket next = advance();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public WebSocket next() {
+                    final WebSocket socket = next;
+                    if (socket == null) {
+                        throw new NoSuchElementException();
+                    }
+
+                    next = advance();
+                    return socket;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                // skips the holes
+                private WebSocket advance() {
+                    while (position < length) {
+                        final WebSocket socket = array[position++];
+                        if (socket != null) {
+                            return socket;
+                        }
+                    }
+
+                    return null;
+                }
+            };
+        }
+    }
+}
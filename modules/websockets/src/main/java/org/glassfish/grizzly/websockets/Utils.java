@@ -27,6 +27,8 @@ import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 
+import org.glassfish.grizzly.Buffer;
+
 public final class Utils {
 
     static final ServletInputStream NULL_SERVLET_INPUT_STREAM =
@@ -133,6 +135,18 @@ public final class Utils {
         return b;
     }
 
+    /**
+     * Copies the {@link Buffer} remaining bytes into a new array,
+     * the {@link Buffer} position is not changed.
+     */
+    public static byte[] toArray(final Buffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        final int position = buffer.position();
+        buffer.get(bytes);
+        buffer.position(position);
+        return bytes;
+    }
+
     public static long toLong(byte[] bytes, int start, int end) {
         long value = 0;
         for (int i = start; i < end; i++) {
@@ -16,6 +16,7 @@
 
 package org.glassfish.grizzly.websockets;
 
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.GrizzlyFuture;
 
 /**
@@ -57,6 +58,13 @@ public interface WebSocket {
      * without sending or receiving a Close control frame.
      */
     int ABNORMAL_CLOSE = 1006;
+    /**
+     * Indicates that an endpoint is terminating the connection because it has received a message that is too big for
+     * it to process, as defined by RFC 6455.
+     *
+     * @since 2.4.4
+     */
+    int MESSAGE_TOO_BIG = 1009;
 
     /**
      * <p>
@@ -76,6 +84,27 @@ public interface WebSocket {
      */
     GrizzlyFuture<DataFrame> send(byte[] data);
 
+    /**
+     * <p>
+     * Send a binary frame to the remote end-point without copying the
+     * {@link Buffer}, the frame header is prepended as a separate
+     * {@link Buffer}. The {@link Buffer} bytes before its position are
+     * never touched.
+     * </p>
+     *
+     * <p>
+     * The default implementation copies the {@link Buffer} and sends it using
+     * {@link #send(byte[])}.
+     * </p>
+     *
+     * @return {@link GrizzlyFuture} which could be used to control/check the sending completion state.
+     *
+     * @since 2.4.4
+     */
+    default GrizzlyFuture<DataFrame> send(Buffer data) {
+        return send(Utils.toArray(data));
+    }
+
     /**
      * <p>
      * Broadcasts the data to the remote end-point set.
@@ -118,6 +147,81 @@ public interface WebSocket {
     void broadcastFragment(final Iterable<? extends WebSocket> recipients,
             byte[] data, boolean last);
 
+    /**
+     * <p>
+     * Subscribes this {@link WebSocket} to the topic of the
+     * {@link WebSocketApplication} it's connected to, so it receives
+     * the messages broadcast to the topic.
+     * </p>
+     *
+     * @param topic the topic (room) name.
+     *
+     * @return <code>true</code> if the {@link WebSocket} was subscribed, or
+     *  <code>false</code> if it had been subscribed to the topic before.
+     *
+     * @throws UnsupportedOperationException if the {@link WebSocket}
+     *  implementation doesn't support topics, which is the default.
+     *
+     * @see WebSocketApplication#broadcast(String, String)
+     * @since 2.4.4
+     */
+    default boolean subscribe(String topic) {
+        throw new UnsupportedOperationException("subscribe");
+    }
+
+    /**
+     * <p>
+     * Unsubscribes this {@link WebSocket} from the topic of the
+     * {@link WebSocketApplication} it's connected to.
+     * </p>
+     *
+     * @param topic the topic (room) name.
+     *
+     * @return <code>true</code> if the {@link WebSocket} was unsubscribed, or
+     *  <code>false</code> if it was not subscribed to the topic.
+     *
+     * @throws UnsupportedOperationException if the {@link WebSocket}
+     *  implementation doesn't support topics, which is the default.
+     *
+     * @since 2.4.4
+     */
+    default boolean unsubscribe(String topic) {
+        throw new UnsupportedOperationException("unsubscribe");
+    }
+
+    /**
+     * <p>
+     * Stops reading from the remote end-point, so the received data is not
+     * buffered while the application is not ready to consume it.
+     * The frame being delivered, if any, completes, and the following frames
+     * are delivered once {@link #resumeReading()} is called.
+     * </p>
+     *
+     * @throws UnsupportedOperationException if the {@link WebSocket}
+     *  implementation can't pause reading, which is the default.
+     *
+     * @since 2.4.4
+     */
+    default void pauseReading() {
+        throw new UnsupportedOperationException("pauseReading");
+    }
+
+    /**
+     * <p>
+     * Resumes reading from the remote end-point paused by
+     * {@link #pauseReading()}. The frames received before the reading was
+     * paused are delivered on the calling thread.
+     * </p>
+     *
+     * @throws UnsupportedOperationException if the {@link WebSocket}
+     *  implementation can't pause reading, which is the default.
+     *
+     * @since 2.4.4
+     */
+    default void resumeReading() {
+        throw new UnsupportedOperationException("resumeReading");
+    }
+
     /**
      * Sends a <code>ping</code> frame with the specified payload (if any).
      * </p>
@@ -242,6 +346,26 @@ public interface WebSocket {
      */
     void onMessage(byte[] data);
 
+    /**
+     * <p>
+     * This callback will be invoked when a binary message has been received
+     * without copying its payload.
+     * </p>
+     *
+     * <p>
+     * The default implementation copies the {@link Buffer} and invokes
+     * {@link #onMessage(byte[])}.
+     * </p>
+     *
+     * @param data the binary data received from the remote end-point, valid
+     *  only until the callback returns.
+     *
+     * @since 2.4.4
+     */
+    default void onMessage(Buffer data) {
+        onMessage(Utils.toArray(data));
+    }
+
     /**
      * <p>
      * This callback will be invoked when a fragmented textual message has
@@ -266,6 +390,28 @@ public interface WebSocket {
      */
     void onFragment(boolean last, byte[] payload);
 
+    /**
+     * <p>
+     * This callback will be invoked when a fragment or a chunk of a binary
+     * message has been received without copying its payload.
+     * </p>
+     *
+     * <p>
+     * The default implementation copies the {@link Buffer} and invokes
+     * {@link #onFragment(boolean, byte[])}.
+     * </p>
+     *
+     * @param last flag indicating whether or not the payload received is the
+     *  final fragment of a message.
+     * @param payload the binary data received from the remote end-point,
+     *  valid only until the callback returns.
+     *
+     * @since 2.4.4
+     */
+    default void onFragment(boolean last, Buffer payload) {
+        onFragment(last, Utils.toArray(payload));
+    }
+
     /**
      * <p>
      * This callback will be invoked when the remote end-point sent a closing 
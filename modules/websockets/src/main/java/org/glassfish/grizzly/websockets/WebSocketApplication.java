@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.util.Header;
 
@@ -39,6 +40,10 @@ public abstract class WebSocketApplication extends WebSocketAdapter {
 
     private final List<Extension> supportedExtensions = new ArrayList<Extension>(2);
     private final List<String> supportedProtocols = new ArrayList<String>(2);
+    private volatile PerMessageDeflate perMessageDeflate;
+    private final TopicSubscriptions topicSubscriptions = new TopicSubscriptions();
+    private volatile long maxMessageSize = -1;
+    private volatile int streamingThreshold = -1;
     
     // ---------------------------------------------------------- Public Methods
 
@@ -177,6 +182,136 @@ public abstract class WebSocketApplication extends WebSocketAdapter {
         return supportedExtensions;
     }
 
+    /**
+     * @return the <tt>permessage-deflate</tt> configuration, or <tt>null</tt>
+     *  if the extension is not supported.
+     *
+     * @since 2.4.4
+     */
+    public PerMessageDeflate getPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    /**
+     * Enables the <tt>permessage-deflate</tt> extension, so the messages
+     * are compressed for the clients offering it.
+     *
+     * @param perMessageDeflate the <tt>permessage-deflate</tt> configuration,
+     *  <tt>null</tt> disables the extension.
+     *
+     * @since 2.4.4
+     */
+    public void setPerMessageDeflate(final PerMessageDeflate perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+
+        final Extension extension = new Extension(PerMessageDeflate.NAME);
+        if (perMessageDeflate == null) {
+            supportedExtensions.remove(extension);
+        } else if (!supportedExtensions.contains(extension)) {
+            supportedExtensions.add(extension);
+        }
+    }
+
+    /**
+     * @return the maximum size of the message received from a client in
+     *  bytes, or <tt>-1</tt> if the size is not limited.
+     *
+     * @since 2.4.4
+     */
+    public long getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    /**
+     * Sets the maximum size of the message received from a client in bytes,
+     * the connection receiving a larger message is closed with the
+     * {@link WebSocket#MESSAGE_TOO_BIG} code. The limit applies to the
+     * connections established after the call.
+     *
+     * @param maxMessageSize the maximum message size, <tt>-1</tt> means
+     *  the size is not limited.
+     *
+     * @since 2.4.4
+     */
+    public void setMaxMessageSize(final long maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @return the size of the data frame in bytes, starting from which the
+     *  frame payload is streamed, or <tt>-1</tt> if the frames are not streamed.
+     *
+     * @since 2.4.4
+     */
+    public int getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    /**
+     * Sets the size of the data frame in bytes, starting from which the frame
+     * payload is not aggregated, but delivered to the
+     * {@link WebSocketListener#onFragment(WebSocket, Buffer, boolean)} and
+     * {@link WebSocketListener#onFragment(WebSocket, String, boolean)}
+     * callbacks in chunks as the bytes arrive, so the large messages are
+     * received in the constant memory. The threshold applies to the
+     * connections established after the call.
+     *
+     * @param streamingThreshold the streaming threshold, <tt>-1</tt> means
+     *  the frames are delivered whole.
+     *
+     * @see WebSocket#pauseReading()
+     * @since 2.4.4
+     */
+    public void setStreamingThreshold(final int streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * @return the {@link TopicSubscriptions} of the {@link WebSocket}s
+     *  associated with this application.
+     *
+     * @since 2.4.4
+     */
+    public TopicSubscriptions getTopicSubscriptions() {
+        return topicSubscriptions;
+    }
+
+    /**
+     * Broadcasts the text to the {@link WebSocket}s subscribed to the topic
+     * using the subscriber's {@link Broadcaster}.
+     *
+     * @param topic the topic (room) name.
+     * @param text the textual content.
+     *
+     * @since 2.4.4
+     */
+    public void broadcast(final String topic, final String text) {
+        final TopicSubscriptions.Subscribers subscribers =
+                topicSubscriptions.getSubscribers(topic);
+        final WebSocket socket = getBroadcastingSocket(subscribers);
+        if (socket != null) {
+            socket.broadcast(subscribers, text);
+        }
+    }
+
+    /**
+     * Broadcasts the binary content to the {@link WebSocket}s subscribed to
+     * the topic using the subscriber's {@link Broadcaster}.
+     *
+     * @param topic the topic (room) name.
+     * @param binary the binary content.
+     *
+     * @since 2.4.4
+     */
+    public void broadcast(final String topic, final byte[] binary) {
+        final TopicSubscriptions.Subscribers subscribers =
+                topicSubscriptions.getSubscribers(topic);
+        final WebSocket socket = getBroadcastingSocket(subscribers);
+        if (socket != null) {
+            socket.broadcast(subscribers, binary);
+        }
+    }
+
     /**
      *
      *
@@ -222,9 +357,25 @@ public abstract class WebSocketApplication extends WebSocketAdapter {
      *  otherwise returns <code>false</code>.
      */
     public boolean remove(WebSocket socket) {
+        topicSubscriptions.unsubscribeAll(socket);
         return sockets.remove(socket) != null;
     }
 
+    /**
+     * @return the connected subscriber, whose {@link Broadcaster} sends the
+     *  topic message, or <tt>null</tt> if there is no such subscriber.
+     */
+    private static WebSocket getBroadcastingSocket(
+            final TopicSubscriptions.Subscribers subscribers) {
+        for (WebSocket socket : subscribers) {
+            if (socket.isConnected()) {
+                return socket;
+            }
+        }
+
+        return null;
+    }
+
 
     /**
      * This method will be called, when initial {@link WebSocket} handshake 
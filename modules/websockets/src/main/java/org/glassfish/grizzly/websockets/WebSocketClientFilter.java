@@ -74,6 +74,7 @@ public class WebSocketClientFilter extends BaseWebSocketFilter {
     private static NextAction handleClientHandShake(FilterChainContext ctx, HttpContent content) {
         final WebSocketHolder holder = WebSocketHolder.get(ctx.getConnection());
         holder.handshake.validateServerResponse((HttpResponsePacket) content.getHttpHeader());
+        holder.handler.setDeflateCodec(holder.handshake.getDeflateCodec());
         holder.webSocket.onConnect();
         
         if (content.getContent().hasRemaining()) {
@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.CloseType;
+import org.glassfish.grizzly.Closeable;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.Processor;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.HttpClientFilter;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.glassfish.grizzly.ssl.SSLFilter;
+import org.glassfish.grizzly.utils.Futures;
+
+/**
+ * Opens the client-side {@link WebSocket}s over a shared
+ * {@link TCPNIOTransport} and filter chain, so tens of thousands of outbound
+ * sockets don't cost a transport (and its selector threads) each.
+ *
+ * The {@link #connect(URI, WebSocketListener...)} is asynchronous, so many
+ * handshakes are in flight at the same time. The {@link WebSocketPool}s
+ * created by the connector keep the configured number of sockets open,
+ * reconnecting the closed ones with the jittered exponential backoff.
+ *
+ * The <tt>wss://</tt> sockets are connected over TLS, configured by the
+ * {@link #setSSLEngineConfigurator(SSLEngineConfigurator)}.
+ *
+ * @since 2.4.4
+ */
+public class WebSocketConnector {
+    private static final Logger LOGGER = Grizzly.logger(WebSocketConnector.class);
+
+    /**
+     * The default delay before the first reconnect in milliseconds.
+     */
+    public static final long DEFAULT_INITIAL_RECONNECT_DELAY = 100;
+
+    /**
+     * The default maximum delay between the reconnects in milliseconds.
+     */
+    public static final long DEFAULT_MAX_RECONNECT_DELAY = 30 * 1000;
+
+    private static final Attribute<FutureImpl<WebSocket>> CONNECT_FUTURE_ATTR =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    WebSocketConnector.class.getName() + ".connect-future");
+
+    private final TCPNIOTransport transport;
+    private final boolean isTransportOwner;
+    private final Processor filterChain;
+    private final ScheduledExecutorService scheduler;
+
+    private SSLEngineConfigurator sslEngineConfigurator;
+    private Processor secureFilterChain;
+
+    private volatile long handshakeTimeoutMillis =
+            TimeUnit.SECONDS.toMillis(WebSocketEngine.DEFAULT_TIMEOUT);
+    private volatile long initialReconnectDelayMillis = DEFAULT_INITIAL_RECONNECT_DELAY;
+    private volatile long maxReconnectDelayMillis = DEFAULT_MAX_RECONNECT_DELAY;
+    private volatile PerMessageDeflate perMessageDeflate;
+
+    /**
+     * Constructs the <tt>WebSocketConnector</tt> with its own
+     * {@link TCPNIOTransport}, which is stopped by {@link #shutdown()}.
+     */
+    public WebSocketConnector() {
+        this(TCPNIOTransportBuilder.newInstance().build(), true);
+        try {
+            transport.start();
+        } catch (IOException e) {
+            scheduler.shutdownNow();
+            throw new WebSocketException("Failed to start the transport", e);
+        }
+    }
+
+    /**
+     * Constructs the <tt>WebSocketConnector</tt> sharing the started
+     * {@link TCPNIOTransport}, which is not stopped by {@link #shutdown()}.
+     *
+     * @param transport the {@link TCPNIOTransport} to open the connections with.
+     */
+    public WebSocketConnector(final TCPNIOTransport transport) {
+        this(transport, false);
+    }
+
+    private WebSocketConnector(final TCPNIOTransport transport,
+            final boolean isTransportOwner) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport can't be null");
+        }
+
+        this.transport = transport;
+        this.isTransportOwner = isTransportOwner;
+        filterChain = createFilterChain(null);
+        final ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread newThread = new Thread(r);
+                newThread.setName("Grizzly-WebSocket-Connector");
+                newThread.setDaemon(true);
+                return newThread;
+            }
+        });
+        // the handshake timeouts are cancelled once the handshakes complete
+        executor.setRemoveOnCancelPolicy(true);
+        scheduler = executor;
+    }
+
+    /**
+     * @return the {@link TCPNIOTransport} the connections are opened with.
+     */
+    public TCPNIOTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * @return the handshake timeout in milliseconds.
+     */
+    public long getHandshakeTimeoutMillis() {
+        return handshakeTimeoutMillis;
+    }
+
+    /**
+     * Sets the timeout, within which the connection has to be established
+     * and the handshake completed, otherwise the connection is closed.
+     */
+    public void setHandshakeTimeout(final long timeout, final TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        handshakeTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * @return the delay before the first reconnect in milliseconds.
+     */
+    public long getInitialReconnectDelayMillis() {
+        return initialReconnectDelayMillis;
+    }
+
+    /**
+     * @return the maximum delay between the reconnects in milliseconds.
+     */
+    public long getMaxReconnectDelayMillis() {
+        return maxReconnectDelayMillis;
+    }
+
+    /**
+     * Sets the {@link WebSocketPool} reconnect backoff: the delay doubles with
+     * each failed attempt up to the maximum, and a random half of it is
+     * jittered, so the sockets dropped at once don't reconnect at once.
+     *
+     * @param initialDelay the delay before the first reconnect.
+     * @param maxDelay the maximum delay between the reconnects.
+     * @param unit the delays {@link TimeUnit}.
+     */
+    public void setReconnectBackoff(final long initialDelay, final long maxDelay,
+            final TimeUnit unit) {
+        if (initialDelay <= 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException(
+                    "initialDelay must be positive and not greater than maxDelay");
+        }
+        initialReconnectDelayMillis = unit.toMillis(initialDelay);
+        maxReconnectDelayMillis = unit.toMillis(maxDelay);
+    }
+
+    /**
+     * @return the <tt>permessage-deflate</tt> configuration offered by the
+     *  handshakes, or <tt>null</tt> if the extension is not offered.
+     */
+    public PerMessageDeflate getPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    /**
+     * Offers the <tt>permessage-deflate</tt> extension in the handshakes of
+     * the sockets connected after the call.
+     *
+     * @param perMessageDeflate the <tt>permessage-deflate</tt> configuration,
+     *  <tt>null</tt> disables the extension.
+     */
+    public void setPerMessageDeflate(final PerMessageDeflate perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
+    /**
+     * @return the {@link SSLEngineConfigurator} of the <tt>wss://</tt>
+     *  connections, or <tt>null</tt> if the default client configuration
+     *  is used.
+     */
+    public synchronized SSLEngineConfigurator getSSLEngineConfigurator() {
+        return sslEngineConfigurator;
+    }
+
+    /**
+     * Sets the {@link SSLEngineConfigurator} of the <tt>wss://</tt>
+     * connections opened after the call.
+     *
+     * @param sslEngineConfigurator the client-mode {@link SSLEngineConfigurator},
+     *  <tt>null</tt> means the default client configuration.
+     */
+    public synchronized void setSSLEngineConfigurator(
+            final SSLEngineConfigurator sslEngineConfigurator) {
+        this.sslEngineConfigurator = sslEngineConfigurator;
+        secureFilterChain = null;
+    }
+
+    /**
+     * Connects a client-side {@link WebSocket} to the <tt>ws://</tt> or
+     * <tt>wss://</tt> URI without waiting for the handshake to complete.
+     *
+     * @param uri the <tt>ws://</tt> or <tt>wss://</tt> URI.
+     * @param listeners the {@link WebSocketListener}s of the socket.
+     *
+     * @return the {@link GrizzlyFuture}, which completes with the
+     *  {@link WebSocket} once the handshake is completed.
+     */
+    public GrizzlyFuture<WebSocket> connect(final URI uri,
+            final WebSocketListener... listeners) {
+        if (uri == null) {
+            throw new IllegalArgumentException("uri can't be null");
+        }
+
+        final boolean isSecure = "wss".equalsIgnoreCase(uri.getScheme());
+        if (!isSecure && !"ws".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("Unsupported scheme: " + uri.getScheme());
+        }
+
+        final FutureImpl<WebSocket> future = Futures.createSafeFuture();
+        final ProtocolHandler handler =
+                WebSocketEngine.DEFAULT_VERSION.createHandler(true);
+        final SimpleWebSocket socket = new SimpleWebSocket(handler, listeners);
+        socket.add(new WebSocketAdapter() {
+            @Override
+            public void onConnect(final WebSocket socket) {
+                socket.remove(this);
+                future.result(socket);
+            }
+        });
+
+        final TCPNIOConnectorHandler connectorHandler =
+                new TCPNIOConnectorHandler(transport) {
+                    @Override
+                    protected void preConfigure(final Connection connection) {
+                        super.preConfigure(connection);
+                        configure(connection, uri, handler, socket, future);
+                    }
+                };
+        connectorHandler.setProcessor(isSecure
+                ? getSecureFilterChain()
+                : filterChain);
+
+        final int port = uri.getPort() != -1
+                ? uri.getPort()
+                : (isSecure ? 443 : 80);
+        connectorHandler.connect(new InetSocketAddress(uri.getHost(), port),
+                new EmptyCompletionHandler<Connection>() {
+                    @Override
+                    public void failed(final Throwable throwable) {
+                        future.failure(throwable);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        future.failure(new CancellationException());
+                    }
+                });
+
+        return future;
+    }
+
+    /**
+     * Creates the {@link WebSocketPool} keeping <tt>size</tt> sockets
+     * connected to the URI, all the handshakes are started at once.
+     *
+     * @param uri the <tt>ws://</tt> or <tt>wss://</tt> URI.
+     * @param size the number of the sockets.
+     * @param listeners the {@link WebSocketListener}s of each socket.
+     *
+     * @return the {@link WebSocketPool}.
+     */
+    public WebSocketPool createPool(final URI uri, final int size,
+            final WebSocketListener... listeners) {
+        final WebSocketPool pool = new WebSocketPool(this, uri, size, listeners);
+        pool.connectAll();
+        return pool;
+    }
+
+    /**
+     * Stops the reconnects and the owned {@link TCPNIOTransport}.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (isTransportOwner) {
+            try {
+                transport.shutdownNow();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to stop the transport", e);
+            }
+        }
+    }
+
+    /**
+     * @return the jittered reconnect delay in milliseconds after the number
+     *  of the failed attempts.
+     */
+    long getReconnectDelayMillis(final int failedAttempts) {
+        final long maxDelay = maxReconnectDelayMillis;
+        final long delay = Math.min(maxDelay,
+                initialReconnectDelayMillis << Math.min(failedAttempts, 30));
+        final long base = delay < 0 ? maxDelay : delay;
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    ScheduledFuture<?> schedule(final Runnable task, final long delayMillis) {
+        try {
+            return scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // the connector is shut down
+            LOGGER.log(Level.FINE, "The task is not scheduled", e);
+            return null;
+        }
+    }
+
+    private synchronized Processor getSecureFilterChain() {
+        if (secureFilterChain == null) {
+            secureFilterChain = createFilterChain(
+                    new SSLFilter(null, sslEngineConfigurator));
+        }
+        return secureFilterChain;
+    }
+
+    private void configure(final Connection connection, final URI uri,
+            final ProtocolHandler handler, final SimpleWebSocket socket,
+            final FutureImpl<WebSocket> future) {
+        handler.setConnection(connection);
+        final WebSocketHolder holder =
+                WebSocketHolder.set(connection, handler, socket);
+        holder.handshake = handler.createClientHandShake(uri);
+        final PerMessageDeflate deflate = perMessageDeflate;
+        if (deflate != null) {
+            holder.handshake.setPerMessageDeflate(deflate);
+        }
+        CONNECT_FUTURE_ATTR.set(connection, future);
+
+        connection.addCloseListener(new CloseListener<Closeable, CloseType>() {
+            @Override
+            public void onClosed(final Closeable closeable, final CloseType type)
+                    throws IOException {
+                if (!future.isDone()) {
+                    future.failure(new IOException(
+                            "The connection is closed before the handshake completed"));
+                } else {
+                    // the close frame may not be received, the listeners
+                    // are notified once
+                    socket.onClose(new ClosingFrame(WebSocket.ABNORMAL_CLOSE,
+                            "Close detected on connection"));
+                }
+            }
+        });
+
+        final ScheduledFuture<?> timeoutTask = schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!future.isDone()) {
+                    future.failure(new TimeoutException(
+                            "The handshake is not completed in time"));
+                    connection.closeSilently();
+                }
+            }
+        }, handshakeTimeoutMillis);
+        if (timeoutTask != null) {
+            // don't keep the completed handshakes in the scheduler queue
+            future.addCompletionHandler(new EmptyCompletionHandler<WebSocket>() {
+                @Override
+                public void completed(final WebSocket result) {
+                    timeoutTask.cancel(false);
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    timeoutTask.cancel(false);
+                }
+            });
+        }
+    }
+
+    private static Processor createFilterChain(final SSLFilter sslFilter) {
+        final FilterChainBuilder builder = FilterChainBuilder.stateless();
+        builder.add(new TransportFilter());
+        if (sslFilter != null) {
+            builder.add(sslFilter);
+        }
+        builder.add(new HttpClientFilter());
+        builder.add(new WebSocketClientFilter() {
+            @Override
+            protected void onHandshakeFailure(final Connection connection,
+                    final HandshakeException e) {
+                final FutureImpl<WebSocket> future =
+                        CONNECT_FUTURE_ATTR.get(connection);
+                if (future != null) {
+                    future.failure(e);
+                }
+                connection.closeSilently();
+            }
+        });
+
+        return builder.build();
+    }
+}
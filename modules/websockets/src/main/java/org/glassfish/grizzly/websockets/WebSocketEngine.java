@@ -70,6 +70,8 @@ public class WebSocketEngine {
 
     private Mapper mapper = new Mapper();
 
+    private volatile HeartbeatScheduler heartbeatScheduler;
+
 
     private WebSocketEngine() {
         mapper.setDefaultHostName("localhost");
@@ -83,6 +85,32 @@ public class WebSocketEngine {
         return engine;
     }
 
+    /**
+     * @return the {@link HeartbeatScheduler} pinging the server-side
+     *  {@link WebSocket}s, or <tt>null</tt> if the heartbeats are disabled.
+     *
+     * @since 2.4.4
+     */
+    public HeartbeatScheduler getHeartbeatScheduler() {
+        return heartbeatScheduler;
+    }
+
+    /**
+     * Sets the {@link HeartbeatScheduler}, which the server-side
+     * {@link WebSocket}s upgraded after the call are registered with, so the
+     * dead peers are detected and their connections are terminated.
+     * The previous scheduler, if any, keeps pinging the sockets registered
+     * with it until it's stopped.
+     *
+     * @param heartbeatScheduler the {@link HeartbeatScheduler}, <tt>null</tt>
+     *  disables the heartbeats.
+     *
+     * @since 2.4.4
+     */
+    public void setHeartbeatScheduler(final HeartbeatScheduler heartbeatScheduler) {
+        this.heartbeatScheduler = heartbeatScheduler;
+    }
+
 
 
     public WebSocketApplication getApplication(HttpRequestPacket request) {
@@ -196,6 +224,11 @@ public class WebSocketEngine {
                     }
                 });
                 socket.onConnect();
+
+                final HeartbeatScheduler heartbeat = heartbeatScheduler;
+                if (heartbeat != null) {
+                    heartbeat.register(socket);
+                }
                 return true;
             }
         } catch (HandshakeException e) {
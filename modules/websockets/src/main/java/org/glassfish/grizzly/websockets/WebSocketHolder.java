@@ -20,6 +20,7 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
 
 /**
  * WebSocketHolder object, which gets associated with the Grizzly {@link org.glassfish.grizzly.Connection}.
@@ -31,6 +32,11 @@ public final class WebSocketHolder {
     public volatile Buffer buffer;
     public volatile ProtocolHandler handler;
 
+    // the reading is paused by WebSocket.pauseReading(),
+    // the paused context is guarded by the holder lock
+    volatile boolean isReadPaused;
+    FilterChainContext pausedContext;
+
     private static final Attribute<WebSocketHolder> webSocketAttribute =
             Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute("web-socket");
 
@@ -16,6 +16,8 @@
 
 package org.glassfish.grizzly.websockets;
 
+import org.glassfish.grizzly.Buffer;
+
 /**
  * Interface to allow notification of events occurring on specific
  * {@link WebSocket} instances.
@@ -65,6 +67,22 @@ public interface WebSocketListener {
      */
     void onMessage(WebSocket socket, byte[] bytes);
 
+    /**
+     * Invoked when a binary message has been received. The {@link Buffer}
+     * is valid only until the method returns, it has to be copied to be
+     * used later.
+     *
+     * The default implementation copies the {@link Buffer} and invokes
+     * {@link #onMessage(WebSocket, byte[])}.
+     * {@link SimpleWebSocket} calls the byte[] callback directly, with
+     * a copy shared by all such listeners, unless this method is overridden.
+     *
+     * @since 2.4.4
+     */
+    default void onMessage(WebSocket socket, Buffer buffer) {
+        onMessage(socket, Utils.toArray(buffer));
+    }
+
     /**
      * <p>
      * Invoked when {@link WebSocket#onPing(DataFrame)} has been called on a 
@@ -111,4 +129,24 @@ public interface WebSocketListener {
      */
     void onFragment(WebSocket socket, byte[] fragment, boolean last);
 
+    /**
+     * Invoked when a fragment or a chunk of a binary message has been
+     * received. The {@link Buffer} is valid only until the method returns,
+     * it has to be copied to be used later.
+     *
+     * The default implementation copies the {@link Buffer} and invokes
+     * {@link #onFragment(WebSocket, byte[], boolean)}.
+     * {@link SimpleWebSocket} calls the byte[] callback directly, with
+     * a copy shared by all such listeners, unless this method is overridden.
+     *
+     * @param socket   the {@link WebSocket} received the message fragment.
+     * @param fragment the message fragment.
+     * @param last     flag indicating if this was the last fragment.
+     *
+     * @since 2.4.4
+     */
+    default void onFragment(WebSocket socket, Buffer fragment, boolean last) {
+        onFragment(socket, Utils.toArray(fragment), last);
+    }
+
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.GrizzlyFuture;
+
+/**
+ * The fixed size pool of the client-side {@link WebSocket}s connected to the
+ * same URI by the {@link WebSocketConnector}.
+ *
+ * Each closed or failed to connect socket is reconnected after the
+ * connector's jittered exponential backoff, until the pool is closed.
+ * The messages are sent over the connected sockets in the round-robin order.
+ *
+ * @since 2.4.4
+ */
+public class WebSocketPool {
+    private static final Logger LOGGER = Grizzly.logger(WebSocketPool.class);
+
+    private final WebSocketConnector connector;
+    private final URI uri;
+    private final WebSocketListener[] listeners;
+    private final AtomicReferenceArray<WebSocket> sockets;
+    private final int[] failedAttempts;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final AtomicLong reconnectsCount = new AtomicLong();
+    private volatile boolean isClosed;
+
+    WebSocketPool(final WebSocketConnector connector, final URI uri,
+            final int size, final WebSocketListener... listeners) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        this.connector = connector;
+        this.uri = uri;
+        this.listeners = listeners.clone();
+        sockets = new AtomicReferenceArray<WebSocket>(size);
+        failedAttempts = new int[size];
+    }
+
+    /**
+     * @return the URI the sockets are connected to.
+     */
+    public URI getURI() {
+        return uri;
+    }
+
+    /**
+     * @return the pool size.
+     */
+    public int size() {
+        return sockets.length();
+    }
+
+    /**
+     * @return the number of the connected sockets.
+     */
+    public int getConnectedCount() {
+        int count = 0;
+        for (int i = 0; i < sockets.length(); i++) {
+            final WebSocket socket = sockets.get(i);
+            if (socket != null && socket.isConnected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of the reconnect attempts.
+     */
+    public long getReconnectsCount() {
+        return reconnectsCount.get();
+    }
+
+    /**
+     * @return the next connected {@link WebSocket} in the round-robin order,
+     *  or <tt>null</tt> if no socket is connected.
+     */
+    public WebSocket next() {
+        final int size = sockets.length();
+        final int start = roundRobin.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            final WebSocket socket = sockets.get((start + i) % size);
+            if (socket != null && socket.isConnected()) {
+                return socket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends the binary message over the next connected socket.
+     *
+     * @throws WebSocketException if no socket is connected.
+     */
+    public GrizzlyFuture<DataFrame> send(final byte[] data) {
+        return obtain().send(data);
+    }
+
+    /**
+     * Sends the binary message over the next connected socket without
+     * copying the {@link Buffer}.
+     *
+     * @throws WebSocketException if no socket is connected.
+     */
+    public GrizzlyFuture<DataFrame> send(final Buffer data) {
+        return obtain().send(data);
+    }
+
+    /**
+     * Sends the text message over the next connected socket.
+     *
+     * @throws WebSocketException if no socket is connected.
+     */
+    public GrizzlyFuture<DataFrame> send(final String data) {
+        return obtain().send(data);
+    }
+
+    /**
+     * Closes the sockets, the closed sockets are not reconnected.
+     */
+    public void close() {
+        isClosed = true;
+        for (int i = 0; i < sockets.length(); i++) {
+            final WebSocket socket = sockets.getAndSet(i, null);
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+
+    void connectAll() {
+        for (int i = 0; i < sockets.length(); i++) {
+            connect(i);
+        }
+    }
+
+    private WebSocket obtain() {
+        final WebSocket socket = next();
+        if (socket == null) {
+            throw new WebSocketException("No socket is connected to " + uri);
+        }
+        return socket;
+    }
+
+    private void connect(final int slot) {
+        if (isClosed) {
+            return;
+        }
+
+        // the slot listener reconnects the closed socket
+        final WebSocketListener[] slotListeners =
+                Arrays.copyOf(listeners, listeners.length + 1);
+        slotListeners[listeners.length] = new WebSocketAdapter() {
+            @Override
+            public void onClose(final WebSocket socket, final DataFrame frame) {
+                if (sockets.compareAndSet(slot, socket, null)) {
+                    scheduleReconnect(slot);
+                }
+            }
+        };
+
+        final GrizzlyFuture<WebSocket> future;
+        try {
+            future = connector.connect(uri, slotListeners);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Failed to connect to " + uri, e);
+            scheduleReconnect(slot);
+            return;
+        }
+
+        future.addCompletionHandler(new CompletionHandler<WebSocket>() {
+            @Override
+            public void completed(final WebSocket socket) {
+                synchronized (failedAttempts) {
+                    failedAttempts[slot] = 0;
+                }
+                sockets.set(slot, socket);
+                if (isClosed || !socket.isConnected()) {
+                    // closed concurrently
+                    if (sockets.compareAndSet(slot, socket, null)) {
+                        if (isClosed) {
+                            socket.close();
+                        } else {
+                            scheduleReconnect(slot);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                LOGGER.log(Level.FINE, "Failed to connect to " + uri, throwable);
+                scheduleReconnect(slot);
+            }
+
+            @Override
+            public void cancelled() {
+                scheduleReconnect(slot);
+            }
+
+            @Override
+            public void updated(final WebSocket result) {
+            }
+        });
+    }
+
+    private void scheduleReconnect(final int slot) {
+        if (isClosed) {
+            return;
+        }
+
+        final int attempts;
+        synchronized (failedAttempts) {
+            attempts = failedAttempts[slot]++;
+        }
+
+        connector.schedule(new Runnable() {
+            @Override
+            public void run() {
+                reconnectsCount.incrementAndGet();
+                connect(slot);
+            }
+        }, connector.getReconnectDelayMillis(attempts));
+    }
+}
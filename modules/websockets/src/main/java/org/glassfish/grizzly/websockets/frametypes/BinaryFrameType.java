@@ -23,7 +23,13 @@ import org.glassfish.grizzly.websockets.WebSocket;
 public class BinaryFrameType extends BaseFrameType {
     public void respond(WebSocket socket, DataFrame frame) {
         if (!frame.isLast()) {
-            socket.onFragment(frame.isLast(), frame.getBytes());
+            if (frame.getBuffer() != null) {
+                socket.onFragment(frame.isLast(), frame.getBuffer());
+            } else {
+                socket.onFragment(frame.isLast(), frame.getBytes());
+            }
+        } else if (frame.getBuffer() != null) {
+            socket.onMessage(frame.getBuffer());
         } else {
             socket.onMessage(frame.getBytes());
         }
@@ -33,6 +33,8 @@ public class ContinuationFrameType extends BaseFrameType {
     public void respond(WebSocket socket, DataFrame frame) {
         if (text) {
             socket.onFragment(frame.isLast(), frame.getTextPayload());
+        } else if (frame.getBuffer() != null) {
+            socket.onFragment(frame.isLast(), frame.getBuffer());
         } else {
             socket.onFragment(frame.isLast(), frame.getBytes());
         }
@@ -19,11 +19,15 @@ package org.glassfish.grizzly.websockets.rfc6455;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.websockets.Constants;
 import org.glassfish.grizzly.websockets.DataFrame;
 import org.glassfish.grizzly.websockets.FrameType;
 import org.glassfish.grizzly.websockets.HandShake;
 import org.glassfish.grizzly.websockets.Masker;
+import org.glassfish.grizzly.websockets.MessageTooBigError;
+import org.glassfish.grizzly.websockets.PerMessageDeflate;
 import org.glassfish.grizzly.websockets.ProtocolError;
 import org.glassfish.grizzly.websockets.ProtocolHandler;
 import org.glassfish.grizzly.websockets.frametypes.BinaryFrameType;
@@ -39,6 +43,12 @@ import java.util.Locale;
 public class RFC6455Handler extends ProtocolHandler {
 
     private final ParsingState state = new ParsingState();
+    // true, if the message being received is compressed
+    private boolean inCompressed;
+    // the payload bytes of the message being received on the wire
+    // and decompressed
+    private long inMessageLength;
+    private long inDecompressedLength;
 
     // ------------------------------------------------------------ Constructors
 
@@ -64,8 +74,72 @@ public class RFC6455Handler extends ProtocolHandler {
 
     @Override
     public byte[] frame(DataFrame frame) {
+        final PerMessageDeflate.Codec codec = deflateCodec;
+        byte[] bytes = frame.getType().getBytes(frame);
+        final boolean compress = codec != null
+                && isCompressible(frame, bytes.length, codec.getPerMessageDeflate());
+        if (compress) {
+            bytes = codec.compress(bytes);
+        }
+
+        return frame(frame, bytes, compress);
+    }
+
+    @Override
+    public Buffer frame(MemoryManager memoryManager, DataFrame frame) {
+        final Buffer payload = frame.getBuffer();
+        final PerMessageDeflate.Codec codec = deflateCodec;
+        if (payload == null || (codec != null && isCompressible(frame,
+                payload.remaining(), codec.getPerMessageDeflate()))) {
+            return Buffers.wrap(memoryManager, frame(frame));
+        }
+
+        final byte opcode = checkForLastFrame(frame, getOpcode(frame.getType()));
+        final int length = payload.remaining();
+        final byte[] lengthBytes = encodeLength(length);
+        final int headerLength = 1 + lengthBytes.length
+                + (maskData ? Constants.MASK_SIZE : 0);
+
+        if (maskData) {
+            // the application Buffer is not changed, it's masked into the packet
+            final Masker masker = new Masker();
+            lengthBytes[0] |= 0x80;
+            final Buffer packet = memoryManager.allocate(headerLength + length);
+            packet.put(opcode);
+            packet.put(lengthBytes);
+            packet.put(masker.getMask());
+            masker.mask(packet, payload);
+            packet.flip();
+            return packet;
+        }
+
+        // the bytes before the payload position may belong to somebody else,
+        // so the header is always prepended
+        final Buffer header = memoryManager.allocate(headerLength);
+        header.put(opcode);
+        header.put(lengthBytes);
+        header.flip();
+        return Buffers.appendBuffers(memoryManager, header, payload);
+    }
+
+    @Override
+    public byte[] frame(DataFrame frame, PerMessageDeflate deflate) {
+        byte[] bytes = frame.getType().getBytes(frame);
+        final boolean compress = deflate != null
+                && isCompressible(frame, bytes.length, deflate);
+        if (compress) {
+            bytes = deflate.compress(bytes);
+        }
+
+        return frame(frame, bytes, compress);
+    }
+
+    private byte[] frame(final DataFrame frame, final byte[] bytes,
+            final boolean compressed) {
         byte opcode = checkForLastFrame(frame, getOpcode(frame.getType()));
-        final byte[] bytes = frame.getType().getBytes(frame);
+        if (compressed) {
+            opcode |= PerMessageDeflate.RSV1;
+        }
         final byte[] lengthBytes = encodeLength(bytes.length);
 
         int length = 1 + lengthBytes.length + bytes.length + (maskData
@@ -102,15 +176,21 @@ public class RFC6455Handler extends ProtocolHandler {
                     }
 
                     byte opcode = buffer.get();
-                    boolean rsvBitSet = isBitSet(opcode, 6)
-                            || isBitSet(opcode, 5)
+                    boolean rsvBitSet = isBitSet(opcode, 5)
                             || isBitSet(opcode, 4);
                     if (rsvBitSet) {
                         throw new ProtocolError("RSV bit(s) incorrectly set.");
                     }
                     state.finalFragment = isBitSet(opcode, 7);
                     state.controlFrame = isControlFrame(opcode);
-                    state.opcode = (byte) (opcode & 0x7f);
+                    state.compressed = isBitSet(opcode, 6);
+                    // only the first frame of a data message may be compressed
+                    if (state.compressed && (deflateCodec == null
+                            || state.controlFrame
+                            || isContinuationFrame((byte) (opcode & 0x0f)))) {
+                        throw new ProtocolError("RSV bit(s) incorrectly set.");
+                    }
+                    state.opcode = (byte) (opcode & 0x0f);
                     state.frameType = valueOf(inFragmentedType, state.opcode);
                     if (!state.finalFragment && state.controlFrame) {
                         throw new ProtocolError("Fragmented control frame");
@@ -166,6 +246,12 @@ public class RFC6455Handler extends ProtocolHandler {
                         state.length =
                                 decodeLength(state.masker.unmask(lengthBytes));
                     }
+                    if (!state.controlFrame) {
+                        inMessageLength += state.length;
+                        checkMessageSize(inMessageLength);
+                        state.streamed = streamingThreshold >= 0
+                                && state.length > streamingThreshold;
+                    }
                     state.state++;
                 case 2:
                     if (state.masked) {
@@ -178,29 +264,78 @@ public class RFC6455Handler extends ProtocolHandler {
                     }
                     state.state++;
                 case 3:
-                    if (buffer.remaining() < state.length) {
+                    // the streamed frame payload is delivered in chunks
+                    // as the bytes arrive
+                    final int chunkLength = state.streamed
+                            ? (int) Math.min(buffer.remaining(), state.length)
+                            : (int) state.length;
+                    if (buffer.remaining() < chunkLength
+                            || (state.streamed && chunkLength == 0)) {
                         return null;
                     }
+                    final boolean lastChunk = chunkLength == state.length;
+                    final boolean last = state.finalFragment && lastChunk;
 
                     state.masker.setBuffer(buffer);
-                    final byte[] data = state.masker.unmask((int) state.length);
-                    if (data.length != state.length) {
-                        throw new ProtocolError(String.format(
-                                "Data read (%s) is not the expected" +
-                                        " size (%s)", data.length,
-                                state.length));
+                    if (!state.controlFrame && !state.compressed && !inCompressed
+                            && isBinaryMessage(state.opcode)) {
+                        // the payload is unmasked in place and sliced
+                        final int start = buffer.position();
+                        final int end = start + chunkLength;
+                        state.masker.unmaskInPlace(chunkLength);
+                        final Buffer payload = buffer.slice(start, end);
+                        buffer.position(end);
+                        dataFrame = new DataFrame(state.frameType, payload,
+                                last);
+                    } else {
+                        byte[] data = state.masker.unmask(chunkLength);
+                        if (data.length != chunkLength) {
+                            throw new ProtocolError(String.format(
+                                    "Data read (%s) is not the expected" +
+                                            " size (%s)", data.length,
+                                    chunkLength));
+                        }
+
+                        if (!state.controlFrame) {
+                            if (state.compressed) {
+                                inCompressed = true;
+                            }
+                            if (inCompressed) {
+                                final long limit = maxMessageSize;
+                                data = deflateCodec.decompress(data, last,
+                                        limit >= 0
+                                                ? Math.max(0, limit - inDecompressedLength)
+                                                : -1);
+                                inDecompressedLength += data.length;
+                                checkMessageSize(inDecompressedLength);
+                                if (last) {
+                                    inCompressed = false;
+                                }
+                            }
+                        }
+                        dataFrame = state.frameType.create(last, data);
+
+                        if (!state.controlFrame && (isTextFrame(
+                                state.opcode) || inFragmentedType == 1)) {
+                            utf8Decode(last, data, dataFrame);
+                        }
                     }
-                    dataFrame =
-                            state.frameType.create(state.finalFragment, data);
 
-                    if (!state.controlFrame && (isTextFrame(
-                            state.opcode) || inFragmentedType == 1)) {
-                        utf8Decode(state.finalFragment, data, dataFrame);
+                    if (!lastChunk) {
+                        // the rest of the frame continues the message
+                        state.length -= chunkLength;
+                        if (inFragmentedType == 0) {
+                            inFragmentedType = state.opcode;
+                        }
+                        state.frameType = valueOf(inFragmentedType, (byte) 0);
+                        break;
                     }
 
                     if (!state.controlFrame && state.finalFragment) {
                         inFragmentedType = 0;
                         processingFragment = false;
+                        inMessageLength = 0;
+                        inDecompressedLength = 0;
                     }
                     state.recycle();
 
@@ -223,6 +358,14 @@ public class RFC6455Handler extends ProtocolHandler {
 
     }
 
+    private void checkMessageSize(final long messageLength) {
+        final long limit = maxMessageSize;
+        if (limit >= 0 && messageLength > limit) {
+            throw new MessageTooBigError(String.format(
+                    "The message size exceeds the limit (%s)", limit));
+        }
+    }
+
     @Override
     protected boolean isControlFrame(byte opcode) {
         return (opcode & 0x08) == 0x08;
@@ -236,6 +379,19 @@ public class RFC6455Handler extends ProtocolHandler {
         return opcode == 0;
     }
 
+    private boolean isCompressible(final DataFrame frame, final int length,
+            final PerMessageDeflate deflate) {
+        // the fragmented messages are sent uncompressed
+        return frame.isLast() && outFragmentedType == 0
+                && length >= deflate.getMinCompressSize()
+                && (frame.getType() instanceof TextFrameType
+                        || frame.getType() instanceof BinaryFrameType);
+    }
+
+    private boolean isBinaryMessage(byte opcode) {
+        return opcode == 2 || (isContinuationFrame(opcode) && inFragmentedType == 2);
+    }
+
     private boolean isTextFrame(byte opcode) {
         return opcode == 1;
     }
@@ -294,6 +450,9 @@ public class RFC6455Handler extends ProtocolHandler {
         Masker masker;
         boolean finalFragment;
         boolean controlFrame;
+        boolean compressed;
+        // the frame payload is delivered in chunks
+        boolean streamed;
         private byte lengthCode = -1;
 
         void recycle() {
@@ -305,6 +464,8 @@ public class RFC6455Handler extends ProtocolHandler {
             masker = null;
             finalFragment = false;
             controlFrame = false;
+            compressed = false;
+            streamed = false;
             frameType = null;
         }
     }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.PortRange;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.websockets.frametypes.BinaryFrameType;
+import org.glassfish.grizzly.websockets.rfc6455.RFC6455Handler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The {@link Buffer} based framing tests.
+ */
+public class BufferFramingTest {
+    private static final int PORT = 17252;
+    private static final MemoryManager MM = MemoryManager.DEFAULT_MEMORY_MANAGER;
+
+    @Test
+    public void testHeaderPrepended() {
+        final RFC6455Handler handler = new RFC6455Handler(false);
+        final byte[] payload = payload(300);
+        final byte[] expected = handler.frame(
+                new DataFrame(new BinaryFrameType(), payload));
+
+        // the bytes in front of the payload are not overwritten
+        final Buffer shared = MM.allocate(16 + payload.length);
+        for (int i = 0; i < 16; i++) {
+            shared.put((byte) 0x7F);
+        }
+        shared.put(payload);
+        shared.position(16);
+        final Buffer framed = handler.frame(MM, handler.toDataFrame(shared));
+        assertArrayEquals(expected, Utils.toArray(framed));
+        assertEquals(16, shared.position());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(0x7F, shared.get(i));
+        }
+
+        // the header is prepended
+        final Buffer noHeadroom = Buffers.wrap(MM, payload);
+        final Buffer composite = handler.frame(MM, handler.toDataFrame(noHeadroom));
+        assertTrue(composite.isComposite());
+        assertArrayEquals(expected, Utils.toArray(composite));
+    }
+
+    @Test
+    public void testMaskedRoundTrip() {
+        final RFC6455Handler client = new RFC6455Handler(true);
+        final RFC6455Handler server = new RFC6455Handler(false);
+
+        for (int size : new int[] {0, 1, 125, 126, 70000}) {
+            final byte[] payload = payload(size);
+            final Buffer source = Buffers.wrap(MM, payload);
+            final Buffer framed = client.frame(MM, client.toDataFrame(source));
+            // the application Buffer is not masked in place
+            assertArrayEquals(payload, Utils.toArray(source));
+
+            final DataFrame frame = server.parse(framed);
+            assertNotNull(frame.getBuffer());
+            assertArrayEquals(payload, Utils.toArray(frame.getBuffer()));
+            assertFalse(framed.hasRemaining());
+        }
+
+        // the text frames keep using arrays
+        final DataFrame text = server.parse(Buffers.wrap(MM,
+                client.frame(client.toDataFrame("text"))));
+        assertNull(text.getBuffer());
+    }
+
+    @Test
+    public void testSendBuffer() throws Exception {
+        final WebSocketServer server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        server.register("", "/echo", new WebSocketApplication() {
+            @Override
+            public void onMessage(WebSocket socket, Buffer buffer) {
+                // the received Buffer is valid within the callback only
+                socket.send(Buffers.wrap(MM, Utils.toArray(buffer)));
+            }
+        });
+
+        final BlockingQueue<byte[]> messages = new LinkedBlockingQueue<byte[]>();
+        final WebSocketClient client = new WebSocketClient(
+                "ws://localhost:" + PORT + "/echo", new WebSocketAdapter() {
+                    @Override
+                    public void onMessage(WebSocket socket, byte[] bytes) {
+                        messages.add(bytes);
+                    }
+                });
+        try {
+            server.start();
+            client.connect(5, TimeUnit.SECONDS);
+
+            for (int size : new int[] {10, 1000, 100000}) {
+                final byte[] payload = payload(size);
+                client.send(Buffers.wrap(MM, payload));
+                assertArrayEquals(payload, messages.poll(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testLegacyListener() {
+        final BlockingQueue<byte[]> messages = new LinkedBlockingQueue<byte[]>();
+        // implements the byte[] callbacks only
+        final WebSocketListener listener = new WebSocketListener() {
+            public void onClose(WebSocket socket, DataFrame frame) {
+            }
+
+            public void onConnect(WebSocket socket) {
+            }
+
+            public void onMessage(WebSocket socket, String text) {
+            }
+
+            public void onMessage(WebSocket socket, byte[] bytes) {
+                messages.add(bytes);
+            }
+
+            public void onPing(WebSocket socket, byte[] bytes) {
+            }
+
+            public void onPong(WebSocket socket, byte[] bytes) {
+            }
+
+            public void onFragment(WebSocket socket, String fragment, boolean last) {
+            }
+
+            public void onFragment(WebSocket socket, byte[] fragment, boolean last) {
+                messages.add(fragment);
+            }
+        };
+
+        final byte[] payload = payload(100);
+        final Buffer buffer = Buffers.wrap(MM, payload);
+        listener.onMessage(null, buffer);
+        listener.onFragment(null, buffer, true);
+
+        assertArrayEquals(payload, messages.poll());
+        assertArrayEquals(payload, messages.poll());
+        // the Buffer is not consumed by the copy
+        assertTrue(buffer.remaining() == payload.length);
+    }
+
+    @Test
+    public void testLegacySocketSubclass() {
+        final BlockingQueue<byte[]> messages = new LinkedBlockingQueue<byte[]>();
+        // extends the byte[] callbacks only
+        final SimpleWebSocket socket = new SimpleWebSocket(new RFC6455Handler(false)) {
+            @Override
+            public void onMessage(byte[] data) {
+                messages.add(data);
+            }
+
+            @Override
+            public void onFragment(boolean last, byte[] fragment) {
+                messages.add(fragment);
+            }
+        };
+
+        final byte[] payload = payload(100);
+        final BinaryFrameType type = new BinaryFrameType();
+        type.respond(socket, new DataFrame(type, Buffers.wrap(MM, payload), true));
+        type.respond(socket, new DataFrame(type, Buffers.wrap(MM, payload), false));
+
+        assertArrayEquals(payload, messages.poll());
+        assertArrayEquals(payload, messages.poll());
+    }
+
+    @Test
+    public void testSharedListenerCopy() {
+        final BlockingQueue<Object> messages = new LinkedBlockingQueue<Object>();
+        final WebSocketAdapter arrayListener = new WebSocketAdapter() {
+            @Override
+            public void onMessage(WebSocket socket, byte[] bytes) {
+                messages.add(bytes);
+            }
+        };
+        final WebSocketAdapter bufferListener = new WebSocketAdapter() {
+            @Override
+            public void onMessage(WebSocket socket, Buffer buffer) {
+                messages.add(buffer);
+            }
+        };
+        final SimpleWebSocket socket = new SimpleWebSocket(new RFC6455Handler(false),
+                arrayListener, bufferListener, new WebSocketAdapter() {
+                    @Override
+                    public void onMessage(WebSocket socket, byte[] bytes) {
+                        messages.add(bytes);
+                    }
+                });
+
+        final byte[] payload = payload(100);
+        final Buffer buffer = Buffers.wrap(MM, payload);
+        socket.onMessage(buffer);
+
+        final byte[] first = (byte[]) messages.poll();
+        assertArrayEquals(payload, first);
+        assertTrue(buffer == messages.poll());
+        // the byte[] listeners share a single copy
+        assertTrue(first == messages.poll());
+    }
+
+    private static byte[] payload(final int size) {
+        final byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) (i * 31 + 7);
+        }
+        return payload;
+    }
+}
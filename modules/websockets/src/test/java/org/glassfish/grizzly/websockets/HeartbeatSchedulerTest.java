@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.utils.Charsets;
+import org.glassfish.grizzly.websockets.frametypes.PongFrameType;
+import org.glassfish.grizzly.websockets.rfc6455.RFC6455Handler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link HeartbeatScheduler} tests.
+ */
+public class HeartbeatSchedulerTest {
+    private static final int PORT = 17256;
+
+    @Test
+    public void testMissedHeartbeats() {
+        // the ticker thread doesn't tick during the test
+        final HeartbeatScheduler scheduler =
+                new HeartbeatScheduler(1, TimeUnit.HOURS, 2, 4);
+        try {
+            final PingedWebSocket healthy = new PingedWebSocket();
+            final PingedWebSocket dead = new PingedWebSocket();
+            final PingedWebSocket closed = new PingedWebSocket();
+            scheduler.register(healthy);
+            scheduler.register(dead);
+            scheduler.register(closed);
+            assertEquals(3, scheduler.getSocketsCount());
+
+            // the sockets are pinged one interval after the registration
+            interval(scheduler, 4);
+            assertEquals(0, healthy.pings.get());
+            interval(scheduler, 4);
+            assertEquals(1, healthy.pings.get());
+            assertEquals(1, dead.pings.get());
+
+            closed.isClosed = true;
+            for (int i = 0; i < 4; i++) {
+                healthy.pong();
+                interval(scheduler, 4);
+            }
+            assertEquals(5, healthy.pings.get());
+            // reaped after missing 2 heartbeats
+            assertEquals(2, dead.pings.get());
+            assertEquals(1, scheduler.getReapedCount());
+            assertEquals(1, scheduler.getSocketsCount());
+            assertTrue(scheduler.getPongLatencyPercentile(50) >= 0);
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void testRegisterAfterStop() {
+        final HeartbeatScheduler scheduler =
+                new HeartbeatScheduler(1, TimeUnit.HOURS, 2, 4);
+        scheduler.stop();
+        final PingedWebSocket socket = new PingedWebSocket();
+        try {
+            scheduler.register(socket);
+            fail("The stopped scheduler accepted the socket");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, scheduler.getSocketsCount());
+        assertFalse(socket.getListeners().iterator().hasNext());
+    }
+
+    @Test
+    public void testScale() {
+        final int socketsCount = 200000;
+        final int ticksPerInterval = 64;
+        final HeartbeatScheduler scheduler =
+                new HeartbeatScheduler(1, TimeUnit.HOURS, 1, ticksPerInterval);
+        try {
+            final PingedWebSocket[] sockets = new PingedWebSocket[socketsCount];
+            // the registrations are spread across the interval
+            for (int i = 0; i < socketsCount; i++) {
+                sockets[i] = new PingedWebSocket();
+                scheduler.register(sockets[i]);
+                if ((i + 1) % (socketsCount / ticksPerInterval) == 0) {
+                    scheduler.tick();
+                }
+            }
+
+            interval(scheduler, ticksPerInterval);
+
+            for (PingedWebSocket socket : sockets) {
+                assertEquals(1, socket.pings.get());
+            }
+
+            // no pongs, all the sockets are reaped
+            interval(scheduler, ticksPerInterval);
+            assertEquals(socketsCount, scheduler.getReapedCount());
+            assertEquals(0, scheduler.getSocketsCount());
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        final HttpServer httpServer = HttpServer.createSimpleServer(".", PORT);
+        final WebSocketAddOn addOn = new WebSocketAddOn();
+        // the idle timeout is shorter than the heartbeat interval
+        addOn.setTimeoutInSeconds(1);
+        for (NetworkListener networkListener : httpServer.getListeners()) {
+            networkListener.registerAddOn(addOn);
+        }
+
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        WebSocketEngine.getEngine().register("", "/heartbeat", new WebSocketApplication() {
+            @Override
+            public void onClose(WebSocket socket, DataFrame frame) {
+                super.onClose(socket, frame);
+                closeLatch.countDown();
+            }
+        });
+        final HeartbeatScheduler scheduler =
+                new HeartbeatScheduler(1500, TimeUnit.MILLISECONDS, 2);
+        WebSocketEngine.getEngine().setHeartbeatScheduler(scheduler);
+
+        WebSocketClient client = null;
+        Socket deadClient = null;
+        try {
+            httpServer.start();
+            client = new WebSocketClient("ws://localhost:" + PORT + "/heartbeat");
+            client.connect(5, TimeUnit.SECONDS);
+
+            // the idle, but healthy socket outlives the idle timeout
+            Thread.sleep(3500);
+            assertTrue(client.isConnected());
+            assertEquals(0, scheduler.getReapedCount());
+            assertTrue(scheduler.getPongLatencyPercentile(100) >= 0);
+
+            // the peer, which doesn't answer the pings, is reaped
+            deadClient = connectDead();
+            assertTrue(closeLatch.await(10, TimeUnit.SECONDS));
+            assertEquals(1, scheduler.getReapedCount());
+            assertTrue(client.isConnected());
+        } finally {
+            if (client != null) {
+                client.close();
+            }
+            if (deadClient != null) {
+                deadClient.close();
+            }
+            WebSocketEngine.getEngine().setHeartbeatScheduler(null);
+            scheduler.stop();
+            httpServer.shutdownNow();
+            WebSocketEngine.getEngine().unregisterAll();
+        }
+    }
+
+    private static void interval(final HeartbeatScheduler scheduler,
+            final int ticksPerInterval) {
+        for (int i = 0; i < ticksPerInterval; i++) {
+            scheduler.tick();
+        }
+    }
+
+    /**
+     * Completes the handshake and never reads the socket.
+     */
+    private static Socket connectDead() throws IOException {
+        final Socket socket = new Socket("localhost", PORT);
+        final OutputStream output = socket.getOutputStream();
+        output.write(("GET /heartbeat HTTP/1.1\r\n"
+                + "Host: localhost:" + PORT + "\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                + "Sec-WebSocket-Version: 13\r\n\r\n")
+                .getBytes(Charsets.ASCII_CHARSET));
+        output.flush();
+
+        final InputStream input = socket.getInputStream();
+        int matched = 0;
+        while (matched < 4) {
+            final int b = input.read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of the handshake");
+            }
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1
+                    : (b == '\r' ? 1 : 0);
+        }
+        return socket;
+    }
+
+    /**
+     * Records the pings instead of writing them.
+     */
+    private static class PingedWebSocket extends SimpleWebSocket {
+        private final AtomicInteger pings = new AtomicInteger();
+        private volatile byte[] lastPing;
+        private volatile boolean isClosed;
+
+        PingedWebSocket() {
+            super(new RFC6455Handler(false));
+            onConnect();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !isClosed && super.isConnected();
+        }
+
+        @Override
+        protected void sendRaw(byte[] rawData) {
+            pings.incrementAndGet();
+            lastPing = rawData;
+        }
+
+        void pong() {
+            // the unmasked ping frame has the two bytes header
+            final byte[] payload = Arrays.copyOfRange(lastPing, 2, lastPing.length);
+            onPong(new DataFrame(new PongFrameType(), payload));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * {@link Masker} tests comparing it with the byte-by-byte masking.
+ */
+public class MaskerTest {
+    private static final MemoryManager MM = MemoryManager.DEFAULT_MEMORY_MANAGER;
+
+    private final Random random = new Random(6455);
+
+    @Test
+    public void testUnmask() {
+        for (int iteration = 0; iteration < 500; iteration++) {
+            final byte[] mask = randomBytes(Constants.MASK_SIZE);
+            final byte[] data = randomBytes(random.nextInt(300));
+            final Masker masker = masker(mask, Buffers.wrap(MM, data));
+
+            // the unmasking continues the mask across the calls
+            final byte[] result = new byte[data.length];
+            int position = 0;
+            while (position < data.length) {
+                final int count = 1 + random.nextInt(data.length - position);
+                System.arraycopy(masker.unmask(count), 0, result, position, count);
+                position += count;
+            }
+
+            assertArrayEquals(reference(mask, 0, data), result);
+        }
+    }
+
+    @Test
+    public void testUnmaskInPlace() {
+        for (int iteration = 0; iteration < 500; iteration++) {
+            final byte[] mask = randomBytes(Constants.MASK_SIZE);
+            final byte[] data = randomBytes(random.nextInt(300));
+            final int phase = random.nextInt(Constants.MASK_SIZE);
+
+            for (Buffer buffer : buffers(data)) {
+                final Masker masker = masker(mask, buffer);
+                // the unaligned mask
+                for (int i = 0; i < phase; i++) {
+                    masker.mask(new byte[1], 0, (byte) 0);
+                }
+
+                masker.unmaskInPlace(buffer.remaining());
+                assertArrayEquals(buffer.toStringContent(),
+                        reference(mask, phase, data), Utils.toArray(buffer));
+            }
+        }
+    }
+
+    @Test
+    public void testMask() {
+        for (int iteration = 0; iteration < 500; iteration++) {
+            final byte[] data = randomBytes(random.nextInt(300));
+            final int location = random.nextInt(16);
+
+            final Masker arrayMasker = new Masker();
+            final byte[] target = new byte[location + data.length];
+            arrayMasker.mask(target, location, data);
+            final byte[] masked = new byte[data.length];
+            System.arraycopy(target, location, masked, 0, data.length);
+            assertArrayEquals(reference(arrayMasker.getMask(), 0, data), masked);
+
+            for (Buffer source : buffers(data)) {
+                final Masker bufferMasker = new Masker();
+                final Buffer packet = MM.allocate(location + data.length);
+                packet.position(location);
+                bufferMasker.mask(packet, source);
+                packet.flip().position(location);
+
+                assertArrayEquals(reference(bufferMasker.getMask(), 0, data),
+                        Utils.toArray(packet));
+                // the source isn't changed
+                assertArrayEquals(data, Utils.toArray(source));
+            }
+        }
+    }
+
+    @Test
+    public void testUnmaskLargeBuffer() {
+        final byte[] mask = randomBytes(Constants.MASK_SIZE);
+        final byte[] data = randomBytes(1024 * 1024 + 3);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+
+        for (Buffer buffer : new Buffer[] {
+                Buffers.wrap(MM, data.clone()), Buffers.wrap(MM, direct)}) {
+            masker(mask, buffer).unmaskInPlace(buffer.remaining());
+            assertArrayEquals(reference(mask, 0, data), Utils.toArray(buffer));
+        }
+    }
+
+    @Test
+    public void testIndexOverflow() throws Exception {
+        final byte[] mask = randomBytes(Constants.MASK_SIZE);
+        final byte[] data = randomBytes(64);
+        final Masker masker = masker(mask, Buffers.wrap(MM, data));
+        final Field index = Masker.class.getDeclaredField("index");
+        index.setAccessible(true);
+        index.setInt(masker, Integer.MAX_VALUE - 5);
+
+        // the index wraps around the single byte and the bulk calls
+        final byte[] result = new byte[data.length];
+        for (int i = 0; i < 16; i++) {
+            result[i] = masker.unmask();
+        }
+        System.arraycopy(masker.unmask(32), 0, result, 16, 32);
+        for (int i = 48; i < data.length; i++) {
+            masker.mask(result, i, masker.get());
+        }
+
+        assertArrayEquals(reference(mask, (Integer.MAX_VALUE - 5) & 3, data),
+                result);
+    }
+
+    /**
+     * @return the heap, sliced heap, direct and composite {@link Buffer}s
+     *          with the data.
+     */
+    private Buffer[] buffers(final byte[] data) {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+
+        final byte[] padded = new byte[data.length + 5];
+        System.arraycopy(data, 0, padded, 3, data.length);
+
+        final int split = data.length == 0 ? 0 : random.nextInt(data.length);
+        final ByteBuffer tail = ByteBuffer.allocateDirect(data.length - split);
+        tail.put(data, split, data.length - split).flip();
+
+        return new Buffer[] {
+                Buffers.wrap(MM, data.clone()),
+                Buffers.wrap(MM, padded, 3, data.length).slice(),
+                Buffers.wrap(MM, direct),
+                Buffers.appendBuffers(MM,
+                        Buffers.wrap(MM, data.clone(), 0, split),
+                        Buffers.wrap(MM, tail))
+        };
+    }
+
+    private static Masker masker(final byte[] mask, final Buffer buffer) {
+        final Masker masker = new Masker(Buffers.wrap(MM, mask));
+        masker.readMask();
+        masker.setBuffer(buffer);
+        return masker;
+    }
+
+    private static byte[] reference(final byte[] mask, final int phase,
+            final byte[] data) {
+        final byte[] result = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = (byte) (data[i] ^ mask[(phase + i) % Constants.MASK_SIZE]);
+        }
+        return result;
+    }
+
+    private byte[] randomBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
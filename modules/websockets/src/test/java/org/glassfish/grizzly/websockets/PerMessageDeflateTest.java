@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.glassfish.grizzly.PortRange;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The <tt>permessage-deflate</tt> extension tests.
+ */
+public class PerMessageDeflateTest {
+    private static final int PORT = 17251;
+
+    @Test
+    public void testNegotiation() {
+        final PerMessageDeflate deflate = new PerMessageDeflate();
+
+        assertEquals("permessage-deflate",
+                deflate.accept(offer()).toString());
+        assertEquals("permessage-deflate; client_no_context_takeover",
+                deflate.accept(offer("client_no_context_takeover", null,
+                        "client_max_window_bits", null)).toString());
+        assertEquals("permessage-deflate; server_max_window_bits=15",
+                deflate.accept(offer("server_max_window_bits", "15",
+                        "client_max_window_bits", "10")).toString());
+
+        // the server window can't be limited
+        assertNull(deflate.accept(offer("server_max_window_bits", "10")));
+        assertNull(deflate.accept(offer("server_max_window_bits", null)));
+        assertNull(deflate.accept(offer("unknown", null)));
+        assertNull(deflate.accept(offer("client_no_context_takeover", null,
+                "client_no_context_takeover", null)));
+
+        final PerMessageDeflate.Codec codec = deflate.createCodec(
+                deflate.accept(offer("server_no_context_takeover", null)), false);
+        assertFalse(codec.isCompressNoContextTakeover());
+        assertTrue(codec.isDecompressNoContextTakeover());
+
+        try {
+            deflate.createCodec(offer("client_max_window_bits", "10"), false);
+            fail("The client window can't be limited");
+        } catch (HandshakeException expected) {
+        }
+    }
+
+    @Test
+    public void testContextTakeover() {
+        final PerMessageDeflate deflate = new PerMessageDeflate();
+        final PerMessageDeflate.Codec server =
+                deflate.createCodec(deflate.accept(offer()), true);
+        final PerMessageDeflate.Codec client =
+                deflate.createCodec(deflate.accept(offer()), false);
+
+        final byte[] message = json(50).getBytes(Charsets.UTF8_CHARSET);
+        final byte[] first = server.compress(message);
+        final byte[] second = server.compress(message);
+        // the second message refers the first one
+        assertTrue(second.length < first.length);
+        assertTrue(first.length * 4 < message.length);
+
+        assertArrayEquals(message, client.decompress(first, true));
+        assertArrayEquals(message, client.decompress(second, true));
+
+        // the shared context message is decompressed within the client context
+        final byte[] shared = deflate.compress(message);
+        server.onSharedMessage();
+        assertArrayEquals(message, client.decompress(shared, true));
+        assertArrayEquals(message, client.decompress(server.compress(message), true));
+
+        // the fragments of the compressed message
+        final byte[] compressed = server.compress(message);
+        final int half = compressed.length / 2;
+        final byte[] part1 = client.decompress(
+                Arrays.copyOfRange(compressed, 0, half), false);
+        final byte[] part2 = client.decompress(
+                Arrays.copyOfRange(compressed, half, compressed.length), true);
+        assertEquals(new String(message, Charsets.UTF8_CHARSET),
+                new String(part1, Charsets.UTF8_CHARSET)
+                        + new String(part2, Charsets.UTF8_CHARSET));
+
+        server.release();
+        client.release();
+    }
+
+    @Test
+    public void testDecompressionLimit() {
+        final PerMessageDeflate deflate = new PerMessageDeflate(
+                Deflater.BEST_COMPRESSION, 16, false, false, 4, 64 * 1024);
+        final PerMessageDeflate.Codec server =
+                deflate.createCodec(deflate.accept(offer()), true);
+        final PerMessageDeflate.Codec client =
+                deflate.createCodec(deflate.accept(offer()), false);
+
+        // a few KB inflate to 1MB
+        final byte[] bomb = server.compress(new byte[1024 * 1024]);
+        assertTrue(bomb.length < 8 * 1024);
+
+        try {
+            client.decompress(bomb, true);
+            fail("The decompressed message exceeds the limit");
+        } catch (MessageTooBigError expected) {
+            assertEquals(WebSocket.MESSAGE_TOO_BIG, expected.getClosingCode());
+        }
+
+        // the caller's budget is applied within the configured limit
+        final PerMessageDeflate.Codec other =
+                deflate.createCodec(deflate.accept(offer()), false);
+        final byte[] small = deflate.compress(new byte[1024]);
+        try {
+            other.decompress(small, true, 512);
+            fail("The decompressed message exceeds the budget");
+        } catch (MessageTooBigError expected) {
+        }
+
+        server.release();
+        client.release();
+        other.release();
+    }
+
+    @Test
+    public void testReleased() {
+        final PerMessageDeflate deflate = new PerMessageDeflate();
+        final PerMessageDeflate.Codec server =
+                deflate.createCodec(deflate.accept(offer()), true);
+        final PerMessageDeflate.Codec client =
+                deflate.createCodec(deflate.accept(offer()), false);
+
+        final byte[] compressed = server.compress(json(50).getBytes(Charsets.UTF8_CHARSET));
+        final int half = compressed.length / 2;
+        client.decompress(Arrays.copyOfRange(compressed, 0, half), false);
+
+        // the connection is closed by another thread in the middle of the message
+        client.release();
+        server.release();
+        try {
+            client.decompress(Arrays.copyOfRange(compressed, half,
+                    compressed.length), true);
+            fail("The released inflater is used");
+        } catch (WebSocketException expected) {
+        }
+        try {
+            server.compress(new byte[16]);
+            fail("The released deflater is used");
+        } catch (WebSocketException expected) {
+        }
+    }
+
+    @Test
+    public void testEcho() throws Exception {
+        final WebSocketServer server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        final EchoWebSocketApplication app = new EchoWebSocketApplication();
+        app.setPerMessageDeflate(new PerMessageDeflate());
+        server.register("", "/echo", app);
+
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+        final WebSocketClient client = createClient("/echo", messages);
+        client.setPerMessageDeflate(new PerMessageDeflate(6, 16, false, true, 4));
+        final WebSocketClient plainClient = createClient("/echo", messages);
+        try {
+            server.start();
+            client.connect(5, TimeUnit.SECONDS);
+            plainClient.connect(5, TimeUnit.SECONDS);
+
+            assertNotNull(client.protocolHandler.getDeflateCodec());
+            assertTrue(client.protocolHandler.getDeflateCodec().isCompressNoContextTakeover());
+            assertNull(plainClient.protocolHandler.getDeflateCodec());
+
+            for (int i = 0; i < 10; i++) {
+                final String message = json(i * 10);
+                client.send(message);
+                assertEquals(message, messages.poll(10, TimeUnit.SECONDS));
+                plainClient.send(message);
+                assertEquals(message, messages.poll(10, TimeUnit.SECONDS));
+            }
+
+            // the short messages aren't compressed
+            client.send("short");
+            assertEquals("short", messages.poll(10, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+            plainClient.close();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        final WebSocketServer server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        final BroadcastApplication app = new BroadcastApplication();
+        app.setPerMessageDeflate(new PerMessageDeflate());
+        server.register("", "/broadcast", app);
+
+        final List<WebSocketClient> clients = new ArrayList<WebSocketClient>();
+        final List<BlockingQueue<String>> queues = new ArrayList<BlockingQueue<String>>();
+        try {
+            server.start();
+            for (int i = 0; i < 4; i++) {
+                final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+                final WebSocketClient client = createClient("/broadcast", queue);
+                if (i % 2 == 0) {
+                    client.setPerMessageDeflate(new PerMessageDeflate());
+                }
+                client.connect(5, TimeUnit.SECONDS);
+                clients.add(client);
+                queues.add(queue);
+            }
+
+            // the broadcast messages are mixed with the own messages
+            for (int i = 0; i < 5; i++) {
+                final String message = json(i + 5);
+                clients.get(0).send(message);
+                for (BlockingQueue<String> queue : queues) {
+                    assertEquals(message, queue.poll(10, TimeUnit.SECONDS));
+                }
+                clients.get(2).send("echo " + message);
+                assertEquals("echo " + message,
+                        queues.get(2).poll(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            for (WebSocketClient client : clients) {
+                client.close();
+            }
+            server.stop();
+        }
+    }
+
+    private static WebSocketClient createClient(final String path,
+            final BlockingQueue<String> messages) {
+        return new WebSocketClient("ws://localhost:" + PORT + path,
+                new WebSocketAdapter() {
+                    @Override
+                    public void onMessage(WebSocket socket, String text) {
+                        messages.add(text);
+                    }
+                });
+    }
+
+    private static Extension offer(final String... parameters) {
+        final Extension extension = new Extension(PerMessageDeflate.NAME);
+        for (int i = 0; i < parameters.length; i += 2) {
+            extension.getParameters().add(
+                    new Extension.Parameter(parameters[i], parameters[i + 1]));
+        }
+        return extension;
+    }
+
+    private static String json(final int items) {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(i)
+                    .append(",\"symbol\":\"GRZ\",\"price\":").append(100 + i % 7)
+                    .append(",\"volume\":").append(1000 + i % 13).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static class BroadcastApplication extends WebSocketApplication {
+        private final Broadcaster broadcaster = new OptimizedBroadcaster();
+
+        @Override
+        public WebSocket createSocket(ProtocolHandler handler,
+                HttpRequestPacket requestPacket, WebSocketListener... listeners) {
+            final DefaultWebSocket socket = (DefaultWebSocket) super.createSocket(
+                    handler, requestPacket, listeners);
+            socket.setBroadcaster(broadcaster);
+            return socket;
+        }
+
+        @Override
+        public void onMessage(WebSocket socket, String text) {
+            if (text.startsWith("echo ")) {
+                socket.send(text);
+            } else {
+                socket.broadcast(getWebSockets(), text);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.PortRange;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ShardedBroadcaster} tests.
+ */
+public class ShardedBroadcasterTest {
+    private static final int PORT = 17253;
+
+    private ExecutorService executor;
+    private WebSocketServer server;
+    private BroadcastApplication app;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+        app = new BroadcastApplication(new ShardedBroadcaster(executor, 3));
+        server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        server.register("", "/broadcast", app);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBroadcastOrder() throws Exception {
+        final List<WebSocketClient> clients = new ArrayList<WebSocketClient>();
+        final List<BlockingQueue<String>> queues = new ArrayList<BlockingQueue<String>>();
+        try {
+            for (int i = 0; i < 10; i++) {
+                final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+                final WebSocketClient client = new WebSocketClient(
+                        "ws://localhost:" + PORT + "/broadcast", new WebSocketAdapter() {
+                            @Override
+                            public void onMessage(WebSocket socket, String text) {
+                                queue.add(text);
+                            }
+
+                            @Override
+                            public void onFragment(WebSocket socket, String fragment, boolean last) {
+                                queue.add(fragment + (last ? "." : ""));
+                            }
+                        });
+                client.connect(5, TimeUnit.SECONDS);
+                clients.add(client);
+                queues.add(queue);
+            }
+            app.awaitConnections(10);
+
+            for (int i = 0; i < 100; i++) {
+                app.broadcaster.broadcast(app.getWebSockets(), "message " + i);
+            }
+            app.broadcaster.broadcastFragment(app.getWebSockets(), "frag", false);
+            app.broadcaster.broadcastFragment(app.getWebSockets(), "ment", true);
+
+            // each recipient gets the messages in the broadcast order
+            for (BlockingQueue<String> queue : queues) {
+                for (int i = 0; i < 100; i++) {
+                    assertEquals("message " + i, queue.poll(10, TimeUnit.SECONDS));
+                }
+                assertEquals("frag", queue.poll(10, TimeUnit.SECONDS));
+                assertEquals("ment.", queue.poll(10, TimeUnit.SECONDS));
+            }
+
+            final ShardedBroadcaster broadcaster = app.broadcaster;
+            assertEquals(0, broadcaster.getDroppedCount());
+            assertTrue(broadcaster.getFanoutLatencyPercentile(50) >= 0);
+            assertTrue(broadcaster.getFanoutLatencyPercentile(50)
+                    <= broadcaster.getFanoutLatencyPercentile(99.9));
+
+            broadcaster.resetFanoutLatency();
+            assertEquals(-1, broadcaster.getFanoutLatencyPercentile(50));
+        } finally {
+            for (WebSocketClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        app.broadcaster.setMaxQueuedBytes(64 * 1024);
+        final SlowClient slowClient = new SlowClient();
+        try {
+            app.awaitConnections(1);
+            broadcastLarge(50);
+
+            assertTrue(app.broadcaster.getDroppedCount() > 0);
+            // the dropped messages aren't received
+            assertEquals(50 - app.broadcaster.getDroppedCount(),
+                    slowClient.readMessages(50 - app.broadcaster.getDroppedCount()).size());
+        } finally {
+            slowClient.close();
+        }
+    }
+
+    @Test
+    public void testCoalesceLatest() throws Exception {
+        app.broadcaster.setMaxQueuedBytes(64 * 1024);
+        app.broadcaster.setSlowConsumerPolicy(
+                ShardedBroadcaster.SlowConsumerPolicy.COALESCE_LATEST);
+        final SlowClient slowClient = new SlowClient();
+        try {
+            app.awaitConnections(1);
+            final List<byte[]> messages = broadcastLarge(50);
+
+            final long coalesced = app.broadcaster.getCoalescedCount();
+            assertTrue(coalesced > 0);
+            // the latest message is sent once the queue drains
+            final List<byte[]> received = slowClient.readMessages(50 - coalesced);
+            assertArrayEquals(messages.get(messages.size() - 1),
+                    received.get(received.size() - 1));
+        } finally {
+            slowClient.close();
+        }
+    }
+
+    @Test
+    public void testDisconnect() throws Exception {
+        app.broadcaster.setMaxQueuedBytes(64 * 1024);
+        app.broadcaster.setSlowConsumerPolicy(
+                ShardedBroadcaster.SlowConsumerPolicy.DISCONNECT);
+        final SlowClient slowClient = new SlowClient();
+        try {
+            app.awaitConnections(1);
+            broadcastLarge(50);
+
+            assertEquals(1, app.broadcaster.getDisconnectedCount());
+            assertTrue(app.closeLatch.await(10, TimeUnit.SECONDS));
+        } finally {
+            slowClient.close();
+        }
+    }
+
+    @Test
+    public void testDropFragmented() throws Exception {
+        app.broadcaster.setMaxQueuedBytes(64 * 1024);
+        final SlowClient slowClient = new SlowClient();
+        try {
+            app.awaitConnections(1);
+            final int count = 20;
+            for (int i = 0; i < count && !app.getWebSockets().isEmpty(); i++) {
+                for (int j = 0; j < 4; j++) {
+                    final byte[] fragment = new byte[64 * 1024];
+                    fragment[0] = (byte) i;
+                    fragment[1] = (byte) j;
+                    app.broadcaster.broadcastFragment(app.getWebSockets(),
+                            fragment, j == 3);
+                }
+                Thread.sleep(10);
+            }
+            // the last fan-out completes
+            Thread.sleep(500);
+
+            final long dropped = app.broadcaster.getDroppedCount();
+            final long disconnected = app.broadcaster.getDisconnectedCount();
+            assertTrue(dropped + disconnected > 0);
+
+            // the messages are received whole, or the recipient is
+            // disconnected in the middle of the message
+            int received = 0;
+            int previous = -1;
+            int expectedFragment = 0;
+            Frame frame;
+            while ((disconnected > 0 || received < count - dropped)
+                    && (frame = slowClient.readFrame()) != null) {
+                assertEquals(expectedFragment, frame.payload[1]);
+                assertEquals(expectedFragment == 0 ? 2 : 0, frame.opcode);
+                assertEquals(expectedFragment == 3, frame.isLast);
+                if (expectedFragment == 0) {
+                    assertTrue(frame.payload[0] > previous);
+                    previous = frame.payload[0];
+                } else {
+                    assertEquals(previous, frame.payload[0]);
+                }
+
+                expectedFragment = (expectedFragment + 1) % 4;
+                if (frame.isLast) {
+                    received++;
+                }
+            }
+            if (disconnected == 0) {
+                assertEquals(count - dropped, received);
+            }
+        } finally {
+            slowClient.close();
+        }
+    }
+
+    /**
+     * Broadcasts the large binary messages waiting for each message to be
+     * fanned out.
+     */
+    private List<byte[]> broadcastLarge(final int count) throws Exception {
+        final List<byte[]> messages = new ArrayList<byte[]>();
+        for (int i = 0; i < count; i++) {
+            final byte[] message = new byte[256 * 1024];
+            message[0] = (byte) i;
+            messages.add(message);
+
+            app.broadcaster.broadcast(app.getWebSockets(), message);
+            // the DISCONNECT policy doesn't keep the recipients
+            if (app.getWebSockets().isEmpty()) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        // the last fan-out completes
+        Thread.sleep(500);
+        return messages;
+    }
+
+    private static class BroadcastApplication extends WebSocketApplication {
+        private final ShardedBroadcaster broadcaster;
+        private final BlockingQueue<WebSocket> connected =
+                new LinkedBlockingQueue<WebSocket>();
+        private final CountDownLatch closeLatch = new CountDownLatch(1);
+
+        BroadcastApplication(final ShardedBroadcaster broadcaster) {
+            this.broadcaster = broadcaster;
+        }
+
+        @Override
+        public void onConnect(WebSocket socket) {
+            super.onConnect(socket);
+            connected.add(socket);
+        }
+
+        @Override
+        public void onClose(WebSocket socket, DataFrame frame) {
+            super.onClose(socket, frame);
+            closeLatch.countDown();
+        }
+
+        void awaitConnections(final int count) throws InterruptedException {
+            for (int i = 0; i < count; i++) {
+                assertTrue(connected.poll(10, TimeUnit.SECONDS) != null);
+            }
+        }
+    }
+
+    private static final class Frame {
+        private final int opcode;
+        private final boolean isLast;
+        private final byte[] payload;
+
+        Frame(final int opcode, final boolean isLast, final byte[] payload) {
+            this.opcode = opcode;
+            this.isLast = isLast;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * The raw socket client with the small receive buffer, which doesn't
+     * read the messages until asked to.
+     */
+    private static class SlowClient {
+        private final Socket socket = new Socket();
+        private final DataInputStream input;
+
+        SlowClient() throws IOException {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress("localhost", PORT));
+            socket.setSoTimeout(10000);
+
+            final OutputStream output = socket.getOutputStream();
+            output.write(("GET /broadcast HTTP/1.1\r\n"
+                    + "Host: localhost:" + PORT + "\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                    + "Sec-WebSocket-Version: 13\r\n\r\n")
+                    .getBytes(Charsets.ASCII_CHARSET));
+            output.flush();
+
+            input = new DataInputStream(socket.getInputStream());
+            skipHeaders(input);
+        }
+
+        List<byte[]> readMessages(final long count) throws IOException {
+            final List<byte[]> messages = new ArrayList<byte[]>();
+            for (int i = 0; i < count; i++) {
+                messages.add(readFrame(input).payload);
+            }
+            return messages;
+        }
+
+        /**
+         * @return the next frame, or <tt>null</tt> if the connection
+         *  was closed.
+         */
+        Frame readFrame() {
+            try {
+                return readFrame(input);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private static Frame readFrame(final DataInputStream input)
+                throws IOException {
+            final int first = input.readUnsignedByte();
+            long length = input.readUnsignedByte() & 0x7f;
+            if (length == 126) {
+                length = input.readUnsignedShort();
+            } else if (length == 127) {
+                length = input.readLong();
+            }
+            final byte[] payload = new byte[(int) length];
+            input.readFully(payload);
+            return new Frame(first & 0x0f, (first & 0x80) != 0, payload);
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+
+        private static void skipHeaders(final InputStream input)
+                throws IOException {
+            int matched = 0;
+            while (matched < 4) {
+                final int b = input.read();
+                if (b == -1) {
+                    throw new IOException("Unexpected end of the handshake");
+                }
+                matched = b == "\r\n\r\n".charAt(matched) ? matched + 1
+                        : (b == '\r' ? 1 : 0);
+            }
+        }
+    }
+}
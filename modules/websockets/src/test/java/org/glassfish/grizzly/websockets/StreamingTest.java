@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.PortRange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the streaming of the large messages, the message size limit and
+ * the reading back-pressure.
+ */
+public class StreamingTest {
+    private static final int PORT = 17255;
+
+    private WebSocketServer server;
+    private StreamingApplication app;
+
+    @Before
+    public void setUp() throws Exception {
+        app = new StreamingApplication();
+        app.setStreamingThreshold(8 * 1024);
+        server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        server.register("", "/streaming", app);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testStreamedBinary() throws Exception {
+        final byte[] message = new byte[4 * 1024 * 1024];
+        new Random(6455).nextBytes(message);
+
+        final WebSocketClient client = connect(new WebSocketAdapter());
+        try {
+            client.send(message);
+
+            assertArrayEquals(message, app.messages.poll(30, TimeUnit.SECONDS));
+            // the message is delivered in chunks without the aggregation
+            assertTrue(app.chunks.get() > 1);
+            assertTrue(app.maxChunkSize.get() < message.length);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testStreamedText() throws Exception {
+        // the multi-byte characters are split between the chunks
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 512 * 1024) {
+            sb.append("a\u00e9\u20ac\ud83d\ude00");
+        }
+        final String message = sb.toString();
+
+        final WebSocketClient client = connect(new WebSocketAdapter());
+        try {
+            client.send(message);
+
+            assertEquals(message, app.texts.poll(30, TimeUnit.SECONDS));
+            assertTrue(app.chunks.get() > 1);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testFragmentedMessage() throws Exception {
+        final byte[] message = new byte[64 * 1024];
+        new Random(6455).nextBytes(message);
+
+        final WebSocketClient client = connect(new WebSocketAdapter());
+        try {
+            final int fragmentSize = 16 * 1024;
+            for (int offset = 0; offset < message.length; offset += fragmentSize) {
+                client.stream(offset + fragmentSize == message.length,
+                        message, offset, fragmentSize);
+            }
+
+            assertArrayEquals(message, app.messages.poll(30, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testMaxMessageSize() throws Exception {
+        app.setMaxMessageSize(32 * 1024);
+        final BlockingQueue<Integer> closeCodes = new LinkedBlockingQueue<Integer>();
+        final WebSocketAdapter listener = new WebSocketAdapter() {
+            @Override
+            public void onClose(WebSocket socket, DataFrame frame) {
+                closeCodes.add(((ClosingFrame) frame).getCode());
+            }
+        };
+
+        WebSocketClient client = connect(listener);
+        try {
+            client.send(new byte[32 * 1024]);
+            assertEquals(32 * 1024, app.messages.poll(10, TimeUnit.SECONDS).length);
+
+            client.send(new byte[32 * 1024 + 1]);
+            assertEquals(WebSocket.MESSAGE_TOO_BIG,
+                    (int) closeCodes.poll(10, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+        }
+
+        // the limit applies to the whole fragmented message
+        client = connect(listener);
+        try {
+            final byte[] fragment = new byte[16 * 1024];
+            client.stream(false, fragment, 0, fragment.length);
+            client.stream(false, fragment, 0, fragment.length);
+            client.stream(true, fragment, 0, 1);
+            assertEquals(WebSocket.MESSAGE_TOO_BIG,
+                    (int) closeCodes.poll(10, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testPauseReading() throws Exception {
+        final byte[] message = new byte[4 * 1024 * 1024];
+        new Random(6455).nextBytes(message);
+        app.isPausing = true;
+
+        final WebSocketClient client = connect(new WebSocketAdapter());
+        try {
+            client.send(message);
+
+            final WebSocket socket = app.paused.poll(10, TimeUnit.SECONDS);
+            assertTrue(socket != null);
+            // nothing is delivered, while the reading is paused
+            Thread.sleep(500);
+            assertEquals(1, app.chunks.get());
+            assertTrue(app.messages.isEmpty());
+
+            socket.resumeReading();
+            assertArrayEquals(message, app.messages.poll(30, TimeUnit.SECONDS));
+            assertTrue(app.chunks.get() > 1);
+        } finally {
+            client.close();
+        }
+    }
+
+    private static WebSocketClient connect(final WebSocketListener listener)
+            throws Exception {
+        final WebSocketClient client = new WebSocketClient(
+                "ws://localhost:" + PORT + "/streaming", listener);
+        client.connect(5, TimeUnit.SECONDS);
+        return client;
+    }
+
+    /**
+     * Aggregates the streamed messages to compare them with the sent ones.
+     */
+    private static class StreamingApplication extends WebSocketApplication {
+        private final BlockingQueue<byte[]> messages =
+                new LinkedBlockingQueue<byte[]>();
+        private final BlockingQueue<String> texts =
+                new LinkedBlockingQueue<String>();
+        private final BlockingQueue<WebSocket> paused =
+                new LinkedBlockingQueue<WebSocket>();
+        private final AtomicInteger chunks = new AtomicInteger();
+        private final AtomicInteger maxChunkSize = new AtomicInteger();
+        private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        private final StringBuilder text = new StringBuilder();
+        private volatile boolean isPausing;
+
+        @Override
+        public void onMessage(WebSocket socket, byte[] bytes) {
+            messages.add(bytes);
+        }
+
+        @Override
+        public void onMessage(WebSocket socket, String text) {
+            texts.add(text);
+        }
+
+        @Override
+        public void onFragment(WebSocket socket, Buffer fragment, boolean last) {
+            if (chunks.incrementAndGet() == 1 && isPausing) {
+                socket.pauseReading();
+                paused.add(socket);
+            }
+            if (fragment.remaining() > maxChunkSize.get()) {
+                maxChunkSize.set(fragment.remaining());
+            }
+
+            synchronized (binary) {
+                binary.write(Utils.toArray(fragment), 0, fragment.remaining());
+                if (last) {
+                    messages.add(binary.toByteArray());
+                    binary.reset();
+                }
+            }
+        }
+
+        @Override
+        public void onFragment(WebSocket socket, String fragment, boolean last) {
+            chunks.incrementAndGet();
+            synchronized (text) {
+                text.append(fragment);
+                if (last) {
+                    texts.add(text.toString());
+                    text.setLength(0);
+                }
+            }
+        }
+    }
+}
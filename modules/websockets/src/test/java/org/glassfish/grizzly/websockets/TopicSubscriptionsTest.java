@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.PortRange;
+import org.glassfish.grizzly.websockets.rfc6455.RFC6455Handler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TopicSubscriptions} tests.
+ */
+public class TopicSubscriptionsTest {
+    private static final int PORT = 17254;
+
+    @Test
+    public void testSubscriptions() {
+        final TopicSubscriptions subscriptions = new TopicSubscriptions();
+        final WebSocket[] sockets = sockets(10);
+
+        for (WebSocket socket : sockets) {
+            assertTrue(subscriptions.subscribe(socket, "all"));
+        }
+        assertTrue(subscriptions.subscribe(sockets[0], "first"));
+        assertFalse(subscriptions.subscribe(sockets[0], "first"));
+        assertEquals(new HashSet<String>(Arrays.asList("all", "first")),
+                subscriptions.getTopics(sockets[0]));
+
+        final TopicSubscriptions.Subscribers before = subscriptions.getSubscribers("all");
+        assertEquals(10, before.size());
+        assertEquals(Arrays.asList(sockets), toList(before));
+
+        // the snapshot doesn't see the later subscribers
+        final WebSocket late = sockets(1)[0];
+        subscriptions.subscribe(late, "all");
+        assertEquals(10, toList(before).size());
+        assertEquals(11, subscriptions.getSubscribers("all").size());
+
+        // the unsubscribed sockets are skipped
+        assertTrue(subscriptions.unsubscribe(sockets[3], "all"));
+        assertFalse(subscriptions.unsubscribe(sockets[3], "all"));
+        assertFalse(toList(before).contains(sockets[3]));
+        assertFalse(toList(subscriptions.getSubscribers("all")).contains(sockets[3]));
+
+        subscriptions.unsubscribeAll(sockets[0]);
+        assertTrue(subscriptions.getTopics(sockets[0]).isEmpty());
+        // the empty topic is removed
+        assertTrue(subscriptions.getSubscribers("first").isEmpty());
+        assertFalse(subscriptions.getTopics().contains("first"));
+
+        // the compaction keeps the order
+        final TopicSubscriptions.Subscribers beforeCompaction =
+                subscriptions.getSubscribers("all");
+        for (int i = 1; i < 9; i++) {
+            subscriptions.unsubscribe(sockets[i], "all");
+        }
+        assertEquals(Arrays.asList(sockets[9], late),
+                toList(subscriptions.getSubscribers("all")));
+        // the old snapshot isn't affected by the compaction
+        assertTrue(toList(beforeCompaction).containsAll(
+                Arrays.asList(sockets[9], late)));
+
+        subscriptions.subscribe(sockets[1], "all");
+        assertEquals(Arrays.asList(sockets[9], late, sockets[1]),
+                toList(subscriptions.getSubscribers("all")));
+    }
+
+    @Test
+    public void testConcurrentChurn() throws Exception {
+        final TopicSubscriptions subscriptions = new TopicSubscriptions();
+        final WebSocket[] sockets = sockets(1000);
+        final String[] topics = new String[50];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = "topic-" + i;
+        }
+
+        final int threadsCount = 4;
+        final CountDownLatch latch = new CountDownLatch(threadsCount);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        for (int t = 0; t < threadsCount; t++) {
+            final Random random = new Random(t);
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 100000; i++) {
+                            final WebSocket socket = sockets[random.nextInt(sockets.length)];
+                            final String topic = topics[random.nextInt(topics.length)];
+                            switch (random.nextInt(4)) {
+                                case 0:
+                                    subscriptions.unsubscribe(socket, topic);
+                                    break;
+                                case 1:
+                                    if (random.nextInt(10) == 0) {
+                                        subscriptions.unsubscribeAll(socket);
+                                    }
+                                    break;
+                                case 2:
+                                    for (WebSocket subscriber : subscriptions.getSubscribers(topic)) {
+                                        if (subscriber == null) {
+                                            throw new AssertionError("The hole is visible");
+                                        }
+                                    }
+                                    break;
+                                default:
+                                    subscriptions.subscribe(socket, topic);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        assertTrue(latch.await(60, TimeUnit.SECONDS));
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        // the topic index is consistent with the reverse index
+        for (String topic : topics) {
+            final TopicSubscriptions.Subscribers subscribers =
+                    subscriptions.getSubscribers(topic);
+            final Set<WebSocket> expected = new HashSet<WebSocket>();
+            for (WebSocket socket : sockets) {
+                if (subscriptions.getTopics(socket).contains(topic)) {
+                    expected.add(socket);
+                }
+            }
+
+            final List<WebSocket> actual = toList(subscribers);
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.size(), subscribers.size());
+            assertEquals(expected, new HashSet<WebSocket>(actual));
+        }
+
+        for (WebSocket socket : sockets) {
+            subscriptions.unsubscribeAll(socket);
+        }
+        assertTrue(subscriptions.getTopics().isEmpty());
+    }
+
+    @Test
+    public void testScale() {
+        final int socketsCount = 200000;
+        final int topicsCount = 20000;
+        final TopicSubscriptions subscriptions = new TopicSubscriptions();
+        final WebSocket[] sockets = sockets(socketsCount);
+
+        for (int i = 0; i < socketsCount; i++) {
+            // a topic per 10 sockets and the big topic
+            subscriptions.subscribe(sockets[i], "topic-" + i % topicsCount);
+            subscriptions.subscribe(sockets[i], "big");
+        }
+        assertEquals(topicsCount + 1, subscriptions.getTopics().size());
+        assertEquals(socketsCount / topicsCount,
+                subscriptions.getSubscribers("topic-0").size());
+
+        int count = 0;
+        for (WebSocket ignored : subscriptions.getSubscribers("big")) {
+            count++;
+        }
+        assertEquals(socketsCount, count);
+
+        for (WebSocket socket : sockets) {
+            subscriptions.unsubscribeAll(socket);
+        }
+        assertTrue(subscriptions.getTopics().isEmpty());
+    }
+
+    @Test
+    public void testTopicBroadcast() throws Exception {
+        final WebSocketServer server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        final WebSocketApplication app = new WebSocketApplication() {
+            @Override
+            public void onMessage(WebSocket socket, String text) {
+                if (text.startsWith("join ")) {
+                    socket.subscribe(text.substring(5));
+                } else if (text.startsWith("leave ")) {
+                    socket.unsubscribe(text.substring(6));
+                }
+                socket.send("ok");
+            }
+        };
+        server.register("", "/topics", app);
+
+        final List<WebSocketClient> clients = new ArrayList<WebSocketClient>();
+        final List<BlockingQueue<String>> queues = new ArrayList<BlockingQueue<String>>();
+        try {
+            server.start();
+            for (int i = 0; i < 3; i++) {
+                final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+                final WebSocketClient client = new WebSocketClient(
+                        "ws://localhost:" + PORT + "/topics", new WebSocketAdapter() {
+                            @Override
+                            public void onMessage(WebSocket socket, String text) {
+                                queue.add(text);
+                            }
+                        });
+                client.connect(5, TimeUnit.SECONDS);
+                clients.add(client);
+                queues.add(queue);
+            }
+
+            request(clients.get(0), queues.get(0), "join red");
+            request(clients.get(1), queues.get(1), "join red");
+            request(clients.get(1), queues.get(1), "join blue");
+            request(clients.get(2), queues.get(2), "join blue");
+
+            app.broadcast("red", "to red");
+            app.broadcast("blue", "to blue");
+            app.broadcast("green", "to green");
+            assertEquals("to red", queues.get(0).poll(10, TimeUnit.SECONDS));
+            assertEquals("to red", queues.get(1).poll(10, TimeUnit.SECONDS));
+            assertEquals("to blue", queues.get(1).poll(10, TimeUnit.SECONDS));
+            assertEquals("to blue", queues.get(2).poll(10, TimeUnit.SECONDS));
+
+            request(clients.get(1), queues.get(1), "leave red");
+            // the closed socket is unsubscribed
+            clients.get(0).close();
+            for (int i = 0; i < 100 && !app.getTopicSubscriptions().getSubscribers("red").isEmpty(); i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(app.getTopicSubscriptions().getSubscribers("red").isEmpty());
+
+            app.broadcast("red", "to red");
+            app.broadcast("blue", "to blue");
+            assertEquals("to blue", queues.get(1).poll(10, TimeUnit.SECONDS));
+            assertEquals("to blue", queues.get(2).poll(10, TimeUnit.SECONDS));
+            assertNull(queues.get(1).poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            for (WebSocketClient client : clients) {
+                client.close();
+            }
+            server.stop();
+        }
+    }
+
+    private static void request(final WebSocketClient client,
+            final BlockingQueue<String> queue, final String request)
+            throws InterruptedException {
+        client.send(request);
+        assertEquals("ok", queue.poll(10, TimeUnit.SECONDS));
+    }
+
+    private static List<WebSocket> toList(final Iterable<WebSocket> subscribers) {
+        final List<WebSocket> list = new ArrayList<WebSocket>();
+        for (WebSocket socket : subscribers) {
+            list.add(socket);
+        }
+        return list;
+    }
+
+    private static WebSocket[] sockets(final int count) {
+        final WebSocket[] sockets = new WebSocket[count];
+        for (int i = 0; i < count; i++) {
+            final SimpleWebSocket socket = new SimpleWebSocket(new RFC6455Handler(false));
+            socket.onConnect();
+            sockets[i] = socket;
+        }
+        return sockets;
+    }
+}
@@ -46,6 +46,7 @@ public class WebSocketClient extends SimpleWebSocket {
     private final URI address;
     private final ExecutorService executorService = Executors.newFixedThreadPool(2);
     protected TCPNIOTransport transport;
+    private PerMessageDeflate perMessageDeflate;
 
     public WebSocketClient(String uri, WebSocketListener... listeners) {
         this(uri, WebSocketEngine.DEFAULT_VERSION, listeners);
@@ -66,6 +67,10 @@ public class WebSocketClient extends SimpleWebSocket {
         return address;
     }
 
+    public void setPerMessageDeflate(PerMessageDeflate perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
     public void execute(Runnable runnable) {
         executorService.submit(runnable);
     }
@@ -99,6 +104,9 @@ public class WebSocketClient extends SimpleWebSocket {
                     final WebSocketHolder holder = WebSocketHolder.set(conn, protocolHandler,
                             WebSocketClient.this);
                     holder.handshake = protocolHandler.createClientHandShake(address);
+                    if (perMessageDeflate != null) {
+                        holder.handshake.setPerMessageDeflate(perMessageDeflate);
+                    }
                 }
             };
             final FutureImpl<Boolean> completeFuture = Futures.createSafeFuture();
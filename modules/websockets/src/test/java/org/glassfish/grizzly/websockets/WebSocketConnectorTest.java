@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.websockets;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.PortRange;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.ssl.SSLContextConfigurator;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link WebSocketConnector} and {@link WebSocketPool} tests.
+ */
+public class WebSocketConnectorTest {
+    private static final int PORT = 17257;
+    private static final int SECURE_PORT = 17258;
+    private static final URI ECHO_URI = URI.create("ws://localhost:" + PORT + "/echo");
+
+    private WebSocketServer server;
+    private EchoApplication app;
+    private WebSocketConnector connector;
+
+    @Before
+    public void setUp() throws Exception {
+        app = new EchoApplication();
+        server = startServer(app);
+        connector = new WebSocketConnector();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connector.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testConnect() throws Exception {
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+        final WebSocket socket = connector.connect(ECHO_URI, new WebSocketAdapter() {
+            @Override
+            public void onMessage(WebSocket socket, String text) {
+                queue.add(text);
+            }
+
+            @Override
+            public void onMessage(WebSocket socket, byte[] bytes) {
+                queue.add(bytes);
+            }
+        }).get(10, TimeUnit.SECONDS);
+
+        try {
+            assertTrue(socket.isConnected());
+            socket.send("hello");
+            assertEquals("hello", queue.poll(10, TimeUnit.SECONDS));
+            socket.send(new byte[] {1, 2, 3});
+            assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) queue.poll(10, TimeUnit.SECONDS));
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testHandshakeFailure() throws Exception {
+        final GrizzlyFuture<WebSocket> future = connector.connect(
+                URI.create("ws://localhost:" + PORT + "/unknown"));
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("The handshake must fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), e.getCause() instanceof HandshakeException);
+        }
+    }
+
+    @Test
+    public void testSecureConnect() throws Exception {
+        final NetworkListener listener = new NetworkListener("wss",
+                NetworkListener.DEFAULT_NETWORK_HOST, SECURE_PORT);
+        listener.setSecure(true);
+        listener.setSSLEngineConfig(createSSLConfig(true));
+        listener.registerAddOn(new WebSocketAddOn());
+        final HttpServer secureServer = new HttpServer();
+        secureServer.addListener(listener);
+        secureServer.start();
+
+        connector.setSSLEngineConfigurator(createSSLConfig(false));
+        final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+        try {
+            final WebSocket socket = connector.connect(
+                    URI.create("wss://localhost:" + SECURE_PORT + "/echo"),
+                    new WebSocketAdapter() {
+                        @Override
+                        public void onMessage(WebSocket socket, String text) {
+                            queue.add(text);
+                        }
+                    }).get(10, TimeUnit.SECONDS);
+            try {
+                socket.send("hello");
+                assertEquals("hello", queue.poll(10, TimeUnit.SECONDS));
+            } finally {
+                socket.close();
+            }
+        } finally {
+            secureServer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUnsupportedScheme() {
+        try {
+            connector.connect(URI.create("http://localhost:" + PORT + "/echo"));
+            fail("The http scheme must be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testPoolReconnect() throws Exception {
+        connector.setReconnectBackoff(10, 200, TimeUnit.MILLISECONDS);
+        final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+        final WebSocketPool pool = connector.createPool(ECHO_URI, 10, new WebSocketAdapter() {
+            @Override
+            public void onMessage(WebSocket socket, String text) {
+                queue.add(text);
+            }
+        });
+
+        try {
+            awaitConnected(pool, 10);
+            for (int i = 0; i < 20; i++) {
+                pool.send("message " + i);
+            }
+            for (int i = 0; i < 20; i++) {
+                assertTrue(queue.poll(10, TimeUnit.SECONDS) != null);
+            }
+            // the messages are spread over the sockets
+            assertEquals(10, app.getWebSockets().size());
+
+            // the sockets closed by the server are reconnected
+            for (WebSocket socket : app.getWebSockets()) {
+                socket.close();
+            }
+            awaitReconnects(pool, 10);
+            awaitConnected(pool, 10);
+
+            // the sockets are reconnected once the server is back
+            server.stop();
+            awaitReconnects(pool, 20);
+            server = startServer(app);
+            awaitConnected(pool, 10);
+
+            pool.send("after restart");
+            assertEquals("after restart", queue.poll(10, TimeUnit.SECONDS));
+        } finally {
+            pool.close();
+        }
+
+        assertEquals(0, pool.getConnectedCount());
+        try {
+            pool.send("closed");
+            fail("The closed pool must not send");
+        } catch (WebSocketException expected) {
+        }
+    }
+
+    @Test
+    public void testBackoff() {
+        connector.setReconnectBackoff(100, 1000, TimeUnit.MILLISECONDS);
+        for (int attempt = 0; attempt < 100; attempt++) {
+            final long expected = Math.min(1000, 100L << Math.min(attempt, 30));
+            final long delay = connector.getReconnectDelayMillis(attempt);
+            assertTrue(attempt + ": " + delay, delay >= expected / 2 && delay <= expected);
+        }
+    }
+
+    /**
+     * The load generator opening the pipelined handshakes and driving the
+     * binary echo over loopback.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        final int socketsCount = 1000;
+        final int messagesCount = 50;
+        final byte[] message = new byte[256];
+        Arrays.fill(message, (byte) 'x');
+
+        final CountDownLatch echoed = new CountDownLatch(socketsCount * messagesCount);
+        final WebSocketAdapter listener = new WebSocketAdapter() {
+            @Override
+            public void onMessage(WebSocket socket, byte[] bytes) {
+                // only the intact echoes are counted
+                if (Arrays.equals(message, bytes)) {
+                    echoed.countDown();
+                }
+            }
+        };
+
+        final List<GrizzlyFuture<WebSocket>> futures =
+                new ArrayList<GrizzlyFuture<WebSocket>>(socketsCount);
+        for (int i = 0; i < socketsCount; i++) {
+            futures.add(connector.connect(ECHO_URI, listener));
+        }
+        final List<WebSocket> sockets = new ArrayList<WebSocket>(socketsCount);
+        try {
+            for (GrizzlyFuture<WebSocket> future : futures) {
+                sockets.add(future.get(30, TimeUnit.SECONDS));
+            }
+
+            for (int i = 0; i < messagesCount; i++) {
+                for (WebSocket socket : sockets) {
+                    socket.send(message.clone());
+                }
+            }
+            assertTrue(echoed.await(60, TimeUnit.SECONDS));
+        } finally {
+            for (WebSocket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private static WebSocketServer startServer(final WebSocketApplication app)
+            throws Exception {
+        final WebSocketServer server = new WebSocketServer("0.0.0.0", new PortRange(PORT));
+        server.register("", "/echo", app);
+        server.start();
+        return server;
+    }
+
+    private static SSLEngineConfigurator createSSLConfig(final boolean isServer) {
+        final SSLContextConfigurator sslContextConfigurator =
+                new SSLContextConfigurator();
+        final ClassLoader cl = WebSocketConnectorTest.class.getClassLoader();
+        final URL cacertsUrl = cl.getResource("ssltest-cacerts.jks");
+        if (cacertsUrl != null) {
+            sslContextConfigurator.setTrustStoreFile(cacertsUrl.getFile());
+            sslContextConfigurator.setTrustStorePass("changeit");
+        }
+
+        final URL keystoreUrl = cl.getResource("ssltest-keystore.jks");
+        if (keystoreUrl != null) {
+            sslContextConfigurator.setKeyStoreFile(keystoreUrl.getFile());
+            sslContextConfigurator.setKeyStorePass("changeit");
+        }
+
+        return new SSLEngineConfigurator(sslContextConfigurator.createSSLContext(true),
+                !isServer, false, false);
+    }
+
+    private static void awaitConnected(final WebSocketPool pool, final int count)
+            throws InterruptedException {
+        for (int i = 0; i < 200 && pool.getConnectedCount() < count; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, pool.getConnectedCount());
+    }
+
+    private static void awaitReconnects(final WebSocketPool pool, final long count)
+            throws InterruptedException {
+        for (int i = 0; i < 200 && pool.getReconnectsCount() < count; i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(pool.getReconnectsCount() >= count);
+    }
+
+    private static class EchoApplication extends WebSocketApplication {
+        @Override
+        public void onMessage(WebSocket socket, String text) {
+            socket.send(text);
+        }
+
+        @Override
+        public void onMessage(WebSocket socket, byte[] bytes) {
+            socket.send(bytes);
+        }
+    }
+}